@@ -0,0 +1,181 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.scooterframework.admin.ApplicationConfig;
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
+
+/**
+ * <p>BenchmarkDatabase class starts the application with the benchmark
+ * configuration and loads the benchmark database.</p>
+ *
+ * <p>The database is the in-memory H2 database configured in
+ * <tt>source/benchmark/config/database.properties</tt>. It is created by the
+ * script of the test database, <tt>source/test/db/h2/scooterworks_test.sql</tt>.
+ * Owners and pets are then added until there are <tt>benchmark.rows</tt>
+ * owners, each of whom has two pets.</p>
+ *
+ * <pre>
+ * System properties and default values:
+ *     benchmark.rows        => 1000                                  number of owners
+ *     benchmark.sql         => source/test/db/h2/scooterworks_test.sql  database script
+ *     property.file.location => source/benchmark/config              config directory
+ * </pre>
+ *
+ * @author (Fei) John Chen
+ */
+public class BenchmarkDatabase {
+    private static boolean started = false;
+    private static int rows;
+
+    /**
+     * Starts the application and loads the database. Only the first call
+     * has any effect.
+     */
+    public static synchronized void start() throws Exception {
+        if (started) return;
+
+        startApplication();
+
+        String root = System.getProperty("user.dir");
+        rows = Integer.getInteger("benchmark.rows", 1000).intValue();
+        String script = System.getProperty("benchmark.sql",
+            root + File.separator + "source" + File.separator + "test" + File.separator +
+            "db" + File.separator + "h2" + File.separator + "scooterworks_test.sql");
+
+        Connection connection = SqlExpressUtil.getConnection();
+        try {
+            runScript(connection, script);
+            seed(connection, rows);
+        }
+        finally {
+            DAOUtil.closeConnection(connection);
+        }
+        started = true;
+    }
+
+    /**
+     * Starts the application with the benchmark configuration, without
+     * loading the database. The application is configured as a web
+     * application so that requests can be dispatched.
+     */
+    public static synchronized void startApplication() {
+        String root = System.getProperty("user.dir");
+        if (System.getProperty(ApplicationConfig.SYSTEM_KEY_PROPERTYFILE) == null) {
+            System.setProperty(ApplicationConfig.SYSTEM_KEY_PROPERTYFILE,
+                root + File.separator + "source" + File.separator + "benchmark" + File.separator + "config");
+        }
+        ApplicationConfig.noConsoleDisplay = true;
+        ApplicationConfig.configInstanceForWeb(root, "benchmark").startApplication();
+    }
+
+    /**
+     * Returns number of owners in the database.
+     */
+    public static int getRows() {
+        return rows;
+    }
+
+    private static void runScript(Connection connection, String script) throws Exception {
+        Statement stmt = connection.createStatement();
+        try {
+            for (String sql : readStatements(script)) {
+                try {
+                    stmt.execute(sql);
+                }
+                catch (SQLException ex) {
+                    //tables do not exist the first time
+                    if (!sql.toUpperCase().startsWith("DROP ")) throw ex;
+                }
+            }
+        }
+        finally {
+            DAOUtil.closeStatement(stmt);
+        }
+    }
+
+    private static List<String> readStatements(String script) throws Exception {
+        List<String> statements = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(script));
+        try {
+            StringBuilder sb = new StringBuilder();
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                String s = line.trim();
+                if (s.length() == 0 || s.startsWith("--")) continue;
+                sb.append(s).append(' ');
+                if (s.endsWith(";")) {
+                    String sql = sb.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    sb.setLength(0);
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return statements;
+    }
+
+    private static void seed(Connection connection, int rows) throws SQLException {
+        String[] cities = {"Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee"};
+        PreparedStatement owners = null;
+        PreparedStatement pets = null;
+        try {
+            owners = connection.prepareStatement("INSERT INTO owners " +
+                "(id, first_name, last_name, address, city, telephone, pets_count) VALUES (?, ?, ?, ?, ?, ?, 2)");
+            pets = connection.prepareStatement("INSERT INTO pets " +
+                "(id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)");
+            int firstOwner = 11;
+            int petId = 14;
+            for (int i = firstOwner; i <= rows; i++) {
+                owners.setInt(1, i);
+                owners.setString(2, "First" + i);
+                owners.setString(3, "Last" + (i % 97));
+                owners.setString(4, i + " Main St.");
+                owners.setString(5, cities[i % cities.length]);
+                owners.setString(6, "608555" + (1000 + i % 9000));
+                owners.addBatch();
+
+                for (int j = 0; j < 2; j++) {
+                    pets.setInt(1, petId);
+                    pets.setString(2, "Pet" + petId);
+                    pets.setDate(3, new Date(946684800000L + petId * 86400000L));
+                    pets.setInt(4, 1 + petId % 6);
+                    pets.setInt(5, i);
+                    pets.addBatch();
+                    petId++;
+                }
+
+                if (i % 500 == 0) {
+                    owners.executeBatch();
+                    pets.executeBatch();
+                }
+            }
+            owners.executeBatch();
+            pets.executeBatch();
+            if (!connection.getAutoCommit()) connection.commit();
+        }
+        finally {
+            DAOUtil.closeStatement(owners);
+            DAOUtil.closeStatement(pets);
+        }
+    }
+}
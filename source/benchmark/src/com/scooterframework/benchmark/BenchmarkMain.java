@@ -0,0 +1,101 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>BenchmarkMain class runs benchmark suites from command line and writes
+ * a report.</p>
+ *
+ * <pre>
+ * Usage:
+ *     java com.scooterframework.benchmark.BenchmarkMain [suite class]...
+ *
+ * System properties and default values:
+ *     benchmark.warmup      => 3      warmup iterations of each benchmark
+ *     benchmark.iterations  => 5      measurement iterations of each benchmark
+ *     benchmark.time        => 1000   milliseconds of each iteration
+ *     benchmark.filter      =>        regular expression of benchmark names to run
+ *     benchmark.output      =>        file to write the report to
+ * </pre>
+ *
+ * @author (Fei) John Chen
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java " + BenchmarkMain.class.getName() + " [suite class]...");
+            System.exit(1);
+        }
+
+        //exits explicitly to stop pool and timer threads started by the suites
+        int status = 0;
+        try {
+            run(args);
+        }
+        catch (Throwable ex) {
+            ex.printStackTrace();
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void run(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        int warmup = Integer.getInteger("benchmark.warmup", 3).intValue();
+        int iterations = Integer.getInteger("benchmark.iterations", 5).intValue();
+        long time = Long.getLong("benchmark.time", 1000L).longValue();
+        String filter = System.getProperty("benchmark.filter");
+        runner.setWarmupIterations(warmup);
+        runner.setMeasurementIterations(iterations);
+        runner.setIterationMillis(time);
+        runner.setFilter(filter);
+
+        List<String> report = new ArrayList<String>();
+        report.add("# Scooter benchmarks " + new Date());
+        report.add("# java " + System.getProperty("java.version") + " (" + System.getProperty("java.vm.name") +
+            "), " + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", " +
+            Runtime.getRuntime().availableProcessors() + " processors");
+        report.add("# warmup=" + warmup + ", iterations=" + iterations + ", time=" + time + "ms" +
+            ((filter != null && !"".equals(filter))?(", filter=" + filter):""));
+        report.add(BenchmarkRunner.header());
+        System.out.println(BenchmarkRunner.header());
+
+        for (int i = 0; i < args.length; i++) {
+            Class<? extends BenchmarkSuite> suiteClass = (Class<? extends BenchmarkSuite>)Class.forName(args[i]);
+            for (BenchmarkResult result : runner.run(suiteClass)) {
+                report.add(BenchmarkRunner.format(result));
+            }
+        }
+
+        String output = System.getProperty("benchmark.output");
+        if (output != null && !"".equals(output)) {
+            writeReport(new File(output), report);
+            System.out.println("Report is written to " + output);
+        }
+    }
+
+    private static void writeReport(File file, List<String> lines) throws Exception {
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        PrintWriter pw = new PrintWriter(new FileWriter(file));
+        try {
+            for (String line : lines) pw.println(line);
+        }
+        finally {
+            pw.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark;
+
+/**
+ * BenchmarkResult class holds measurements of a benchmark.
+ *
+ * @author (Fei) John Chen
+ */
+public class BenchmarkResult {
+    private String name;
+    private double[] throughputs;
+    private long operations;
+    private long allocatedBytes;
+    private long nanos;
+
+    BenchmarkResult(String name, double[] throughputs, long operations, long allocatedBytes, long nanos) {
+        this.name = name;
+        this.throughputs = throughputs;
+        this.operations = operations;
+        this.allocatedBytes = allocatedBytes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns name of the benchmark in <tt>Suite.method</tt> format.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns mean of operations per second over the measurement
+     * iterations.
+     */
+    public double getThroughput() {
+        double sum = 0.0;
+        for (int i = 0; i < throughputs.length; i++) sum += throughputs[i];
+        return (throughputs.length == 0)?0.0:(sum / throughputs.length);
+    }
+
+    /**
+     * Returns standard deviation of operations per second over the
+     * measurement iterations.
+     */
+    public double getThroughputError() {
+        if (throughputs.length < 2) return 0.0;
+        double mean = getThroughput();
+        double sum = 0.0;
+        for (int i = 0; i < throughputs.length; i++) {
+            double d = throughputs[i] - mean;
+            sum += d * d;
+        }
+        return Math.sqrt(sum / (throughputs.length - 1));
+    }
+
+    /**
+     * Returns total number of measured operations.
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns bytes allocated per operation, or -1 if the JVM does not
+     * report allocation.
+     */
+    public double getAllocatedBytesPerOperation() {
+        if (allocatedBytes < 0L) return -1.0;
+        return (operations == 0L)?0.0:((double)allocatedBytes / operations);
+    }
+
+    /**
+     * Returns allocation rate in megabytes per second, or -1 if the JVM
+     * does not report allocation.
+     */
+    public double getAllocationRate() {
+        if (allocatedBytes < 0L) return -1.0;
+        return (nanos == 0L)?0.0:(allocatedBytes / 1048576.0 / (nanos / 1000000000.0));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return BenchmarkRunner.format(this);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>BenchmarkRunner class measures throughput and allocation of the
+ * benchmarks of a suite.</p>
+ *
+ * <p>Each benchmark is run for a number of warmup iterations, which are not
+ * measured, and then for a number of measurement iterations. An iteration
+ * calls the benchmark method repeatedly for a fixed time. Calls are made
+ * in batches so that the clock is not read on every call.</p>
+ *
+ * <p>Allocation is read from <tt>com.sun.management.ThreadMXBean</tt> when
+ * the JVM provides it. It is reported as -1 otherwise.</p>
+ *
+ * <p>Benchmark methods are called by reflection, which adds a few
+ * nanoseconds to each call. Results of very short operations should be
+ * compared with each other rather than read as absolute numbers.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class BenchmarkRunner {
+    private static final int MAX_BATCH = 1024;
+
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private long iterationMillis = 1000L;
+    private Pattern filter;
+
+    private int sink;
+
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public void setMeasurementIterations(int measurementIterations) {
+        if (measurementIterations <= 0) throw new IllegalArgumentException("measurementIterations must be positive.");
+        this.measurementIterations = measurementIterations;
+    }
+
+    public void setIterationMillis(long iterationMillis) {
+        if (iterationMillis <= 0L) throw new IllegalArgumentException("iterationMillis must be positive.");
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Sets a regular expression which a benchmark name in
+     * <tt>Suite.method</tt> format must contain to be run.
+     */
+    public void setFilter(String regex) {
+        filter = (regex == null || "".equals(regex))?null:Pattern.compile(regex);
+    }
+
+    /**
+     * Runs all benchmarks of a suite.
+     *
+     * @param suiteClass  the suite
+     * @return results of the benchmarks which are run
+     * @throws Exception if the suite fails
+     */
+    public List<BenchmarkResult> run(Class<? extends BenchmarkSuite> suiteClass) throws Exception {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        List<Method> methods = getBenchmarkMethods(suiteClass);
+        if (methods.size() == 0) return results;
+
+        BenchmarkSuite suite = suiteClass.newInstance();
+        suite.setUp();
+        try {
+            for (Method method : methods) {
+                BenchmarkResult result = measure(suite, method);
+                System.out.println(format(result));
+                results.add(result);
+            }
+        }
+        finally {
+            suite.tearDown();
+        }
+        return results;
+    }
+
+    private List<Method> getBenchmarkMethods(Class<?> suiteClass) {
+        List<Method> methods = new ArrayList<Method>();
+        for (Method method : suiteClass.getMethods()) {
+            if (!method.isAnnotationPresent(Benchmark.class)) continue;
+            if (method.getParameterTypes().length != 0) {
+                throw new IllegalArgumentException("Benchmark method " + method + " must take no argument.");
+            }
+            if (filter != null && !filter.matcher(getName(suiteClass, method)).find()) continue;
+            methods.add(method);
+        }
+
+        Method[] sorted = methods.toArray(new Method[methods.size()]);
+        Arrays.sort(sorted, new Comparator<Method>() {
+            public int compare(Method m1, Method m2) {
+                return m1.getName().compareTo(m2.getName());
+            }
+        });
+        return Arrays.asList(sorted);
+    }
+
+    private BenchmarkResult measure(BenchmarkSuite suite, Method method) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(suite, method);
+        }
+
+        double[] throughputs = new double[measurementIterations];
+        long operations = 0L;
+        long allocated = 0L;
+        long nanos = 0L;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] m = runIteration(suite, method);
+            operations += m[0];
+            nanos += m[1];
+            allocated = (m[2] < 0L || allocated < 0L)?-1L:(allocated + m[2]);
+            throughputs[i] = m[0] / (m[1] / 1000000000.0);
+        }
+        return new BenchmarkResult(getName(suite.getClass(), method), throughputs, operations, allocated, nanos);
+    }
+
+    /**
+     * Runs one iteration and returns operations, nanoseconds and allocated
+     * bytes.
+     */
+    private long[] runIteration(BenchmarkSuite suite, Method method) throws Exception {
+        long duration = iterationMillis * 1000000L;
+        int batch = 1;
+        long operations = 0L;
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        long elapsed = 0L;
+        try {
+            do {
+                for (int i = 0; i < batch; i++) {
+                    Object o = method.invoke(suite);
+                    if (o != null) sink ^= System.identityHashCode(o);
+                }
+                operations += batch;
+                elapsed = System.nanoTime() - start;
+                if (batch < MAX_BATCH && elapsed < duration / 100) batch <<= 1;
+            } while (elapsed < duration);
+        }
+        catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) throw (Exception)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw ex;
+        }
+        long allocatedAfter = getAllocatedBytes();
+        long allocated = (allocatedBefore < 0L || allocatedAfter < 0L)?-1L:(allocatedAfter - allocatedBefore);
+        return new long[]{operations, elapsed, allocated};
+    }
+
+    private static String getName(Class<?> suiteClass, Method method) {
+        return suiteClass.getSimpleName() + "." + method.getName();
+    }
+
+    private static Method allocatedBytesMethod;
+    private static Object threadBean;
+    static {
+        try {
+            Class<?> c = Class.forName("com.sun.management.ThreadMXBean");
+            threadBean = ManagementFactory.getThreadMXBean();
+            if (c.isInstance(threadBean)) {
+                allocatedBytesMethod = c.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        }
+        catch (Exception ex) {
+            allocatedBytesMethod = null;
+        }
+    }
+
+    /**
+     * Returns bytes allocated by the current thread, or -1 if the JVM does
+     * not report it.
+     */
+    public static long getAllocatedBytes() {
+        if (allocatedBytesMethod == null) return -1L;
+        try {
+            Object o = allocatedBytesMethod.invoke(threadBean, Long.valueOf(Thread.currentThread().getId()));
+            return ((Long)o).longValue();
+        }
+        catch (Exception ex) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Returns the header of the result table.
+     */
+    public static String header() {
+        return String.format("%-52s %16s %12s %14s %12s", "Benchmark", "ops/s", "error", "bytes/op", "MB/s");
+    }
+
+    /**
+     * Returns a result as a row of the result table.
+     */
+    public static String format(BenchmarkResult r) {
+        return String.format("%-52s %16.1f %12.1f %14.1f %12.1f", r.getName(), r.getThroughput(),
+            r.getThroughputError(), r.getAllocatedBytesPerOperation(), r.getAllocationRate());
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark;
+
+/**
+ * BenchmarkSuite class is super class of all benchmark suites. A suite
+ * holds a group of methods annotated with {@link Benchmark} which share the
+ * same fixture.
+ *
+ * @author (Fei) John Chen
+ */
+public abstract class BenchmarkSuite {
+
+    /**
+     * Prepares the fixture. This method is called once before all
+     * benchmarks of the suite.
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Releases the fixture. This method is called once after all
+     * benchmarks of the suite.
+     */
+    public void tearDown() throws Exception {
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.common;
+
+import java.util.Date;
+import java.util.Locale;
+
+import com.scooterframework.benchmark.Benchmark;
+import com.scooterframework.benchmark.BenchmarkDatabase;
+import com.scooterframework.benchmark.BenchmarkSuite;
+import com.scooterframework.cache.CacheKey;
+import com.scooterframework.common.util.BeanUtil;
+import com.scooterframework.common.util.DateUtil;
+import com.scooterframework.common.util.WordUtil;
+import com.scooterframework.web.util.T;
+
+/**
+ * UtilBenchmarks class measures common utilities which are called many
+ * times in each request.
+ *
+ * @author (Fei) John Chen
+ */
+public class UtilBenchmarks extends BenchmarkSuite {
+    private static final String[] SINGLES = {"post", "comment", "category",
+        "person", "status", "box", "company", "vet_specialty", "child", "address"};
+    private static final String[] PLURALS = {"posts", "comments", "categories",
+        "people", "statuses", "boxes", "companies", "vet_specialties", "children", "addresses"};
+    private static final String[] FIELDS = {"first_name", "last_name",
+        "created_at", "vet_specialties", "pets_count", "id"};
+    private static final String[] DATES = {"2011-10-19", "10/19/2011 14:30",
+        "2011-10-19 14:30:05", "2011-10-19 14:30:05.123", "14:30"};
+
+    private Pet pet;
+    private Date date;
+    private int next;
+
+    public void setUp() throws Exception {
+        BenchmarkDatabase.startApplication();
+        pet = new Pet("Leo", new Owner("George", "Franklin"));
+        date = new Date();
+    }
+
+    private int next(int length) {
+        next = (next + 1) % length;
+        return next;
+    }
+
+    @Benchmark
+    public Object beanProperty() {
+        return BeanUtil.getBeanProperty(pet, "name");
+    }
+
+    @Benchmark
+    public Object beanNestedProperty() {
+        return BeanUtil.getBeanProperty(pet, "owner.first_name");
+    }
+
+    @Benchmark
+    public Object wordPluralize() {
+        return WordUtil.pluralize(SINGLES[next(SINGLES.length)]);
+    }
+
+    @Benchmark
+    public Object wordSingularize() {
+        return WordUtil.singularize(PLURALS[next(PLURALS.length)]);
+    }
+
+    @Benchmark
+    public Object wordCamelize() {
+        return WordUtil.camelize(FIELDS[next(FIELDS.length)]);
+    }
+
+    @Benchmark
+    public Object dateParse() {
+        return DateUtil.parseDate(DATES[next(DATES.length)], Locale.US);
+    }
+
+    @Benchmark
+    public Object dateFormat() {
+        return T.textOfDate(date, "yyyy-MM-dd HH:mm:ss", Locale.US);
+    }
+
+    @Benchmark
+    public Object cacheKey() {
+        return CacheKey.getCacheKey("com.example.models.Post", "findAll",
+            "owner_id = ?", Integer.valueOf(next(1000)), "comments");
+    }
+
+    public static class Owner {
+        private String firstName;
+        private String lastName;
+
+        public Owner(String firstName, String lastName) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+    }
+
+    public static class Pet {
+        private String name;
+        private Owner owner;
+
+        public Pet(String name, Owner owner) {
+            this.name = name;
+            this.owner = owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Owner getOwner() {
+            return owner;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.controllers;
+
+import static com.scooterframework.web.controller.ActionControl.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostsController class is the controller of dispatch benchmarks. Its
+ * actions render data without a database or a view template, so that a
+ * benchmark measures the framework only.
+ *
+ * @author (Fei) John Chen
+ */
+public class PostsController {
+
+	static {
+		filterManagerFor(PostsController.class).declareBeforeFilter("loadUser, checkAccess");
+		filterManagerFor(PostsController.class).declareBeforeFilter("loadPost", "only", "show, update");
+		filterManagerFor(PostsController.class).declareAfterFilter("audit");
+	}
+
+	public String loadUser() {
+		storeToRequest("current_user", "benchmark");
+		return null;
+	}
+
+	public String checkAccess() {
+		return (getFromRequestData("current_user") != null)?null:redirectTo("/login");
+	}
+
+	public String loadPost() {
+		storeToRequest("post", post(p("id")));
+		return null;
+	}
+
+	public String audit() {
+		return null;
+	}
+
+	public String index() {
+		List<Map<String, Object>> posts = new ArrayList<Map<String, Object>>();
+		for (int i = 1; i <= 10; i++) {
+			posts.add(post(String.valueOf(i)));
+		}
+		return render(posts);
+	}
+
+	public String show() {
+		return render(getFromRequestData("post"));
+	}
+
+	public String update() {
+		return render(getFromRequestData("post"));
+	}
+
+	private Map<String, Object> post(String id) {
+		Map<String, Object> post = new LinkedHashMap<String, Object>();
+		post.put("id", id);
+		post.put("title", "Post " + id);
+		post.put("body", "Body of post " + id);
+		post.put("comments_count", Integer.valueOf(3));
+		return post;
+	}
+}
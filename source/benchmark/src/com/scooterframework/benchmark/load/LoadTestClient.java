@@ -0,0 +1,290 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scooterframework.common.monitor.Histogram;
+
+/**
+ * <p>LoadTestClient class drives the blog application with a number of
+ * concurrent users. Each user repeatedly picks an operation from a
+ * weighted mix and sends its request, without think time.</p>
+ *
+ * <p>Supported operations are:</p>
+ * <pre>
+ *     list    GET  /posts?paged=true&amp;r=page&amp;npage=n
+ *     show    GET  /posts/{id}
+ *     create  POST /posts
+ *     update  PUT  /posts/{id}    (sent as POST with _method=PUT)
+ * </pre>
+ *
+ * <p>A mix is written as <tt>list:20, show:60, create:10, update:10</tt>.
+ * Ids of shown and updated posts are picked from the seeded posts.
+ * Responses with status 200 and a body, or with status 302, are
+ * successful. Redirects are not followed. Connections are kept alive by
+ * <tt>HttpURLConnection</tt>.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LoadTestClient {
+    public static final String LIST = "list";
+    public static final String SHOW = "show";
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+
+    private static final int PAGE_SIZE = 10;
+    private static final int EMPTY_BODY = 0;
+
+    private final String baseURL;
+    private final int posts;
+    private final Map<String, Integer> mix;
+    private final String[] wheel;
+
+    /**
+     * @param baseURL  url of the application, for example <tt>http://localhost:8080/blog</tt>
+     * @param posts    number of seeded posts
+     * @param mix      weighted mix of operations
+     */
+    public LoadTestClient(String baseURL, int posts, String mix) {
+        this.baseURL = baseURL;
+        this.posts = posts;
+        this.mix = parseMix(mix);
+
+        List<String> list = new ArrayList<String>();
+        for (Map.Entry<String, Integer> entry : this.mix.entrySet()) {
+            for (int i = 0; i < entry.getValue().intValue(); i++) list.add(entry.getKey());
+        }
+        wheel = list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * Returns operations of the mix with their weights in order.
+     */
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    /**
+     * Runs the users for a period of time.
+     *
+     * @param users   number of concurrent users
+     * @param millis  duration in milliseconds
+     * @return results of the operations
+     * @throws InterruptedException
+     */
+    public Result run(int users, long millis) throws InterruptedException {
+        final Result result = new Result(mix.keySet());
+        final long deadline = System.nanoTime() + millis * 1000000L;
+        Thread[] threads = new Thread[users];
+        for (int i = 0; i < users; i++) {
+            final Random random = new Random(31L * i + 17L);
+            threads[i] = new Thread("loadtest-user-" + i) {
+                public void run() {
+                    while (System.nanoTime() < deadline) {
+                        execute(wheel[random.nextInt(wheel.length)], random, result);
+                    }
+                }
+            };
+            threads[i].setDaemon(true);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) threads[i].start();
+        for (int i = 0; i < users; i++) threads[i].join();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void execute(String operation, Random random, Result result) {
+        int id = 1 + random.nextInt(posts);
+        String method = "GET";
+        String path = null;
+        Map<String, String> params = null;
+        if (LIST.equals(operation)) {
+            int pages = Math.max(1, posts / PAGE_SIZE);
+            path = "/posts?paged=true&r=page&npage=" + (1 + random.nextInt(pages));
+        }
+        else if (SHOW.equals(operation)) {
+            path = "/posts/" + id;
+        }
+        else if (CREATE.equals(operation)) {
+            method = "POST";
+            path = "/posts";
+            params = postParams(random);
+        }
+        else if (UPDATE.equals(operation)) {
+            method = "POST";
+            path = "/posts/" + id;
+            params = postParams(random);
+            params.put("_method", "PUT");
+        }
+
+        OperationResult or = result.get(operation);
+        long start = System.nanoTime();
+        int status = -1;
+        try {
+            status = send(method, baseURL + path, params);
+        }
+        catch (IOException ex) {
+            or.recordError(method + " " + path + ": " + ex.getMessage());
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_MOVED_TEMP) {
+            or.latency.recordNanos(nanos);
+            result.all.recordNanos(nanos);
+        }
+        else if (status == EMPTY_BODY) {
+            or.recordError(method + " " + path + ": empty response body");
+        }
+        else if (status != -1) {
+            or.recordError(method + " " + path + ": status " + status);
+        }
+    }
+
+    private Map<String, String> postParams(Random random) {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        int n = random.nextInt(100000);
+        params.put("name", "load" + (n % 1000));
+        params.put("title", "Load test post " + n);
+        params.put("content", "Written by the load test, number " + n + ".");
+        return params;
+    }
+
+    private int send(String method, String url, Map<String, String> params) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
+        conn.setInstanceFollowRedirects(false);
+        conn.setRequestMethod(method);
+        if (params != null) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                if (sb.length() > 0) sb.append('&');
+                sb.append(entry.getKey()).append('=').append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+            }
+            byte[] body = sb.toString().getBytes("UTF-8");
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            conn.setFixedLengthStreamingMode(body.length);
+            OutputStream out = conn.getOutputStream();
+            out.write(body);
+            out.close();
+        }
+
+        int status = conn.getResponseCode();
+        //reads the whole body so that the connection can be reused
+        InputStream in = (status >= 400)?conn.getErrorStream():conn.getInputStream();
+        long length = 0L;
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            int n = 0;
+            while ((n = in.read(buffer)) != -1) {
+                length += n;
+            }
+            in.close();
+        }
+
+        //a view which fails to render may leave an empty page
+        return (status == HttpURLConnection.HTTP_OK && length == 0L)?EMPTY_BODY:status;
+    }
+
+    private static Map<String, Integer> parseMix(String s) {
+        Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+        StringTokenizer st = new StringTokenizer(s, ",");
+        while (st.hasMoreTokens()) {
+            String item = st.nextToken().trim();
+            int colon = item.indexOf(':');
+            String operation = (colon == -1)?item:item.substring(0, colon).trim();
+            int weight = (colon == -1)?1:Integer.parseInt(item.substring(colon + 1).trim());
+            if (!LIST.equals(operation) && !SHOW.equals(operation) &&
+                !CREATE.equals(operation) && !UPDATE.equals(operation)) {
+                throw new IllegalArgumentException("Unknown operation \"" + operation + "\" in mix \"" + s + "\".");
+            }
+            if (weight > 0) map.put(operation, Integer.valueOf(weight));
+        }
+        if (map.size() == 0) throw new IllegalArgumentException("Mix \"" + s + "\" has no operation.");
+        return map;
+    }
+
+    /**
+     * Result class holds results of a run.
+     */
+    public static class Result {
+        private final Map<String, OperationResult> operations = new LinkedHashMap<String, OperationResult>();
+        private final Histogram all = new Histogram();
+        private long elapsedNanos;
+
+        Result(Iterable<String> names) {
+            for (String name : names) operations.put(name, new OperationResult());
+        }
+
+        public OperationResult get(String operation) {
+            return operations.get(operation);
+        }
+
+        /**
+         * Returns latencies of all successful requests.
+         */
+        public Histogram getLatency() {
+            return all;
+        }
+
+        public long getErrors() {
+            long errors = 0L;
+            for (OperationResult or : operations.values()) errors += or.getErrors();
+            return errors;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1000000000.0;
+        }
+    }
+
+    /**
+     * OperationResult class holds results of an operation.
+     */
+    public static class OperationResult {
+        private final Histogram latency = new Histogram();
+        private final AtomicLong errors = new AtomicLong();
+        private volatile String firstError;
+
+        void recordError(String message) {
+            if (errors.incrementAndGet() == 1L) firstError = message;
+        }
+
+        /**
+         * Returns latencies of successful requests.
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Returns description of the first failed request, or null.
+         */
+        public String getFirstError() {
+            return firstError;
+        }
+    }
+}
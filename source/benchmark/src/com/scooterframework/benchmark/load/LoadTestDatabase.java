@@ -0,0 +1,105 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.load;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+
+/**
+ * <p>LoadTestDatabase class creates and seeds the database of the blog
+ * application for load tests.</p>
+ *
+ * <p>The database is an in-memory H2 database which lives as long as the
+ * JVM. It is loaded with plain JDBC before the web server is started, and
+ * then used by the application through the connection configured in
+ * <tt>source/benchmark/loadtest/database.properties</tt>.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LoadTestDatabase {
+    private static final String[] DDL = {
+        "DROP TABLE IF EXISTS comments",
+        "DROP TABLE IF EXISTS posts",
+        "CREATE TABLE posts (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), " +
+            "title VARCHAR(255), content CLOB, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at TIMESTAMP)",
+        "CREATE TABLE comments (id INT AUTO_INCREMENT PRIMARY KEY, commenter VARCHAR(255), " +
+            "body CLOB, post_id INT, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at TIMESTAMP)",
+        "CREATE INDEX comments_post_id ON comments (post_id)"
+    };
+
+    /**
+     * Creates the tables and loads posts and their comments. Posts have
+     * ids from 1 to <tt>posts</tt>.
+     *
+     * @param url              JDBC url of the database
+     * @param posts            number of posts
+     * @param commentsPerPost  number of comments of each post
+     * @throws SQLException
+     */
+    public static void seed(String url, int posts, int commentsPerPost) throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        }
+        catch (ClassNotFoundException ex) {
+            throw new SQLException("H2 driver is not found: " + ex.getMessage());
+        }
+
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        Statement stmt = null;
+        PreparedStatement postStmt = null;
+        PreparedStatement commentStmt = null;
+        try {
+            stmt = connection.createStatement();
+            for (int i = 0; i < DDL.length; i++) {
+                stmt.execute(DDL[i]);
+            }
+
+            postStmt = connection.prepareStatement(
+                "INSERT INTO posts (id, name, title, content, updated_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)");
+            commentStmt = connection.prepareStatement(
+                "INSERT INTO comments (commenter, body, post_id, updated_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP)");
+            for (int i = 1; i <= posts; i++) {
+                postStmt.setInt(1, i);
+                postStmt.setString(2, "user" + (i % 100));
+                postStmt.setString(3, "Post number " + i);
+                postStmt.setString(4, "Content of post " + i + ", short enough for a tweet.");
+                postStmt.addBatch();
+
+                for (int j = 1; j <= commentsPerPost; j++) {
+                    commentStmt.setString(1, "reader" + j);
+                    commentStmt.setString(2, "Comment " + j + " on post " + i);
+                    commentStmt.setInt(3, i);
+                    commentStmt.addBatch();
+                }
+
+                if (i % 500 == 0) {
+                    postStmt.executeBatch();
+                    commentStmt.executeBatch();
+                }
+            }
+            postStmt.executeBatch();
+            commentStmt.executeBatch();
+
+            //new posts are created after the seeded ones
+            stmt.execute("ALTER TABLE posts ALTER COLUMN id RESTART WITH " + (posts + 1));
+        }
+        finally {
+            DAOUtil.closeStatement(stmt);
+            DAOUtil.closeStatement(postStmt);
+            DAOUtil.closeStatement(commentStmt);
+            DAOUtil.closeConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.load;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.jetty.webapp.WebAppContext;
+import org.mortbay.thread.QueuedThreadPool;
+
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.Histogram;
+
+/**
+ * <p>LoadTestMain class runs an end-to-end load test of the blog
+ * application in one JVM. It seeds an in-memory H2 database, starts the
+ * application on an embedded Jetty server, drives it with
+ * {@link LoadTestClient} and writes a report.</p>
+ *
+ * <p>The application directory must be prepared by the <tt>loadtest</tt>
+ * Ant target, which copies the application, compiles and enhances its
+ * classes and applies the config files in <tt>source/benchmark/loadtest</tt>.</p>
+ *
+ * <p>The report has, for each operation and in total, number of successful
+ * requests and of errors, successful requests per second, latency mean and
+ * percentiles in milliseconds as seen by the client, and average SQL
+ * statements and bytes allocated per request on the server.</p>
+ *
+ * <pre>
+ * System properties and default values:
+ *     loadtest.app       =>                              prepared application directory
+ *     loadtest.url       => jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1   database url
+ *     loadtest.port      => 0        server port, 0 for any free port
+ *     loadtest.rows      => 1000     number of seeded posts
+ *     loadtest.comments  => 3        number of comments of each post
+ *     loadtest.users     => 8        number of concurrent users
+ *     loadtest.warmup    => 10       seconds of warmup, not measured
+ *     loadtest.duration  => 30       seconds of measurement
+ *     loadtest.mix       => list:20, show:60, create:10, update:10
+ *     loadtest.output    =>          file to write the report to
+ * </pre>
+ *
+ * @author (Fei) John Chen
+ */
+public class LoadTestMain {
+    private static final Map<String, String> ACTIONS = new HashMap<String, String>();
+    static {
+        ACTIONS.put(LoadTestClient.LIST, "index");
+        ACTIONS.put(LoadTestClient.SHOW, "show");
+        ACTIONS.put(LoadTestClient.CREATE, "create");
+        ACTIONS.put(LoadTestClient.UPDATE, "update");
+    }
+
+    public static void main(String[] args) {
+        //exits explicitly to stop server, pool and timer threads
+        int status = 0;
+        try {
+            run();
+        }
+        catch (Throwable ex) {
+            ex.printStackTrace();
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    private static void run() throws Exception {
+        String app = System.getProperty("loadtest.app");
+        if (app == null || "".equals(app)) {
+            throw new IllegalArgumentException("Please specify -Dloadtest.app=...");
+        }
+        File appDir = new File(app).getCanonicalFile();
+        if (!new File(appDir, "WEB-INF").isDirectory()) {
+            throw new IllegalArgumentException("App path \"" + app + "\" is not a web application.");
+        }
+
+        String url = System.getProperty("loadtest.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        int port = Integer.getInteger("loadtest.port", 0).intValue();
+        int rows = Integer.getInteger("loadtest.rows", 1000).intValue();
+        int comments = Integer.getInteger("loadtest.comments", 3).intValue();
+        int users = Integer.getInteger("loadtest.users", 8).intValue();
+        int warmup = Integer.getInteger("loadtest.warmup", 10).intValue();
+        int duration = Integer.getInteger("loadtest.duration", 30).intValue();
+        String mix = System.getProperty("loadtest.mix", "list:20, show:60, create:10, update:10");
+        if (rows <= 0) throw new IllegalArgumentException("loadtest.rows must be positive.");
+        if (users <= 0) throw new IllegalArgumentException("loadtest.users must be positive.");
+        if (duration <= 0) throw new IllegalArgumentException("loadtest.duration must be positive.");
+
+        System.out.println("Seeding " + rows + " posts with " + comments + " comments each");
+        LoadTestDatabase.seed(url, rows, comments);
+
+        String contextPath = "/" + appDir.getName();
+        Server server = startServer(appDir, contextPath, port, users);
+        try {
+            int localPort = server.getConnectors()[0].getLocalPort();
+            String baseURL = "http://localhost:" + localPort + contextPath;
+            System.out.println("Started " + baseURL);
+
+            RequestStatsListener listener = new RequestStatsListener();
+            EventRecorder.addListener(listener);
+            if (!EventRecorder.isEnabled()) {
+                System.out.println("Events are off, sql and allocation per request are not reported.");
+            }
+
+            LoadTestClient client = new LoadTestClient(baseURL, rows, mix);
+            if (warmup > 0) {
+                System.out.println("Warming up for " + warmup + " seconds");
+                client.run(users, warmup * 1000L);
+            }
+
+            listener.reset();
+            System.out.println("Measuring for " + duration + " seconds with " + users + " users");
+            LoadTestClient.Result result = client.run(users, duration * 1000L);
+
+            List<String> lines = new ArrayList<String>();
+            lines.add("# Scooter load test " + new Date());
+            lines.add("# java " + System.getProperty("java.version") + " (" + System.getProperty("java.vm.name") +
+                "), " + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", " +
+                Runtime.getRuntime().availableProcessors() + " processors");
+            lines.add("# app=" + appDir.getName() + ", rows=" + rows + ", comments=" + comments +
+                ", users=" + users + ", warmup=" + warmup + "s, duration=" + duration + "s, mix=" + mix);
+            lines.addAll(report(result, listener, client));
+            for (String line : lines) System.out.println(line);
+
+            String output = System.getProperty("loadtest.output");
+            if (output != null && !"".equals(output)) {
+                writeReport(new File(output), lines);
+                System.out.println("Report is written to " + output);
+            }
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    private static Server startServer(File appDir, String contextPath, int port, int users)
+    throws Exception {
+        Server server = new Server();
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setPort(port);
+        server.addConnector(connector);
+
+        QueuedThreadPool pool = new QueuedThreadPool();
+        pool.setMaxThreads(Math.max(20, users * 2 + 4));
+        server.setThreadPool(pool);
+
+        WebAppContext context = new WebAppContext(appDir.getPath(), contextPath);
+        server.setHandler(context);
+        server.start();
+        if (context.getUnavailableException() != null) {
+            throw new IllegalStateException("Application failed to start.", context.getUnavailableException());
+        }
+        return server;
+    }
+
+    private static List<String> report(LoadTestClient.Result result, RequestStatsListener listener,
+            LoadTestClient client) {
+        List<String> lines = new ArrayList<String>();
+        lines.add(String.format("%-10s %10s %8s %10s %9s %9s %9s %9s %9s %9s %12s",
+            "Operation", "requests", "errors", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms",
+            "max ms", "sql/req", "bytes/req"));
+
+        double seconds = result.getElapsedSeconds();
+        long requests = 0L;
+        double sql = 0.0;
+        double bytes = 0.0;
+        long samples = 0L;
+        for (String operation : client.getMix().keySet()) {
+            LoadTestClient.OperationResult or = result.get(operation);
+            RequestStatsListener.ActionStats as = listener.getStats(ACTIONS.get(operation));
+            double sqlPerRequest = (as != null)?as.getSqlPerRequest():-1.0;
+            double bytesPerRequest = (as != null)?as.getBytesPerRequest():-1.0;
+            lines.add(format(operation, or.getLatency(), or.getErrors(), seconds, sqlPerRequest, bytesPerRequest));
+            if (or.getFirstError() != null) lines.add("#   first error: " + or.getFirstError());
+
+            if (as != null) {
+                requests += as.getRequests();
+                sql += sqlPerRequest * as.getRequests();
+                if (bytesPerRequest >= 0.0) {
+                    bytes += bytesPerRequest * as.getRequests();
+                    samples += as.getRequests();
+                }
+            }
+        }
+        lines.add(format("total", result.getLatency(), result.getErrors(), seconds,
+            (requests == 0L)?-1.0:(sql / requests), (samples == 0L)?-1.0:(bytes / samples)));
+        return lines;
+    }
+
+    private static String format(String name, Histogram h, long errors, double seconds,
+            double sqlPerRequest, double bytesPerRequest) {
+        return String.format("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %12.0f",
+            name, h.getCount(), errors, h.getCount() / seconds, h.getMeanMicros() / 1000.0,
+            h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+            h.getValueAtPercentile(99) / 1000.0, h.getMaxMicros() / 1000.0,
+            sqlPerRequest, bytesPerRequest);
+    }
+
+    private static void writeReport(File file, List<String> lines) throws Exception {
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        PrintWriter pw = new PrintWriter(new FileWriter(file));
+        try {
+            for (String line : lines) pw.println(line);
+        }
+        finally {
+            pw.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.load;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scooterframework.benchmark.BenchmarkRunner;
+import com.scooterframework.common.monitor.EventListener;
+import com.scooterframework.common.monitor.FrameworkEvent;
+
+/**
+ * <p>RequestStatsListener class counts SQL statements and heap allocation
+ * of each request on the server side, grouped by action.</p>
+ *
+ * <p>Events are passed to listeners in the thread which executes the
+ * request. SQL events are counted in the thread until the request event
+ * arrives. Allocation of a request is the memory allocated by its thread
+ * since the previous request of the thread ended. The first request of a
+ * thread has no allocation sample.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class RequestStatsListener implements EventListener {
+    private final ConcurrentMap<String, ActionStats> stats = new ConcurrentHashMap<String, ActionStats>();
+    private volatile long generation = 0L;
+
+    /**
+     * Holds generation, SQL count and allocated bytes at the end of the
+     * last request of a thread.
+     */
+    private final ThreadLocal<long[]> threadState = new ThreadLocal<long[]>() {
+        protected long[] initialValue() {
+            return new long[]{-1L, 0L, -1L};
+        }
+    };
+
+    public void onEvent(FrameworkEvent event) {
+        long[] state = threadState.get();
+        if (state[0] != generation) {
+            state[0] = generation;
+            state[1] = 0L;
+            state[2] = -1L;
+        }
+
+        String type = event.getType();
+        if (FrameworkEvent.TYPE_SQL.equals(type)) {
+            state[1]++;
+        }
+        else if (FrameworkEvent.TYPE_REQUEST.equals(type)) {
+            long allocated = BenchmarkRunner.getAllocatedBytes();
+            ActionStats as = getActionStats(String.valueOf(event.get("action")));
+            as.requests.incrementAndGet();
+            as.sql.addAndGet(state[1]);
+            if (state[2] >= 0L && allocated >= 0L) {
+                as.allocatedBytes.addAndGet(allocated - state[2]);
+                as.allocationSamples.incrementAndGet();
+            }
+            state[1] = 0L;
+            state[2] = allocated;
+        }
+    }
+
+    /**
+     * Removes all counts. Counts of requests in progress are dropped.
+     */
+    public void reset() {
+        stats.clear();
+        generation++;
+    }
+
+    /**
+     * Returns counts of an action, or null if the action has no request.
+     */
+    public ActionStats getStats(String action) {
+        return stats.get(action);
+    }
+
+    private ActionStats getActionStats(String action) {
+        ActionStats as = stats.get(action);
+        if (as == null) {
+            as = new ActionStats();
+            ActionStats existing = stats.putIfAbsent(action, as);
+            if (existing != null) as = existing;
+        }
+        return as;
+    }
+
+    /**
+     * ActionStats class holds counts of an action.
+     */
+    public static class ActionStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong sql = new AtomicLong();
+        final AtomicLong allocatedBytes = new AtomicLong();
+        final AtomicLong allocationSamples = new AtomicLong();
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /**
+         * Returns average number of SQL statements of a request.
+         */
+        public double getSqlPerRequest() {
+            long n = requests.get();
+            return (n == 0L)?0.0:((double)sql.get() / n);
+        }
+
+        /**
+         * Returns average bytes allocated by a request, or -1 if the JVM
+         * does not report allocation.
+         */
+        public double getBytesPerRequest() {
+            long n = allocationSamples.get();
+            return (n == 0L)?-1.0:((double)allocatedBytes.get() / n);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.orm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import com.scooterframework.benchmark.Benchmark;
+import com.scooterframework.benchmark.BenchmarkDatabase;
+import com.scooterframework.benchmark.BenchmarkSuite;
+import com.scooterframework.orm.activerecord.ActiveRecord;
+import com.scooterframework.orm.activerecord.ActiveRecordUtil;
+import com.scooterframework.orm.activerecord.Calculator;
+import com.scooterframework.orm.activerecord.TableGateway;
+import com.scooterframework.orm.sqldataexpress.connection.RequestConnections;
+import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
+import com.scooterframework.orm.sqldataexpress.processor.JdbcStatementProcessor;
+import com.scooterframework.orm.sqldataexpress.service.AsyncSqlServiceClient;
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
+import com.scooterframework.test.models.Owner;
+import com.scooterframework.test.models.Pet;
+
+/**
+ * <p>OrmBenchmarks class measures the hot paths of ActiveRecord and SQL
+ * Data Express against the benchmark database.</p>
+ *
+ * <p>Models are accessed through their gateway and calculator rather than
+ * static finders, because static finders need the models to be enhanced.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class OrmBenchmarks extends BenchmarkSuite {
+    private TableGateway owners;
+    private TableGateway pets;
+    private Calculator petCalculator;
+    private ActiveRecord owner;
+    private List<ActiveRecord> syncOwners;
+    private DBAdapter dba;
+    private UserDatabaseConnection udc;
+    private JdbcStatement petsByOwner;
+    private Connection connection;
+    private PreparedStatement scrollStatement;
+    private ResultSet scrollResultSet;
+    private String[] columnClasses;
+    private int[] columnTypes;
+    private int rows;
+    private int next;
+
+    public void setUp() throws Exception {
+        BenchmarkDatabase.start();
+        rows = BenchmarkDatabase.getRows();
+
+        owners = ActiveRecordUtil.getGateway(Owner.class);
+        pets = ActiveRecordUtil.getGateway(Pet.class);
+        petCalculator = ActiveRecordUtil.getCalculator(Pet.class);
+        owner = owners.findById(1);
+        syncOwners = owners.orderBy("id").limit(20).getRecords();
+
+        String connName = owner.getConnectionName();
+        dba = DBAdapterFactory.getInstance().getAdapter(connName);
+        udc = SqlExpressUtil.getUserDatabaseConnection(connName);
+        petsByOwner = SqlExpressUtil.createJdbcStatementDirect("SELECT * FROM pets WHERE owner_id = ?owner_id");
+
+        connection = SqlExpressUtil.getConnection(connName);
+        scrollStatement = connection.prepareStatement("SELECT * FROM owners",
+            ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        scrollResultSet = scrollStatement.executeQuery();
+        ResultSetMetaData rsmd = scrollResultSet.getMetaData();
+        columnClasses = new String[rsmd.getColumnCount()];
+        columnTypes = new int[rsmd.getColumnCount()];
+        for (int i = 0; i < columnClasses.length; i++) {
+            columnClasses[i] = rsmd.getColumnClassName(i + 1);
+            columnTypes[i] = rsmd.getColumnType(i + 1);
+        }
+    }
+
+    public void tearDown() throws Exception {
+        DAOUtil.closeResultSet(scrollResultSet);
+        DAOUtil.closeStatement(scrollStatement);
+        DAOUtil.closeConnection(connection);
+        DAOUtil.closeConnection(udc);
+    }
+
+    private int nextId() {
+        next = (next % rows) + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Object newRecord() {
+        ActiveRecord record = new Owner();
+        record.setData("first_name", "George");
+        record.setData("last_name", "Franklin");
+        record.setData("city", "Madison");
+        return record;
+    }
+
+    @Benchmark
+    public Object gatewayFindById() {
+        return owners.findById(nextId());
+    }
+
+    @Benchmark
+    public Object gatewayFindAll() {
+        return pets.findAll("owner_id = " + nextId());
+    }
+
+    @Benchmark
+    public Object gatewayFindAllPage() {
+        return owners.orderBy("id").limit(20).offset(nextId() % (rows - 20)).getRecords();
+    }
+
+    @Benchmark
+    public Object queryIncludes() {
+        int id = nextId();
+        List<ActiveRecord> list = owners.includes("pets").where("owners.id BETWEEN " + id + " AND " + (id + 9)).getRecords();
+        for (ActiveRecord record : list) {
+            record.allAssociated("pets").getRecords();
+        }
+        return list;
+    }
+
+    @Benchmark
+    public Object requestPage() {
+        return loadPage();
+    }
+
+    @Benchmark
+    public Object requestPagePinned() {
+        RequestConnections.setEnabled(true);
+        RequestConnections.begin();
+        try {
+            return loadPage();
+        }
+        finally {
+            RequestConnections.end();
+            RequestConnections.setEnabled(false);
+        }
+    }
+
+    @Benchmark
+    public Object syncFindThenSave() {
+        for (ActiveRecord record : syncOwners) {
+            ActiveRecord found = owners.findById(record.getField("id"));
+            found.setData("telephone", record.getField("telephone"));
+            found.save();
+        }
+        return syncOwners;
+    }
+
+    @Benchmark
+    public Object syncUpsertBatch() {
+        return owners.upsert(syncOwners, "id", null);
+    }
+
+    private Object loadPage() {
+        List<ActiveRecord> list = new ArrayList<ActiveRecord>();
+        for (int i = 0; i < 10; i++) {
+            list.add(owners.findById(nextId()));
+        }
+        list.addAll(pets.findAll("owner_id = " + nextId()));
+        petCalculator.count();
+        return list;
+    }
+
+    @Benchmark
+    public Object processorExecute() {
+        Map<String, Object> inputs = new HashMap<String, Object>();
+        inputs.put("owner_id", Integer.valueOf(nextId()));
+        return new JdbcStatementProcessor(petsByOwner).execute(udc, inputs, null);
+    }
+
+    @Benchmark
+    public Object processorExecutePositional() {
+        return new JdbcStatementProcessor(petsByOwner).execute(udc, new Object[]{Integer.valueOf(nextId())});
+    }
+
+    @Benchmark
+    public Object asyncFanOut() {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(AsyncSqlServiceClient.retrieveRowsBySQL(null, "SELECT * FROM pets WHERE owner_id = ?", new Object[]{Integer.valueOf(nextId())}));
+        }
+        return AsyncSqlServiceClient.join(futures, 5000);
+    }
+
+    @Benchmark
+    public Object adapterReadRow() throws Exception {
+        scrollResultSet.absolute(nextId());
+        Object last = null;
+        for (int i = 0; i < columnClasses.length; i++) {
+            last = dba.getObjectFromResultSetByType(scrollResultSet, columnClasses[i], columnTypes[i], i + 1);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object recordToJSON() {
+        return owner.toJSON();
+    }
+
+    @Benchmark
+    public Object recordToXML() {
+        return owner.toXML();
+    }
+
+    @Benchmark
+    public Object calculatorCount() {
+        return Long.valueOf(petCalculator.count());
+    }
+
+    @Benchmark
+    public Object calculatorSum() {
+        return petCalculator.sum("type_id");
+    }
+
+    @Benchmark
+    public Object calculatorAverage() {
+        return petCalculator.average("type_id");
+    }
+
+    @Benchmark
+    public Object calculatorMaximum() {
+        return petCalculator.maximum("birth_date");
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * <p>ServletMocks class creates servlet request, response and session
+ * objects for benchmarks without a servlet container.</p>
+ *
+ * <p>The objects are dynamic proxies. Attributes and parameters are kept in
+ * maps, and the response body is written to a buffer which can be
+ * inspected and reset. Methods which are not supported return <tt>null</tt>,
+ * <tt>false</tt> or zero.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ServletMocks {
+
+    /**
+     * Creates a request of the root context.
+     *
+     * @param method   HTTP method
+     * @param uri      request URI, for example <tt>/posts/1.json</tt>
+     * @param session  session of the request
+     * @return a request
+     */
+    public static HttpServletRequest request(String method, String uri, HttpSession session) {
+        return (HttpServletRequest)Proxy.newProxyInstance(ServletMocks.class.getClassLoader(),
+            new Class<?>[]{HttpServletRequest.class}, new RequestHandler(method, uri, session));
+    }
+
+    /**
+     * Creates a session.
+     */
+    public static HttpSession session() {
+        return (HttpSession)Proxy.newProxyInstance(ServletMocks.class.getClassLoader(),
+            new Class<?>[]{HttpSession.class}, new SessionHandler());
+    }
+
+    /**
+     * Creates a response whose body is written to <tt>body</tt>.
+     */
+    public static HttpServletResponse response(StringWriter body) {
+        return (HttpServletResponse)Proxy.newProxyInstance(ServletMocks.class.getClassLoader(),
+            new Class<?>[]{HttpServletResponse.class}, new ResponseHandler(body));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == char.class) return Character.valueOf((char)0);
+        if (type == long.class) return Long.valueOf(0L);
+        if (type == float.class) return Float.valueOf(0f);
+        if (type == double.class) return Double.valueOf(0d);
+        if (type == byte.class) return Byte.valueOf((byte)0);
+        if (type == short.class) return Short.valueOf((short)0);
+        return Integer.valueOf(0);
+    }
+
+    private static class RequestHandler implements InvocationHandler {
+        private final String method;
+        private final String uri;
+        private final HttpSession session;
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+        private final Map<String, String[]> parameters = new HashMap<String, String[]>();
+        private String characterEncoding = "UTF-8";
+
+        RequestHandler(String method, String uri, HttpSession session) {
+            this.method = method;
+            int q = uri.indexOf('?');
+            this.uri = (q == -1)?uri:uri.substring(0, q);
+            if (q != -1) {
+                String[] pairs = uri.substring(q + 1).split("&");
+                for (int i = 0; i < pairs.length; i++) {
+                    int eq = pairs[i].indexOf('=');
+                    if (eq == -1) continue;
+                    parameters.put(pairs[i].substring(0, eq), new String[]{pairs[i].substring(eq + 1)});
+                }
+            }
+            this.session = session;
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String name = m.getName();
+            if ("getMethod".equals(name)) return method;
+            if ("getRequestURI".equals(name)) return uri;
+            if ("getRequestURL".equals(name)) return new StringBuffer("http://benchmark:8080").append(uri);
+            if ("getContextPath".equals(name)) return "";
+            if ("getServletPath".equals(name)) return uri;
+            if ("getScheme".equals(name)) return "http";
+            if ("getServerName".equals(name)) return "benchmark";
+            if ("getServerPort".equals(name)) return Integer.valueOf(8080);
+            if ("getRemoteAddr".equals(name)) return "10.0.0.1";
+            if ("getRemoteHost".equals(name)) return "10.0.0.1";
+            if ("getProtocol".equals(name)) return "HTTP/1.1";
+            if ("getLocale".equals(name)) return Locale.US;
+            if ("getLocales".equals(name)) return Collections.enumeration(Collections.singletonList(Locale.US));
+            if ("getCharacterEncoding".equals(name)) return characterEncoding;
+            if ("setCharacterEncoding".equals(name)) { characterEncoding = (String)args[0]; return null; }
+            if ("getAttribute".equals(name)) return attributes.get(args[0]);
+            if ("setAttribute".equals(name)) { attributes.put((String)args[0], args[1]); return null; }
+            if ("removeAttribute".equals(name)) { attributes.remove(args[0]); return null; }
+            if ("getAttributeNames".equals(name)) return Collections.enumeration(attributes.keySet());
+            if ("getParameter".equals(name)) {
+                String[] values = parameters.get(args[0]);
+                return (values != null)?values[0]:null;
+            }
+            if ("getParameterValues".equals(name)) return parameters.get(args[0]);
+            if ("getParameterMap".equals(name)) return parameters;
+            if ("getParameterNames".equals(name)) return Collections.enumeration(parameters.keySet());
+            if ("getHeaderNames".equals(name) || "getHeaders".equals(name)) {
+                return Collections.enumeration(Collections.emptyList());
+            }
+            if ("getSession".equals(name)) return session;
+            if ("hashCode".equals(name)) return Integer.valueOf(System.identityHashCode(proxy));
+            if ("equals".equals(name)) return Boolean.valueOf(proxy == args[0]);
+            if ("toString".equals(name)) return method + " " + uri;
+            return defaultValue(m.getReturnType());
+        }
+    }
+
+    private static class SessionHandler implements InvocationHandler {
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+        private final long creationTime = System.currentTimeMillis();
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String name = m.getName();
+            if ("getAttribute".equals(name) || "getValue".equals(name)) return attributes.get(args[0]);
+            if ("setAttribute".equals(name) || "putValue".equals(name)) { attributes.put((String)args[0], args[1]); return null; }
+            if ("removeAttribute".equals(name) || "removeValue".equals(name)) { attributes.remove(args[0]); return null; }
+            if ("getAttributeNames".equals(name)) return Collections.enumeration(attributes.keySet());
+            if ("getId".equals(name)) return "benchmark";
+            if ("getCreationTime".equals(name) || "getLastAccessedTime".equals(name)) return Long.valueOf(creationTime);
+            if ("hashCode".equals(name)) return Integer.valueOf(System.identityHashCode(proxy));
+            if ("equals".equals(name)) return Boolean.valueOf(proxy == args[0]);
+            if ("toString".equals(name)) return "session";
+            return defaultValue(m.getReturnType());
+        }
+    }
+
+    private static class ResponseHandler implements InvocationHandler {
+        private final StringWriter body;
+        private final PrintWriter writer;
+        private final ServletOutputStream out;
+        private String characterEncoding = "UTF-8";
+
+        ResponseHandler(StringWriter body) {
+            this.body = body;
+            this.writer = new PrintWriter(body);
+            this.out = new ServletOutputStream() {
+                public void write(int b) throws IOException {
+                    ResponseHandler.this.body.write(b);
+                }
+            };
+        }
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String name = m.getName();
+            if ("getWriter".equals(name)) return writer;
+            if ("getOutputStream".equals(name)) return out;
+            if ("getCharacterEncoding".equals(name)) return characterEncoding;
+            if ("setCharacterEncoding".equals(name)) { characterEncoding = (String)args[0]; return null; }
+            if ("getLocale".equals(name)) return Locale.US;
+            if ("encodeURL".equals(name) || "encodeRedirectURL".equals(name) ||
+                "encodeUrl".equals(name) || "encodeRedirectUrl".equals(name)) return args[0];
+            if ("flushBuffer".equals(name)) { writer.flush(); return null; }
+            if ("hashCode".equals(name)) return Integer.valueOf(System.identityHashCode(proxy));
+            if ("equals".equals(name)) return Boolean.valueOf(proxy == args[0]);
+            if ("toString".equals(name)) return "response";
+            return defaultValue(m.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.benchmark.web;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.scooterframework.admin.FilterManager;
+import com.scooterframework.benchmark.Benchmark;
+import com.scooterframework.benchmark.BenchmarkDatabase;
+import com.scooterframework.benchmark.BenchmarkSuite;
+import com.scooterframework.benchmark.controllers.PostsController;
+import com.scooterframework.web.controller.ACH;
+import com.scooterframework.web.controller.ActionControl;
+import com.scooterframework.web.controller.ContentHandler;
+import com.scooterframework.web.controller.ContentHandlerFactory;
+import com.scooterframework.web.controller.RestfulRequestProcessor;
+import com.scooterframework.web.controller.ScooterRequestFilter;
+import com.scooterframework.web.controller.WebActionContext;
+import com.scooterframework.web.route.MatchMaker;
+import com.scooterframework.web.route.RequestInfo;
+import com.scooterframework.web.route.RouteConfig;
+
+/**
+ * <p>WebBenchmarks class measures the framework work of a web request:
+ * route matching, dispatch to a controller action, action filters and
+ * content handlers.</p>
+ *
+ * <p>The routes are loaded from <tt>source/benchmark/config/routes.properties</tt>.
+ * Dispatch benchmarks run a request through <tt>ScooterRequestFilter</tt>
+ * and <tt>RestfulRequestProcessor</tt> with the objects of
+ * {@link ServletMocks}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class WebBenchmarks extends BenchmarkSuite {
+    private static final String[] PATHS = {
+        "/posts", "/posts/12", "/posts/12/edit", "/posts/12/comments",
+        "/posts/12/comments/7", "/posts/12/comments/7/votes", "/users/3",
+        "/users/3/attachments", "/tags", "/categories/4", "/archive/2011/10",
+        "/feed.xml", "/about", "/admin/sqlinfo/statistics", "/admin/databases/main",
+        "/site/sitemap"};
+
+    private MatchMaker matchMaker;
+    private RestfulRequestProcessor processor;
+    private ScooterRequestFilter requestFilter;
+    private FilterChain chain;
+    private FilterManager filterManager;
+    private HttpSession session;
+    private StringWriter body;
+    private HttpServletResponse response;
+    private Map<String, Object> post;
+    private List<Map<String, Object>> posts;
+    private int next;
+
+    public void setUp() throws Exception {
+        BenchmarkDatabase.startApplication();
+        RouteConfig.getInstance();
+        matchMaker = MatchMaker.getInstance();
+
+        processor = new RestfulRequestProcessor();
+        requestFilter = new ScooterRequestFilter();
+        chain = new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response)
+            throws IOException, ServletException {
+                processor.process((HttpServletRequest)request, (HttpServletResponse)response);
+            }
+        };
+        filterManager = ActionControl.filterManagerFor(PostsController.class);
+
+        session = ServletMocks.session();
+        body = new StringWriter();
+        response = ServletMocks.response(body);
+
+        post = new LinkedHashMap<String, Object>();
+        post.put("id", Integer.valueOf(12));
+        post.put("title", "Benchmarking <Scooter>");
+        post.put("body", "Per-request framework overhead & its baseline.");
+        post.put("comments_count", Integer.valueOf(3));
+        posts = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 10; i++) posts.add(post);
+
+        //makes sure that requests are not measured on the error page
+        dispatchShowJson();
+        if (!body.toString().startsWith("{")) {
+            throw new IllegalStateException("Unexpected response of a dispatched request: " + body);
+        }
+    }
+
+    private HttpServletResponse resetResponse() {
+        body.getBuffer().setLength(0);
+        return response;
+    }
+
+    @Benchmark
+    public Object routeMatchCached() {
+        next = (next + 1) % PATHS.length;
+        return matchMaker.match(new RequestInfo(PATHS[next], "GET"));
+    }
+
+    @Benchmark
+    public Object routeMatchUncached() {
+        next++;
+        return matchMaker.match(new RequestInfo("/posts/" + next + "/comments/" + (next % 97), "GET"));
+    }
+
+    @Benchmark
+    public Object dispatchShowJson() throws Exception {
+        next++;
+        HttpServletRequest request = ServletMocks.request("GET", "/posts/" + (next % 100) + ".json", session);
+        requestFilter.doFilter(request, resetResponse(), chain);
+        return body;
+    }
+
+    @Benchmark
+    public Object dispatchIndexHtml() throws Exception {
+        HttpServletRequest request = ServletMocks.request("GET", "/posts", session);
+        requestFilter.doFilter(request, resetResponse(), chain);
+        return body;
+    }
+
+    @Benchmark
+    public Object filterChain() {
+        HttpServletRequest request = ServletMocks.request("GET", "/posts/12?id=12", session);
+        ACH.setActionContext(new WebActionContext(request, resetResponse()));
+        String result = filterManager.executeBeforeFiltersOn("show");
+        if (result == null) result = filterManager.executeAfterFiltersOn("show");
+        return result;
+    }
+
+    private Object handle(String format, Object content) throws Exception {
+        HttpServletRequest request = ServletMocks.request("GET", "/posts." + format, session);
+        ContentHandler handler = ContentHandlerFactory.getContentHandler(format);
+        handler.handle(request, resetResponse(), content, format);
+        return body;
+    }
+
+    @Benchmark
+    public Object contentJson() throws Exception {
+        return handle("json", posts);
+    }
+
+    @Benchmark
+    public Object contentXml() throws Exception {
+        return handle("xml", post);
+    }
+
+    @Benchmark
+    public Object contentHtml() throws Exception {
+        return handle("html", posts);
+    }
+}
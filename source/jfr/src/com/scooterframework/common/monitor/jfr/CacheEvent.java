@@ -0,0 +1,49 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * CacheEvent class is a Java Flight Recorder event of a model or page
+ * cache lookup.
+ *
+ * @author (Fei) John Chen
+ */
+@Name("com.scooterframework.Cache")
+@Label("Cache Lookup")
+@Category({"Scooter", "Cache"})
+@Description("A lookup of a model cache or the page cache")
+@StackTrace(false)
+public class CacheEvent extends jdk.jfr.Event {
+    @Label("Start Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long startedAt;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Level")
+    String level;
+
+    @Label("Key")
+    String key;
+
+    @Label("Hit")
+    boolean hit;
+}
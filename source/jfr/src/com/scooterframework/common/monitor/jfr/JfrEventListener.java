@@ -0,0 +1,113 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor.jfr;
+
+import jdk.jfr.EventType;
+
+import com.scooterframework.common.monitor.EventListener;
+import com.scooterframework.common.monitor.FrameworkEvent;
+
+/**
+ * <p>JfrEventListener class forwards framework events to Java Flight
+ * Recorder as {@link RequestEvent}, {@link SqlEvent}, {@link CacheEvent}
+ * and {@link RenderEvent}.</p>
+ *
+ * <p>The listener is registered in <tt>environment.properties</tt>, with
+ * <tt>scooter-jfr.jar</tt> on the classpath:</p>
+ * <pre>
+ *     events=true
+ *     events.listeners=com.scooterframework.common.monitor.jfr.JfrEventListener
+ * </pre>
+ *
+ * <p>A Flight Recorder event is created only when its type is enabled in
+ * a running recording, and its fields are filled and committed only when
+ * the recording accepts it. Framework events are passed to listeners
+ * after they end, therefore the duration of a Flight Recorder event is
+ * kept in its <tt>elapsed</tt> field, and its start time in the
+ * <tt>startedAt</tt> field. Use <tt>events.threshold</tt> rather than a
+ * recording threshold to drop short events.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class JfrEventListener implements EventListener {
+    private static final EventType requestType = EventType.getEventType(RequestEvent.class);
+    private static final EventType sqlType = EventType.getEventType(SqlEvent.class);
+    private static final EventType cacheType = EventType.getEventType(CacheEvent.class);
+    private static final EventType renderType = EventType.getEventType(RenderEvent.class);
+
+    public void onEvent(FrameworkEvent event) {
+        String type = event.getType();
+        if (FrameworkEvent.TYPE_SQL.equals(type)) {
+            if (sqlType.isEnabled()) commitSql(event);
+        }
+        else if (FrameworkEvent.TYPE_CACHE.equals(type)) {
+            if (cacheType.isEnabled()) commitCache(event);
+        }
+        else if (FrameworkEvent.TYPE_RENDER.equals(type)) {
+            if (renderType.isEnabled()) commitRender(event);
+        }
+        else if (FrameworkEvent.TYPE_REQUEST.equals(type)) {
+            if (requestType.isEnabled()) commitRequest(event);
+        }
+    }
+
+    private void commitRequest(FrameworkEvent event) {
+        RequestEvent jfr = new RequestEvent();
+        if (!jfr.shouldCommit()) return;
+        jfr.startedAt = event.getStartTime();
+        jfr.elapsed = event.getDurationNanos();
+        jfr.uri = event.getName();
+        jfr.method = toString(event.get("method"));
+        jfr.route = toString(event.get("route"));
+        jfr.controller = toString(event.get("controller"));
+        jfr.action = toString(event.get("action"));
+        jfr.status = toInt(event.get("status"));
+        jfr.commit();
+    }
+
+    private void commitSql(FrameworkEvent event) {
+        SqlEvent jfr = new SqlEvent();
+        if (!jfr.shouldCommit()) return;
+        jfr.startedAt = event.getStartTime();
+        jfr.elapsed = event.getDurationNanos();
+        jfr.name = event.getName();
+        jfr.connection = toString(event.get("connection"));
+        jfr.sql = toString(event.get("sql"));
+        jfr.rows = toInt(event.get("rows"));
+        jfr.commit();
+    }
+
+    private void commitCache(FrameworkEvent event) {
+        CacheEvent jfr = new CacheEvent();
+        if (!jfr.shouldCommit()) return;
+        jfr.startedAt = event.getStartTime();
+        jfr.elapsed = event.getDurationNanos();
+        jfr.cache = event.getName();
+        jfr.level = toString(event.get("level"));
+        jfr.key = toString(event.get("key"));
+        jfr.hit = Boolean.TRUE.equals(event.get("hit"));
+        jfr.commit();
+    }
+
+    private void commitRender(FrameworkEvent event) {
+        RenderEvent jfr = new RenderEvent();
+        if (!jfr.shouldCommit()) return;
+        jfr.startedAt = event.getStartTime();
+        jfr.elapsed = event.getDurationNanos();
+        jfr.view = event.getName();
+        jfr.commit();
+    }
+
+    private static String toString(Object value) {
+        return (value != null)?value.toString():null;
+    }
+
+    private static int toInt(Object value) {
+        return (value instanceof Number)?((Number)value).intValue():0;
+    }
+}
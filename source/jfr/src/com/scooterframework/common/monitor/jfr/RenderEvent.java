@@ -0,0 +1,39 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * RenderEvent class is a Java Flight Recorder event of a view render.
+ *
+ * @author (Fei) John Chen
+ */
+@Name("com.scooterframework.Render")
+@Label("Render")
+@Category({"Scooter", "Web"})
+@Description("A view or content render")
+@StackTrace(false)
+public class RenderEvent extends jdk.jfr.Event {
+    @Label("Start Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long startedAt;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("View")
+    String view;
+}
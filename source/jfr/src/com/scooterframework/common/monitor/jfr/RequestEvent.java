@@ -0,0 +1,54 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * RequestEvent class is a Java Flight Recorder event of a request.
+ *
+ * @author (Fei) John Chen
+ */
+@Name("com.scooterframework.Request")
+@Label("Request")
+@Category({"Scooter", "Web"})
+@Description("A request handled by the framework")
+@StackTrace(false)
+public class RequestEvent extends jdk.jfr.Event {
+    @Label("Start Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long startedAt;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    String route;
+
+    @Label("Controller")
+    String controller;
+
+    @Label("Action")
+    String action;
+
+    @Label("Status")
+    int status;
+}
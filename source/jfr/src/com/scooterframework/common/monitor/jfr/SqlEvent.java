@@ -0,0 +1,48 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * SqlEvent class is a Java Flight Recorder event of a SQL statement.
+ *
+ * @author (Fei) John Chen
+ */
+@Name("com.scooterframework.Sql")
+@Label("SQL Statement")
+@Category({"Scooter", "ORM"})
+@Description("A SQL statement executed by the framework")
+@StackTrace(false)
+public class SqlEvent extends jdk.jfr.Event {
+    @Label("Start Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long startedAt;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Statement Name")
+    String name;
+
+    @Label("Connection")
+    String connection;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    int rows;
+}
@@ -51,6 +51,20 @@ public class ActionControlFilter {
         return key;
     }
     
+    /**
+     * Returns the declaring class of the filter method.
+     */
+    public Class<?> getOwner() {
+        return owner;
+    }
+    
+    /**
+     * Returns the filter method name.
+     */
+    public String getFilterMethod() {
+        return filterMethod;
+    }
+    
     public static String formatKey(Class<?> owner, String filter) {
         return owner.getName() + "_" + filter + "_";
     }
@@ -25,6 +25,7 @@ public class Constants {
     public static final String MODEL = "scooter.key.model";
     public static final String FORMAT = "scooter.key.format";
     public static final String RESOURCE = "scooter.key.resource";
+    public static final String ROUTE_NAME = "scooter.key.route.name";
     
     public static final String REQUEST_RENDERED = "scooter.key.rendered";
     
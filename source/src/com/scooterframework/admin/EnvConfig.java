@@ -8,11 +8,13 @@
 package com.scooterframework.admin;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Observable;
@@ -27,8 +29,15 @@ import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.EventListener;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.common.monitor.RequestTiming;
+import com.scooterframework.common.monitor.SlowRequestLog;
 import com.scooterframework.common.util.Converters;
+import com.scooterframework.common.util.ObjectFactory;
 import com.scooterframework.common.util.PropertyFileUtil;
+import com.scooterframework.common.util.Util;
 import com.scooterframework.common.util.WordUtil;
 import com.scooterframework.orm.activerecord.ActiveRecord;
 import com.scooterframework.orm.activerecord.ActiveRecordUtil;
@@ -74,6 +83,13 @@ public class EnvConfig implements Observer {
     public static final String DEFAULT_VALUE_passwordScheme = "";
     public static final String DEFAULT_VALUE_benchmark = "true";
     public static final String DEFAULT_VALUE_benchmarkInHeader = "true";
+    public static final String DEFAULT_VALUE_requestTiming = "false";
+    public static final String DEFAULT_VALUE_requestTimingInHeader = "true";
+    public static final String DEFAULT_VALUE_requestTimingSlowestSize = "20";
+    public static final String DEFAULT_VALUE_metrics = "false";
+    public static final String DEFAULT_VALUE_events = "false";
+    public static final String DEFAULT_VALUE_eventsThreshold = "0";
+    public static final String DEFAULT_VALUE_eventsBufferSize = "1000";
     public static final String DEFAULT_VALUE_locale_language = null;
     public static final String DEFAULT_VALUE_locale_country = null;
     public static final String DEFAULT_VALUE_locale_variant = null;
@@ -99,6 +115,8 @@ public class EnvConfig implements Observer {
     public static final String DEFAULT_VALUE_maximum_bytes_per_uploaded_file_in_memory = "10240";
     public static final String DEFAULT_VALUE_maximum_total_bytes_per_upload_request = "-1";
     public static final String DEFAULT_VALUE_maximum_bytes_per_uploaded_file = "-1";
+    public static final String DEFAULT_VALUE_action_properties_cache_size = "1000";
+    public static final String DEFAULT_VALUE_controller_cache_size = "500";
 
 
     private static EnvConfig me;
@@ -121,6 +139,10 @@ public class EnvConfig implements Observer {
     private String passwordScheme = DEFAULT_VALUE_passwordScheme;
     private String benchmark = DEFAULT_VALUE_benchmark;
     private String benchmarkInHeader = DEFAULT_VALUE_benchmarkInHeader;
+    private String requestTiming = DEFAULT_VALUE_requestTiming;
+    private String requestTimingInHeader = DEFAULT_VALUE_requestTimingInHeader;
+    private String metrics = DEFAULT_VALUE_metrics;
+    private String events = DEFAULT_VALUE_events;
     private Locale gloabalLocale = DEFAULT_VALUE_gloabalLocale;
     private String messageResourcesFileBase = DEFAULT_VALUE_messageResourcesFileBase;
     private String actionExtension = DEFAULT_VALUE_actionExtension;
@@ -216,6 +238,14 @@ public class EnvConfig implements Observer {
         passwordScheme = getProperty("password.scheme", DEFAULT_VALUE_passwordScheme);
         benchmark = getProperty("benchmark", DEFAULT_VALUE_benchmark);
         benchmarkInHeader = getProperty("benchmark.in.header", DEFAULT_VALUE_benchmarkInHeader);
+        requestTiming = getProperty("request.timing", DEFAULT_VALUE_requestTiming);
+        requestTimingInHeader = getProperty("request.timing.in.header", DEFAULT_VALUE_requestTimingInHeader);
+        RequestTiming.setEnabled(allowRequestTiming());
+        int slowestSize = Util.getSafeIntValue(getProperty("request.timing.slowest.size", DEFAULT_VALUE_requestTimingSlowestSize));
+        if (slowestSize > 0) SlowRequestLog.getInstance().setCapacity(slowestSize);
+        metrics = getProperty("metrics", DEFAULT_VALUE_metrics);
+        MetricsRegistry.setEnabled(allowMetrics());
+        initEventRecorder();
 
         String language = getProperty("locale.language", DEFAULT_VALUE_locale_language);
         String country = getProperty("locale.country", DEFAULT_VALUE_locale_country);
@@ -767,6 +797,65 @@ public class EnvConfig implements Observer {
         return ("true".equalsIgnoreCase(benchmarkInHeader))?true:false;
     }
 
+    /**
+     * Checks if a timing breakdown of each request is recorded.
+     *
+     * @return true if allowed
+     */
+    public boolean allowRequestTiming() {
+        return ("true".equalsIgnoreCase(requestTiming))?true:false;
+    }
+
+    /**
+     * Checks if the timing breakdown of a request is sent in the
+     * <tt>Server-Timing</tt> response header.
+     *
+     * @return true if allowed
+     */
+    public boolean allowRequestTimingInHeader() {
+        return ("true".equalsIgnoreCase(requestTimingInHeader))?true:false;
+    }
+
+    /**
+     * Checks if metrics of requests, actions, sql, caches and connection
+     * pools are collected.
+     *
+     * @return true if allowed
+     */
+    public boolean allowMetrics() {
+        return ("true".equalsIgnoreCase(metrics))?true:false;
+    }
+
+    /**
+     * Checks if framework events of requests, sql, caches and renders are
+     * recorded.
+     *
+     * @return true if allowed
+     */
+    public boolean allowEvents() {
+        return ("true".equalsIgnoreCase(events))?true:false;
+    }
+
+    private void initEventRecorder() {
+        events = getProperty("events", DEFAULT_VALUE_events);
+        EventRecorder.setThresholdMillis(Util.getSafeIntValue(getProperty("events.threshold", DEFAULT_VALUE_eventsThreshold)));
+        int bufferSize = Util.getSafeIntValue(getProperty("events.buffer.size", DEFAULT_VALUE_eventsBufferSize));
+        if (bufferSize > 0) EventRecorder.setCapacity(bufferSize);
+
+        List<EventListener> listeners = new ArrayList<EventListener>();
+        String listenerClasses = getProperty("events.listeners", "");
+        for (String className : Converters.convertStringToList(listenerClasses)) {
+            try {
+                listeners.add((EventListener)ObjectFactory.getFactory().newInstance(className));
+            }
+            catch (Exception ex) {
+                log.error("Failed to create event listener " + className + ": " + ex.getMessage());
+            }
+        }
+        EventRecorder.setListeners(listeners);
+        EventRecorder.setEnabled(allowEvents());
+    }
+
     /**
      * Returns configured locale.
      */
@@ -994,6 +1083,23 @@ public class EnvConfig implements Observer {
     	return Integer.valueOf(maximumBytesPerUploadedFileInMemory);
     }
     
+    /**
+     * Returns maximum number of cached action properties of requests.
+     */
+    public int getActionPropertiesCacheSize() {
+        int size = Util.getSafeIntValue(getProperty("action.properties.cache.size", DEFAULT_VALUE_action_properties_cache_size));
+        return (size > 0)?size:Util.getSafeIntValue(DEFAULT_VALUE_action_properties_cache_size);
+    }
+    
+    /**
+     * Returns maximum number of cached controller instances and dispatch
+     * tables. Up to ten times as many controller methods are cached.
+     */
+    public int getControllerCacheSize() {
+        int size = Util.getSafeIntValue(getProperty("controller.cache.size", DEFAULT_VALUE_controller_cache_size));
+        return (size > 0)?size:Util.getSafeIntValue(DEFAULT_VALUE_controller_cache_size);
+    }
+    
     /**
      * Returns the maximum allowed bytes of an upload request. 
      * The default value of -1 indicates, that there is no limit.
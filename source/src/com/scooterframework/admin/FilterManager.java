@@ -14,6 +14,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.scooterframework.common.monitor.RequestTiming;
+
 
 /**
  * <p>
@@ -51,8 +53,9 @@ public class FilterManager {
     private static final String FILTER_KEY_SEPARATOR = "-";
 
 	private Class<?> ownerClass;
-    private boolean filtersRegistrationCompleted;
-    private boolean noFilterDeclared;
+    private volatile boolean filtersRegistrationCompleted;
+    private volatile boolean noFilterDeclared;
+    private volatile int modificationCount;
 
 	/**
 	 * Constructs a new instance of the <tt>FilterManager</tt>.
@@ -87,6 +90,14 @@ public class FilterManager {
 		return noFilterDeclared;
 	}
 
+	/**
+	 * Returns the number of filter declarations made so far. Callers which 
+	 * keep resolved filter chains can use this number to detect changes.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
     /**
      * Returns a list of before ActionFilter objects for an action.
      *
@@ -166,10 +177,16 @@ public class FilterManager {
         String ret = null;
         List<ActionControlFilter> filters = getFiltersForAction(action, type);
         if (filters != null) {
-            Iterator<ActionControlFilter> it = filters.iterator();
-            while(it.hasNext() && (ret == null)) {
-                ActionControlFilter af = it.next();
-                ret = af.execute();
+            long timing = RequestTiming.start(RequestTiming.FILTER);
+            try {
+                Iterator<ActionControlFilter> it = filters.iterator();
+                while(it.hasNext() && (ret == null)) {
+                    ActionControlFilter af = it.next();
+                    ret = af.execute();
+                }
+            }
+            finally {
+                RequestTiming.stop(RequestTiming.FILTER, timing);
             }
         }
         return ret;
@@ -194,7 +211,7 @@ public class FilterManager {
         return l;
     }
 
-    private void prepareFilter(List<ActionFilterData> filterDataList, String filterType, Class<?> filterClz, String filters) {
+    private synchronized void prepareFilter(List<ActionFilterData> filterDataList, String filterType, Class<?> filterClz, String filters) {
     	String key = fileterKey(filterType, filterClz, filters);
     	ActionFilterData filter = allFiltersMap.get(key);
         if (filter == null) {
@@ -205,9 +222,10 @@ public class FilterManager {
 
         filtersRegistrationCompleted = false;
         noFilterDeclared = false;
+        modificationCount++;
     }
 
-    private void prepareFilter(List<ActionFilterData> filterDataList, String filterType, Class<?> filterClz, String filters, String option, String actions) {
+    private synchronized void prepareFilter(List<ActionFilterData> filterDataList, String filterType, Class<?> filterClz, String filters, String option, String actions) {
         String key = fileterKey(filterType, filterClz, filters, option, actions);
         ActionFilterData filter = allFiltersMap.get(key);
         if (!allFiltersMap.containsKey(key)) {
@@ -218,6 +236,7 @@ public class FilterManager {
 
         filtersRegistrationCompleted = false;
         noFilterDeclared = false;
+        modificationCount++;
     }
 
     /**
@@ -447,7 +466,7 @@ public class FilterManager {
 
 
     //create action filters map
-    private void configFilters() {
+    private synchronized void configFilters() {
         //get action list
         List<String> actions = getAllActionMethods();
 
@@ -0,0 +1,58 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.builtin;
+
+import static com.scooterframework.web.controller.ActionControl.*;
+
+import com.scooterframework.admin.Constants;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.security.LoginHelper;
+import com.scooterframework.web.controller.ContentHandlerHelper;
+import com.scooterframework.web.util.W;
+
+/**
+ * MetricsController class exposes metrics in Prometheus text format. 
+ * 
+ * <p>The metrics are available to a logged-in admin user, or to a request 
+ * from localhost such as a scraper running on the same server.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class MetricsController {
+
+	static {
+		filterManagerFor(MetricsController.class).declareBeforeFilter("accessRequired");
+	}
+    
+    /**
+     * accessRequired method (used in beforeFilter)
+     */
+    public String accessRequired() {
+        if (!LoginHelper.isAdminLoggedIn() && !W.isLocalRequest()) {
+            flash("error", "You must be logged in to do that.");
+            return redirectTo("/admin/signon/login");
+        }
+        return null;
+    }
+    
+	/**
+	 * index action sends all metrics as plain text.
+	 */
+    public String index() {
+    	try {
+    		ContentHandlerHelper.publish(getHttpServletResponse(), 
+    				MetricsRegistry.getInstance().toPrometheusText(), 
+    				MetricsRegistry.CONTENT_TYPE);
+    		getHttpServletRequest().setAttribute(Constants.REQUEST_RENDERED, "true");
+    	}
+    	catch (Exception ex) {
+    		throw new RuntimeException("Failed to publish metrics: " + ex.getMessage(), ex);
+    	}
+        return null;
+    }
+}
@@ -9,7 +9,14 @@ package com.scooterframework.builtin;
 
 import static com.scooterframework.web.controller.ActionControl.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.scooterframework.admin.EnvConfig;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.SlowRequestLog;
+import com.scooterframework.common.util.LRUCache;
 import com.scooterframework.web.route.MatchMaker;
 import com.scooterframework.web.route.RouteConfig;
 
@@ -32,6 +39,7 @@ public class SiteInfoController {
     	setViewData("auto.rest", (RouteConfig.getInstance().allowAutoREST()?"On":"Off"));
     	setViewData("auto.crud", (EnvConfig.getInstance().allowAutoCRUD()?"On":"Off"));
     	setViewData("routes", MatchMaker.getInstance().getAllRoutes());
+    	setViewData("caches", LRUCache.getCaches());
         return null;
     }
     
@@ -44,4 +52,31 @@ public class SiteInfoController {
     	setViewData("routes", MatchMaker.getInstance().getAllRoutes());
         return null;
     }
+    
+	/**
+	 * timing action returns the slowest requests.
+	 */
+    public String timing() {
+    	setViewData("timing.status", (EnvConfig.getInstance().allowRequestTiming()?"On":"Off"));
+    	setViewData("timings", SlowRequestLog.getInstance().getSlowestRequests());
+        return null;
+    }
+    
+	/**
+	 * events action returns recent framework events, optionally of one type.
+	 */
+    public String events() {
+    	String type = p("type");
+    	List<FrameworkEvent> events = EventRecorder.getRecentEvents();
+    	if (type != null && !"".equals(type)) {
+    		List<FrameworkEvent> selected = new ArrayList<FrameworkEvent>();
+    		for (FrameworkEvent event : events) {
+    			if (type.equals(event.getType())) selected.add(event);
+    		}
+    		events = selected;
+    	}
+    	setViewData("events.status", (EventRecorder.isEnabled()?"On":"Off"));
+    	setViewData("events", events);
+        return null;
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.builtin;
+
+import static com.scooterframework.web.controller.ActionControl.*;
+
+import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.sqldataexpress.util.QueryPlanAdvisor;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
+import com.scooterframework.orm.sqldataexpress.util.SqlStatistics;
+
+/**
+ * SqlInfoController class shows statistics of executed SQL statements.
+ * 
+ * @author (Fei) John Chen
+ */
+public class SqlInfoController {
+
+	static {
+		filterManagerFor(SqlInfoController.class).declareBeforeFilter(
+				AdminSignonController.class, "loginRequired");
+	}
+	
+	public static final int DEFAULT_LIMIT = 20;
+    
+	/**
+	 * statistics action returns the top SQL fingerprints. The order is 
+	 * specified by request parameter <tt>order</tt>, and the number of 
+	 * fingerprints by <tt>limit</tt>.
+	 */
+    public String statistics() {
+    	String order = p("order");
+    	if (order == null || "".equals(order)) order = SqlStatistics.ORDER_BY_TOTAL;
+    	int limit = Util.getSafeIntValue(p("limit"));
+    	if (limit <= 0) limit = DEFAULT_LIMIT;
+    	
+    	SqlStatistics stats = SqlStatistics.getInstance();
+    	setViewData("statistics.status", (stats.isEnabled()?"On":"Off"));
+    	setViewData("slow.query.threshold", Long.valueOf(stats.getSlowQueryThresholdMillis()));
+    	setViewData("order", order);
+    	setViewData("limit", Integer.valueOf(limit));
+    	setViewData("statistics", stats.getTopStatistics(order, limit));
+        return null;
+    }
+    
+	/**
+	 * plans action returns captured execution plans of slow queries.
+	 */
+    public String plans() {
+    	QueryPlanAdvisor advisor = QueryPlanAdvisor.getInstance();
+    	setViewData("explain.status", (advisor.isEnabled()?"On":"Off"));
+    	setViewData("slow.query.threshold", Long.valueOf(SqlStatistics.getInstance().getSlowQueryThresholdMillis()));
+    	setViewData("plans", advisor.getPlans());
+        return null;
+    }
+    
+	/**
+	 * clear action removes all SQL statistics and plans.
+	 */
+    public String clear() {
+    	SqlStatistics.getInstance().clear();
+    	QueryPlanAdvisor.getInstance().clear();
+    	flash("notice", "SQL statistics and plans are cleared.");
+    	return redirectTo("/admin/sqlinfo/statistics");
+    }
+    
+	/**
+	 * warnings action returns recent N+1 query and query budget warnings.
+	 */
+    public String warnings() {
+    	setViewData("nplusone.threshold", Integer.valueOf(QueryTracker.getNPlusOneThreshold()));
+    	setViewData("query.budget", Integer.valueOf(QueryTracker.getQueryBudget()));
+    	setViewData("budget.action", (QueryTracker.isFailOverBudget()?"fail":"log"));
+    	setViewData("warnings", QueryTracker.getWarnings());
+        return null;
+    }
+    
+	/**
+	 * dismiss action removes all query warnings.
+	 */
+    public String dismiss() {
+    	QueryTracker.clearWarnings();
+    	flash("notice", "Query warnings are cleared.");
+    	return redirectTo("/admin/sqlinfo/warnings");
+    }
+}
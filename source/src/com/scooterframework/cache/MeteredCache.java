@@ -0,0 +1,131 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.cache;
+
+import java.util.Collection;
+import java.util.Properties;
+
+import com.scooterframework.common.monitor.Counter;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.MetricsRegistry;
+
+/**
+ * MeteredCache wraps a cache and counts its hits and misses in the
+ * metrics registry. A cache event is recorded for each lookup if event
+ * recording is turned on. All other operations are passed to the
+ * underlying cache.
+ *
+ * @author (Fei) John Chen
+ */
+public class MeteredCache implements Cache {
+	private Cache cache;
+	private String level;
+	private Counter hits;
+	private Counter misses;
+
+	/**
+	 * Constructs an instance of MeteredCache.
+	 *
+	 * @param cache  the underlying cache
+	 * @param level  cache level label, for example <tt>request</tt>
+	 */
+	public MeteredCache(Cache cache, String level) {
+		if (cache == null) throw new IllegalArgumentException("cache is null.");
+		this.cache = cache;
+		this.level = level;
+
+		if (MetricsRegistry.isEnabled()) {
+			String help = "Lookups of model caches.";
+			MetricsRegistry registry = MetricsRegistry.getInstance();
+			hits = registry.counter("scooter_model_cache_requests_total", help,
+					"model", cache.getName(), "level", level, "result", "hit");
+			misses = registry.counter("scooter_model_cache_requests_total", help,
+					"model", cache.getName(), "level", level, "result", "miss");
+		}
+	}
+
+	/**
+	 * Returns the underlying cache.
+	 *
+	 * @return the cache instance from vendor
+	 */
+	public Object getDelegateCache() {
+		return cache.getDelegateCache();
+	}
+
+	/**
+	 * Returns the cache name.
+	 *
+	 * @return name of the cache
+	 */
+	public String getName() {
+		return cache.getName();
+	}
+
+	/**
+	 * Returns keys in the cache
+	 *
+	 * @return a collection of all keys
+	 */
+	public Collection<Object> getKeys() {
+		return cache.getKeys();
+	}
+
+	/**
+	 * Returns object from cache based on <tt>key</tt>.
+	 *
+	 * @return the value to which this cache maps the specified key, or null
+	 * if the cache contains no mapping for this key.
+	 */
+	public Object get(Object key) {
+		FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_CACHE, cache.getName());
+		Object value = cache.get(key);
+		if (hits != null) {
+			if (value != null) hits.increment();
+			else misses.increment();
+		}
+		if (event != null) {
+			event.set("level", level).set("key", key).set("hit", Boolean.valueOf(value != null));
+			EventRecorder.commit(event);
+		}
+		return value;
+	}
+
+	/**
+	 * Stores object into cache based on <tt>key</tt>.
+	 *
+	 * @return true if successful
+	 */
+	public boolean put(Object key, Object value) {
+		return cache.put(key, value);
+	}
+
+	/**
+	 * Removes the mapping for this key from the cache if present.
+	 *
+	 * @return true if successful
+	 */
+	public boolean remove(Object key) {
+		return cache.remove(key);
+	}
+
+	/**
+	 * Removes all key/value pairs from cache.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the Cache statistics.
+	 */
+	public Properties getStatistics() {
+		return cache.getStatistics();
+	}
+}
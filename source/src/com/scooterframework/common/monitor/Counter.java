@@ -0,0 +1,62 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Counter class is a lock-free, monotonically increasing counter.</p>
+ *
+ * <p>The count is spread over a few cells chosen by thread id, so that
+ * request threads updating the same counter seldom contend for the same
+ * cell. Cells are spaced apart to stay on different cache lines.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class Counter {
+    private static final int CELLS = 8;
+    private static final int SPACING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(CELLS * SPACING);
+
+    /**
+     * Increases the count by one.
+     */
+    public void increment() {
+        add(1L);
+    }
+
+    /**
+     * Increases the count.
+     *
+     * @param amount  a non-negative amount
+     */
+    public void add(long amount) {
+        int index = ((int)Thread.currentThread().getId() & (CELLS - 1)) * SPACING;
+        cells.addAndGet(index, amount);
+    }
+
+    /**
+     * Returns current count.
+     */
+    public long get() {
+        long sum = 0L;
+        for (int i = 0; i < CELLS; i++) {
+            sum += cells.get(i * SPACING);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return "" + get();
+    }
+}
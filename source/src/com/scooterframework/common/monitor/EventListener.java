@@ -0,0 +1,27 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+/**
+ * <p>EventListener interface receives framework events which are committed
+ * to the {@link EventRecorder}.</p>
+ *
+ * <p>A listener may forward events to an external profiler, for example
+ * as Java Flight Recorder events on a JVM which supports them. Listeners
+ * are called on the request thread and should return quickly.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public interface EventListener {
+    /**
+     * Receives a completed event.
+     *
+     * @param event  the event
+     */
+    public void onEvent(FrameworkEvent event);
+}
@@ -0,0 +1,158 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.scooterframework.common.logging.LogUtil;
+
+/**
+ * <p>EventRecorder class records framework events of requests, SQL
+ * statements, cache lookups and template renders.</p>
+ *
+ * <p>Recording is off by default. When it is off,
+ * {@link #begin(String, String)} returns null and callers skip all event
+ * work:</p>
+ * <pre>
+ *     FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_SQL, name);
+ *     ...
+ *     if (event != null) {
+ *         event.set("rows", rows);
+ *         EventRecorder.commit(event);
+ *     }
+ * </pre>
+ *
+ * <p>Committed events which take at least the threshold time are kept in
+ * a fixed size ring buffer and passed to registered listeners.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class EventRecorder {
+    private static volatile boolean enabled = false;
+    private static volatile long thresholdNanos = 0L;
+    private static volatile AtomicReferenceArray<FrameworkEvent> buffer =
+        new AtomicReferenceArray<FrameworkEvent>(1000);
+    private static final AtomicLong next = new AtomicLong();
+    private static final List<EventListener> listeners = new CopyOnWriteArrayList<EventListener>();
+
+    private EventRecorder() {
+    }
+
+    /**
+     * Turns event recording on or off.
+     */
+    public static void setEnabled(boolean status) {
+        enabled = status;
+    }
+
+    /**
+     * Checks if events are recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the minimum duration of a recorded event in milliseconds.
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = (millis < 0L)?0L:(millis * 1000000L);
+    }
+
+    /**
+     * Sets the number of recent events kept. Existing events are dropped.
+     */
+    public static void setCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive.");
+        if (capacity == buffer.length()) return;
+        buffer = new AtomicReferenceArray<FrameworkEvent>(capacity);
+    }
+
+    /**
+     * Replaces all listeners.
+     */
+    public static void setListeners(List<EventListener> list) {
+        listeners.clear();
+        if (list != null) listeners.addAll(list);
+    }
+
+    public static void addListener(EventListener listener) {
+        if (listener != null) listeners.add(listener);
+    }
+
+    public static void removeListener(EventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts an event.
+     *
+     * @param type  event type
+     * @param name  event name
+     * @return a new event, or null if recording is off
+     */
+    public static FrameworkEvent begin(String type, String name) {
+        if (!enabled) return null;
+        return new FrameworkEvent(type, name);
+    }
+
+    /**
+     * Ends an event and records it. Nothing is done if the event is null.
+     *
+     * @param event  the event
+     */
+    public static void commit(FrameworkEvent event) {
+        if (event == null) return;
+        event.end();
+        if (event.getDurationNanos() < thresholdNanos) return;
+
+        AtomicReferenceArray<FrameworkEvent> events = buffer;
+        int index = (int)(next.getAndIncrement() % events.length());
+        events.set(index, event);
+
+        for (EventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            }
+            catch (Throwable ex) {
+                log.error("Error in event listener " + listener + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns recorded events, the newest first.
+     */
+    public static List<FrameworkEvent> getRecentEvents() {
+        AtomicReferenceArray<FrameworkEvent> events = buffer;
+        int length = events.length();
+        long last = next.get();
+        List<FrameworkEvent> list = new ArrayList<FrameworkEvent>();
+        for (long i = last - 1; i >= 0 && i >= last - length; i--) {
+            FrameworkEvent event = events.get((int)(i % length));
+            if (event != null) list.add(event);
+        }
+        return list;
+    }
+
+    /**
+     * Removes all recorded events.
+     */
+    public static void clear() {
+        AtomicReferenceArray<FrameworkEvent> events = buffer;
+        for (int i = 0; i < events.length(); i++) {
+            events.set(i, null);
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(EventRecorder.class.getName());
+}
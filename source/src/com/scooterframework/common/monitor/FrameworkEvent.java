@@ -0,0 +1,132 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>FrameworkEvent class represents a timed framework operation, such as
+ * a request, a SQL statement, a cache lookup or a template render.</p>
+ *
+ * <p>Events are created by {@link EventRecorder#begin(String, String)} and
+ * completed by {@link EventRecorder#commit(FrameworkEvent)}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class FrameworkEvent {
+    public static final String TYPE_REQUEST = "request";
+    public static final String TYPE_SQL = "sql";
+    public static final String TYPE_CACHE = "cache";
+    public static final String TYPE_RENDER = "render";
+
+    private final String type;
+    private final String name;
+    private final String threadName;
+    private final long startTime;
+    private final long startNanos;
+    private long durationNanos = -1L;
+    private Map<String, Object> attributes;
+
+    FrameworkEvent(String type, String name) {
+        this.type = type;
+        this.name = name;
+        this.threadName = Thread.currentThread().getName();
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns event type, for example <tt>sql</tt>.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns event name, for example a statement name or a view path.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns name of the thread which created the event.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * Returns start time of the event in milliseconds.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns duration of the event in nanoseconds, or -1 if the event has
+     * not ended.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Returns duration of the event in milliseconds.
+     */
+    public double getDurationMillis() {
+        return (durationNanos < 0L)?0.0:(durationNanos / 1000000.0);
+    }
+
+    /**
+     * Sets an attribute of the event.
+     *
+     * @param key    attribute name
+     * @param value  attribute value
+     * @return this event
+     */
+    public FrameworkEvent set(String key, Object value) {
+        if (attributes == null) attributes = new LinkedHashMap<String, Object>();
+        attributes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Returns an attribute value.
+     */
+    public Object get(String key) {
+        return (attributes != null)?attributes.get(key):null;
+    }
+
+    /**
+     * Returns all attributes of the event.
+     */
+    public Map<String, Object> getAttributes() {
+        if (attributes == null) return Collections.emptyMap();
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    void end() {
+        if (durationNanos < 0L) durationNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(type).append(' ').append(name);
+        sb.append(" [").append(threadName).append("] ");
+        sb.append(getDurationMillis()).append("ms");
+        if (attributes != null) sb.append(' ').append(attributes);
+        return sb.toString();
+    }
+}
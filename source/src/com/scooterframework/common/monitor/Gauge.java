@@ -0,0 +1,22 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+/**
+ * Gauge interface specifies a value which is read when metrics are
+ * reported, for example the number of busy connections of a pool.
+ *
+ * @author (Fei) John Chen
+ */
+public interface Gauge {
+    /**
+     * Returns current value, or <tt>Double.NaN</tt> if the value is not
+     * available.
+     */
+    public double getValue();
+}
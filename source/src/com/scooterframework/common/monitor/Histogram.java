@@ -0,0 +1,160 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Histogram class is a lock-free latency histogram.</p>
+ *
+ * <p>Values are recorded in microseconds into log-linear buckets in the
+ * manner of an HDR histogram: values below 32 have their own bucket, and
+ * each power of two above is split into 16 buckets. The relative error of
+ * a reported value is therefore at most about 6%, with a fixed memory cost
+ * of a few hundred counters. Values above about 12 days are recorded as the
+ * largest value.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    private static final int MAX_BIT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_BIT + 1)) - 1;
+    private static final int BUCKETS = SUB_COUNT + (MAX_BIT - SUB_BITS + 1) * HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration in nanoseconds.
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000L);
+    }
+
+    /**
+     * Records a duration in microseconds.
+     */
+    public void recordMicros(long micros) {
+        long value = (micros < 0L)?0L:((micros > MAX_VALUE)?MAX_VALUE:micros);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Returns number of recorded values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns sum of recorded values in microseconds.
+     */
+    public long getSumMicros() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the largest recorded value in microseconds.
+     */
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Returns mean of recorded values in microseconds.
+     */
+    public double getMeanMicros() {
+        long c = count.get();
+        return (c == 0L)?0.0:((double)sum.get() / c);
+    }
+
+    /**
+     * Returns the value in microseconds below which a percentage of the
+     * recorded values fall.
+     *
+     * @param percentile  a value between 0 and 100
+     * @return the highest value of the bucket which holds the percentile
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0L) return 0L;
+
+        double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        long target = (long)Math.ceil(p / 100.0 * total);
+        if (target < 1L) target = 1L;
+
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns number of recorded values which are not larger than a value.
+     * A bucket is counted if its lowest value is not larger than the value.
+     *
+     * @param micros  a value in microseconds
+     * @return count of values
+     */
+    public long getCountAtOrBelow(long micros) {
+        if (micros < 0L) return 0L;
+        int last = indexOf(Math.min(micros, MAX_VALUE));
+        long seen = 0L;
+        for (int i = 0; i <= last; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + getMeanMicros() + "us, p50=" +
+            getValueAtPercentile(50) + "us, p99=" + getValueAtPercentile(99) +
+            "us, max=" + getMaxMicros() + "us";
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int)value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - (SUB_BITS - 1);
+        int sub = (int)(value >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (sub - HALF_COUNT);
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < SUB_COUNT) return index;
+        int k = index - SUB_COUNT;
+        int shift = k / HALF_COUNT + 1;
+        long sub = k % HALF_COUNT + HALF_COUNT;
+        return sub << shift;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+        return lowerBoundOf(index) + (1L << shift) - 1;
+    }
+}
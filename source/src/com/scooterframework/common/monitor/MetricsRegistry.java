@@ -0,0 +1,307 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.LRUCache;
+
+/**
+ * <p>MetricsRegistry class holds counters, histograms and gauges of the
+ * application, and writes them in Prometheus text format.</p>
+ *
+ * <p>A metric is identified by a name and optional labels. Labels are given
+ * as name and value pairs:</p>
+ * <pre>
+ *     Counter c = MetricsRegistry.getInstance().counter(
+ *         "scooter_sql_errors_total", "SQL executions which failed.",
+ *         "processor", "direct_sql");
+ *     c.increment();
+ * </pre>
+ *
+ * <p>Looking up a metric costs a map lookup. Code on a hot path should keep
+ * the metric instance when its labels do not change.</p>
+ *
+ * <p>To protect memory, each metric name may have at most
+ * {@link #MAX_SERIES_PER_NAME} label combinations. Further combinations
+ * are still counted but are not reported.</p>
+ *
+ * <p>Statistics of all {@link com.scooterframework.common.util.LRUCache}
+ * instances are included in the report.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class MetricsRegistry {
+    /**
+     * Maximum number of label combinations of a metric name.
+     */
+    public static final int MAX_SERIES_PER_NAME = 1000;
+
+    /**
+     * Content type of the Prometheus text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    private static final String TYPE_COUNTER = "counter";
+    private static final String TYPE_GAUGE = "gauge";
+    private static final String TYPE_HISTOGRAM = "histogram";
+
+    /**
+     * Upper bounds in seconds of histogram buckets in the report.
+     */
+    private static final double[] BUCKET_BOUNDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0
+    };
+
+    private static final MetricsRegistry me = new MetricsRegistry();
+
+    private static volatile boolean enabled = false;
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<String, Family>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return me;
+    }
+
+    /**
+     * Turns metrics collection on or off. Instrumented code checks this
+     * flag before updating metrics.
+     */
+    public static void setEnabled(boolean status) {
+        enabled = status;
+    }
+
+    /**
+     * Checks if metrics are collected.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a counter, creating it if necessary.
+     *
+     * @param name    metric name
+     * @param help    description of the metric
+     * @param labels  label name and value pairs
+     * @return the counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter)getOrCreate(name, help, TYPE_COUNTER, labels);
+    }
+
+    /**
+     * Returns a histogram, creating it if necessary. Histograms are
+     * reported in seconds.
+     *
+     * @param name    metric name
+     * @param help    description of the metric
+     * @param labels  label name and value pairs
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram)getOrCreate(name, help, TYPE_HISTOGRAM, labels);
+    }
+
+    /**
+     * Registers a gauge. An existing gauge of the same name and labels is
+     * replaced.
+     *
+     * @param name    metric name
+     * @param help    description of the metric
+     * @param gauge   the gauge
+     * @param labels  label name and value pairs
+     */
+    public void gauge(String name, String help, Gauge gauge, String... labels) {
+        if (gauge == null) throw new IllegalArgumentException("gauge cannot be null.");
+        Family family = getFamily(name, help, TYPE_GAUGE);
+        family.series.put(formatLabels(labels), gauge);
+    }
+
+    /**
+     * Removes all metrics of a name.
+     */
+    public void remove(String name) {
+        families.remove(name);
+    }
+
+    /**
+     * Removes all metrics.
+     */
+    public void clear() {
+        families.clear();
+    }
+
+    /**
+     * Returns all metrics in Prometheus text format.
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(4096);
+        Map<String, Family> sorted = new TreeMap<String, Family>(families);
+        for (Family family : sorted.values()) {
+            writeFamily(sb, family);
+        }
+        writeCaches(sb);
+        return sb.toString();
+    }
+
+    private Object getOrCreate(String name, String help, String type, String[] labels) {
+        Family family = getFamily(name, help, type);
+        String key = formatLabels(labels);
+        Object existing = family.series.get(key);
+        if (existing != null) return existing;
+
+        Object created = (TYPE_COUNTER.equals(type))?(Object)new Counter():(Object)new Histogram();
+        if (family.series.size() >= MAX_SERIES_PER_NAME) {
+            if (!family.overflowed) {
+                family.overflowed = true;
+                log.warn("Metric \"" + name + "\" has more than " + MAX_SERIES_PER_NAME +
+                    " label combinations. New combinations are not reported.");
+            }
+            return created;
+        }
+
+        existing = family.series.putIfAbsent(key, created);
+        return (existing != null)?existing:created;
+    }
+
+    private Family getFamily(String name, String help, String type) {
+        Family family = families.get(name);
+        if (family == null) {
+            Family f = new Family(name, help, type);
+            family = families.putIfAbsent(name, f);
+            if (family == null) family = f;
+        }
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric \"" + name + "\" is a " +
+                family.type + ", not a " + type + ".");
+        }
+        return family;
+    }
+
+    private void writeFamily(StringBuilder sb, Family family) {
+        if (family.series.size() == 0) return;
+
+        String name = family.name;
+        sb.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+        Map<String, Object> sorted = new TreeMap<String, Object>(family.series);
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            String labels = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof Counter) {
+                writeSample(sb, name, labels, null, ((Counter)metric).get());
+            }
+            else if (metric instanceof Gauge) {
+                writeSample(sb, name, labels, null, ((Gauge)metric).getValue());
+            }
+            else if (metric instanceof Histogram) {
+                Histogram h = (Histogram)metric;
+                for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                    double bound = BUCKET_BOUNDS[i];
+                    long count = h.getCountAtOrBelow((long)(bound * 1000000));
+                    writeSample(sb, name + "_bucket", labels, "le=\"" + bound + "\"", count);
+                }
+                writeSample(sb, name + "_bucket", labels, "le=\"+Inf\"", h.getCount());
+                writeSample(sb, name + "_sum", labels, null, h.getSumMicros() / 1000000.0);
+                writeSample(sb, name + "_count", labels, null, h.getCount());
+            }
+        }
+    }
+
+    private void writeCaches(StringBuilder sb) {
+        Map<String, LRUCache<?, ?>> caches = LRUCache.getCaches();
+        if (caches.size() == 0) return;
+
+        String[][] metrics = {
+            {"scooter_lru_cache_hits_total", "Hits of internal LRU caches.", TYPE_COUNTER},
+            {"scooter_lru_cache_misses_total", "Misses of internal LRU caches.", TYPE_COUNTER},
+            {"scooter_lru_cache_evictions_total", "Evictions of internal LRU caches.", TYPE_COUNTER},
+            {"scooter_lru_cache_size", "Number of entries of internal LRU caches.", TYPE_GAUGE},
+        };
+        for (int m = 0; m < metrics.length; m++) {
+            String name = metrics[m][0];
+            sb.append("# HELP ").append(name).append(' ').append(metrics[m][1]).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(metrics[m][2]).append('\n');
+            for (LRUCache<?, ?> cache : caches.values()) {
+                long value = 0L;
+                if (m == 0) value = cache.getHitCount();
+                else if (m == 1) value = cache.getMissCount();
+                else if (m == 2) value = cache.getEvictionCount();
+                else value = cache.size();
+                writeSample(sb, name, formatLabels(new String[]{"cache", cache.getName()}), null, value);
+            }
+        }
+    }
+
+    private static void writeSample(StringBuilder sb, String name, String labels, String extraLabel, double value) {
+        sb.append(name);
+        boolean hasLabels = labels.length() > 0;
+        if (hasLabels || extraLabel != null) {
+            sb.append('{').append(labels);
+            if (extraLabel != null) {
+                if (hasLabels) sb.append(',');
+                sb.append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        if (Double.isNaN(value)) sb.append("NaN");
+        else if (value == Math.rint(value) && !Double.isInfinite(value)) sb.append((long)value);
+        else sb.append(value);
+        sb.append('\n');
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels == null || labels.length == 0) return "";
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels must be name and value pairs.");
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escapeLabelValue(String s) {
+        if (s == null) return "";
+        if (s.indexOf('\\') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1) return s;
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static class Family {
+        final String name;
+        final String help;
+        final String type;
+        final ConcurrentMap<String, Object> series = new ConcurrentHashMap<String, Object>();
+        volatile boolean overflowed = false;
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(MetricsRegistry.class.getName());
+}
@@ -0,0 +1,232 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.Date;
+
+/**
+ * <p>RequestTiming class records where a request spends its time.</p>
+ *
+ * <p>Time is accumulated per phase of the request lifecycle: route matching,
+ * action filters, the action, SQL execution, view forwarding and content
+ * publishing. A phase may happen several times in a request, for example
+ * many SQL statements. A phase started again while it is still running,
+ * for example a forward inside a forward, is counted only once.</p>
+ *
+ * <p>Phases may be nested in each other. SQL time of an action is also part
+ * of the action time.</p>
+ *
+ * <p>Timing is off by default. When it is off, {@link #start(int)} and
+ * {@link #stop(int, long)} only read a flag. Usage:</p>
+ * <pre>
+ *     long t = RequestTiming.start(RequestTiming.SQL);
+ *     try {
+ *         ...
+ *     }
+ *     finally {
+ *         RequestTiming.stop(RequestTiming.SQL, t);
+ *     }
+ * </pre>
+ *
+ * @author (Fei) John Chen
+ */
+public class RequestTiming {
+    public static final int ROUTE = 0;
+    public static final int FILTER = 1;
+    public static final int ACTION = 2;
+    public static final int SQL = 3;
+    public static final int VIEW = 4;
+    public static final int PUBLISH = 5;
+
+    private static final String[] PHASE_NAMES = {"route", "filter", "action", "sql", "view", "publish"};
+
+    private static volatile boolean enabled = false;
+    private static final ThreadLocal<RequestTiming> current = new ThreadLocal<RequestTiming>();
+
+    private String request;
+    private final long startTime;
+    private final long startNanos;
+    private long totalNanos = -1L;
+    private final long[] durations = new long[PHASE_NAMES.length];
+    private final int[] counts = new int[PHASE_NAMES.length];
+    private final boolean[] running = new boolean[PHASE_NAMES.length];
+
+    private RequestTiming(String request) {
+        this.request = request;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Turns request timing on or off.
+     */
+    public static void setEnabled(boolean status) {
+        enabled = status;
+    }
+
+    /**
+     * Checks if request timing is on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing of a request in the current thread.
+     *
+     * @param request  description of the request, may be set later
+     * @return the timing instance, or null if timing is off
+     */
+    public static RequestTiming begin(String request) {
+        if (!enabled) return null;
+        RequestTiming timing = new RequestTiming(request);
+        current.set(timing);
+        return timing;
+    }
+
+    /**
+     * Returns the timing of the request in the current thread, or null.
+     */
+    public static RequestTiming current() {
+        return (enabled)?current.get():null;
+    }
+
+    /**
+     * Ends timing of the request in the current thread.
+     *
+     * @return the finished timing instance, or null if there is none
+     */
+    public static RequestTiming end() {
+        RequestTiming timing = current.get();
+        if (timing == null) return null;
+        current.remove();
+        timing.totalNanos = System.nanoTime() - timing.startNanos;
+        return timing;
+    }
+
+    /**
+     * Starts a phase.
+     *
+     * @param phase  one of the phase constants
+     * @return a start time to be passed to {@link #stop(int, long)}, or 0
+     * if the phase is not timed
+     */
+    public static long start(int phase) {
+        if (!enabled) return 0L;
+        RequestTiming timing = current.get();
+        if (timing == null || timing.running[phase]) return 0L;
+        timing.running[phase] = true;
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops a phase.
+     *
+     * @param phase      one of the phase constants
+     * @param startNanos start time returned by {@link #start(int)}
+     */
+    public static void stop(int phase, long startNanos) {
+        if (startNanos == 0L) return;
+        RequestTiming timing = current.get();
+        if (timing == null) return;
+        timing.durations[phase] += System.nanoTime() - startNanos;
+        timing.counts[phase]++;
+        timing.running[phase] = false;
+    }
+
+    /**
+     * Returns name of a phase.
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Returns number of phases.
+     */
+    public static int getPhaseCount() {
+        return PHASE_NAMES.length;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public void setRequest(String request) {
+        this.request = request;
+    }
+
+    public Date getStartTime() {
+        return new Date(startTime);
+    }
+
+    /**
+     * Returns total time of the request in milliseconds. The time up to now
+     * is returned if the request is not finished.
+     */
+    public double getTotalMillis() {
+        long nanos = (totalNanos >= 0)?totalNanos:(System.nanoTime() - startNanos);
+        return toMillis(nanos);
+    }
+
+    /**
+     * Returns accumulated time of a phase in milliseconds.
+     */
+    public double getMillis(int phase) {
+        return toMillis(durations[phase]);
+    }
+
+    /**
+     * Returns number of times a phase happened.
+     */
+    public int getCount(int phase) {
+        return counts[phase];
+    }
+
+    /**
+     * Returns the timing as a value of the <tt>Server-Timing</tt> response
+     * header. Phases which did not happen are not included.
+     *
+     * <pre>
+     * Example:
+     *     route;dur=0.12, action;dur=10.3, sql;dur=8.41, total;dur=14.05
+     * </pre>
+     */
+    public String toServerTimingHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            if (counts[i] == 0) continue;
+            sb.append(PHASE_NAMES[i]).append(";dur=").append(format(getMillis(i))).append(", ");
+        }
+        sb.append("total;dur=").append(format(getTotalMillis()));
+        return sb.toString();
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\"").append(request).append("\" takes ").append(format(getTotalMillis())).append(" ms");
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            if (counts[i] == 0) continue;
+            sb.append(", ").append(PHASE_NAMES[i]).append(": ").append(format(getMillis(i)));
+            sb.append(" ms (").append(counts[i]).append(")");
+        }
+        return sb.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static String format(double millis) {
+        return "" + (Math.round(millis * 100) / 100.0);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>SlowRequestLog class keeps timings of the slowest requests since the
+ * application is started or the log is cleared.</p>
+ *
+ * <p>Only a fixed number of timings are kept. A new timing replaces the
+ * fastest one kept when the log is full. Requests which are faster than all
+ * kept requests are rejected without locking.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class SlowRequestLog {
+    /**
+     * Default number of requests kept.
+     */
+    public static final int DEFAULT_CAPACITY = 20;
+
+    private static final SlowRequestLog me = new SlowRequestLog();
+
+    private RequestTiming[] entries = new RequestTiming[DEFAULT_CAPACITY];
+    private int size = 0;
+    private volatile double threshold = -1.0;
+
+    private static final Comparator<RequestTiming> slowestFirst = new Comparator<RequestTiming>() {
+        public int compare(RequestTiming t1, RequestTiming t2) {
+            return Double.compare(t2.getTotalMillis(), t1.getTotalMillis());
+        }
+    };
+
+    private SlowRequestLog() {
+    }
+
+    public static SlowRequestLog getInstance() {
+        return me;
+    }
+
+    /**
+     * Returns maximum number of requests kept.
+     */
+    public synchronized int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Changes maximum number of requests kept. The log is cleared if the
+     * capacity is changed.
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive for SlowRequestLog.");
+        if (capacity == entries.length) return;
+        entries = new RequestTiming[capacity];
+        size = 0;
+        threshold = -1.0;
+    }
+
+    /**
+     * Records a finished request.
+     */
+    public void record(RequestTiming timing) {
+        if (timing == null) return;
+        double millis = timing.getTotalMillis();
+        if (millis <= threshold) return;
+
+        synchronized(this) {
+            int capacity = entries.length;
+            int index = 0;
+            if (size < capacity) {
+                index = size++;
+            }
+            else {
+                //replace the fastest one
+                for (int i = 1; i < capacity; i++) {
+                    if (entries[i].getTotalMillis() < entries[index].getTotalMillis()) index = i;
+                }
+                if (millis <= entries[index].getTotalMillis()) return;
+            }
+            entries[index] = timing;
+
+            if (size == capacity) {
+                double min = entries[0].getTotalMillis();
+                for (int i = 1; i < capacity; i++) {
+                    min = Math.min(min, entries[i].getTotalMillis());
+                }
+                threshold = min;
+            }
+        }
+    }
+
+    /**
+     * Returns kept requests, the slowest first.
+     */
+    public List<RequestTiming> getSlowestRequests() {
+        List<RequestTiming> list = new ArrayList<RequestTiming>();
+        synchronized(this) {
+            for (int i = 0; i < size; i++) list.add(entries[i]);
+        }
+
+        Collections.sort(list, slowestFirst);
+        return list;
+    }
+
+    /**
+     * Removes all kept requests.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) entries[i] = null;
+        size = 0;
+        threshold = -1.0;
+    }
+}
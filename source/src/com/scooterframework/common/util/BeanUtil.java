@@ -8,6 +8,8 @@
 package com.scooterframework.common.util;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import com.scooterframework.common.exception.ExecutionException;
@@ -19,6 +21,13 @@ import com.scooterframework.common.exception.MethodCreationException;
  * @author (Fei) John Chen
  */
 public class BeanUtil {
+    
+    /**
+     * Public methods of recently used classes, keyed by lower case method 
+     * name.
+     */
+    private static final LRUCache<Class<?>, Map<String, Method>> methodsCache = 
+        new LRUCache<Class<?>, Map<String, Method>>("bean.methods", 1000);
 
     /**
      * Returns method of an object.
@@ -37,14 +46,7 @@ public class BeanUtil {
             throw new IllegalArgumentException("BeanUtil.getMethod(): No method name specified.");
         }
         
-        Method method = null;
-		Method[] methods = clz.getMethods();
-		for (Method m : methods) {
-			if (methodName.equalsIgnoreCase(m.getName())) {
-				method = m;
-				break;
-			}
-		}
+        Method method = getMethodsMap(clz).get(methodName.toLowerCase());
 		
 		if (method == null) {
     		throw new MethodCreationException(clz.getName(), methodName);
@@ -53,6 +55,25 @@ public class BeanUtil {
         return method;
     }
     
+    /**
+     * Returns public methods of a class keyed by lower case method name. If 
+     * there are more than one methods of the same name, the first one 
+     * returned by <tt>Class.getMethods()</tt> is used.
+     */
+    private static Map<String, Method> getMethodsMap(Class<?> clz) {
+        Map<String, Method> map = methodsCache.get(clz);
+        if (map == null) {
+            map = new HashMap<String, Method>();
+            Method[] methods = clz.getMethods();
+            for (Method m : methods) {
+                String key = m.getName().toLowerCase();
+                if (!map.containsKey(key)) map.put(key, m);
+            }
+            methodsCache.put(clz, map);
+        }
+        return map;
+    }
+    
     /**
      * Executes a method of a bean instance.
      * 
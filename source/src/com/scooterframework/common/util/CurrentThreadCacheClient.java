@@ -155,6 +155,14 @@ public class CurrentThreadCacheClient {
 		return (String)CurrentThreadCache.get(Constants.RESOURCE);
 	}
 	
+	public static void cacheRouteName(String routeName) {
+		CurrentThreadCache.set(Constants.ROUTE_NAME, routeName);
+	}
+	
+	public static String routeName() {
+		return (String)CurrentThreadCache.get(Constants.ROUTE_NAME);
+	}
+	
 	public static void cacheCacheable(String cacheable) {
 		CurrentThreadCache.set(Constants.REQUEST_CACHEABLE, cacheable);
 	}
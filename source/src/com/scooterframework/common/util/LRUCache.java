@@ -0,0 +1,303 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scooterframework.cache.CacheStatisticsConstats;
+
+/**
+ * <p>LRUCache class is a thread-safe, size-bounded map which evicts the
+ * least recently used entries when it is full.</p>
+ *
+ * <p>Entries are spread over a number of independently locked segments so
+ * that concurrent request threads seldom contend for the same lock. Each
+ * segment keeps its own access order, therefore the eviction order is LRU
+ * per segment and approximately LRU for the whole cache.</p>
+ *
+ * <p>Hit, miss and eviction counts are kept for reporting purpose. See
+ * {@link #getStatistics()}. Every cache is registered by its name when it
+ * is created so that statistics of all caches can be reported together. See
+ * {@link #getCaches()}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LRUCache<K, V> {
+    /**
+     * Default number of segments.
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    private static final ConcurrentMap<String, LRUCache<?, ?>> caches = new ConcurrentHashMap<String, LRUCache<?, ?>>();
+
+    private final String name;
+    private final int maxSize;
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache holding up to <tt>maxSize</tt> entries.
+     *
+     * @param name      name of the cache, used in statistics
+     * @param maxSize   maximum number of entries
+     */
+    public LRUCache(String name, int maxSize) {
+        this(name, maxSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Creates a cache holding up to <tt>maxSize</tt> entries spread over
+     * <tt>segmentCount</tt> segments. The segment count is rounded up to a
+     * power of two and reduced when the cache is very small.
+     *
+     * @param name          name of the cache, used in statistics
+     * @param maxSize       maximum number of entries
+     * @param segmentCount  number of independently locked segments
+     */
+    public LRUCache(String name, int maxSize, int segmentCount) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be positive for cache " + name + ".");
+
+        this.name = name;
+        this.maxSize = maxSize;
+
+        int count = 1;
+        while (count < segmentCount && count * 2 <= maxSize) count = count << 1;
+
+        segments = newSegments(count);
+        segmentMask = count - 1;
+        int perSegment = maxSize / count;
+        int remainder = maxSize % count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<K, V>((i < remainder)?(perSegment + 1):perSegment);
+        }
+
+        //a new cache replaces a previous cache of the same name
+        if (name != null) caches.put(name, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return (Segment<K, V>[])new Segment<?, ?>[count];
+    }
+
+    /**
+     * Returns all registered caches sorted by name.
+     */
+    public static Map<String, LRUCache<?, ?>> getCaches() {
+        return new TreeMap<String, LRUCache<?, ?>>(caches);
+    }
+
+    /**
+     * Returns the cache name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum number of entries in this cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the value associated with the key, or null if there is none.
+     */
+    public V get(K key) {
+        if (key == null) return null;
+        Segment<K, V> s = segmentFor(key);
+        V value = null;
+        synchronized(s) {
+            value = s.get(key);
+        }
+        if (value != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Stores a value. The least recently used entry of the same segment is
+     * evicted if the segment is full.
+     *
+     * @return the previous value associated with the key, or null
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null)
+            throw new IllegalArgumentException("Key or value cannot be null for cache " + name + ".");
+        Segment<K, V> s = segmentFor(key);
+        V old = null;
+        boolean evicted = false;
+        synchronized(s) {
+            old = s.put(key, value);
+            evicted = s.checkEviction();
+        }
+        if (evicted) evictions.incrementAndGet();
+        return old;
+    }
+
+    /**
+     * Stores a value only if the key is not already present.
+     *
+     * @return the existing value, or null if the new value was stored
+     */
+    public V putIfAbsent(K key, V value) {
+        if (key == null || value == null)
+            throw new IllegalArgumentException("Key or value cannot be null for cache " + name + ".");
+        Segment<K, V> s = segmentFor(key);
+        V existing = null;
+        boolean evicted = false;
+        synchronized(s) {
+            existing = s.get(key);
+            if (existing == null) {
+                s.put(key, value);
+                evicted = s.checkEviction();
+            }
+        }
+        if (evicted) evictions.incrementAndGet();
+        return existing;
+    }
+
+    /**
+     * Removes the entry associated with the key.
+     *
+     * @return the removed value, or null
+     */
+    public V remove(K key) {
+        if (key == null) return null;
+        Segment<K, V> s = segmentFor(key);
+        synchronized(s) {
+            return s.remove(key);
+        }
+    }
+
+    /**
+     * Checks if the key is in the cache. This does not count as a hit or a
+     * miss and does not change the access order.
+     */
+    public boolean containsKey(K key) {
+        if (key == null) return false;
+        Segment<K, V> s = segmentFor(key);
+        synchronized(s) {
+            return s.containsKey(key);
+        }
+    }
+
+    /**
+     * Returns current number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> s : segments) {
+            synchronized(s) {
+                size += s.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries. Statistics are not reset.
+     */
+    public void clear() {
+        for (Segment<K, V> s : segments) {
+            synchronized(s) {
+                s.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot copy of the cache content.
+     */
+    public Map<K, V> snapshot() {
+        Map<K, V> copy = new LinkedHashMap<K, V>();
+        for (Segment<K, V> s : segments) {
+            synchronized(s) {
+                copy.putAll(s);
+            }
+        }
+        return copy;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns statistics of the cache. Keys are those defined in
+     * {@link com.scooterframework.cache.CacheStatisticsConstats}.
+     */
+    public Properties getStatistics() {
+        Properties p = new Properties();
+        p.setProperty(CacheStatisticsConstats.KEY_CACHE_STATS_CacheHits, "" + getHitCount());
+        p.setProperty(CacheStatisticsConstats.KEY_CACHE_STATS_CacheMisses, "" + getMissCount());
+        p.setProperty(CacheStatisticsConstats.KEY_CACHE_STATS_EvictionCount, "" + getEvictionCount());
+        p.setProperty(CacheStatisticsConstats.KEY_CACHE_STATS_ObjectCount, "" + size());
+        return p;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return "LRUCache[name=" + name + ", maxSize=" + maxSize + ", " + getStatistics() + "]";
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 5263457802413924381L;
+
+        private final int capacity;
+        private boolean evicted;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evicted = true;
+                return true;
+            }
+            return false;
+        }
+
+        boolean checkEviction() {
+            boolean result = evicted;
+            evicted = false;
+            return result;
+        }
+    }
+}
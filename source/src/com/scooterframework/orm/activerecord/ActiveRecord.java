@@ -7,7 +7,12 @@
  */
 package com.scooterframework.orm.activerecord;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -30,6 +35,7 @@ import com.scooterframework.common.validation.ValidationResults;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.object.ColumnInfo;
+import com.scooterframework.orm.sqldataexpress.object.LazyLob;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RESTified;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
@@ -40,6 +46,7 @@ import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
 import com.scooterframework.orm.sqldataexpress.service.SqlService;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceConfig;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
 import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
 import com.scooterframework.transaction.ImplicitTransactionManager;
 import com.scooterframework.transaction.TransactionManagerUtil;
@@ -356,9 +363,33 @@ implements RESTified, Serializable {
      * @return database connection name
      */
     public String getConnectionName() {
+        ShardStrategy shards = getShardStrategy();
+        if (shards != null) {
+            Object key = (rowData != null)?rowData.getField(shards.getColumn()):null;
+            return (key != null)?shards.getShard(key):shards.getSchemaShard();
+        }
         return (connectionName != null)?connectionName:getDefaultConnectionName();
     }
 
+    /**
+     * <p>Returns the sharding strategy of this model, or <tt>null</tt> if
+     * records of this model are not sharded.</p>
+     *
+     * <p>Subclass can override this method to spread its records over
+     * several database connections by a shard key column. A record is
+     * saved to and loaded from the shard of its key, so the key must be set
+     * before the record is created and must not be changed afterwards.
+     * Finders with the shard key in their conditions map read from one
+     * shard. Other finders read from all shards. See
+     * {@link com.scooterframework.orm.activerecord.ShardStrategy ShardStrategy}
+     * for examples.</p>
+     *
+     * @return a ShardStrategy instance
+     */
+    public ShardStrategy getShardStrategy() {
+        return null;
+    }
+
     /**
      * <p>Returns the primary key string the record. This method is the same as 
      * the {@link #getRestfulId getRestfulId} method.</p>
@@ -515,6 +546,55 @@ implements RESTified, Serializable {
         return dMap;
     }
 
+    /**
+     * <p>Returns content of a binary field as a stream. A lazily read BLOB 
+     * value is streamed from the database without being loaded into 
+     * memory. The stream must be closed.</p>
+     *
+     * @param   fieldName name of a model field
+     * @return  an input stream, or <tt>null</tt> if the field is null
+     * @see     com.scooterframework.orm.sqldataexpress.object.LazyLob
+     */
+    public InputStream getInputStream(String fieldName) {
+        Object data = getField(fieldName);
+        if (data == null) return null;
+        if (data instanceof LazyLob) {
+            try {
+                return ((LazyLob)data).getInputStream();
+            }
+            catch(SQLException ex) {
+                throw new BaseSQLException(ex);
+            }
+        }
+        if (data instanceof byte[]) return new ByteArrayInputStream((byte[])data);
+        if (data instanceof InputStream) return (InputStream)data;
+        return new ByteArrayInputStream(data.toString().getBytes());
+    }
+
+    /**
+     * <p>Returns content of a character field as a reader. A lazily read 
+     * CLOB value is streamed from the database without being loaded into 
+     * memory. The reader must be closed.</p>
+     *
+     * @param   fieldName name of a model field
+     * @return  a reader, or <tt>null</tt> if the field is null
+     * @see     com.scooterframework.orm.sqldataexpress.object.LazyLob
+     */
+    public Reader getReader(String fieldName) {
+        Object data = getField(fieldName);
+        if (data == null) return null;
+        if (data instanceof LazyLob) {
+            try {
+                return ((LazyLob)data).getReader();
+            }
+            catch(SQLException ex) {
+                throw new BaseSQLException(ex);
+            }
+        }
+        if (data instanceof Reader) return (Reader)data;
+        return new StringReader(data.toString());
+    }
+
     /**
      * Sets primary key columns for the record
      */
@@ -1331,7 +1411,16 @@ implements RESTified, Serializable {
      * @return the AssociatedRecord instance
      */
     public AssociatedRecord associated(String associationId, String options, boolean refresh) {
-        return getRecordRelation(associationId).associatedRecord(options, refresh);
+        if (QueryTracker.current() == null) {
+            return getRecordRelation(associationId).associatedRecord(options, refresh);
+        }
+        String previous = QueryTracker.enterAssociation(getAssociationLabel(associationId));
+        try {
+            return getRecordRelation(associationId).associatedRecord(options, refresh);
+        }
+        finally {
+            QueryTracker.exitAssociation(previous);
+        }
     }
 
     /**
@@ -1438,7 +1527,20 @@ implements RESTified, Serializable {
      * @return the AssociatedRecords instance
      */
     public AssociatedRecords allAssociated(String associationId, String options, boolean refresh) {
-        return getRecordRelation(associationId).allAssociatedRecords(options, refresh);
+        if (QueryTracker.current() == null) {
+            return getRecordRelation(associationId).allAssociatedRecords(options, refresh);
+        }
+        String previous = QueryTracker.enterAssociation(getAssociationLabel(associationId));
+        try {
+            return getRecordRelation(associationId).allAssociatedRecords(options, refresh);
+        }
+        finally {
+            QueryTracker.exitAssociation(previous);
+        }
+    }
+
+    private String getAssociationLabel(String associationId) {
+        return ActiveRecordUtil.getModelName(this) + "." + associationId;
     }
 
     /**
@@ -2633,6 +2735,16 @@ implements RESTified, Serializable {
                 pkDataMap = rowData.getPrimaryKeyDataMap();
             }
             
+            //binds lazily read LOB values to this row
+            int size = rowData.getSize();
+            for (int i = 0; i < size; i++) {
+                Object data = rowData.getField(i);
+                if (data instanceof LazyLob) {
+                    ((LazyLob)data).bind(getConnectionName(), getTableName(), 
+                        rowData.getRowInfo().getColumnName(i), pkDataMap);
+                }
+            }
+            
             existInDatabase = true;
         }
     }
@@ -2652,7 +2764,7 @@ implements RESTified, Serializable {
     /**
      * prepareInsertSQL
      */
-	private int prepareInsertSQL(RowData rd, Map<String, Object> outs,
+	private int prepareInsertSQL(RowData rd, List<Object> outs,
 			StringBuilder strBuffer, boolean autoPopulatePrimaryKey,
 			boolean changedOnly) {
 		RowInfo ri = rd.getRowInfo();
@@ -2674,7 +2786,7 @@ implements RESTified, Serializable {
             names.append(ci.getColumnName()).append(", ");
             values.append("?, ");
             positionIndex = positionIndex + 1;
-            outs.put(positionIndex+"", rd.getField(i));
+            outs.add(rd.getField(i));
         }
 
         //the last column: i=maxSize-1
@@ -2686,7 +2798,7 @@ implements RESTified, Serializable {
             names.append(ci.getColumnName()).append("");
             values.append("?");
             positionIndex = positionIndex + 1;
-            outs.put(positionIndex+"", rd.getField(i));
+            outs.add(rd.getField(i));
         }
 
         String namesList = names.toString();
@@ -2705,7 +2817,7 @@ implements RESTified, Serializable {
     /**
      * prepareWhereClause
      */
-    private int prepareWhereClause(int startPosition, Map<String, Object> ins, Map<String, Object> outs, StringBuilder strBuffer) {
+    private int prepareWhereClause(int startPosition, Map<String, Object> ins, List<Object> outs, StringBuilder strBuffer) {
         int maxSize = ins.size();
         int count = 0;
         for (Map.Entry<String, Object> entry : ins.entrySet()) {
@@ -2718,7 +2830,7 @@ implements RESTified, Serializable {
             else
                 strBuffer.append(keyName).append(" = ? ");
 
-            outs.put(startPosition+"", valueData);
+            outs.add(valueData);
             startPosition = startPosition + 1;
         }
 
@@ -2729,7 +2841,7 @@ implements RESTified, Serializable {
      * prepareSetSQL
      */
 	private int prepareSetSQL(int startPosition, RowData rd,
-			Map<String, Object> outs, StringBuilder strBuffer,
+			List<Object> outs, StringBuilder strBuffer,
 			boolean changedOnly) {
 		RowInfo ri = rd.getRowInfo();
         if (ri == null)
@@ -2743,9 +2855,11 @@ implements RESTified, Serializable {
             ci = ri.getColumnInfo(i);
             if (ci.isReadOnly() || !ci.isWritable() || ci.isPrimaryKey()) continue;
             if (changedOnly && !modifiedColumns.contains(ci.getColumnName())) continue;
+            //an unchanged LOB value which has not been read
+            if (rd.getField(i) instanceof LazyLob && !modifiedColumns.contains(ci.getColumnName())) continue;
 
             strBuffer.append(ci.getColumnName()).append(" = ?, ");
-            outs.put(startPosition + "", rd.getField(i));
+            outs.add(rd.getField(i));
             startPosition = startPosition + 1;
         }
 
@@ -2796,6 +2910,22 @@ implements RESTified, Serializable {
         return pkValues;
     }
 
+    /**
+     * <p>Populates empty primary key values based on the primary key rules
+     * before the record is inserted by a statement of its table gateway.</p>
+     *
+     * @return true if the primary key is left to the database to generate
+     */
+    boolean populatePrimaryKeyBeforeInsert() {
+        if (!isPrimaryKeyDataEmpty()) return false;
+
+        Map<String, Object> pkValues = populatePrimaryKeyValuesBeforeInsert();
+        if (pkValues == null || pkValues.size() == 0) return true;
+
+        setData(pkValues);
+        return false;
+    }
+
     private boolean isPrimaryKeyDataEmpty() {
         Map<String, Object> pkMap = getPrimaryKeyDataMap();
         if (pkMap == null || pkMap.size() == 0) return true;
@@ -2921,17 +3051,15 @@ implements RESTified, Serializable {
             }
 
             StringBuilder strBuffer = new StringBuilder();
-            Map<String, Object> inputs = new HashMap<String, Object>();
+            List<Object> params = new ArrayList<Object>();
 
-            prepareInsertSQL(rowData, inputs, strBuffer, autoPopulatePrimaryKey, changedOnly);
+            prepareInsertSQL(rowData, params, strBuffer, autoPopulatePrimaryKey, changedOnly);
 
             createSQL += " " + strBuffer.toString();
             log.debug("create sql = " + createSQL);
-            
-            inputs = addMoreProperties(inputs, null);
 
-            OmniDTO returnTO =
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, createSQL);
+            OmniDTO returnTO = getSqlService().execute(getConnectionName(), 
+                SqlServiceClient.getJdbcStatement(createSQL), params.toArray());
 
             int count = returnTO.getUpdatedRowCount();
 
@@ -3096,13 +3224,13 @@ implements RESTified, Serializable {
         int count = 0;
         String updateSQL = "UPDATE " + getTableName();
         try {
-            Map<String, Object> inputs = new HashMap<String, Object>();
+            List<Object> params = new ArrayList<Object>();
 
             int position = 1;
 
             //construct sets
             StringBuilder sets = new StringBuilder();
-            position = prepareSetSQL(position, rowData, inputs, sets, changedOnly);
+            position = prepareSetSQL(position, rowData, params, sets, changedOnly);
             sets = StringUtil.removeLastToken(sets, ", ");
             updateSQL += " SET " + sets.toString();
 
@@ -3118,16 +3246,14 @@ implements RESTified, Serializable {
             
             if (conditions != null && conditions.size() > 0) {
                 StringBuilder wheres = new StringBuilder();
-                position = prepareWhereClause(position, conditions, inputs, wheres);
+                position = prepareWhereClause(position, conditions, params, wheres);
                 updateSQL += " WHERE " + wheres.toString();
             }
 
             log.debug("update sql = " + updateSQL);
-            
-            inputs = addMoreProperties(inputs, null);
 
-            OmniDTO returnTO =
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, updateSQL);
+            OmniDTO returnTO = getSqlService().execute(getConnectionName(), 
+                SqlServiceClient.getJdbcStatement(updateSQL), params.toArray());
 
             count = returnTO.getUpdatedRowCount();
 
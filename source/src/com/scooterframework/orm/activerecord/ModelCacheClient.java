@@ -14,7 +14,10 @@ import com.scooterframework.cache.Cache;
 import com.scooterframework.cache.CacheKey;
 import com.scooterframework.cache.CacheProvider;
 import com.scooterframework.cache.CacheProviderUtil;
+import com.scooterframework.cache.MeteredCache;
 import com.scooterframework.cache.NamedCurrentThreadCache;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.MetricsRegistry;
 
 /**
  * <p>
@@ -93,7 +96,9 @@ public class ModelCacheClient {
 	}
 	
 	public void clearCache(String method) {
-		if (flushCache(method)) getCache().clear();
+		if (!flushCache(method)) return;
+		Cache cache = getCache();
+		if (cache != null) cache.clear();
 	}
 	
 	public boolean flushCache(String method) {
@@ -118,16 +123,25 @@ public class ModelCacheClient {
 	public Cache getCache() {
 		if (modelCache != null) return modelCache;
 		
+		Cache cache = null;
+		String level = null;
 		if (useSecondLevelCache) {
 			CacheProvider dcp = CacheProviderUtil.getDefaultCacheProvider();
 			if (dcp != null) {
-				modelCache = dcp.getCache(clazz.getName());
+				cache = dcp.getCache(clazz.getName());
+				level = "second";
 			}
 		}
 		else if (useRequestCache) {
-			modelCache = new NamedCurrentThreadCache(clazz.getName());
+			cache = new NamedCurrentThreadCache(clazz.getName());
+			level = "request";
 		}
 		
+		if (cache != null && (MetricsRegistry.isEnabled() || EventRecorder.isEnabled())) {
+			cache = new MeteredCache(cache, level);
+		}
+		modelCache = cache;
+		
 		return modelCache;
 	}
 }
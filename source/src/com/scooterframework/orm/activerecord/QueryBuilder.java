@@ -13,6 +13,7 @@ import java.util.Map;
 
 import com.scooterframework.orm.misc.JdbcPageListSource;
 import com.scooterframework.orm.misc.Paginator;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
 import com.scooterframework.orm.sqldataexpress.util.SqlConstants;
 
 /**
@@ -283,6 +284,18 @@ public class QueryBuilder {
 		return this;
 	}
     
+    /**
+     * <p>Setup query timeout in seconds. It overrides the default timeout 
+     * <tt>sql.query.timeout</tt> in <tt>database.properties</tt>.</p>
+     *
+     * @param seconds  query timeout in seconds, 0 for no timeout
+     * @return current <tt>QueryBuilder</tt> instance
+     */
+	public QueryBuilder timeout(int seconds) {
+		options.put(DataProcessor.input_key_query_timeout, seconds + "");
+		return this;
+	}
+    
     /**
      * <p>Setup current page number. 
      * All records in previous pages are skipped.</p>
@@ -0,0 +1,287 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.scooterframework.orm.sqldataexpress.connection.ReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.TableData;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
+import com.scooterframework.orm.sqldataexpress.service.AsyncSqlServiceClient;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceConfig;
+import com.scooterframework.orm.sqldataexpress.util.QueryTimeout;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
+import com.scooterframework.orm.sqldataexpress.util.SqlUtil;
+import com.scooterframework.transaction.TransactionManagerUtil;
+
+/**
+ * <p>ShardHelper class runs a statement of a sharded model on all of its
+ * shards.</p>
+ *
+ * <p>Shards are queried in parallel by AsyncSqlServiceClient, except in a
+ * transaction or in a thread of AsyncSqlServiceClient, where they are
+ * queried one by one in the current thread. Parallel queries read writes
+ * of the current request from primary connections, are limited by the
+ * database time budget of the request, and are counted by QueryTracker.
+ * Rows of all shards are merged by the <tt>ORDER BY</tt> clause of the
+ * query, and then offset and limit are applied to the merged rows.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ShardHelper {
+    /**
+     * Maximum time in milliseconds to wait for the shards, if neither the
+     * request has a database time budget nor a default query timeout is
+     * set.
+     */
+    public static final long FAN_OUT_TIMEOUT = 60000L;
+
+    /**
+     * Retrieves rows from all shards.
+     *
+     * @param shards    the sharding strategy
+     * @param inputs    inputs of the query
+     * @param findSQL   the query
+     * @param limit     number of rows to retrieve
+     * @param offset    number of rows to skip
+     * @param options   options of the query, which may have an order by
+     * @return rows of all shards
+     */
+    static TableData retrieveRows(ShardStrategy shards, final Map<String, Object> inputs,
+            final String findSQL, int limit, int offset, Map<String, String> options) {
+        final int shardLimit = (limit == DataProcessor.NO_ROW_LIMIT)?limit:(offset + limit);
+
+        List<Callable<TableData>> tasks = new ArrayList<Callable<TableData>>();
+        for (final String shard : shards.getShards()) {
+            tasks.add(new Callable<TableData>() {
+                public TableData call() {
+                    Map<String, Object> shardInputs = new HashMap<String, Object>(inputs);
+                    shardInputs.put(DataProcessor.input_key_database_connection_name, shard);
+                    return SqlServiceConfig.getSqlService().retrieveRows(shardInputs,
+                            DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL,
+                            shardLimit, 0);
+                }
+            });
+        }
+
+        TableData merged = new TableData();
+        for (Object result : run(tasks, findSQL)) {
+            TableData td = (TableData)result;
+            if (td == null) continue;
+            if (merged.getHeader() == null) merged.setHeader(td.getHeader());
+            for (RowData row : td.getAllRows()) {
+                merged.addRow(row);
+            }
+        }
+
+        List<RowData> rows = merged.getAllRows();
+        List<String[]> orderBy = parseOrderBy(SqlUtil.getOrderBy(options));
+        if (orderBy.size() > 0) {
+            Collections.sort(rows, new RowComparator(orderBy));
+        }
+
+        TableData td = new TableData();
+        td.setHeader(merged.getHeader());
+        int end = (limit == DataProcessor.NO_ROW_LIMIT)?rows.size():Math.min(rows.size(), offset + limit);
+        for (int i = offset; i < end; i++) {
+            td.addRow(rows.get(i));
+        }
+        return td;
+    }
+
+    /**
+     * Executes a non-select statement on all shards.
+     *
+     * @param shards    the sharding strategy
+     * @param sql       the statement
+     * @param inputs    inputs of the statement
+     * @return total number of rows updated on all shards
+     */
+    static int executeSQL(ShardStrategy shards, final String sql, final Map<String, Object> inputs) {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (final String shard : shards.getShards()) {
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    Map<String, Object> shardInputs = new HashMap<String, Object>(inputs);
+                    shardInputs.put(DataProcessor.input_key_database_connection_name, shard);
+                    return Integer.valueOf(SqlServiceClient.executeSQL(sql, shardInputs));
+                }
+            });
+        }
+
+        int count = 0;
+        for (Object result : run(tasks, sql)) {
+            count += ((Integer)result).intValue();
+        }
+        ReplicaRouter.markWrites(shards.getShards());
+        return count;
+    }
+
+    /**
+     * Runs tasks of the shards. Tasks run one by one in the current thread
+     * in a transaction, in a thread of the pool, or when the request has
+     * used up its database time. Otherwise they run in the pool, and a
+     * task which the pool rejects runs in the current thread.
+     */
+    private static List<Object> run(List<? extends Callable<?>> tasks, String sql) {
+        QueryTimeout budget = QueryTimeout.current();
+        if (tasks.size() < 2 || AsyncSqlServiceClient.isWorkerThread() ||
+                TransactionManagerUtil.getTransactionManager().getTransaction() != null ||
+                (budget != null && budget.getRemainingMillis() <= 0L)) {
+            return runInline(tasks);
+        }
+
+        long timeout = FAN_OUT_TIMEOUT;
+        if (budget != null) timeout = budget.getRemainingMillis();
+        else if (QueryTimeout.getDefaultTimeout() > 0) timeout = QueryTimeout.getDefaultTimeout() * 1000L;
+
+        Set<String> written = ReplicaRouter.getWrites();
+        List<QueryTimeout> branches = new ArrayList<QueryTimeout>();
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+        boolean done = false;
+        try {
+            for (Callable<?> task : tasks) {
+                QueryTimeout branch = (budget != null)?budget.branch():null;
+                Future<?> future = null;
+                try {
+                    future = AsyncSqlServiceClient.submit(forRequest(task, written, branch));
+                }
+                catch (BaseSQLException ex) {
+                    if (!(ex.getCause() instanceof RejectedExecutionException)) throw ex;
+                }
+                futures.add(future);
+                if (future != null) {
+                    if (branch != null) branches.add(branch);
+                    QueryTracker.record(sql);
+                }
+            }
+
+            Object[] inline = new Object[tasks.size()];
+            for (int i = 0; i < tasks.size(); i++) {
+                if (futures.get(i) == null) inline[i] = call(tasks.get(i));
+            }
+
+            List<Future<?>> submitted = new ArrayList<Future<?>>(futures);
+            submitted.removeAll(Collections.singleton(null));
+            Iterator<Object> joined = AsyncSqlServiceClient.join(submitted, timeout).iterator();
+            List<Object> results = new ArrayList<Object>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                results.add((futures.get(i) == null)?inline[i]:joined.next());
+            }
+            if (budget != null) budget.merge(branches);
+            done = true;
+            return results;
+        }
+        finally {
+            if (!done) {
+                for (Future<?> future : futures) {
+                    if (future != null) future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a task so that it reads writes of the current request from
+     * primary connections, and uses a branch of the database time budget
+     * of the request.
+     */
+    private static <T> Callable<T> forRequest(final Callable<T> task,
+            final Set<String> written, final QueryTimeout branch) {
+        return new Callable<T>() {
+            public T call() throws Exception {
+                ReplicaRouter.markWrites(written);
+                if (branch != null) QueryTimeout.attach(branch);
+                try {
+                    return task.call();
+                }
+                finally {
+                    if (branch != null) QueryTimeout.end();
+                }
+            }
+        };
+    }
+
+    private static List<Object> runInline(List<? extends Callable<?>> tasks) {
+        List<Object> results = new ArrayList<Object>(tasks.size());
+        for (Callable<?> task : tasks) {
+            results.add(call(task));
+        }
+        return results;
+    }
+
+    private static Object call(Callable<?> task) {
+        try {
+            return task.call();
+        }
+        catch (RuntimeException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+    }
+
+    /**
+     * Parses an <tt>ORDER BY</tt> clause into pairs of column name and
+     * direction. Table names before column names are removed.
+     */
+    static List<String[]> parseOrderBy(String orderByClause) {
+        List<String[]> list = new ArrayList<String[]>();
+        if (orderByClause == null) return list;
+        String s = orderByClause.trim();
+        if (s.toUpperCase().startsWith("ORDER BY")) s = s.substring("ORDER BY".length());
+
+        for (String item : s.split(",")) {
+            String[] tokens = item.trim().split("\\s+");
+            if (tokens.length == 0 || "".equals(tokens[0])) continue;
+            String column = tokens[0];
+            int dot = column.lastIndexOf('.');
+            if (dot != -1) column = column.substring(dot + 1);
+            boolean desc = tokens.length > 1 && "DESC".equalsIgnoreCase(tokens[1]);
+            list.add(new String[]{column, (desc)?"DESC":"ASC"});
+        }
+        return list;
+    }
+
+    private static class RowComparator implements Comparator<RowData> {
+        private final List<String[]> orderBy;
+
+        RowComparator(List<String[]> orderBy) {
+            this.orderBy = orderBy;
+        }
+
+        public int compare(RowData r1, RowData r2) {
+            for (String[] item : orderBy) {
+                Object v1 = r1.getField(item[0]);
+                Object v2 = r2.getField(item[0]);
+                int result = 0;
+                if (v1 == null) result = (v2 == null)?0:-1;
+                else if (v2 == null) result = 1;
+                else result = ShardStrategy.compare(v1, v2);
+
+                if (result != 0) return ("DESC".equals(item[1]))?-result:result;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.scooterframework.orm.sqldataexpress.util.DBStore;
+
+/**
+ * <p>ShardStrategy class spreads the records of a model over several
+ * database connections, called shards, by the value of one column, called
+ * the shard key.</p>
+ *
+ * <p>A <tt>hash</tt> strategy sends a key to the shard at the position of
+ * its hash. A <tt>range</tt> strategy sends a key to the first shard whose
+ * upper bound is greater than the key.</p>
+ *
+ * <p>A model declares its strategy by overriding
+ * {@link ActiveRecord#getShardStrategy()}. The strategy should be created
+ * once and kept in a static field:</p>
+ *
+ * <blockquote><pre>
+ * public class Order extends ActiveRecord {
+ *     private static final ShardStrategy SHARDS =
+ *         ShardStrategy.hash("customer_id", "orders_0", "orders_1");
+ *
+ *     public ShardStrategy getShardStrategy() {
+ *         return SHARDS;
+ *     }
+ * }
+ *
+ * ShardStrategy.range("id").addRange(1000000, "orders_old").addRange(null, "orders_new");
+ * </pre></blockquote>
+ *
+ * <p>All shards must have the same schema. Table metadata is read from the
+ * first shard and shared by the others.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ShardStrategy {
+    /**
+     * Keys are sent to shards by their hash.
+     */
+    public static final String TYPE_HASH = "hash";
+
+    /**
+     * Keys are sent to shards by ranges.
+     */
+    public static final String TYPE_RANGE = "range";
+
+    private final String type;
+    private final String column;
+    private final List<String> shards = new ArrayList<String>();
+    private final List<Object> upperBounds = new ArrayList<Object>();
+
+    private ShardStrategy(String type, String column) {
+        if (column == null || "".equals(column.trim()))
+            throw new IllegalArgumentException("Shard key column cannot be empty.");
+        this.type = type;
+        this.column = column.trim();
+    }
+
+    /**
+     * Creates a hash strategy.
+     *
+     * @param column  the shard key column
+     * @param shards  connection names of the shards
+     * @return a ShardStrategy instance
+     */
+    public static ShardStrategy hash(String column, String... shards) {
+        if (shards == null || shards.length == 0)
+            throw new IllegalArgumentException("A hash strategy needs at least one shard.");
+        ShardStrategy ss = new ShardStrategy(TYPE_HASH, column);
+        for (String shard : shards) {
+            ss.addShard(shard);
+        }
+        return ss;
+    }
+
+    /**
+     * Creates a range strategy. Ranges are added by
+     * {@link #addRange(Object, String)}.
+     *
+     * @param column  the shard key column
+     * @return a ShardStrategy instance
+     */
+    public static ShardStrategy range(String column) {
+        return new ShardStrategy(TYPE_RANGE, column);
+    }
+
+    /**
+     * Adds a range to a range strategy. Ranges must be added in the order
+     * of their bounds.
+     *
+     * @param upperBound  keys less than this bound go to the shard, or
+     *                    <tt>null</tt> for all other keys
+     * @param shard       connection name of the shard
+     * @return this strategy
+     */
+    public ShardStrategy addRange(Object upperBound, String shard) {
+        if (!TYPE_RANGE.equals(type))
+            throw new IllegalArgumentException("Ranges can only be added to a range strategy.");
+        if (upperBounds.size() > 0 && upperBounds.get(upperBounds.size() - 1) == null)
+            throw new IllegalArgumentException("The range without an upper bound must be the last one.");
+        addShard(shard);
+        upperBounds.add(upperBound);
+        return this;
+    }
+
+    private void addShard(String shard) {
+        if (shard == null || "".equals(shard.trim()))
+            throw new IllegalArgumentException("Shard connection name cannot be empty.");
+        shard = shard.trim();
+        if (shards.size() > 0) {
+            DBStore.getInstance().shareMetadata(shard, shards.get(0));
+        }
+        shards.add(shard);
+    }
+
+    /**
+     * Returns the type of the strategy.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the shard key column.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Checks if a column is the shard key.
+     */
+    public boolean isShardColumn(String columnName) {
+        return columnName != null && column.equalsIgnoreCase(columnName.trim());
+    }
+
+    /**
+     * Returns connection names of all shards.
+     */
+    public List<String> getShards() {
+        return new ArrayList<String>(shards);
+    }
+
+    /**
+     * Returns the connection name of the first shard, which provides table
+     * metadata, and which is used when the shard key is unknown.
+     */
+    public String getSchemaShard() {
+        if (shards.size() == 0)
+            throw new IllegalArgumentException("There is no shard in the strategy.");
+        return shards.get(0);
+    }
+
+    /**
+     * Returns the connection name of the shard of a key.
+     *
+     * @param key  value of the shard key
+     * @return connection name of a shard
+     */
+    public String getShard(Object key) {
+        if (key == null)
+            throw new IllegalArgumentException("Shard key " + column + " cannot be null.");
+
+        if (TYPE_HASH.equals(type)) {
+            int hash = hashOf(key) % shards.size();
+            return shards.get((hash < 0)?(hash + shards.size()):hash);
+        }
+
+        for (int i = 0; i < upperBounds.size(); i++) {
+            Object bound = upperBounds.get(i);
+            if (bound == null || compare(key, bound) < 0) return shards.get(i);
+        }
+        throw new IllegalArgumentException("There is no shard for " + column + " " + key + ".");
+    }
+
+    /**
+     * Returns a hash which is the same for a number and its string, so
+     * that a key from a request parameter and a key from a record go to the
+     * same shard.
+     */
+    private static int hashOf(Object key) {
+        BigDecimal number = toNumber(key);
+        if (number != null && number.stripTrailingZeros().scale() <= 0) {
+            long v = number.longValue();
+            return (int)(v ^ (v >>> 32));
+        }
+        return key.toString().hashCode();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static int compare(Object a, Object b) {
+        BigDecimal na = toNumber(a);
+        BigDecimal nb = toNumber(b);
+        if (na != null && nb != null) return na.compareTo(nb);
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable)a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static BigDecimal toNumber(Object o) {
+        if (o instanceof BigDecimal) return (BigDecimal)o;
+        String s = null;
+        if (o instanceof Number) {
+            s = o.toString();
+        }
+        else if (o instanceof String) {
+            s = ((String)o).trim();
+            if (s.length() == 0) return null;
+            char c = s.charAt(0);
+            if (c != '-' && c != '+' && !Character.isDigit(c)) return null;
+        }
+        if (s == null) return null;
+        try {
+            return new BigDecimal(s);
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -10,9 +10,11 @@ package com.scooterframework.orm.activerecord;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.scooterframework.common.exception.ObjectCreationException;
 import com.scooterframework.common.exception.RequiredDataMissingException;
@@ -22,6 +24,8 @@ import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.object.ColumnInfo;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatementParameter;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
@@ -32,6 +36,8 @@ import com.scooterframework.orm.sqldataexpress.service.SqlService;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceConfig;
 import com.scooterframework.orm.sqldataexpress.util.SqlConstants;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
 
 /**
  * <p>
@@ -55,6 +61,7 @@ public class TableGateway {
 
 	private ActiveRecord home;
 	private ModelCacheClient modelCacheClient;
+	private final Map<String, JdbcStatement> upsertStatements = new ConcurrentHashMap<String, JdbcStatement>();
 
 	// /**
 	// * Constructs an instance of TableGateway.
@@ -316,24 +323,35 @@ public class TableGateway {
 			throw new IllegalArgumentException("There is no column name as ID");
 		}
 
+		String connName = home.getConnectionName();
+		ShardStrategy shards = home.getShardStrategy();
+		if (shards != null) {
+			if (!shards.isShardColumn("ID")) {
+				Map<String, Object> conditions = new HashMap<String, Object>();
+				conditions.put("id", id);
+				List<ActiveRecord> list = internal_findAll(conditions, new HashMap<String, String>());
+				return (list.size() > 0) ? list.get(0) : null;
+			}
+			connName = shards.getShard(id);
+		}
+
 		ActiveRecord ar = null;
 		
-		Map<String, Object> inputs = new HashMap<String, Object>();
-		inputs.put("1", id);
-		inputs = addMoreProperties(inputs, null);
-		
 		String findSQL = "SELECT * FROM " + home.getTableName()	+ " WHERE id = ?";
 		
 		Object cacheKey = null;
 		if (modelCacheClient.useCache("findById")) {
+			Map<String, Object> inputs = new HashMap<String, Object>();
+			inputs.put("1", id);
+			inputs = addMoreProperties(inputs, null);
 			cacheKey = modelCacheClient.getCacheKey("findById", findSQL, inputs);
 			ar = (ActiveRecord) modelCacheClient.getCache().get(cacheKey);
 			if (ar != null) return ar;
 		}
 
 		try {
-			OmniDTO returnTO = getSqlService().execute(inputs,
-					DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL);
+			OmniDTO returnTO = getSqlService().execute(connName,
+					SqlServiceClient.getJdbcStatement(findSQL), new Object[]{id});
 
 			RowData tmpRd = returnTO.getTableData(findSQL).getRow(0);
 			if (tmpRd != null) {
@@ -1401,6 +1419,13 @@ public class TableGateway {
 			int limit = getLimit(options);
 
 			inputs = addMoreProperties(inputs, options);
+
+			ShardStrategy shards = getShardStrategy(options);
+			Object shardKey = getShardKey(shards, conditions);
+			if (shardKey != null) {
+				inputs.put(DataProcessor.input_key_database_connection_name, shards.getShard(shardKey));
+				shards = null;
+			}
 			
 			Object cacheKey = null;
 			if (modelCacheClient.useCache("findAll")) {
@@ -1409,9 +1434,11 @@ public class TableGateway {
 				if (list != null) return list;
 			}
 
-			TableData td = getSqlService().retrieveRows(inputs,
-					DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL,
-					limit, offset);
+			TableData td = (shards != null) ?
+					ShardHelper.retrieveRows(shards, inputs, findSQL, limit, offset, options) :
+					getSqlService().retrieveRows(inputs,
+						DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL,
+						limit, offset);
 
 			if (td != null) {
 				int records = td.getTableSize();
@@ -1449,6 +1476,8 @@ public class TableGateway {
 			int limit = getLimit(options);
 
 			inputs = addMoreProperties(inputs, options);
+
+			ShardStrategy shards = getShardStrategy(options);
 			
 			Object cacheKey = null;
 			if (modelCacheClient.useCache("findAll")) {
@@ -1457,9 +1486,11 @@ public class TableGateway {
 				if (list != null) return list;
 			}
 
-			TableData td = getSqlService().retrieveRows(inputs,
-					DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL,
-					limit, offset);
+			TableData td = (shards != null) ?
+					ShardHelper.retrieveRows(shards, inputs, findSQL, limit, offset, options) :
+					getSqlService().retrieveRows(inputs,
+						DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL,
+						limit, offset);
 
 			if (td != null) {
 				int records = td.getTableSize();
@@ -2045,7 +2076,7 @@ public class TableGateway {
 
 			inputs = addMoreProperties(inputs, null);
 
-			count = SqlServiceClient.executeSQL(deleteSQL, inputs);
+			count = executeSQL(deleteSQL, inputs, conditions);
 		} catch (Exception ex) {
 			throw new BaseSQLException(ex);
 		}
@@ -2070,7 +2101,7 @@ public class TableGateway {
 
 			inputs = addMoreProperties(inputs, null);
 
-			count = SqlServiceClient.executeSQL(deleteSQL, inputs);
+			count = executeSQL(deleteSQL, inputs, null);
 		} catch (Exception ex) {
 			throw new BaseSQLException(ex);
 		}
@@ -2197,7 +2228,7 @@ public class TableGateway {
 
 			inputs = addMoreProperties(inputs, null);
 
-			count = SqlServiceClient.executeSQL(updateSQL, inputs);
+			count = executeSQL(updateSQL, inputs, null);
 		} catch (Exception ex) {
 			throw new BaseSQLException(ex);
 		}
@@ -2205,6 +2236,302 @@ public class TableGateway {
 		return count;
 	}
 
+	/**
+	 * 
+	 * UPSERT related
+	 * 
+	 */
+
+	/**
+	 * <p>
+	 * Inserts a record, or updates the existing record which has the same
+	 * values in the conflict columns, in one statement.
+	 * </p>
+	 * 
+	 * <p>
+	 * See {@link #upsert(List, String, String)} for details.
+	 * </p>
+	 * 
+	 * @param record
+	 *            the record to insert or update
+	 * @param conflictColumns
+	 *            comma-separated columns which identify an existing record
+	 * @param updateColumns
+	 *            comma-separated columns to update in an existing record, or
+	 *            <tt>null</tt> for all columns except primary key and conflict
+	 *            columns
+	 * @return number of rows affected, as reported by the database
+	 */
+	public int upsert(ActiveRecord record, String conflictColumns, String updateColumns) {
+		List<ActiveRecord> records = new ArrayList<ActiveRecord>(1);
+		records.add(record);
+		return upsert(records, conflictColumns, updateColumns)[0];
+	}
+
+	/**
+	 * <p>
+	 * Inserts records, or updates the existing records which have the same
+	 * values in the conflict columns. The records are sent to the database
+	 * in one JDBC batch of the native upsert statement of the database:
+	 * <tt>MERGE</tt> for H2, HSQLDB, Oracle and SQL Server,
+	 * <tt>INSERT ... ON DUPLICATE KEY UPDATE</tt> for MySQL and
+	 * <tt>INSERT ... ON CONFLICT</tt> for PostgreSQL. Records of a sharded
+	 * model are sent in one batch for each shard.
+	 * </p>
+	 * 
+	 * <p>
+	 * If the database cannot express the upsert in one statement, each
+	 * record is updated, and inserted when no row is updated.
+	 * </p>
+	 * 
+	 * <p>
+	 * All writable columns of the records are inserted. Validations and
+	 * callbacks of the records are not run, and the records are not
+	 * refreshed from the database.
+	 * </p>
+	 * 
+	 * <p>
+	 * An empty primary key is populated by the primary key rules of the
+	 * model as in <tt>create()</tt>. If there is no rule, the primary key
+	 * is left out of the statement for the database to generate, and it
+	 * cannot be a conflict column.
+	 * </p>
+	 * 
+	 * <p>
+	 * The returned counts are those reported by the database for each
+	 * record. For example, MySQL reports 1 for an inserted row and 2 for an
+	 * updated row, and some drivers report
+	 * <tt>java.sql.Statement.SUCCESS_NO_INFO</tt> for batched statements.
+	 * </p>
+	 * 
+	 * @param records
+	 *            the records to insert or update
+	 * @param conflictColumns
+	 *            comma-separated columns which identify an existing record
+	 * @param updateColumns
+	 *            comma-separated columns to update in an existing record, or
+	 *            <tt>null</tt> for all columns except primary key and conflict
+	 *            columns
+	 * @return numbers of rows affected for the records in order
+	 */
+	public int[] upsert(List<? extends ActiveRecord> records, String conflictColumns, String updateColumns) {
+		if (records == null || records.size() == 0) return new int[0];
+
+		List<String> columns = new ArrayList<String>();
+		RowInfo ri = home.getRowInfo();
+		for (int i = 0; i < ri.getDimension(); i++) {
+			ColumnInfo ci = ri.getColumnInfo(i);
+			if (ci.isReadOnly() || !ci.isWritable()) continue;
+			columns.add(ci.getColumnName());
+		}
+
+		List<String> keys = toUpsertColumns(conflictColumns, columns);
+		if (keys.size() == 0)
+			throw new IllegalArgumentException(
+					"conflictColumns cannot be empty for upsert()");
+
+		List<String> updates = null;
+		if (updateColumns == null) {
+			updates = new ArrayList<String>();
+			for (String column : columns) {
+				if (!keys.contains(column) && !ri.getColumnInfo(column).isPrimaryKey())
+					updates.add(column);
+			}
+		}
+		else {
+			updates = toUpsertColumns(updateColumns, columns);
+			updates.removeAll(keys);
+		}
+
+		List<String> generatedColumns = new ArrayList<String>();
+		for (String column : columns) {
+			if (!ri.getColumnInfo(column).isPrimaryKey())
+				generatedColumns.add(column);
+		}
+		List<String> generatedUpdates = new ArrayList<String>(updates);
+		generatedUpdates.retainAll(generatedColumns);
+
+		modelCacheClient.clearCache("upsert");
+
+		Map<String, List<Integer>> connections = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> generatedConnections = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < records.size(); i++) {
+			ActiveRecord record = records.get(i);
+			if (record == null)
+				throw new IllegalArgumentException("Cannot upsert a null record.");
+			ActiveRecordUtil.validateRecordType(clazz, record);
+
+			Map<String, List<Integer>> map = connections;
+			if (record.populatePrimaryKeyBeforeInsert()) {
+				for (String column : columns) {
+					if (keys.contains(column) && !generatedColumns.contains(column))
+						throw new IllegalArgumentException("Cannot upsert a record " +
+								"without value of primary key " + column + 
+								", which is a conflict column.");
+				}
+				map = generatedConnections;
+			}
+
+			String connName = record.getConnectionName();
+			List<Integer> indexes = map.get(connName);
+			if (indexes == null) {
+				indexes = new ArrayList<Integer>();
+				map.put(connName, indexes);
+			}
+			indexes.add(Integer.valueOf(i));
+		}
+
+		int[] counts = new int[records.size()];
+		try {
+			for (Map.Entry<String, List<Integer>> entry : connections.entrySet()) {
+				upsertBatch(entry.getKey(), records, entry.getValue(),
+						columns, keys, updates, counts);
+			}
+			for (Map.Entry<String, List<Integer>> entry : generatedConnections.entrySet()) {
+				upsertBatch(entry.getKey(), records, entry.getValue(),
+						generatedColumns, keys, generatedUpdates, counts);
+			}
+		} catch (Exception ex) {
+			throw new BaseSQLException(ex);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Upserts records of a connection in one batch, or one by one if the 
+	 * database cannot express the upsert in one statement.
+	 */
+	private void upsertBatch(String connName, List<? extends ActiveRecord> records,
+			List<Integer> indexes, List<String> columns, List<String> keys,
+			List<String> updates, int[] counts) {
+		DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(connName);
+		String upsertSQL = dba.getUpsertSQL(home.getTableName(), columns, keys, updates);
+
+		if (upsertSQL != null) {
+			List<Object[]> paramsList = new ArrayList<Object[]>(indexes.size());
+			for (Integer index : indexes) {
+				paramsList.add(getUpsertValues(records.get(index.intValue()), columns));
+			}
+			int[] batchCounts = getSqlService().executeBatch(connName,
+					getUpsertStatement(upsertSQL, columns), paramsList);
+			for (int i = 0; i < indexes.size(); i++) {
+				counts[indexes.get(i).intValue()] = batchCounts[i];
+			}
+		}
+		else {
+			for (Integer index : indexes) {
+				counts[index.intValue()] = upsertOneByOne(connName,
+						records.get(index.intValue()), columns, keys, updates);
+			}
+		}
+	}
+
+	/**
+	 * Updates a record, and inserts it if no row is updated.
+	 */
+	private int upsertOneByOne(String connName, ActiveRecord record,
+			List<String> columns, List<String> keys, List<String> updates) {
+		List<String> setColumns = (updates.size() > 0) ? updates : keys;
+		StringBuilder sb = new StringBuilder();
+		sb.append("UPDATE ").append(home.getTableName()).append(" SET ");
+		for (int i = 0; i < setColumns.size(); i++) {
+			String column = setColumns.get(i);
+			if (i > 0) sb.append(", ");
+			sb.append(column).append(" = ");
+			sb.append((updates.size() > 0) ? "?" : column);
+		}
+		sb.append(" WHERE ");
+		for (int i = 0; i < keys.size(); i++) {
+			if (i > 0) sb.append(" AND ");
+			sb.append(keys.get(i)).append(" = ?");
+		}
+
+		List<String> paramColumns = new ArrayList<String>();
+		if (updates.size() > 0) paramColumns.addAll(updates);
+		paramColumns.addAll(keys);
+
+		String updateSQL = sb.toString();
+		int count = getSqlService().execute(connName,
+				getUpsertStatement(updateSQL, paramColumns),
+				getUpsertValues(record, paramColumns)).getUpdatedRowCount();
+		if (count > 0) return count;
+
+		sb = new StringBuilder();
+		sb.append("INSERT INTO ").append(home.getTableName()).append(" (");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(columns.get(i));
+		}
+		sb.append(") VALUES (");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) sb.append(", ");
+			sb.append("?");
+		}
+		sb.append(")");
+
+		String insertSQL = sb.toString();
+		return getSqlService().execute(connName,
+				getUpsertStatement(insertSQL, columns),
+				getUpsertValues(record, columns)).getUpdatedRowCount();
+	}
+
+	private List<String> toUpsertColumns(String names, List<String> columns) {
+		List<String> list = new ArrayList<String>();
+		if (names == null) return list;
+		for (String name : StringUtil.splitString(names, ",")) {
+			name = name.trim();
+			if ("".equals(name)) continue;
+			String column = null;
+			for (String c : columns) {
+				if (c.equalsIgnoreCase(name)) {
+					column = c;
+					break;
+				}
+			}
+			if (column == null)
+				throw new IllegalArgumentException("Column " + name
+						+ " is not a writable column of table " + home.getTableName() + ".");
+			if (!list.contains(column)) list.add(column);
+		}
+		return list;
+	}
+
+	private Object[] getUpsertValues(ActiveRecord record, List<String> columns) {
+		Object[] values = new Object[columns.size()];
+		for (int i = 0; i < columns.size(); i++) {
+			values[i] = record.getField(columns.get(i));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a statement whose parameters are typed by the columns, so
+	 * that the statement does not need to be parsed.
+	 */
+	private JdbcStatement getUpsertStatement(String sql, List<String> columns) {
+		JdbcStatement st = upsertStatements.get(sql);
+		if (st == null) {
+			st = new JdbcStatement(sql, sql);
+			RowInfo ri = home.getRowInfo();
+			for (int i = 0; i < columns.size(); i++) {
+				ColumnInfo ci = ri.getColumnInfo(columns.get(i));
+				JdbcStatementParameter p = new JdbcStatementParameter();
+				p.setIndex(i + 1);
+				p.setName(ci.getColumnName());
+				p.setSqlDataType(ci.getSQLDataType());
+				p.setSqlDataTypeName(ci.getColumnTypeName());
+				p.setJavaClassName(ci.getColumnClassName());
+				p.setTableName(home.getTableName());
+				p.setColumnName(ci.getColumnName());
+				st.addParameter(p);
+			}
+			st.setLoadedParameterProperties(true);
+			upsertStatements.put(sql, st);
+		}
+		return st;
+	}
+
 	private String getUniqueToken(String field,	Map<String, Object> conditionsSQLData, boolean convertToUpper) {
 		if (conditionsSQLData == null || conditionsSQLData.size() == 0)	return field;
 
@@ -2316,6 +2643,49 @@ public class TableGateway {
 		return home.addMoreProperties(inputs, options);
 	}
 
+	/**
+	 * Returns the sharding strategy of the model, or <tt>null</tt> if the
+	 * model is not sharded or the options name a connection.
+	 */
+	private ShardStrategy getShardStrategy(Map<String, String> options) {
+		if (options != null
+				&& options.containsKey(DataProcessor.input_key_database_connection_name))
+			return null;
+		return home.getShardStrategy();
+	}
+
+	/**
+	 * Returns value of the shard key in the conditions, or <tt>null</tt> if
+	 * there is no shard key.
+	 */
+	private Object getShardKey(ShardStrategy shards, Map<String, Object> conditions) {
+		if (shards == null || conditions == null) return null;
+		for (Map.Entry<String, Object> entry : conditions.entrySet()) {
+			String column = entry.getKey();
+			if (column == null) continue;
+			int dot = column.lastIndexOf('.');
+			if (dot != -1) column = column.substring(dot + 1);
+			if (shards.isShardColumn(column)) return entry.getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * Executes a non-select statement on the shard of the key in the
+	 * conditions, or on all shards if there is no key.
+	 */
+	private int executeSQL(String sql, Map<String, Object> inputs,
+			Map<String, Object> conditions) {
+		ShardStrategy shards = home.getShardStrategy();
+		if (shards == null) return SqlServiceClient.executeSQL(sql, inputs);
+
+		Object shardKey = getShardKey(shards, conditions);
+		if (shardKey == null) return ShardHelper.executeSQL(shards, sql, inputs);
+
+		inputs.put(DataProcessor.input_key_database_connection_name, shards.getShard(shardKey));
+		return SqlServiceClient.executeSQL(sql, inputs);
+	}
+
 	private static SqlService getSqlService() {
 		return SqlServiceConfig.getSqlService();
 	}
@@ -28,11 +28,24 @@ import com.scooterframework.admin.ApplicationConfig;
 import com.scooterframework.admin.PropertyFileChangeMonitor;
 import com.scooterframework.admin.PropertyReader;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.Gauge;
+import com.scooterframework.common.monitor.MetricsRegistry;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.NamedProperties;
 import com.scooterframework.common.util.PropertyFileUtil;
 import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.sqldataexpress.connection.ConnectionPool;
 import com.scooterframework.orm.sqldataexpress.connection.DatabaseConnectionContext;
+import com.scooterframework.orm.sqldataexpress.connection.ReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.connection.RequestConnections;
+import com.scooterframework.orm.sqldataexpress.service.AsyncSqlServiceClient;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceImpl;
+import com.scooterframework.orm.sqldataexpress.util.DBStore;
+import com.scooterframework.orm.sqldataexpress.util.QueryPlanAdvisor;
+import com.scooterframework.orm.sqldataexpress.util.QueryTimeout;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
+import com.scooterframework.orm.sqldataexpress.util.SqlStatistics;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
 import com.scooterframework.transaction.Transaction;
 
 /**
@@ -232,6 +245,46 @@ public class DatabaseConfig extends Observable implements Observer {
      */
     public static final String KEY_DB_CONNECTION_MAX_IDLE_TIME = "max_idle_time";
 
+    /**
+     * Key to represent <tt>pool</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_POOL = "pool";
+
+    /**
+     * Key to represent <tt>max_wait</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_MAX_WAIT = "max_wait";
+
+    /**
+     * Key to represent <tt>validation_idle_time</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_VALIDATION_IDLE_TIME = "validation_idle_time";
+
+    /**
+     * Key to represent <tt>leak_detection_threshold</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_LEAK_DETECTION_THRESHOLD = "leak_detection_threshold";
+
+    /**
+     * Key to represent <tt>statement_cache_size</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_STATEMENT_CACHE_SIZE = "statement_cache_size";
+
+    /**
+     * Key to represent <tt>replicas</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_REPLICAS = "replicas";
+
+    /**
+     * Connection pool provided by c3p0.
+     */
+    public static final String POOL_C3P0 = "c3p0";
+
+    /**
+     * Connection pool built into the framework.
+     */
+    public static final String POOL_NATIVE = "native";
+
     public static final String BUILTIN_DATABASE_NAME_H2         = "H2";
     public static final String BUILTIN_DATABASE_NAME_HSQLDB     = "HsqlDB";
     public static final String BUILTIN_DATABASE_NAME_MYSQL      = "MySQL";
@@ -252,11 +305,33 @@ public class DatabaseConfig extends Observable implements Observer {
     public static final String DEFAULT_VALUE_autoAuditCreate = null;
     public static final String DEFAULT_VALUE_autoAuditUpdate = null;
     public static final String DEFAULT_VALUE_additionalSQLDataTypeMapping = null;
+    public static final String DEFAULT_VALUE_sqlStatistics = "true";
+    public static final String DEFAULT_VALUE_sqlStatisticsSize = "500";
+    public static final String DEFAULT_VALUE_directSqlCacheSize = "" + DBStore.DEFAULT_DIRECT_SQL_CACHE_SIZE;
+    public static final String DEFAULT_VALUE_lazyLobs = "false";
+    public static final String DEFAULT_VALUE_readFastPath = "true";
+    public static final String DEFAULT_VALUE_requestConnectionAffinity = "false";
+    public static final String DEFAULT_VALUE_replicaBalance = ReplicaRouter.BALANCE_ROUND_ROBIN;
+    public static final String DEFAULT_VALUE_queryTimeout = "0";
+    public static final String DEFAULT_VALUE_requestDbBudget = "0";
+    public static final String DEFAULT_VALUE_asyncThreads = "" + AsyncSqlServiceClient.DEFAULT_THREADS;
+    public static final String DEFAULT_VALUE_asyncQueueSize = "" + AsyncSqlServiceClient.DEFAULT_QUEUE_SIZE;
+    public static final String DEFAULT_VALUE_slowQueryThreshold = "0";
+    public static final String DEFAULT_VALUE_explainSlowQueries = "true";
+    public static final String DEFAULT_VALUE_nPlusOneThreshold = "10";
+    public static final String DEFAULT_VALUE_queryBudget = "0";
+    public static final String DEFAULT_VALUE_queryBudgetAction = "log";
     public static final int DEFAULT_VALUE_max_pool_size = 5;
     public static final int DEFAULT_VALUE_min_pool_size = 3;
     public static final int DEFAULT_VALUE_acquire_increment = 3;
     public static final int DEFAULT_VALUE_initial_pool_size = 3;
     public static final int DEFAULT_VALUE_max_idle_time = 0;
+    public static final String DEFAULT_VALUE_pool = POOL_C3P0;
+    public static final int DEFAULT_VALUE_max_wait = 30;
+    public static final int DEFAULT_VALUE_validation_idle_time = 5;
+    public static final int DEFAULT_VALUE_leak_detection_threshold = 0;
+    public static final int DEFAULT_VALUE_statement_cache_size_native = 50;
+    public static final int DEFAULT_VALUE_statement_cache_size_c3p0 = 0;
 
     private static final DatabaseConfig me = new DatabaseConfig();
     private Properties appProperties = null;
@@ -275,7 +350,7 @@ public class DatabaseConfig extends Observable implements Observer {
     private Map<String, NamedProperties> databaseConnectionsMap = new HashMap<String, NamedProperties>();
     private List<String> referenceDataNames = new ArrayList<String>();
     private Map<String, NamedProperties> referenceDataMap = new HashMap<String, NamedProperties>();
-    private Map<String, ComboPooledDataSource> connectionPoolDataSourcesMap = new HashMap<String, ComboPooledDataSource>();
+    private Map<String, DataSource> connectionPoolDataSourcesMap = new HashMap<String, DataSource>();
 
     /**
      * <p>A map of SQL data type name and its corresponding type (Integer).</p>
@@ -300,6 +375,7 @@ public class DatabaseConfig extends Observable implements Observer {
         referenceDataMap.clear();
         allSQLDataNameTypesMap.clear();
         allSQLTypeJavaNamesMap.clear();
+        closeNativePools();
         connectionPoolDataSourcesMap.clear();
     }
 
@@ -367,6 +443,31 @@ public class DatabaseConfig extends Observable implements Observer {
         gloablTableNamingSuffix = getProperty("global.table.naming.suffix", DEFAULT_VALUE_gloablTableNamingSuffix);
         usePluralTableName = getProperty("use.plural.table.name", DEFAULT_VALUE_usePluralTableName);
 
+        SqlStatistics sqlStatistics = SqlStatistics.getInstance();
+        sqlStatistics.setEnabled("true".equalsIgnoreCase(getProperty("sql.statistics", DEFAULT_VALUE_sqlStatistics)));
+        int sqlStatisticsSize = Util.getSafeIntValue(getProperty("sql.statistics.size", DEFAULT_VALUE_sqlStatisticsSize));
+        if (sqlStatisticsSize > 0) sqlStatistics.setMaxSize(sqlStatisticsSize);
+        sqlStatistics.setSlowQueryThresholdMillis(Util.getSafeIntValue(getProperty("sql.slow.query.threshold", DEFAULT_VALUE_slowQueryThreshold)));
+        int directSqlCacheSize = Util.getSafeIntValue(getProperty("sql.direct.cache.size", DEFAULT_VALUE_directSqlCacheSize));
+        if (directSqlCacheSize > 0) DBStore.getInstance().setDirectSqlCacheSize(directSqlCacheSize);
+        DBAdapter.setLazyLobs("true".equalsIgnoreCase(getProperty("sql.lob.lazy", DEFAULT_VALUE_lazyLobs)));
+        SqlServiceImpl.setReadFastPath("true".equalsIgnoreCase(getProperty("sql.read.fast.path", DEFAULT_VALUE_readFastPath)));
+        RequestConnections.setEnabled("true".equalsIgnoreCase(getProperty("sql.request.connection.affinity", DEFAULT_VALUE_requestConnectionAffinity)));
+        ReplicaRouter.configure(getProperty("sql.replica.balance", DEFAULT_VALUE_replicaBalance));
+        QueryTimeout.setDefaultTimeout(Util.getSafeIntValue(getProperty("sql.query.timeout", DEFAULT_VALUE_queryTimeout)));
+        QueryTimeout.setRequestBudget(Util.getSafeIntValue(getProperty("sql.request.db.budget", DEFAULT_VALUE_requestDbBudget)));
+        AsyncSqlServiceClient.configure(Util.getSafeIntValue(getProperty("sql.async.threads", DEFAULT_VALUE_asyncThreads)),
+                Util.getSafeIntValue(getProperty("sql.async.queue.size", DEFAULT_VALUE_asyncQueueSize)));
+        QueryPlanAdvisor.getInstance().setEnabled("true".equalsIgnoreCase(getProperty("sql.explain.slow.queries", DEFAULT_VALUE_explainSlowQueries)));
+
+        ApplicationConfig ac = ApplicationConfig.getInstance();
+        boolean devOrTest = ac.isInDevelopmentEnvironment() || ac.isInTestEnvironment();
+        int nPlusOneThreshold = Util.getSafeIntValue(getProperty("sql.nplusone.threshold", DEFAULT_VALUE_nPlusOneThreshold));
+        QueryTracker.setNPlusOneThreshold((devOrTest)?nPlusOneThreshold:0);
+        QueryTracker.setQueryBudget(Util.getSafeIntValue(getProperty("sql.query.budget", DEFAULT_VALUE_queryBudget)));
+        String queryBudgetAction = getProperty("sql.query.budget.action", DEFAULT_VALUE_queryBudgetAction);
+        QueryTracker.setFailOverBudget(devOrTest && "fail".equalsIgnoreCase(queryBudgetAction));
+
         String nameValueSpliter = "=";
         String propertyDelimiter = ",";
 
@@ -479,6 +580,12 @@ public class DatabaseConfig extends Observable implements Observer {
             String username = p.getProperty(KEY_DB_CONNECTION_USERNAME);
             String password = p.getProperty(KEY_DB_CONNECTION_PASSWORD);
 
+            String pool = p.getProperty(KEY_DB_CONNECTION_POOL, DEFAULT_VALUE_pool);
+            if (POOL_NATIVE.equalsIgnoreCase(pool)) {
+                createNativePool(connectionName, p, driver, url, username, password, autoCommit);
+                return;
+            }
+
             System.setProperty("com.mchange.v2.c3p0.management.ManagementCoordinator", "com.mchange.v2.c3p0.management.NullManagementCoordinator");
 
             ComboPooledDataSource cpds = new ComboPooledDataSource(connectionName);
@@ -495,13 +602,114 @@ public class DatabaseConfig extends Observable implements Observer {
 			cpds.setInitialPoolSize(Integer.parseInt(initialPoolSize));
 			cpds.setMaxIdleTime(Integer.parseInt(maxIdleTime));
 
+			String statementCacheSize = p.getProperty(KEY_DB_CONNECTION_STATEMENT_CACHE_SIZE, "" + DEFAULT_VALUE_statement_cache_size_c3p0);
+			p.setProperty(KEY_DB_CONNECTION_STATEMENT_CACHE_SIZE, statementCacheSize);
+			c3p0props.setProperty("maxStatementsPerConnection", statementCacheSize);
+			cpds.setMaxStatementsPerConnection(Integer.parseInt(statementCacheSize));
+
             connectionPoolDataSourcesMap.put(connectionName, cpds);
+            registerPoolGauges(connectionName, cpds);
             log.debug("created ds for " + connectionName + " with properties: " + c3p0props);
 		} catch (Throwable e) {
 			log.error("Failed to create data source for " + connectionName + " with properties: " + c3p0props + ": " + e.getMessage());
 		}
     }
 
+    private void createNativePool(String connectionName, Properties p, String driver, String url,
+            String username, String password, boolean autoCommit) {
+        String maxWait = p.getProperty(KEY_DB_CONNECTION_MAX_WAIT, "" + DEFAULT_VALUE_max_wait);
+        p.setProperty(KEY_DB_CONNECTION_MAX_WAIT, maxWait);
+
+        String validationIdleTime = p.getProperty(KEY_DB_CONNECTION_VALIDATION_IDLE_TIME, "" + DEFAULT_VALUE_validation_idle_time);
+        p.setProperty(KEY_DB_CONNECTION_VALIDATION_IDLE_TIME, validationIdleTime);
+
+        String leakDetectionThreshold = p.getProperty(KEY_DB_CONNECTION_LEAK_DETECTION_THRESHOLD, "" + DEFAULT_VALUE_leak_detection_threshold);
+        p.setProperty(KEY_DB_CONNECTION_LEAK_DETECTION_THRESHOLD, leakDetectionThreshold);
+
+        String statementCacheSize = p.getProperty(KEY_DB_CONNECTION_STATEMENT_CACHE_SIZE, "" + DEFAULT_VALUE_statement_cache_size_native);
+        p.setProperty(KEY_DB_CONNECTION_STATEMENT_CACHE_SIZE, statementCacheSize);
+
+        ConnectionPool pool = new ConnectionPool(connectionName, driver, url, username, password);
+        pool.setAutoCommitOnClose(autoCommit);
+        pool.setMaxPoolSize(Integer.parseInt(p.getProperty(KEY_DB_CONNECTION_MAX_POOL_SIZE, "" + DEFAULT_VALUE_max_pool_size)));
+        pool.setMinPoolSize(Integer.parseInt(p.getProperty(KEY_DB_CONNECTION_MIN_POOL_SIZE)));
+        pool.setAcquireIncrement(Integer.parseInt(p.getProperty(KEY_DB_CONNECTION_ACQUIRE_INCREMENT)));
+        pool.setInitialPoolSize(Integer.parseInt(p.getProperty(KEY_DB_CONNECTION_INITIAL_POOL_SIZE)));
+        pool.setMaxIdleTime(Integer.parseInt(p.getProperty(KEY_DB_CONNECTION_MAX_IDLE_TIME)));
+        pool.setMaxWait(Integer.parseInt(maxWait));
+        pool.setValidationIdleTime(Integer.parseInt(validationIdleTime));
+        pool.setLeakDetectionThreshold(Integer.parseInt(leakDetectionThreshold));
+        pool.setStatementCacheSize(Integer.parseInt(statementCacheSize));
+        pool.init();
+
+        connectionPoolDataSourcesMap.put(connectionName, pool);
+        registerPoolGauges(connectionName, pool);
+        log.debug("created native pool for " + connectionName + " with properties: " + p);
+    }
+
+    private void registerPoolGauges(String connectionName, final ConnectionPool pool) {
+        String help = "Connections of a connection pool.";
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                return pool.getTotalConnections();
+            }
+        }, "connection", connectionName, "state", "total");
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                return pool.getBusyConnections();
+            }
+        }, "connection", connectionName, "state", "busy");
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                return pool.getIdleConnections();
+            }
+        }, "connection", connectionName, "state", "idle");
+        registry.gauge("scooter_db_pool_waiting_threads", "Threads waiting for a connection from a connection pool.", new Gauge() {
+            public double getValue() {
+                return pool.getWaitingThreads();
+            }
+        }, "connection", connectionName);
+    }
+
+    private void closeNativePools() {
+        for (DataSource ds : connectionPoolDataSourcesMap.values()) {
+            if (ds instanceof ConnectionPool) ((ConnectionPool)ds).close();
+        }
+    }
+
+    private void registerPoolGauges(String connectionName, final ComboPooledDataSource cpds) {
+        String help = "Connections of a connection pool.";
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                try {
+                    return cpds.getNumConnectionsDefaultUser();
+                } catch (SQLException ex) {
+                    return Double.NaN;
+                }
+            }
+        }, "connection", connectionName, "state", "total");
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                try {
+                    return cpds.getNumBusyConnectionsDefaultUser();
+                } catch (SQLException ex) {
+                    return Double.NaN;
+                }
+            }
+        }, "connection", connectionName, "state", "busy");
+        registry.gauge("scooter_db_pool_connections", help, new Gauge() {
+            public double getValue() {
+                try {
+                    return cpds.getNumIdleConnectionsDefaultUser();
+                } catch (SQLException ex) {
+                    return Double.NaN;
+                }
+            }
+        }, "connection", connectionName, "state", "idle");
+    }
+
     private void loadProperties() {
         if (appProperties != null) appProperties.clear();
 
@@ -804,9 +1012,12 @@ public class DatabaseConfig extends Observable implements Observer {
      * Destroys all connection pools if there is any.
      */
 	public void destroy() {
+		AsyncSqlServiceClient.shutdown();
+		QueryTimeout.shutdown();
 		try {
-            for (Map.Entry<String, ComboPooledDataSource> entry : connectionPoolDataSourcesMap.entrySet()) {
-                DataSources.destroy(entry.getValue());
+            closeNativePools();
+            for (Map.Entry<String, DataSource> entry : connectionPoolDataSourcesMap.entrySet()) {
+                if (entry.getValue() instanceof ComboPooledDataSource) DataSources.destroy(entry.getValue());
             }
 		} catch (SQLException ex) {
 			log.error("ERROR ERROR ERROR failed to close connection pool: " + ex.getMessage());
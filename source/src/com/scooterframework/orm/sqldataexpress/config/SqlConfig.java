@@ -15,6 +15,7 @@ import java.util.Properties;
 import com.scooterframework.admin.PropertyFileChangeMonitor;
 import com.scooterframework.admin.PropertyReader;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.Util;
 
 /**
  * SqlConfig class.
@@ -57,6 +58,19 @@ public class SqlConfig implements Observer {
         return (query != null)?query:null;
     }
     
+    /**
+     * Returns the query timeout in seconds of the SQL statement associated 
+     * with the key. The timeout is specified by property <tt>key.timeout</tt>.
+     * 
+     * @param key   the key to the SQL string
+     * @return timeout in seconds, or 0 if there is none
+     */
+    public int getQueryTimeout(String key) {
+        if (key == null) return 0;
+        String timeout = sqlProperties.getProperty(key.toUpperCase() + ".TIMEOUT");
+        return (timeout != null)?Util.getSafeIntValue(timeout.trim()):0;
+    }
+    
     /**
      * Initializes the application. This method can be overridden by the same 
      * method in subclass. 
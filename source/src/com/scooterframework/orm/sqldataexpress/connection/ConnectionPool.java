@@ -0,0 +1,788 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.MetricsRegistry;
+
+/**
+ * <p>ConnectionPool class is a JDBC connection pool built into the
+ * framework. It is used for a database connection which has
+ * <tt>pool=native</tt> in <tt>database.properties</tt>.</p>
+ *
+ * <p>Borrowing and returning a connection do not take a lock. A thread
+ * first tries the connections it returned recently, then the shared list
+ * of connections. Each connection has an atomic state, and a borrower
+ * takes a connection by changing its state from idle to in use. When all
+ * connections are in use and the pool is at <tt>max_pool_size</tt>, a
+ * borrower waits up to <tt>max_wait</tt> seconds for a connection handed
+ * off by a returning thread.</p>
+ *
+ * <p>The pool is sized between <tt>min_pool_size</tt> and
+ * <tt>max_pool_size</tt>. A borrower which finds no idle connection opens
+ * one itself or waits. A housekeeping task runs every few seconds. When
+ * borrowers were slow in the last period, the target size of the pool
+ * grows by <tt>acquire_increment</tt> and idle connections are opened in
+ * advance. When no borrower was slow, the target size shrinks by one
+ * connection each period and idle connections above it are closed.
+ * Connections idle for more than <tt>max_idle_time</tt> seconds are closed
+ * too, but never below <tt>min_pool_size</tt>.</p>
+ *
+ * <p>A connection is validated with <tt>Connection.isValid</tt> only when
+ * it has been idle for more than <tt>validation_idle_time</tt> seconds. A
+ * connection which fails with a connection error (SQL state <tt>08</tt>)
+ * is closed instead of being returned to the pool. When
+ * <tt>leak_detection_threshold</tt> is positive, the stack of each
+ * borrower is captured and a connection in use for longer is logged with
+ * that stack.</p>
+ *
+ * <p>When <tt>statement_cache_size</tt> is positive, each physical
+ * connection keeps up to that many prepared and callable statements in a
+ * {@link StatementCache}.</p>
+ *
+ * <p>Numbers of connections and of waiting threads are exported as gauges
+ * by <tt>DatabaseConfig</tt>. Borrow latency is recorded by
+ * <tt>ConnectionUtil</tt>. Timeouts and leaks are counted in
+ * <tt>scooter_db_pool_timeouts_total</tt> and
+ * <tt>scooter_db_pool_leaks_total</tt>.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ConnectionPool implements DataSource {
+    private static final int STATE_REMOVED = -1;
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_IN_USE = 1;
+
+    /**
+     * Number of recently returned connections remembered by a thread.
+     */
+    private static final int AFFINITY_SIZE = 4;
+
+    /**
+     * Period of the housekeeping task in milliseconds.
+     */
+    static final long HOUSEKEEPING_PERIOD = 5000L;
+
+    /**
+     * Borrowers which take longer than this on average in a period make
+     * the pool grow.
+     */
+    private static final long SLOW_BORROW_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Seconds to wait for <tt>Connection.isValid</tt>.
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private int minPoolSize = 3;
+    private int maxPoolSize = 5;
+    private int initialPoolSize = 3;
+    private int acquireIncrement = 3;
+    private long maxIdleNanos = 0L;
+    private long maxWaitNanos = TimeUnit.SECONDS.toNanos(30);
+    private long validationIdleNanos = TimeUnit.SECONDS.toNanos(5);
+    private long leakThresholdNanos = 0L;
+    private boolean autoCommitOnClose = false;
+    private int statementCacheSize = 0;
+
+    private final List<PooledEntry> entries = new CopyOnWriteArrayList<PooledEntry>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final SynchronousQueue<PooledEntry> handoffQueue = new SynchronousQueue<PooledEntry>(true);
+    private final ThreadLocal<List<PooledEntry>> affinity = new ThreadLocal<List<PooledEntry>>() {
+        protected List<PooledEntry> initialValue() {
+            return new ArrayList<PooledEntry>(AFFINITY_SIZE);
+        }
+    };
+
+    private final AtomicLong slowBorrows = new AtomicLong();
+    private final AtomicLong slowBorrowNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private volatile int targetSize;
+    private volatile boolean closed;
+    private volatile boolean isValidSupported = true;
+    private Timer timer;
+
+    private int loginTimeout = 0;
+    private PrintWriter logWriter;
+
+    /**
+     * Creates a pool. Call {@link #init()} to start it.
+     *
+     * @param name      name of the database connection
+     * @param driver    JDBC driver class name
+     * @param url       database url
+     * @param username  user name, may be null
+     * @param password  password, may be null
+     */
+    public ConnectionPool(String name, String driver, String url, String username, String password) {
+        if (driver == null) throw new IllegalArgumentException("Driver class is not specified for connection " + name);
+        if (url == null) throw new IllegalArgumentException("Database url is not specified for connection " + name);
+
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Failed to load driver \"" + driver + "\".");
+        }
+
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Opens <tt>initial_pool_size</tt> connections and starts the
+     * housekeeping task. A failure to open connections is logged, so that
+     * the pool can be created before the database is up.
+     */
+    public void init() {
+        if (minPoolSize > maxPoolSize) minPoolSize = maxPoolSize;
+        targetSize = Math.min(maxPoolSize, Math.max(minPoolSize, initialPoolSize));
+        fill();
+
+        timer = new Timer("scooter-pool-" + name, true);
+        timer.schedule(new TimerTask() {
+            public void run() {
+                try {
+                    housekeep();
+                } catch (Throwable ex) {
+                    log.error("Housekeeping of connection pool " + name + " failed: " + ex.getMessage(), ex);
+                }
+            }
+        }, HOUSEKEEPING_PERIOD, HOUSEKEEPING_PERIOD);
+    }
+
+    /**
+     * Closes the pool. Idle connections are closed now, and connections in
+     * use are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        if (timer != null) timer.cancel();
+        for (PooledEntry entry : entries) {
+            if (entry.state.compareAndSet(STATE_IDLE, STATE_REMOVED)) retire(entry);
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool " + name + " is closed.");
+
+        long start = System.nanoTime();
+        PooledEntry entry = null;
+        while (entry == null) {
+            entry = takeIdle();
+            if (entry == null) {
+                entry = borrowSlow(start);
+            }
+            if (!prepare(entry)) entry = null;
+        }
+        return entry.open();
+    }
+
+    /**
+     * Returns a pooled connection if the user is the one of the pool,
+     * otherwise a new connection which is not pooled.
+     */
+    public Connection getConnection(String user, String pwd) throws SQLException {
+        if (same(user, username) && same(pwd, password)) return getConnection();
+
+        log.debug("connecting to database " + url + " for " + user + " outside of pool " + name);
+        return DriverManager.getConnection(url, user, pwd);
+    }
+
+    private static boolean same(String a, String b) {
+        return (a == null)?(b == null):a.equals(b);
+    }
+
+    /**
+     * Takes an idle connection, first from those recently returned by the
+     * current thread.
+     */
+    private PooledEntry takeIdle() {
+        List<PooledEntry> recent = affinity.get();
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            PooledEntry entry = recent.get(i);
+            if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) return entry;
+            if (entry.state.get() == STATE_REMOVED) recent.remove(i);
+        }
+
+        for (PooledEntry entry : entries) {
+            if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Opens a new connection, or waits for one to be returned when the
+     * pool is full.
+     */
+    private PooledEntry borrowSlow(long start) throws SQLException {
+        try {
+            PooledEntry entry = create(STATE_IN_USE);
+            if (entry != null) return entry;
+
+            waiters.incrementAndGet();
+            try {
+                long deadline = start + maxWaitNanos;
+                while (true) {
+                    entry = takeIdle();
+                    if (entry == null) entry = create(STATE_IN_USE);
+                    if (entry != null) return entry;
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L || closed) break;
+
+                    entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (entry != null && entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) return entry;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection from pool " + name + ".");
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            slowBorrows.incrementAndGet();
+            slowBorrowNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        timeouts.incrementAndGet();
+        if (MetricsRegistry.isEnabled()) {
+            MetricsRegistry.getInstance().counter("scooter_db_pool_timeouts_total",
+                    "Requests which timed out waiting for a pooled connection.",
+                    "connection", name).increment();
+        }
+        throw new SQLException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) +
+                " ms waiting for a connection from pool " + name + " with " + getTotalConnections() +
+                " connections in use.");
+    }
+
+    /**
+     * Opens a new connection if the pool is below <tt>max_pool_size</tt>.
+     *
+     * @return a new entry, or null if the pool is full
+     */
+    private PooledEntry create(int state) throws SQLException {
+        while (true) {
+            int n = total.get();
+            if (n >= maxPoolSize) return null;
+            if (total.compareAndSet(n, n + 1)) break;
+        }
+
+        PooledEntry entry = null;
+        try {
+            if (loginTimeout > 0) DriverManager.setLoginTimeout(loginTimeout);
+            Connection connection = (username == null)?
+                    DriverManager.getConnection(url):DriverManager.getConnection(url, username, password);
+            try {
+                entry = new PooledEntry(connection, state);
+            } catch (SQLException ex) {
+                connection.close();
+                throw ex;
+            }
+        } finally {
+            if (entry == null) total.decrementAndGet();
+        }
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Validates a connection which has been idle for a while, and records
+     * its borrower.
+     *
+     * @return false if the connection is no longer valid
+     */
+    private boolean prepare(PooledEntry entry) {
+        long now = System.nanoTime();
+        if (now - entry.lastAccess > validationIdleNanos) {
+            boolean valid = false;
+            try {
+                valid = (isValidSupported)?
+                        entry.connection.isValid(VALIDATION_TIMEOUT):!entry.connection.isClosed();
+            } catch (AbstractMethodError ex) {
+                //drivers before JDBC 4 have no isValid
+                isValidSupported = false;
+                valid = true;
+            } catch (SQLException ex) {
+                log.debug("Validation of a connection of pool " + name + " failed: " + ex.getMessage());
+            }
+            if (!valid) {
+                entry.state.set(STATE_REMOVED);
+                retire(entry);
+                return false;
+            }
+        }
+
+        entry.borrowedAt = now;
+        entry.leakReported = false;
+        if (leakThresholdNanos > 0L) {
+            entry.borrowStack = new Exception("Connection of pool " + name +
+                    " borrowed by thread " + Thread.currentThread().getName());
+        }
+        return true;
+    }
+
+    /**
+     * Returns a connection to the pool, or hands it off to a waiting thread.
+     */
+    private void release(PooledEntry entry) {
+        entry.borrowStack = null;
+        if (entry.statements != null) entry.statements.release();
+        entry.lastAccess = System.nanoTime();
+        if (closed || entry.broken || !entry.reset()) {
+            entry.state.set(STATE_REMOVED);
+            retire(entry);
+            return;
+        }
+
+        entry.state.set(STATE_IDLE);
+
+        List<PooledEntry> recent = affinity.get();
+        if (!recent.contains(entry)) {
+            if (recent.size() >= AFFINITY_SIZE) recent.remove(0);
+            recent.add(entry);
+        }
+
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.state.get() != STATE_IDLE || handoffQueue.offer(entry)) return;
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Removes an entry whose state is already set to removed, and closes
+     * its connection.
+     */
+    private void retire(PooledEntry entry) {
+        if (entries.remove(entry)) total.decrementAndGet();
+        if (entry.statements != null) entry.statements.close();
+        try {
+            entry.connection.close();
+        } catch (SQLException ex) {
+            log.debug("Failed to close a connection of pool " + name + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens idle connections until the pool reaches its target size.
+     */
+    private void fill() {
+        while (!closed && total.get() < targetSize) {
+            try {
+                if (create(STATE_IDLE) == null) break;
+            } catch (SQLException ex) {
+                log.error("Failed to open a connection for pool " + name + ": " + ex.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reports leaks, adjusts the target size and opens or closes idle
+     * connections. It is run by the timer of the pool.
+     */
+    void housekeep() {
+        if (closed) return;
+        long now = System.nanoTime();
+
+        if (leakThresholdNanos > 0L) {
+            for (PooledEntry entry : entries) {
+                Exception stack = entry.borrowStack;
+                if (stack != null && !entry.leakReported &&
+                    entry.state.get() == STATE_IN_USE && now - entry.borrowedAt > leakThresholdNanos) {
+                    entry.leakReported = true;
+                    leaks.incrementAndGet();
+                    if (MetricsRegistry.isEnabled()) {
+                        MetricsRegistry.getInstance().counter("scooter_db_pool_leaks_total",
+                                "Pooled connections in use for longer than the leak detection threshold.",
+                                "connection", name).increment();
+                    }
+                    log.warn("Possible connection leak: a connection of pool " + name + " is in use for " +
+                            TimeUnit.NANOSECONDS.toMillis(now - entry.borrowedAt) + " ms.", stack);
+                }
+            }
+        }
+
+        long slow = slowBorrows.getAndSet(0L);
+        long slowNanos = slowBorrowNanos.getAndSet(0L);
+        int target = targetSize;
+        if (slow > 0L && slowNanos / slow >= SLOW_BORROW_NANOS) {
+            target = Math.min(maxPoolSize, target + acquireIncrement);
+        } else if (slow == 0L) {
+            target = Math.max(minPoolSize, target - 1);
+        }
+        targetSize = target;
+
+        long idlePeriod = TimeUnit.MILLISECONDS.toNanos(HOUSEKEEPING_PERIOD);
+        for (PooledEntry entry : entries) {
+            if (entry.state.get() != STATE_IDLE) continue;
+            long idle = now - entry.lastAccess;
+            int n = total.get();
+            boolean surplus = n > target && idle >= idlePeriod;
+            boolean expired = maxIdleNanos > 0L && n > minPoolSize && idle >= maxIdleNanos;
+            if ((surplus || expired) && entry.state.compareAndSet(STATE_IDLE, STATE_REMOVED)) {
+                retire(entry);
+            }
+        }
+
+        fill();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTotalConnections() {
+        return entries.size();
+    }
+
+    public int getBusyConnections() {
+        return count(STATE_IN_USE);
+    }
+
+    public int getIdleConnections() {
+        return count(STATE_IDLE);
+    }
+
+    private int count(int state) {
+        int n = 0;
+        for (PooledEntry entry : entries) {
+            if (entry.state.get() == state) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns number of threads waiting for a connection.
+     */
+    public int getWaitingThreads() {
+        return waiters.get();
+    }
+
+    /**
+     * Returns the size the pool is adjusted to by housekeeping.
+     */
+    public int getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * Returns number of borrowers which timed out.
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Returns number of connections reported as possible leaks.
+     */
+    public long getLeaks() {
+        return leaks.get();
+    }
+
+    /**
+     * Returns number of statements found in statement caches.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Returns number of statements prepared because they were not in
+     * statement caches.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public void setInitialPoolSize(int initialPoolSize) {
+        this.initialPoolSize = initialPoolSize;
+    }
+
+    public void setAcquireIncrement(int acquireIncrement) {
+        this.acquireIncrement = Math.max(1, acquireIncrement);
+    }
+
+    /**
+     * Sets seconds an idle connection is kept. Zero means no limit.
+     */
+    public void setMaxIdleTime(int seconds) {
+        this.maxIdleNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * Sets seconds a borrower waits when the pool is full.
+     */
+    public void setMaxWait(int seconds) {
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * Sets seconds a connection can be idle before it is validated.
+     */
+    public void setValidationIdleTime(int seconds) {
+        this.validationIdleNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * Sets seconds a connection can be in use before it is reported as
+     * a possible leak. Zero turns leak detection off.
+     */
+    public void setLeakDetectionThreshold(int seconds) {
+        this.leakThresholdNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * Sets whether uncommitted work is committed, instead of rolled back,
+     * when a connection is returned.
+     */
+    public void setAutoCommitOnClose(boolean autoCommitOnClose) {
+        this.autoCommitOnClose = autoCommitOnClose;
+    }
+
+    /**
+     * Sets number of statements cached by each connection. Zero turns
+     * statement caching off.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not use java.util.logging.");
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("ConnectionPool is not a wrapper for " + iface.getName() + ".");
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    public String toString() {
+        return "ConnectionPool[" + name + ", total=" + getTotalConnections() +
+            ", busy=" + getBusyConnections() + ", waiting=" + getWaitingThreads() + "]";
+    }
+
+    /**
+     * PooledEntry holds a physical connection and its pool state.
+     */
+    private class PooledEntry {
+        private final Connection connection;
+        private final StatementCache statements;
+        private final AtomicInteger state;
+        private final boolean defaultAutoCommit;
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private volatile long lastAccess;
+        private volatile long borrowedAt;
+        private volatile Exception borrowStack;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+        private boolean autoCommit;
+        private boolean readOnly;
+        private int isolation;
+
+        PooledEntry(Connection connection, int state) throws SQLException {
+            this.connection = connection;
+            this.statements = (statementCacheSize > 0)?
+                    new StatementCache(name, statementCacheSize, statementCacheHits, statementCacheMisses):null;
+            this.state = new AtomicInteger(state);
+            defaultAutoCommit = connection.getAutoCommit();
+            defaultReadOnly = connection.isReadOnly();
+            defaultIsolation = connection.getTransactionIsolation();
+            autoCommit = defaultAutoCommit;
+            readOnly = defaultReadOnly;
+            isolation = defaultIsolation;
+            lastAccess = System.nanoTime();
+        }
+
+        Connection open() {
+            return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new PooledConnection(this));
+        }
+
+        /**
+         * Ends uncommitted work and restores settings changed by the
+         * borrower.
+         *
+         * @return false if the connection can not be reused
+         */
+        boolean reset() {
+            try {
+                if (!autoCommit) {
+                    if (autoCommitOnClose) connection.commit(); else connection.rollback();
+                }
+                if (autoCommit != defaultAutoCommit) {
+                    connection.setAutoCommit(defaultAutoCommit);
+                    autoCommit = defaultAutoCommit;
+                }
+                if (readOnly != defaultReadOnly) {
+                    connection.setReadOnly(defaultReadOnly);
+                    readOnly = defaultReadOnly;
+                }
+                if (isolation != defaultIsolation) {
+                    connection.setTransactionIsolation(defaultIsolation);
+                    isolation = defaultIsolation;
+                }
+                return true;
+            } catch (SQLException ex) {
+                log.debug("Failed to reset a connection of pool " + name + ": " + ex.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * PooledConnection is the handler of a connection given to a borrower.
+     * Closing it returns the physical connection to the pool.
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed;
+
+        PooledConnection(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            int n = (args == null)?0:args.length;
+            if (n == 0) {
+                if ("close".equals(methodName)) {
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(methodName)) {
+                    return Boolean.valueOf(closed || entry.connection.isClosed());
+                }
+                if ("hashCode".equals(methodName)) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                }
+                if ("toString".equals(methodName)) {
+                    return "Pooled " + entry.connection;
+                }
+            }
+            else if (n == 1 && "equals".equals(methodName)) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+
+            if (closed) throw new SQLException("Connection is closed.");
+
+            //answers for the physical connection, as old drivers lack unwrap
+            if (n == 1 && args[0] instanceof Class<?> && ((Class<?>)args[0]).isInstance(entry.connection)) {
+                if ("unwrap".equals(methodName)) return entry.connection;
+                if ("isWrapperFor".equals(methodName)) return Boolean.TRUE;
+            }
+
+            try {
+                if (entry.statements != null && StatementCache.isCacheable(methodName, args)) {
+                    return entry.statements.prepare(entry.connection, (Connection)proxy, method, args);
+                }
+
+                Object result = method.invoke(entry.connection, args);
+                if (n == 1) {
+                    if ("setAutoCommit".equals(methodName)) {
+                        entry.autoCommit = ((Boolean)args[0]).booleanValue();
+                    }
+                    else if ("setReadOnly".equals(methodName)) {
+                        entry.readOnly = ((Boolean)args[0]).booleanValue();
+                    }
+                    else if ("setTransactionIsolation".equals(methodName)) {
+                        entry.isolation = ((Integer)args[0]).intValue();
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SQLException) checkBroken((SQLException)cause);
+                throw cause;
+            } catch (SQLException ex) {
+                checkBroken(ex);
+                throw ex;
+            }
+        }
+
+        private void checkBroken(SQLException ex) {
+            String sqlState = ex.getSQLState();
+            if (sqlState != null && sqlState.startsWith("08")) entry.broken = true;
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(ConnectionPool.class.getName());
+}
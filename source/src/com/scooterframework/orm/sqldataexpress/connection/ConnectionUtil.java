@@ -17,6 +17,7 @@ import javax.naming.InitialContext;
 import javax.sql.DataSource;
 
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.MetricsRegistry;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.exception.CreateConnectionFailureException;
 import com.scooterframework.orm.sqldataexpress.util.OrmObjectFactory;
@@ -308,7 +309,9 @@ public class ConnectionUtil {
 			if (loginTimeout != null)
 				ds.setLoginTimeout(loginTimeout.intValue());
 
+			long start = System.nanoTime();
 			connection = ds.getConnection();
+			recordAcquireTime(connectionName, start);
 		} catch (SQLException ex) {
 			throw new CreateConnectionFailureException(
 					"ConnectionUtil.createPooledConnection failed for conectionName \"" + connectionName
@@ -337,7 +340,9 @@ public class ConnectionUtil {
 			if (loginTimeout != null)
 				ds.setLoginTimeout(loginTimeout.intValue());
 
+			long start = System.nanoTime();
 			connection = ds.getConnection(username, password);
+			recordAcquireTime(connectionName, start);
 		} catch (SQLException ex) {
 			throw new CreateConnectionFailureException(
 					"ConnectionUtil.createPooledConnection failed for conectionName \"" + connectionName
@@ -346,6 +351,13 @@ public class ConnectionUtil {
 
 		return connection;
 	}
+
+	private static void recordAcquireTime(String connectionName, long start) {
+		if (!MetricsRegistry.isEnabled()) return;
+		MetricsRegistry.getInstance().histogram("scooter_db_pool_acquire_duration_seconds", 
+				"Time to get a connection from a connection pool.", 
+				"connection", connectionName).recordNanos(System.nanoTime() - start);
+	}
     
 	public static String getSetRoleStatement(Properties roles) {
 		String roleStr = "";
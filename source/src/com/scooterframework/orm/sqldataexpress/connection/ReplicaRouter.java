@@ -0,0 +1,280 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.common.util.StringUtil;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+
+/**
+ * <p>ReplicaRouter class sends reads of a connection to its read
+ * replicas.</p>
+ *
+ * <p>A connection declares its replicas by the <tt>replicas</tt>
+ * property of its definition in <tt>database.properties</tt>, which is a
+ * list of connection names separated by colons:</p>
+ *
+ * <pre>
+ *    database.connection.sales=\
+ *        driver=org.h2.Driver,\
+ *        url=jdbc:h2:tcp://primary/sales,\
+ *        replicas=sales_replica1:sales_replica2
+ * </pre>
+ *
+ * <p>A <tt>SELECT</tt> statement executed outside of a transaction is sent
+ * to one of the replicas, chosen by <tt>sql.replica.balance</tt>:
+ * <tt>round_robin</tt> takes the replicas in turn, and <tt>least_busy</tt>
+ * takes the replica with the fewest reads in progress. Writes and all
+ * statements of transactions use the connection itself.</p>
+ *
+ * <p>After the current request writes to a connection, its reads are sent
+ * to the connection itself until the request ends, so that the request
+ * reads its own writes. Threads which are not serving a request, such as
+ * batch jobs, keep reading from the primary after a write until
+ * {@link #clearWrites()} is called.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ReplicaRouter {
+    /**
+     * Replicas are used in turn.
+     */
+    public static final String BALANCE_ROUND_ROBIN = "round_robin";
+
+    /**
+     * The replica with the fewest reads in progress is used.
+     */
+    public static final String BALANCE_LEAST_BUSY = "least_busy";
+
+    private static final String KEY_WRITTEN_CONNECTIONS = "key.ReplicaRouter.written";
+
+    private static final Replicas NO_REPLICAS = new Replicas(new String[0]);
+
+    private static volatile boolean leastBusy = false;
+    private static final ConcurrentHashMap<String, Replicas> replicasMap = new ConcurrentHashMap<String, Replicas>();
+    private static final ConcurrentHashMap<String, AtomicInteger> busyMap = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Numbers of reads of the current thread which are routed to replicas
+     * and not yet released.
+     */
+    private static final ThreadLocal<Map<String, Integer>> routedReads = new ThreadLocal<Map<String, Integer>>() {
+        protected Map<String, Integer> initialValue() {
+            return new HashMap<String, Integer>();
+        }
+    };
+
+    /**
+     * Sets how replicas are chosen, and reloads replicas of connections
+     * from connection definitions.
+     *
+     * @param balance  <tt>round_robin</tt> or <tt>least_busy</tt>
+     */
+    public static void configure(String balance) {
+        leastBusy = BALANCE_LEAST_BUSY.equalsIgnoreCase(balance);
+        replicasMap.clear();
+    }
+
+    /**
+     * Returns how replicas are chosen.
+     */
+    public static String getBalance() {
+        return (leastBusy)?BALANCE_LEAST_BUSY:BALANCE_ROUND_ROBIN;
+    }
+
+    /**
+     * Returns replica connection names of a connection.
+     *
+     * @param connectionName  name of a connection
+     * @return replica names, empty if the connection has no replicas
+     */
+    public static String[] getReplicas(String connectionName) {
+        return lookup(connectionName).names.clone();
+    }
+
+    /**
+     * Checks if a connection has replicas.
+     */
+    public static boolean hasReplicas(String connectionName) {
+        return connectionName != null && lookup(connectionName).names.length > 0;
+    }
+
+    /**
+     * Chooses the connection of a read. The caller must call
+     * {@link #release(String)} with the returned name when the read ends.
+     *
+     * @param connectionName  name of a connection, or null for the default
+     * @return name of a replica, or name of the connection itself if it has
+     *         no replicas or the current request has written to it
+     */
+    public static String routeRead(String connectionName) {
+        if (connectionName == null) {
+            connectionName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+        }
+        Replicas replicas = lookup(connectionName);
+        if (replicas.names.length == 0 || hasWritten(connectionName)) return connectionName;
+
+        String name = (leastBusy)?replicas.leastBusy():replicas.next();
+        busy(name).incrementAndGet();
+        Map<String, Integer> routed = routedReads.get();
+        Integer count = routed.get(name);
+        routed.put(name, Integer.valueOf((count != null)?(count.intValue() + 1):1));
+        return name;
+    }
+
+    /**
+     * Ends a read which was routed by {@link #routeRead(String)}. Nothing
+     * is done if the current thread has no read routed to the replica, such
+     * as when <tt>routeRead</tt> returned the connection itself.
+     *
+     * @param connectionName  name returned by <tt>routeRead</tt>
+     */
+    public static void release(String connectionName) {
+        if (connectionName == null) return;
+        Map<String, Integer> routed = routedReads.get();
+        Integer reads = routed.get(connectionName);
+        if (reads == null) return;
+        if (reads.intValue() > 1) routed.put(connectionName, Integer.valueOf(reads.intValue() - 1));
+        else routed.remove(connectionName);
+
+        AtomicInteger count = busyMap.get(connectionName);
+        if (count != null) count.decrementAndGet();
+    }
+
+    /**
+     * Returns number of reads in progress on a replica.
+     */
+    public static int getBusyCount(String replicaName) {
+        AtomicInteger count = busyMap.get(replicaName);
+        return (count != null)?count.get():0;
+    }
+
+    /**
+     * Records that the current thread has written to a connection, so that
+     * its later reads are sent to the connection itself.
+     *
+     * @param connectionName  name of a connection
+     */
+    @SuppressWarnings("unchecked")
+    public static void markWrite(String connectionName) {
+        if (!hasReplicas(connectionName)) return;
+        Set<String> written = (Set<String>)CurrentThreadCache.get(KEY_WRITTEN_CONNECTIONS);
+        if (written == null) {
+            written = new HashSet<String>();
+            CurrentThreadCache.set(KEY_WRITTEN_CONNECTIONS, written);
+        }
+        written.add(connectionName);
+    }
+
+    /**
+     * Checks if the current thread has written to a connection.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean hasWritten(String connectionName) {
+        Set<String> written = (Set<String>)CurrentThreadCache.get(KEY_WRITTEN_CONNECTIONS);
+        return written != null && written.contains(connectionName);
+    }
+
+    /**
+     * Returns names of connections the current thread has written to, so
+     * that a task run for the same request in another thread can be given
+     * them by {@link #markWrites(Collection)}.
+     *
+     * @return a copy of the names, empty if there is no write
+     */
+    @SuppressWarnings("unchecked")
+    public static Set<String> getWrites() {
+        Set<String> written = (Set<String>)CurrentThreadCache.get(KEY_WRITTEN_CONNECTIONS);
+        return (written != null)?new HashSet<String>(written):new HashSet<String>();
+    }
+
+    /**
+     * Records that the current thread has written to connections.
+     *
+     * @param connectionNames  names of connections
+     */
+    public static void markWrites(Collection<String> connectionNames) {
+        if (connectionNames == null) return;
+        for (String connectionName : connectionNames) {
+            markWrite(connectionName);
+        }
+    }
+
+    /**
+     * Forgets writes of the current thread. This is called when a request
+     * begins and ends.
+     */
+    public static void clearWrites() {
+        CurrentThreadCache.clear(KEY_WRITTEN_CONNECTIONS);
+    }
+
+    private static Replicas lookup(String connectionName) {
+        Replicas replicas = replicasMap.get(connectionName);
+        if (replicas == null) {
+            String value = DatabaseConfig.getInstance().getPredefinedDatabaseConnectionProperties(connectionName)
+                    .getProperty(DatabaseConfig.KEY_DB_CONNECTION_REPLICAS);
+            List<String> names = StringUtil.splitString(value, ":");
+            for (int i = names.size() - 1; i >= 0; i--) {
+                String name = names.get(i).trim();
+                if ("".equals(name)) names.remove(i);
+                else names.set(i, name);
+            }
+            replicas = (names.size() == 0)?NO_REPLICAS:new Replicas(names.toArray(new String[names.size()]));
+            replicasMap.put(connectionName, replicas);
+        }
+        return replicas;
+    }
+
+    private static AtomicInteger busy(String replicaName) {
+        AtomicInteger count = busyMap.get(replicaName);
+        if (count == null) {
+            busyMap.putIfAbsent(replicaName, new AtomicInteger());
+            count = busyMap.get(replicaName);
+        }
+        return count;
+    }
+
+    private static class Replicas {
+        private final String[] names;
+        private final AtomicInteger turn = new AtomicInteger();
+
+        Replicas(String[] names) {
+            this.names = names;
+        }
+
+        String next() {
+            int i = turn.getAndIncrement() % names.length;
+            return names[(i < 0)?(i + names.length):i];
+        }
+
+        String leastBusy() {
+            int start = turn.getAndIncrement() % names.length;
+            if (start < 0) start += names.length;
+            String name = names[start];
+            int fewest = getBusyCount(name);
+            for (int i = 1; i < names.length && fewest > 0; i++) {
+                String candidate = names[(start + i) % names.length];
+                int count = getBusyCount(candidate);
+                if (count < fewest) {
+                    name = candidate;
+                    fewest = count;
+                }
+            }
+            return name;
+        }
+    }
+}
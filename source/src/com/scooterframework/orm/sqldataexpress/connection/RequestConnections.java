@@ -0,0 +1,193 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.exception.CreateConnectionFailureException;
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+
+/**
+ * <p>RequestConnections class pins one connection per connection name to
+ * a request, so that the queries of a page do not check out and return a
+ * pooled connection each time.</p>
+ *
+ * <p>A connection is taken from the pool when the request first uses the
+ * connection name, and it is returned to the pool when the request ends.
+ * Between operations the connection is in auto-commit mode. A JDBC
+ * transaction which uses the connection turns auto-commit off, and turns
+ * it back on when the transaction releases its resources.</p>
+ *
+ * <p>Pinning is enabled by <tt>sql.request.connection.affinity</tt> in
+ * <tt>database.properties</tt>. Requests are begun and ended by
+ * ScooterRequestFilter.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class RequestConnections {
+    private static volatile boolean enabled = false;
+
+    private static final ThreadLocal<RequestConnections> current = new ThreadLocal<RequestConnections>();
+
+    private final Map<String, UserDatabaseConnection> connections = new HashMap<String, UserDatabaseConnection>();
+    private final Map<UserDatabaseConnection, Boolean> transactionAutoCommit = new HashMap<UserDatabaseConnection, Boolean>();
+
+    private RequestConnections() {
+    }
+
+    /**
+     * Checks if connections are pinned to requests.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether connections are pinned to requests.
+     */
+    public static void setEnabled(boolean b) {
+        enabled = b;
+    }
+
+    /**
+     * Starts pinning connections to the request in the current thread.
+     *
+     * @return the connections of the request, or null if pinning is not
+     *         enabled
+     */
+    public static RequestConnections begin() {
+        if (!enabled) return null;
+        RequestConnections rc = current.get();
+        if (rc != null) rc.closeAll();
+        rc = new RequestConnections();
+        current.set(rc);
+        return rc;
+    }
+
+    /**
+     * Returns all pinned connections of the current thread to the pool.
+     */
+    public static void end() {
+        RequestConnections rc = current.get();
+        if (rc == null) return;
+        current.remove();
+        rc.closeAll();
+    }
+
+    /**
+     * Checks if the current thread pins connections.
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Returns the pinned connection of a connection name in auto-commit
+     * mode. The connection must not be closed by the caller.
+     *
+     * @param connectionName  name of a connection, or null for the default
+     * @return the pinned connection, or null if the current thread does not
+     *         pin connections
+     */
+    public static UserDatabaseConnection getConnection(String connectionName) {
+        RequestConnections rc = current.get();
+        return (rc != null)?rc.pin(connectionName):null;
+    }
+
+    /**
+     * Returns the pinned connection of a connection name for a transaction.
+     * Auto-commit is turned off unless the connection is configured as
+     * auto-commit. The transaction must give the connection back by
+     * {@link #giveBack(UserDatabaseConnection, boolean)}.
+     *
+     * @param connectionName  name of a connection, or null for the default
+     * @return the pinned connection, or null if the current thread does not
+     *         pin connections
+     */
+    public static UserDatabaseConnection borrowForTransaction(String connectionName) {
+        RequestConnections rc = current.get();
+        if (rc == null) return null;
+
+        UserDatabaseConnection udc = rc.pin(connectionName);
+        if (rc.transactionAutoCommit.containsKey(udc)) {
+            throw new CreateConnectionFailureException("Pinned connection " +
+                udc.getConnectionName() + " is already used by a transaction.");
+        }
+        boolean autoCommit = DatabaseConfig.getInstance().getPredefinedDatabaseConnectionProperties(
+            udc.getConnectionName()).getProperty(DatabaseConnectionContext.KEY_AUTOCOMMIT, "false")
+            .equalsIgnoreCase("true");
+        try {
+            udc.getConnection();
+            udc.setAutoCommit(autoCommit);
+        }
+        catch (SQLException ex) {
+            throw new CreateConnectionFailureException("Failed to set auto commit for pinned connection " +
+                udc.getConnectionName() + ".", ex);
+        }
+        rc.transactionAutoCommit.put(udc, Boolean.valueOf(autoCommit));
+        return udc;
+    }
+
+    /**
+     * Gives a connection back from a transaction. Auto-commit is turned on
+     * again. Work of the transaction which is neither committed nor rolled
+     * back is rolled back.
+     *
+     * @param udc       a connection
+     * @param rollback  true if the transaction has not ended
+     * @return true if the connection is pinned, false if the caller must
+     *         close it
+     */
+    public static boolean giveBack(UserDatabaseConnection udc, boolean rollback) {
+        RequestConnections rc = current.get();
+        if (rc == null || !rc.transactionAutoCommit.containsKey(udc)) return false;
+
+        boolean autoCommit = rc.transactionAutoCommit.remove(udc).booleanValue();
+        try {
+            if (rollback && !autoCommit) DAOUtil.rollback(udc.getConnection());
+            udc.setAutoCommit(true);
+        }
+        catch (Exception ex) {
+            log.error("Failed to give back pinned connection " + udc.getConnectionName() +
+                ": " + ex.getMessage());
+            rc.connections.remove(udc.getConnectionName());
+            DAOUtil.closeConnection(udc);
+        }
+        return true;
+    }
+
+    private UserDatabaseConnection pin(String connectionName) {
+        if (connectionName == null) {
+            connectionName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+        }
+        UserDatabaseConnection udc = connections.get(connectionName);
+        if (udc == null) {
+            udc = UserDatabaseConnectionFactory.getInstance().createUserDatabaseConnection(connectionName);
+            udc.getDatabaseConnectionContext().setAutoCommit(true);
+            connections.put(connectionName, udc);
+        }
+        return udc;
+    }
+
+    private void closeAll() {
+        for (UserDatabaseConnection udc : connections.values()) {
+            if (transactionAutoCommit.containsKey(udc)) {
+                DAOUtil.rollback(udc.getConnection());
+            }
+            DAOUtil.closeConnection(udc);
+        }
+        connections.clear();
+        transactionAutoCommit.clear();
+    }
+
+    private static LogUtil log = LogUtil.getLogger(RequestConnections.class.getName());
+}
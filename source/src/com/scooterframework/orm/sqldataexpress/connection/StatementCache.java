@@ -0,0 +1,288 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.MetricsRegistry;
+
+/**
+ * <p>StatementCache class keeps prepared and callable statements of a
+ * physical connection of {@link ConnectionPool}, so that a statement which
+ * is prepared again on the same connection is not parsed again by the
+ * driver and the database.</p>
+ *
+ * <p>Statements are keyed by SQL text, result set type and concurrency,
+ * and whether generated keys are returned. The least recently used
+ * statement is closed when the cache is full. A statement is given to one
+ * borrower at a time. Closing it clears its parameters and puts it back
+ * into the cache. When the same statement is prepared again before it is
+ * closed, a statement which is not cached is returned.</p>
+ *
+ * <p>A statement which failed, or whose max rows or fetch size was
+ * changed, is closed instead of being reused. A query timeout which was
+ * set is reset when the statement is put back.</p>
+ *
+ * <p>A cache belongs to one physical connection and is used by one thread
+ * at a time. Hits and misses are counted for the database connection name,
+ * and exported as <tt>scooter_db_statement_cache_total</tt>.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class StatementCache {
+    private final String connectionName;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final Map<String, CachedStatement> statements;
+
+    /**
+     * @param connectionName  name of the database connection
+     * @param maxSize         maximum number of cached statements
+     * @param hits            counter of hits of the connection name
+     * @param misses          counter of misses of the connection name
+     */
+    public StatementCache(String connectionName, final int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.connectionName = connectionName;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<String, CachedStatement>(maxSize * 4 / 3 + 1, 0.75f, true) {
+            private static final long serialVersionUID = 5837209946231087458L;
+
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= maxSize) return false;
+                CachedStatement cs = eldest.getValue();
+                cs.evicted = true;
+                if (!cs.inUse) cs.closeQuietly();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Checks if a <tt>prepareStatement</tt> or <tt>prepareCall</tt> call
+     * of <tt>Connection</tt> can be served by the cache. Calls with column
+     * indexes, column names or holdability are not.
+     */
+    static boolean isCacheable(String methodName, Object[] args) {
+        if (args == null || args.length == 0 || args.length > 3 || !(args[0] instanceof String)) return false;
+        if ("prepareStatement".equals(methodName)) {
+            return args.length != 2 || args[1] instanceof Integer;
+        }
+        return "prepareCall".equals(methodName) && args.length != 2;
+    }
+
+    /**
+     * Returns a statement for a <tt>prepareStatement</tt> or
+     * <tt>prepareCall</tt> call, from the cache if possible.
+     *
+     * @param connection  the physical connection
+     * @param owner       the connection given to the borrower
+     * @param method      the called method
+     * @param args        arguments of the call
+     * @return a statement
+     * @throws SQLException
+     */
+    Object prepare(Connection connection, Connection owner, Method method, Object[] args)
+    throws SQLException {
+        String key = key(method.getName(), args);
+        CachedStatement cs = statements.get(key);
+        if (cs != null && !cs.inUse) {
+            hits.incrementAndGet();
+            record("hit");
+        }
+        else {
+            misses.incrementAndGet();
+            record("miss");
+            PreparedStatement stmt = (PreparedStatement)invoke(connection, method, args);
+            if (cs != null) {
+                //the cached one is in use, this one is not cached
+                return stmt;
+            }
+            cs = new CachedStatement(key, stmt);
+            statements.put(key, cs);
+        }
+
+        cs.inUse = true;
+        Class<?> type = (cs.statement instanceof CallableStatement)?CallableStatement.class:PreparedStatement.class;
+        return Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{type}, new StatementHandle(cs, owner));
+    }
+
+    /**
+     * Closes statements which the borrower of the connection did not
+     * close. It is called when the connection is returned.
+     */
+    void release() {
+        for (Iterator<CachedStatement> it = statements.values().iterator(); it.hasNext();) {
+            CachedStatement cs = it.next();
+            if (cs.inUse) {
+                it.remove();
+                cs.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Closes all statements. It is called before the physical connection
+     * is closed.
+     */
+    void close() {
+        for (CachedStatement cs : statements.values()) {
+            cs.closeQuietly();
+        }
+        statements.clear();
+    }
+
+    /**
+     * Returns number of cached statements.
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    private void giveBack(CachedStatement cs, boolean reusable, boolean resetTimeout) {
+        if (reusable && !cs.evicted) {
+            try {
+                if (resetTimeout) cs.statement.setQueryTimeout(0);
+                cs.statement.clearParameters();
+                cs.inUse = false;
+                return;
+            } catch (SQLException ex) {
+                log.debug("Failed to clear a cached statement: " + ex.getMessage());
+            }
+        }
+
+        if (!cs.evicted) statements.remove(cs.key);
+        cs.closeQuietly();
+    }
+
+    private void record(String result) {
+        if (!MetricsRegistry.isEnabled()) return;
+        MetricsRegistry.getInstance().counter("scooter_db_statement_cache_total",
+                "Lookups of the prepared statement cache of a connection pool.",
+                "connection", connectionName, "result", result).increment();
+    }
+
+    private static String key(String methodName, Object[] args) {
+        StringBuilder sb = new StringBuilder((String)args[0]);
+        sb.append('\u0000').append(methodName.charAt(7));
+        for (int i = 1; i < args.length; i++) {
+            sb.append(',').append(args[i]);
+        }
+        return sb.toString();
+    }
+
+    static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) throw (SQLException)cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw new SQLException(cause.getMessage());
+        } catch (IllegalAccessException ex) {
+            throw new SQLException(ex.getMessage());
+        }
+    }
+
+    /**
+     * CachedStatement holds a physical statement.
+     */
+    private static class CachedStatement {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                log.debug("Failed to close a cached statement: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * StatementHandle is the handler of a cached statement given to a
+     * borrower.
+     */
+    private class StatementHandle implements InvocationHandler {
+        private final CachedStatement cs;
+        private final Connection owner;
+        private boolean closed;
+        private boolean reusable = true;
+        private boolean timeoutSet;
+
+        StatementHandle(CachedStatement cs, Connection owner) {
+            this.cs = cs;
+            this.owner = owner;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            int n = (args == null)?0:args.length;
+            if (n == 0) {
+                if ("close".equals(methodName)) {
+                    if (!closed) {
+                        closed = true;
+                        giveBack(cs, reusable, timeoutSet);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(methodName)) return Boolean.valueOf(closed);
+                if ("getConnection".equals(methodName)) return owner;
+                if ("hashCode".equals(methodName)) return Integer.valueOf(System.identityHashCode(proxy));
+                if ("toString".equals(methodName)) return "Cached " + cs.statement;
+            }
+            else if (n == 1) {
+                if ("equals".equals(methodName)) return Boolean.valueOf(proxy == args[0]);
+                if ("setMaxRows".equals(methodName) || "setFetchSize".equals(methodName) ||
+                    "setMaxFieldSize".equals(methodName)) {
+                    reusable = false;
+                }
+                else if ("setQueryTimeout".equals(methodName)) {
+                    timeoutSet = true;
+                }
+                else if (args[0] instanceof Class<?> && ((Class<?>)args[0]).isInstance(cs.statement)) {
+                    if ("unwrap".equals(methodName)) return cs.statement;
+                    if ("isWrapperFor".equals(methodName)) return Boolean.TRUE;
+                }
+            }
+
+            if (closed) throw new SQLException("Statement is closed.");
+
+            try {
+                return StatementCache.invoke(cs.statement, method, args);
+            } catch (SQLException ex) {
+                reusable = false;
+                throw ex;
+            }
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(StatementCache.class.getName());
+}
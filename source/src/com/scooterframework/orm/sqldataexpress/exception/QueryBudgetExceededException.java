@@ -0,0 +1,25 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.exception;
+
+/**
+ * class QueryBudgetExceededException is thrown when a request executes more
+ * SQL statements than its query budget.
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryBudgetExceededException extends BaseSQLException {
+	/**
+	 * Generated serialVersionUID
+	 */
+	private static final long serialVersionUID = 2871960412283955417L;
+
+	public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.exception;
+
+/**
+ * class QueryTimeoutException is thrown when SQL statements do not finish
+ * within the time allowed for them.
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryTimeoutException extends BaseSQLException {
+	/**
+	 * Generated serialVersionUID
+	 */
+	private static final long serialVersionUID = -6204317745829603418L;
+
+	public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+	public QueryTimeoutException(String message, Throwable exception) {
+        super(message, exception);
+    }
+}
@@ -139,6 +139,20 @@ public class JdbcStatement {
         this.loadedParameterProperties = loadedParameterProperties;
     }
     
+    /**
+     * Returns query timeout in seconds. Zero means the default timeout.
+     */
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+    
+    /**
+     * Sets query timeout in seconds. Zero means the default timeout.
+     */
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+    
     public boolean hasLoadedParameterMetaData() {
         return loadedParameterMetaData;
     }
@@ -236,6 +250,7 @@ public class JdbcStatement {
     private List<Parameter> parameters = new ArrayList<Parameter>();
     private Map<String, Cursor> cursors = new HashMap<String, Cursor>();
     private boolean loadedParameterMetaData = false;
+    private int queryTimeout = 0;
     
     private String executableJdbcString;
     
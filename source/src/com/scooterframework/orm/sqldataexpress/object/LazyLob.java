@@ -0,0 +1,352 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.object;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
+
+/**
+ * <p>LazyLob class represents the value of a BLOB or CLOB column which has
+ * not been read. It is put into a row instead of a <tt>byte[]</tt> or a
+ * <tt>String</tt> when <tt>sql.lob.lazy</tt> is <tt>true</tt> in
+ * <tt>database.properties</tt>.</p>
+ *
+ * <p>While the transaction which read the row is active, the value is
+ * read through the LOB locator returned by the driver. The transaction is
+ * taken as active in the thread which read the row, while the connection
+ * is open, its auto-commit mode is off, and no commit or rollback has been
+ * made through {@link DAOUtil} since the read. After that, the value is
+ * selected again by primary key, if the value has been bound to its table
+ * row by {@link #bind(String, String, String, Map)}. Records bind their LOB
+ * values when they are loaded.</p>
+ *
+ * <p>Streams returned by {@link #getInputStream()} and {@link #getReader()}
+ * must be closed, as they may hold a database connection.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LazyLob implements Serializable {
+    /**
+     * Generated serialVersionUID
+     */
+    private static final long serialVersionUID = -2960457316205866312L;
+
+    private final boolean binary;
+    private transient Blob blob;
+    private transient Clob clob;
+    private transient Connection connection;
+    private transient Thread thread;
+    private transient long transactionEnds;
+    private String connectionName;
+    private String table;
+    private String column;
+    private Map<String, Object> key;
+    private long length = -1L;
+
+    /**
+     * Creates a value of a BLOB column.
+     *
+     * @param blob        the LOB locator
+     * @param connection  the connection which read the locator
+     */
+    public LazyLob(Blob blob, Connection connection) {
+        this.binary = true;
+        this.blob = blob;
+        this.connection = connection;
+        this.thread = Thread.currentThread();
+        this.transactionEnds = DAOUtil.getTransactionEnds();
+    }
+
+    /**
+     * Creates a value of a CLOB column.
+     *
+     * @param clob        the LOB locator
+     * @param connection  the connection which read the locator
+     */
+    public LazyLob(Clob clob, Connection connection) {
+        this.binary = false;
+        this.clob = clob;
+        this.connection = connection;
+        this.thread = Thread.currentThread();
+        this.transactionEnds = DAOUtil.getTransactionEnds();
+    }
+
+    /**
+     * Binds the value to a table row, so that it can be selected again
+     * after the connection which read it is closed.
+     *
+     * @param connectionName  database connection name
+     * @param table           table name
+     * @param column          column name
+     * @param key             primary key column names and values of the row
+     */
+    public void bind(String connectionName, String table, String column, Map<String, Object> key) {
+        if (key == null || key.size() == 0) return;
+        this.connectionName = connectionName;
+        this.table = table;
+        this.column = column;
+        this.key = new HashMap<String, Object>(key);
+    }
+
+    /**
+     * Checks if this is the value of a BLOB column.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Checks if the value is bound to a table row.
+     */
+    public boolean isBound() {
+        return key != null;
+    }
+
+    /**
+     * Returns number of bytes of a BLOB or characters of a CLOB.
+     *
+     * @return length of the value
+     * @throws SQLException
+     */
+    public long length() throws SQLException {
+        if (length < 0L) {
+            if (isLocatorOpen()) {
+                length = (binary)?blob.length():clob.length();
+            }
+            else {
+                Source source = select();
+                try {
+                    if (binary) {
+                        Blob b = source.rs.getBlob(1);
+                        length = (b != null)?b.length():0L;
+                    }
+                    else {
+                        Clob c = source.rs.getClob(1);
+                        length = (c != null)?c.length():0L;
+                    }
+                }
+                finally {
+                    source.close();
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the content of a BLOB as a stream, or <tt>null</tt> if the
+     * value is null. The stream must be closed.
+     *
+     * @return an input stream
+     * @throws SQLException
+     */
+    public InputStream getInputStream() throws SQLException {
+        if (!binary) throw new SQLException("The value of a CLOB column must be read by getReader().");
+        if (isLocatorOpen()) return blob.getBinaryStream();
+
+        final Source source = select();
+        InputStream is = null;
+        try {
+            is = source.rs.getBinaryStream(1);
+        }
+        finally {
+            if (is == null) source.close();
+        }
+        if (is == null) return null;
+
+        return new FilterInputStream(is) {
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    source.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the content of a CLOB as a reader, or <tt>null</tt> if the
+     * value is null. The reader must be closed.
+     *
+     * @return a reader
+     * @throws SQLException
+     */
+    public Reader getReader() throws SQLException {
+        if (binary) throw new SQLException("The value of a BLOB column must be read by getInputStream().");
+        if (isLocatorOpen()) return clob.getCharacterStream();
+
+        final Source source = select();
+        Reader reader = null;
+        try {
+            reader = source.rs.getCharacterStream(1);
+        }
+        finally {
+            if (reader == null) source.close();
+        }
+        if (reader == null) return null;
+
+        return new FilterReader(reader) {
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    source.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads all bytes of a BLOB.
+     *
+     * @return a byte array, or <tt>null</tt> if the value is null
+     * @throws SQLException
+     */
+    public byte[] getBytes() throws SQLException {
+        InputStream is = getInputStream();
+        if (is == null) return null;
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int i = 0;
+            while ((i = is.read(buf)) != -1) {
+                baos.write(buf, 0, i);
+            }
+            return baos.toByteArray();
+        }
+        catch(IOException ex) {
+            throw new SQLException(ex.getMessage());
+        }
+        finally {
+            closeQuietly(is);
+        }
+    }
+
+    /**
+     * Reads all characters of a CLOB.
+     *
+     * @return a string, or <tt>null</tt> if the value is null
+     * @throws SQLException
+     */
+    public String getString() throws SQLException {
+        Reader reader = getReader();
+        if (reader == null) return null;
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[4096];
+            int i = 0;
+            while ((i = reader.read(buf)) != -1) {
+                sb.append(buf, 0, i);
+            }
+            return sb.toString();
+        }
+        catch(IOException ex) {
+            throw new SQLException(ex.getMessage());
+        }
+        finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Returns a description of the value. The value itself is not read.
+     */
+    public String toString() {
+        String type = (binary)?"BLOB":"CLOB";
+        return (column != null)?(type + " " + table + "." + column + " " + key):type;
+    }
+
+    private boolean isLocatorOpen() {
+        if (connection == null || (blob == null && clob == null)) return false;
+        if (thread != Thread.currentThread() ||
+                transactionEnds != DAOUtil.getTransactionEnds()) return false;
+        try {
+            return !connection.isClosed() && !connection.getAutoCommit();
+        }
+        catch(SQLException ex) {
+            return false;
+        }
+    }
+
+    private Source select() throws SQLException {
+        if (key == null) {
+            throw new SQLException("The transaction which read the " + toString() +
+                    " value has ended, and the value is not bound to a table row.");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ").append(column).append(" FROM ").append(table).append(" WHERE ");
+        Object[] values = new Object[key.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : key.entrySet()) {
+            if (i > 0) sb.append(" AND ");
+            sb.append(entry.getKey()).append(" = ?");
+            values[i++] = entry.getValue();
+        }
+
+        Source source = new Source();
+        boolean found = false;
+        try {
+            source.conn = SqlExpressUtil.getConnection(connectionName);
+            source.pstmt = source.conn.prepareStatement(sb.toString());
+            for (int j = 0; j < values.length; j++) {
+                source.pstmt.setObject(j + 1, values[j]);
+            }
+            source.rs = source.pstmt.executeQuery();
+            found = source.rs.next();
+            if (!found) throw new SQLException("The row of the " + toString() + " value does not exist.");
+        }
+        finally {
+            if (!found) source.close();
+        }
+        return source;
+    }
+
+    private static void closeQuietly(java.io.Closeable c) {
+        try {
+            c.close();
+        }
+        catch(IOException ex) {
+            ;
+        }
+    }
+
+    /**
+     * Source holds the row of a value which is selected again.
+     */
+    private static class Source {
+        private Connection conn;
+        private PreparedStatement pstmt;
+        private ResultSet rs;
+
+        void close() {
+            DAOUtil.closeResultSet(rs);
+            DAOUtil.closeStatement(pstmt);
+            DAOUtil.closeConnection(conn);
+        }
+    }
+}
@@ -64,6 +64,12 @@ public interface DataProcessor {
      */
     public static final String input_key_use_pagination              = framework_input_key_prefix + "USE_PAGINATION";
     
+    /**
+     * Specifies the query timeout in seconds. It overrides the timeout of 
+     * the statement and the default timeout.
+     */
+    public static final String input_key_query_timeout               = framework_input_key_prefix + "QUERY_TIMEOUT";
+    
     /**
      * No retrieval limit.
      */
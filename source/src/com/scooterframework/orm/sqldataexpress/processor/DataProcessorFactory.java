@@ -82,11 +82,11 @@ public class DataProcessorFactory {
             setDatabaseMetaData(udc, selectedDataProcessor);
         }
         else if (DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR.equals(processorType)) {
-        	selectedDataProcessor = DBStore.getInstance().getJdbcStatementProcessor(processorName);
+        	selectedDataProcessor = DBStore.getInstance().getDirectJdbcStatementProcessor(processorName);
         	if (selectedDataProcessor == null) {
-        		JdbcStatement statement = SqlExpressUtil.createJdbcStatementDirect(processorName);
+        		JdbcStatement statement = SqlExpressUtil.getJdbcStatementDirect(processorName);
                 selectedDataProcessor = new JdbcStatementProcessor(statement);
-                DBStore.getInstance().addJdbcStatementProcessor(processorName, 
+                DBStore.getInstance().addDirectJdbcStatementProcessor(processorName, 
                 		(JdbcStatementProcessor)selectedDataProcessor);
         	}
             setDatabaseMetaData(udc, selectedDataProcessor);
@@ -98,6 +98,25 @@ public class DataProcessorFactory {
         return selectedDataProcessor;
     }
     
+    /**
+     * Returns the processor of a JDBC statement. Processors are cached by 
+     * SQL string together with direct SQL statement processors.
+     * 
+     * @param udc  database connection
+     * @param st   a JdbcStatement instance
+     * @return a JdbcStatementProcessor instance
+     */
+    public JdbcStatementProcessor getJdbcStatementProcessor(UserDatabaseConnection udc, JdbcStatement st) {
+        String sql = st.getOriginalJdbcStatementString();
+        JdbcStatementProcessor dp = DBStore.getInstance().getDirectJdbcStatementProcessor(sql);
+        if (dp == null || dp.getJdbcStatement() != st) {
+            dp = new JdbcStatementProcessor(st);
+            DBStore.getInstance().addDirectJdbcStatementProcessor(sql, dp);
+        }
+        setDatabaseMetaData(udc, dp);
+        return dp;
+    }
+    
     private void setDatabaseMetaData(UserDatabaseConnection udc, DataProcessor selectedDataProcessor) {
         try {
             ((JdbcStatementProcessor)selectedDataProcessor).setDatabaseMetaData(udc.getConnection().getMetaData());
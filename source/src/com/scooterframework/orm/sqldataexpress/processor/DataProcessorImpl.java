@@ -31,6 +31,7 @@ import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.object.ColumnInfo;
 import com.scooterframework.orm.sqldataexpress.object.Cursor;
+import com.scooterframework.orm.sqldataexpress.object.LazyLob;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.Parameter;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
@@ -283,7 +284,8 @@ abstract public class DataProcessorImpl implements DataProcessor {
      * Stores object as either blob or clob type in database.
      * 
      * Acceptable types of <tt>obj</tt> are <tt>java.io.InputStream</tt>, 
-     * <tt>byte[]</tt>, <tt>java.io.File</tt>, <tt>java.lang.String</tt> and 
+     * <tt>byte[]</tt>, <tt>java.io.File</tt>, <tt>java.lang.String</tt>, 
+     * {@link LazyLob} and 
      * any object whose content can be obtained from its 
      * <tt>toString()</tt> method.
      * 
@@ -296,6 +298,12 @@ abstract public class DataProcessorImpl implements DataProcessor {
     throws SQLException {
     	try {
 	    	int targetSqlType = p.getSqlDataType();
+	    	if (obj instanceof LazyLob) {
+	    		//a value copied from another record
+	    		LazyLob lob = (LazyLob)obj;
+	    		obj = (lob.isBinary())?lob.getBytes():lob.getString();
+	    	}
+	    	
 	    	if (targetSqlType == Types.BLOB) {
 	        	if (obj != null) {
 		            InputStream is = getInputStream(obj);
@@ -14,7 +14,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -22,10 +22,15 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.RequestTiming;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.exception.QueryBudgetExceededException;
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
 import com.scooterframework.orm.sqldataexpress.object.Cursor;
 import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
@@ -35,8 +40,14 @@ import com.scooterframework.orm.sqldataexpress.object.RowInfo;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.parser.JdbcStatementParser;
 import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.DBStore;
+import com.scooterframework.orm.sqldataexpress.util.QueryPlanAdvisor;
+import com.scooterframework.orm.sqldataexpress.util.QueryTimeout;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
 import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
+import com.scooterframework.orm.sqldataexpress.util.SqlStatistics;
 import com.scooterframework.orm.sqldataexpress.util.SqlUtil;
+import com.scooterframework.orm.sqldataexpress.vendor.ColumnReader;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
 
@@ -47,6 +58,8 @@ import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
  * @author (Fei) John Chen
  */
 public class JdbcStatementProcessor extends DataProcessorImpl {
+    private static final Object[] NO_PARAMS = new Object[0];
+    
     private JdbcStatement st = null;
     
     public JdbcStatementProcessor(JdbcStatement st) {
@@ -58,6 +71,131 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
      * execute with output filter
      */
     public OmniDTO execute(UserDatabaseConnection udc, Map<String, Object> inputs, Map<String, String> outputFilters) 
+    throws BaseSQLException {
+        return execute(udc, inputs, null, outputFilters);
+    }
+    
+    /**
+     * <p>Executes the statement with positional parameters. The value of 
+     * the question mark at index <tt>i</tt> is <tt>params[i-1]</tt>, 
+     * whether the question mark is named or not. Values are bound by 
+     * walking the array with the SQL data types parsed for the statement, 
+     * without building an input map.</p>
+     * 
+     * <p>Pagination, auto-fill and replacement inputs are not supported 
+     * by this method.</p>
+     * 
+     * @param udc     database connection
+     * @param params  values of parameters in the order of question marks
+     * @return OmniDTO containing the result
+     * @throws BaseSQLException
+     */
+    public OmniDTO execute(UserDatabaseConnection udc, Object[] params) 
+    throws BaseSQLException {
+        return execute(udc, null, (params != null)?params:NO_PARAMS, null);
+    }
+    
+    /**
+     * <p>Executes a non-select statement once for each array of positional 
+     * parameters in one JDBC batch, which is sent to the database in one 
+     * round trip when the driver supports batching.</p>
+     * 
+     * @param udc         database connection
+     * @param paramsList  arrays of parameter values, one array for each 
+     *                    execution
+     * @return update counts of the executions in order, as returned by 
+     *         the driver
+     * @throws BaseSQLException
+     */
+    public int[] executeBatch(UserDatabaseConnection udc, List<Object[]> paramsList) 
+    throws BaseSQLException {
+        if (st.isSelectStatement())
+            throw new IllegalArgumentException("A select statement cannot be batched.");
+        if (paramsList == null || paramsList.size() == 0) return new int[0];
+        
+        Connection connection = udc.getConnection();
+        DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(udc.getConnectionName());
+        
+        int[] counts = null;
+        PreparedStatement pstmt = null;
+        long timing = RequestTiming.start(RequestTiming.SQL);
+        long start = System.nanoTime();
+        String executableSql = st.getExecutableJdbcStatementString();
+        QueryTimeout.Watch watch = null;
+        boolean failed = true;
+        
+        try {
+            QueryTracker.record(executableSql);
+            if (log.isDebugEnabled()) {
+                log.debug("executeBatch - parsed expecutable sql: " + executableSql);
+                log.debug("executeBatch - batch size: " + paramsList.size());
+            }
+            
+            pstmt = connection.prepareStatement(executableSql);
+            
+            if (!st.hasLoadedParameterProperties()) {
+            	synchronized(st) {
+            		if (!st.hasLoadedParameterProperties()) {
+                        JdbcStatementParser parser = new JdbcStatementParser(udc, st);
+                        parser.parse();
+            		}
+            	}
+            }
+            
+            List<Parameter> parameters = st.getParameters();
+            int size = parameters.size();
+            for (Object[] params : paramsList) {
+                if (params == null || params.length != size) {
+                	throw new Exception("There must be " + size + 
+                	" positional parameters in each batch entry.");
+                }
+                for (int i = 0; i < size; i++) {
+                    Parameter p = parameters.get(i);
+                    if (Parameter.MODE_IN.equals(p.getMode())) {
+                        setParameter(pstmt, dba, p, params[p.getIndex() - 1], null);
+                    }
+                }
+                pstmt.addBatch();
+            }
+            
+            watch = QueryTimeout.start(pstmt, getQueryTimeout(null));
+            counts = pstmt.executeBatch();
+            failed = false;
+        }
+        catch (QueryBudgetExceededException ex) {
+            throw ex;
+        }
+        catch (QueryTimeoutException ex) {
+            throw ex;
+        }
+        catch (SQLException ex) {
+            if (QueryTimeout.isTimeout(ex, watch)) {
+                QueryTimeoutException tex = QueryTimeout.timeoutException(executableSql, watch, ex);
+                log.error(tex.getMessage());
+                throw tex;
+            }
+        	log.error("Error in executeBatch(): " + ex.getMessage(), ex);
+            throw new BaseSQLException(ex);
+        }
+        catch (Exception ex) {
+        	log.error("Error in executeBatch(): " + ex.getMessage(), ex);
+            throw new BaseSQLException(ex);
+        }
+        finally {
+            QueryTimeout.stop(watch);
+            DAOUtil.closeStatement(pstmt);
+            RequestTiming.stop(RequestTiming.SQL, timing);
+            if (SqlStatistics.getInstance().isEnabled()) {
+                SqlStatistics.getInstance().record(executableSql, System.nanoTime() - start, 
+                        (counts != null)?counts.length:0, failed);
+            }
+        }
+        
+        return counts;
+    }
+    
+    private OmniDTO execute(UserDatabaseConnection udc, Map<String, Object> inputs, 
+    		Object[] params, Map<String, String> outputFilters) 
     throws BaseSQLException {
     	Connection connection = udc.getConnection();
     	DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(udc.getConnectionName());
@@ -65,24 +203,33 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
         OmniDTO returnTO = new OmniDTO();
         PreparedStatement pstmt = null;
         ResultSet rs = null;
+        long timing = RequestTiming.start(RequestTiming.SQL);
+        FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_SQL, st.getName());
+        long start = System.nanoTime();
+        JdbcStatement jstat = st;
+        String executableSql = null;
+        QueryTimeout.Watch watch = null;
+        boolean failed = true;
         
         try {
             String stName = st.getName();
-            autoFill(udc, inputs);
+            if (params == null) autoFill(udc, inputs);
             
-            JdbcStatement jstat = st;
             String originalSql = st.getOriginalJdbcStatementString();
-            if(checkPagination(inputs)) {
+            if(params == null && checkPagination(inputs)) {
             	String pagedSql = dba.preparePaginationSql(originalSql, inputs, outputFilters);
-            	jstat = SqlExpressUtil.createJdbcStatementDirect(pagedSql);
+            	jstat = SqlExpressUtil.getJdbcStatementDirect(pagedSql);
             }
             
-            String executableSql = jstat.getExecutableJdbcStatementString();
-            executableSql = autoReplace(executableSql, inputs);
+            executableSql = jstat.getExecutableJdbcStatementString();
+            if (params == null) executableSql = autoReplace(executableSql, inputs);
+            QueryTracker.record(executableSql);
             
-            log.debug("execute - parsed expecutable sql: " + executableSql);
-            log.debug("execute - parsed inputs: " + inputs);
-            log.debug("execute - outputFilters: " + outputFilters);
+            if (log.isDebugEnabled()) {
+                log.debug("execute - parsed expecutable sql: " + executableSql);
+                log.debug("execute - parsed inputs: " + ((params == null)?inputs:Arrays.asList(params)));
+                log.debug("execute - outputFilters: " + outputFilters);
+            }
             
             boolean supportsGetGeneratedKeys = supportsGetGeneratedKeys();
             if (supportsGetGeneratedKeys && !jstat.isSelectStatement()) {
@@ -112,55 +259,50 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                 }
 //            }
             
-            Collection<Parameter> parameters = jstat.getParameters();
-            log.debug("execute - parameters: " + parameters);
-            Iterator<Parameter> pit = parameters.iterator();
-            while(pit.hasNext()) {
-                Parameter p = pit.next();
-                
-                String key = p.getName();
-                if (!inputs.containsKey(key)) {
-                	throw new Exception("There " + 
-                    "must be a key/value pair corresponding to key named " + key + 
-                    " in input parameters: " + inputs.keySet());
+            List<Parameter> parameters = jstat.getParameters();
+            if (log.isDebugEnabled()) log.debug("execute - parameters: " + parameters);
+            if (params != null) {
+                int size = parameters.size();
+                if (params.length != size) {
+                	throw new Exception("There must be " + size + 
+                	" positional parameters instead of " + params.length + ".");
                 }
-                
-                if (Parameter.MODE_IN.equals(p.getMode())) {
-                    Object obj = inputs.get(key);
-                    if (obj == null || 
-                        "".equals(obj.toString().trim()) && 
-                        p.getSqlDataType() != Types.CHAR && 
-                        p.getSqlDataType() != Types.VARCHAR && 
-                        p.getSqlDataType() != Types.LONGVARCHAR) {
-                        setNull(pstmt, p.getIndex(), p.getSqlDataType());
+                for (int i = 0; i < size; i++) {
+                    Parameter p = parameters.get(i);
+                    if (Parameter.MODE_IN.equals(p.getMode())) {
+                        setParameter(pstmt, dba, p, params[p.getIndex() - 1], inputs);
                     }
-                    else {
-                        if(!dba.vendorSpecificSetObject(pstmt, obj, p, inputs)) {
-                            if (Parameter.UNKNOWN_SQL_DATA_TYPE != p.getSqlDataType()) {
-                                setObject(pstmt, obj, p);
-                            }
-                            else {
-                                //It is up to JDBC driver's PreparedStatement implementation 
-                                //class to deal with. Usually the class will make a decision 
-                                //on which setXXX(Type) method to call based on the java 
-                                //class type of the obj instance. 
-                                pstmt.setObject(p.getIndex(), obj);
-                            }
-                        }
+                }
+            }
+            else {
+                Iterator<Parameter> pit = parameters.iterator();
+                while(pit.hasNext()) {
+                    Parameter p = pit.next();
+                    
+                    String key = p.getName();
+                    if (!inputs.containsKey(key)) {
+                    	throw new Exception("There " + 
+                        "must be a key/value pair corresponding to key named " + key + 
+                        " in input parameters: " + inputs.keySet());
+                    }
+                    
+                    if (Parameter.MODE_IN.equals(p.getMode())) {
+                        setParameter(pstmt, dba, p, inputs.get(key), inputs);
                     }
                 }
             }
             
+            watch = QueryTimeout.start(pstmt, getQueryTimeout(inputs));
             if (jstat.isSelectStatement()) {
                 rs = pstmt.executeQuery();
                 
                 // handle out cursors or other outputs if there is any
                 if (rs != null) {
                     if (outputFilters == null || outputFilters.size() == 0) {
-                        handleResultSet(jstat, dba, stName, returnTO, rs, inputs);
+                        handleResultSet(jstat, dba, connection, stName, returnTO, rs, inputs);
                     }
                     else {
-                        handleFilteredResultSet(jstat, dba, stName, returnTO, rs, inputs, outputFilters);
+                        handleFilteredResultSet(jstat, dba, connection, stName, returnTO, rs, inputs, outputFilters);
                     }
                 }
             }
@@ -182,18 +324,125 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                     }
                 }
             }
+            failed = false;
+        }
+        catch (QueryBudgetExceededException ex) {
+            throw ex;
+        }
+        catch (QueryTimeoutException ex) {
+            throw ex;
+        }
+        catch (SQLException ex) {
+            if (QueryTimeout.isTimeout(ex, watch)) {
+                QueryTimeoutException tex = QueryTimeout.timeoutException(executableSql, watch, ex);
+                log.error(tex.getMessage());
+                throw tex;
+            }
+        	log.error("Error in execute(): " + ex.getMessage(), ex);
+            throw new BaseSQLException(ex);
         }
         catch (Exception ex) {
         	log.error("Error in execute(): " + ex.getMessage(), ex);
             throw new BaseSQLException(ex);
         }
         finally {
+            QueryTimeout.stop(watch);
             DAOUtil.closeResultSet(rs);
             DAOUtil.closeStatement(pstmt);
+            RequestTiming.stop(RequestTiming.SQL, timing);
+            if (executableSql != null && SqlStatistics.getInstance().isEnabled()) {
+                recordStatistics(udc, dba, executableSql, jstat, inputs, params, System.nanoTime() - start, getRowCount(returnTO), failed);
+            }
+            if (event != null) commitEvent(event, udc, returnTO);
         }
         
         return returnTO;
     }
+    
+    /**
+     * Returns query timeout of the statement in seconds. A timeout in the
+     * inputs overrides the timeout of the statement, which overrides the
+     * default timeout.
+     */
+    private int getQueryTimeout(Map<String, Object> inputs) {
+        if (inputs != null) {
+            Object timeout = inputs.get(DataProcessor.input_key_query_timeout);
+            if (timeout != null) return Util.getSafeIntValue(timeout.toString());
+        }
+        int timeout = st.getQueryTimeout();
+        return (timeout > 0)?timeout:QueryTimeout.getDefaultTimeout();
+    }
+    
+    private void setParameter(PreparedStatement pstmt, DBAdapter dba, Parameter p, 
+    		Object obj, Map<String, Object> inputs) 
+    throws Exception {
+        if (obj == null || 
+            "".equals(obj.toString().trim()) && 
+            p.getSqlDataType() != Types.CHAR && 
+            p.getSqlDataType() != Types.VARCHAR && 
+            p.getSqlDataType() != Types.LONGVARCHAR) {
+            setNull(pstmt, p.getIndex(), p.getSqlDataType());
+        }
+        else {
+            if(!dba.vendorSpecificSetObject(pstmt, obj, p, inputs)) {
+                if (Parameter.UNKNOWN_SQL_DATA_TYPE != p.getSqlDataType()) {
+                    setObject(pstmt, obj, p);
+                }
+                else {
+                    //It is up to JDBC driver's PreparedStatement implementation 
+                    //class to deal with. Usually the class will make a decision 
+                    //on which setXXX(Type) method to call based on the java 
+                    //class type of the obj instance. 
+                    pstmt.setObject(p.getIndex(), obj);
+                }
+            }
+        }
+    }
+    
+    private int getRowCount(OmniDTO returnTO) {
+        TableData td = returnTO.getTableData(st.getName());
+        return (td != null)?td.getTableSize():returnTO.getUpdatedRowCount();
+    }
+    
+    private void recordStatistics(UserDatabaseConnection udc, DBAdapter dba, String executableSql, 
+            JdbcStatement jstat, Map<String, Object> inputs, Object[] params, long durationNanos, 
+            int rows, boolean failed) {
+        SqlStatistics stats = SqlStatistics.getInstance();
+        stats.record(executableSql, durationNanos, rows, failed);
+        if (stats.isSlow(durationNanos)) {
+            List<Object> values = new ArrayList<Object>();
+            if (params != null) {
+                values.addAll(Arrays.asList(params));
+            }
+            else if (jstat.hasLoadedParameterProperties()) {
+                for (Parameter p : jstat.getParameters()) {
+                    values.add(inputs.get(p.getName()));
+                }
+            }
+            stats.logSlowQuery(executableSql, values, durationNanos, rows);
+            
+            QueryPlanAdvisor advisor = QueryPlanAdvisor.getInstance();
+            if (!failed && jstat.isSelectStatement() && 
+                    advisor.shouldExplain(stats.getFingerprint(executableSql))) {
+                advisor.explain(udc.getConnection(), dba, udc.getConnectionName(), 
+                        executableSql, values, durationNanos);
+            }
+        }
+    }
+    
+    private void commitEvent(FrameworkEvent event, UserDatabaseConnection udc, OmniDTO returnTO) {
+        event.set("connection", udc.getConnectionName())
+             .set("sql", st.getOriginalJdbcStatementString())
+             .set("rows", getRowCount(returnTO));
+        EventRecorder.commit(event);
+    }
+
+    /**
+     * Returns the JDBC statement of this processor.
+     */
+    public JdbcStatement getJdbcStatement() {
+        return st;
+    }
 
     protected boolean checkPagination(Map<String, Object> inputs) {
         boolean usePagination = false;
@@ -272,11 +521,13 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
     }
 
 	private void handleResultSet(JdbcStatement jstat, DBAdapter dba,
-			String stName, OmniDTO returnTO, ResultSet rs, Map<String, ?> inputs)
+			Connection connection, String stName, OmniDTO returnTO, ResultSet rs, Map<String, ?> inputs)
     throws SQLException {
         Cursor cursor = jstat.getCursor(stName, rs);
         int cursorWidth = cursor.getDimension();
         
+        ColumnReader[] readers = dba.getColumnReaders(cursor, connection);
+        
         TableData rt = new TableData();
         rt.setHeader(cursor);
         returnTO.addTableData(stName, rt);
@@ -284,9 +535,7 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
         while(rs.next()) {
             Object[] cellValues = new Object[cursorWidth];
             for (int i = 0; i < cursorWidth; i++) {
-				cellValues[i] = dba.getObjectFromResultSetByType(rs,
-						cursor.getColumnJavaClassName(i),
-						cursor.getColumnSqlDataType(i), i + 1);
+				cellValues[i] = readers[i].read(rs, i + 1);
             }
             rt.addRow(new RowData(cursor, cellValues));
         }
@@ -294,7 +543,7 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
     }
     
 	private void handleFilteredResultSet(JdbcStatement jstat, DBAdapter dba,
-			String stName, OmniDTO returnTO, ResultSet rs,
+			Connection connection, String stName, OmniDTO returnTO, ResultSet rs,
 			Map<String, Object> inputs, Map<String, String> outputs)
     throws SQLException {
         Cursor cursor = jstat.getCursor(stName, rs);
@@ -306,18 +555,23 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
         rt.setHeader(newHeader);
         returnTO.addTableData(stName, rt);
         
-        while(rs.next()) {
-            ArrayList<Object> cellValues = new ArrayList<Object>();
-            for (int i = 0; i < cursorWidth; i++) {
-                if (allowedColumns.contains(cursor.getColumnName(i))) {
-					cellValues.add(dba.getObjectFromResultSetByType(rs,
-							cursor.getColumnJavaClassName(i),
-							cursor.getColumnSqlDataType(i), i + 1));
-                }
+        //resolves allowed column indexes and their readers once
+        ColumnReader[] readers = dba.getColumnReaders(cursor, connection);
+        int[] indexes = new int[cursorWidth];
+        int width = 0;
+        for (int i = 0; i < cursorWidth; i++) {
+            if (allowedColumns.contains(cursor.getColumnName(i))) {
+                indexes[width++] = i;
             }
-            
-            if (cellValues.size() > 0) 
-                rt.addRow(new RowData(newHeader, cellValues.toArray()));
+        }
+        
+        while(width > 0 && rs.next()) {
+            Object[] cellValues = new Object[width];
+            for (int j = 0; j < width; j++) {
+                int i = indexes[j];
+				cellValues[j] = readers[i].read(rs, i + 1);
+            }
+            rt.addRow(new RowData(newHeader, cellValues));
         }
         rs.close();
     }
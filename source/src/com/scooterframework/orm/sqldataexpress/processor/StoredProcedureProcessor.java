@@ -13,14 +13,15 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
 import com.scooterframework.orm.sqldataexpress.object.Cursor;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.Parameter;
@@ -29,6 +30,8 @@ import com.scooterframework.orm.sqldataexpress.object.RowInfo;
 import com.scooterframework.orm.sqldataexpress.object.StoredProcedure;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.QueryTimeout;
+import com.scooterframework.orm.sqldataexpress.vendor.ColumnReader;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
 
@@ -55,6 +58,7 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
     	
         OmniDTO returnTO = new OmniDTO();
         CallableStatement cstmt = null;
+        QueryTimeout.Watch watch = null;
         
         try {
             cstmt = connection.prepareCall(sp.getJavaAPIString());
@@ -110,27 +114,40 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
                 }
             }
             
+            Object timeout = inputs.get(DataProcessor.input_key_query_timeout);
+            watch = QueryTimeout.start(cstmt, (timeout != null)?
+                    Util.getSafeIntValue(timeout.toString()):QueryTimeout.getDefaultTimeout());
             cstmt.execute();
             
             // handle out cursors or other outputs if there is any
             if ( outputFilters == null ) {
-                handleResultSet(dba, returnTO, cstmt);
+                handleResultSet(dba, connection, returnTO, cstmt);
             }
             else {
-                handleFilteredResultSet(dba, returnTO, cstmt, outputFilters);
+                handleFilteredResultSet(dba, connection, returnTO, cstmt, outputFilters);
             }
         }
+        catch (QueryTimeoutException ex) {
+            throw ex;
+        }
+        catch (SQLException ex) {
+            if (QueryTimeout.isTimeout(ex, watch)) {
+                throw QueryTimeout.timeoutException(sp.getName(), watch, ex);
+            }
+            throw new BaseSQLException(ex);
+        }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
         }
         finally {
+            QueryTimeout.stop(watch);
             DAOUtil.closeStatement(cstmt);
         }
         
         return returnTO;
     }
 
-    private void handleResultSet(DBAdapter dba, OmniDTO returnTO, CallableStatement cstmt) 
+    private void handleResultSet(DBAdapter dba, Connection connection, OmniDTO returnTO, CallableStatement cstmt) 
     throws SQLException {
         // handle out cursors or other outputs if there is any
         Iterator<Parameter> pit = sp.getParameters().iterator();
@@ -145,6 +162,8 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
                     Cursor cursor = sp.getCursor(p.getName(), rs);
                     int cursorWidth = cursor.getDimension();
                     
+                    ColumnReader[] readers = dba.getColumnReaders(cursor, connection);
+                    
                     TableData rt = new TableData();
                     rt.setHeader(cursor);
                     returnTO.addTableData(p.getName(), rt);
@@ -152,10 +171,7 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
                     while(rs.next()) {
                         Object[] cellValues = new Object[cursorWidth];
                         for ( int i = 0; i < cursorWidth; i++ ) {
-                            cellValues[i] = dba.getObjectFromResultSetByType(rs, 
-                                                                         cursor.getColumnJavaClassName(i), 
-                                                                         cursor.getColumnSqlDataType(i),
-                                                                         i+1);
+                            cellValues[i] = readers[i].read(rs, i+1);
                         }
                         rt.addRow(new RowData(cursor, cellValues));
                     }
@@ -171,7 +187,7 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
         }
     }
     
-    private void handleFilteredResultSet(DBAdapter dba, OmniDTO returnTO, CallableStatement cstmt, Map<String, String> outputFilter) 
+    private void handleFilteredResultSet(DBAdapter dba, Connection connection, OmniDTO returnTO, CallableStatement cstmt, Map<String, String> outputFilter) 
     throws SQLException {
         // handle out cursors or other outputs if there is any
         Iterator<Parameter> pit = sp.getParameters().iterator();
@@ -192,19 +208,23 @@ public class StoredProcedureProcessor extends DataProcessorImpl {
                     rt.setHeader(newHeader);
                     returnTO.addTableData(p.getName(), rt);
                     
-                    while(rs.next()) {
-                        ArrayList<Object> cellValues = new ArrayList<Object>();
-                        for (int i = 0; i < cursorWidth; i++) {
-                            if (outputFilter.containsKey(cursor.getColumnName(i))) {
-                                cellValues.add(dba.getObjectFromResultSetByType(rs, 
-                                                                            cursor.getColumnJavaClassName(i), 
-                                                                            cursor.getColumnSqlDataType(i),
-                                                                            i+1));
-                            }
+                    //resolves filtered column indexes and their readers once
+                    ColumnReader[] readers = dba.getColumnReaders(cursor, connection);
+                    int[] indexes = new int[cursorWidth];
+                    int width = 0;
+                    for (int i = 0; i < cursorWidth; i++) {
+                        if (outputFilter.containsKey(cursor.getColumnName(i))) {
+                            indexes[width++] = i;
+                        }
+                    }
+                    
+                    while(width > 0 && rs.next()) {
+                        Object[] cellValues = new Object[width];
+                        for (int j = 0; j < width; j++) {
+                            int i = indexes[j];
+                            cellValues[j] = readers[i].read(rs, i+1);
                         }
-                        
-                        if (cellValues.size() > 0) 
-                            rt.addRow(new RowData(newHeader, cellValues.toArray()));
+                        rt.addRow(new RowData(newHeader, cellValues));
                     }
                     rs.close();
                 } 
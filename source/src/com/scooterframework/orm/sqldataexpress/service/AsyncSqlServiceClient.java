@@ -0,0 +1,371 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.scooterframework.common.monitor.Gauge;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+
+/**
+ * <p>AsyncSqlServiceClient class runs SqlServiceClient operations in a
+ * bounded pool of background threads, so that independent queries of a
+ * page can run at the same time.</p>
+ *
+ * <p>Each task runs in its own thread, and therefore in its own implicit
+ * transaction with its own connection. It does not take part in a
+ * transaction of the caller, and it does not see uncommitted changes of
+ * the caller. Statements of a task are not counted in the query budget of
+ * the caller's request.</p>
+ *
+ * <p>The number of threads and the size of the queue of waiting tasks are
+ * set by <tt>sql.async.threads</tt> and <tt>sql.async.queue.size</tt> in
+ * <tt>database.properties</tt>. A task which is submitted when the queue
+ * is full is rejected with a BaseSQLException.</p>
+ *
+ * <pre>
+ * Examples:
+ *
+ *      Future&lt;Long&gt; orders = AsyncSqlServiceClient.countBySQL("SELECT count(*) FROM orders", null);
+ *      Future&lt;List&lt;RowData&gt;&gt; top = AsyncSqlServiceClient.retrieveRowsBySQL(null, sql, new Object[]{id});
+ *      List&lt;Object&gt; results = AsyncSqlServiceClient.join(Arrays.asList(orders, top), 2000);
+ * </pre>
+ *
+ * @author (Fei) John Chen
+ */
+public class AsyncSqlServiceClient {
+    /**
+     * Default number of threads.
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Default maximum number of waiting tasks.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private static int threads = DEFAULT_THREADS;
+    private static int queueSize = DEFAULT_QUEUE_SIZE;
+    private static volatile ThreadPoolExecutor executor;
+    private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>();
+
+    /**
+     * Sets the number of threads and the maximum number of waiting tasks.
+     * The number of threads of a running pool is changed in place. A new
+     * queue size is used after the tasks of the running pool finish.
+     *
+     * @param nThreads  number of threads
+     * @param nQueue    maximum number of waiting tasks
+     */
+    public static synchronized void configure(int nThreads, int nQueue) {
+        nThreads = (nThreads > 0)?nThreads:DEFAULT_THREADS;
+        nQueue = (nQueue > 0)?nQueue:DEFAULT_QUEUE_SIZE;
+        ThreadPoolExecutor current = executor;
+        if (current != null) {
+            if (nQueue != queueSize) {
+                current.shutdown();
+                executor = null;
+            }
+            else if (nThreads > threads) {
+                current.setMaximumPoolSize(nThreads);
+                current.setCorePoolSize(nThreads);
+            }
+            else if (nThreads < threads) {
+                current.setCorePoolSize(nThreads);
+                current.setMaximumPoolSize(nThreads);
+            }
+        }
+        threads = nThreads;
+        queueSize = nQueue;
+    }
+
+    /**
+     * Stops the pool after its tasks finish. A new pool is started by the
+     * next task.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Checks if the current thread is a thread of the pool. A task which
+     * waits for other tasks of the pool should run them in its own thread,
+     * as the pool may have no free thread for them.
+     */
+    public static boolean isWorkerThread() {
+        return worker.get() != null;
+    }
+
+    /**
+     * Runs a task in the pool. The task may use SqlServiceClient, table
+     * gateways and other ORM operations.
+     *
+     * @param task  the task
+     * @return a future of the result of the task
+     */
+    public static <T> Future<T> submit(final Callable<T> task) {
+        if (task == null) throw new IllegalArgumentException("task is null.");
+        try {
+            return getExecutor().submit(new Callable<T>() {
+                public T call() throws Exception {
+                    try {
+                        return task.call();
+                    }
+                    finally {
+                        CurrentThreadCache.clear();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            if (MetricsRegistry.isEnabled()) {
+                MetricsRegistry.getInstance().counter("scooter_db_async_rejected_total",
+                        "Asynchronous SQL tasks rejected because the queue is full.").increment();
+            }
+            throw new BaseSQLException("Asynchronous SQL task is rejected, " +
+                    "because there are already " + queueSize + " waiting tasks.", ex);
+        }
+    }
+
+    /**
+     * Retrieves RowData list from database based on the SQL input.
+     *
+     * @param sql       a SQL statement
+     * @param inputs    a map of name and value pairs
+     * @return a future of a list of RowData objects
+     */
+    public static Future<List<RowData>> retrieveRowsBySQL(final String sql, final Map<String, Object> inputs) {
+        return submit(new Callable<List<RowData>>() {
+            public List<RowData> call() {
+                return SqlServiceClient.retrieveRowsBySQL(sql, inputs);
+            }
+        });
+    }
+
+    /**
+     * Retrieves RowData list from database with positional parameters.
+     *
+     * @param connName  database connection name, or <tt>null</tt> for the
+     *                  default connection
+     * @param sql       a SQL statement
+     * @param params    values of question marks in order
+     * @return a future of a list of RowData objects
+     */
+    public static Future<List<RowData>> retrieveRowsBySQL(final String connName, final String sql, final Object[] params) {
+        return submit(new Callable<List<RowData>>() {
+            public List<RowData> call() {
+                return SqlServiceClient.retrieveRowsBySQL(connName, sql, params);
+            }
+        });
+    }
+
+    /**
+     * Retrieves one object from database based on the SQL input. The object
+     * of the first column of the first row is returned.
+     *
+     * @param sql       a SQL statement
+     * @param inputs    a map of name and value pairs
+     * @return a future of the object
+     */
+    public static Future<Object> retrieveObjectBySQL(final String sql, final Map<String, Object> inputs) {
+        return submit(new Callable<Object>() {
+            public Object call() {
+                return SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+            }
+        });
+    }
+
+    /**
+     * Retrieves a count from database. The SQL statement must return a
+     * number in the first column of the first row.
+     *
+     * @param sql       a SQL statement, such as <tt>SELECT count(*) FROM pets</tt>
+     * @param inputs    a map of name and value pairs
+     * @return a future of the count
+     */
+    public static Future<Long> countBySQL(final String sql, final Map<String, Object> inputs) {
+        return submit(new Callable<Long>() {
+            public Long call() {
+                Object count = SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+                if (count == null) return Long.valueOf(0L);
+                if (count instanceof Number) return Long.valueOf(((Number)count).longValue());
+                return Long.valueOf(count.toString());
+            }
+        });
+    }
+
+    /**
+     * Executes a non-select SQL statement.
+     *
+     * @param sql       a SQL statement
+     * @param inputs    a map of name and value pairs
+     * @return a future of updated row count
+     */
+    public static Future<Integer> executeSQL(final String sql, final Map<String, Object> inputs) {
+        return submit(new Callable<Integer>() {
+            public Integer call() {
+                return Integer.valueOf(SqlServiceClient.executeSQL(sql, inputs));
+            }
+        });
+    }
+
+    /**
+     * Executes a non-select SQL statement with positional parameters.
+     *
+     * @param connName  database connection name, or <tt>null</tt> for the
+     *                  default connection
+     * @param sql       a SQL statement
+     * @param params    values of question marks in order
+     * @return a future of updated row count
+     */
+    public static Future<Integer> executeSQL(final String connName, final String sql, final Object[] params) {
+        return submit(new Callable<Integer>() {
+            public Integer call() {
+                return Integer.valueOf(SqlServiceClient.executeSQL(connName, sql, params));
+            }
+        });
+    }
+
+    /**
+     * Runs tasks in the pool and waits for all of them.
+     *
+     * @param tasks          the tasks
+     * @param timeoutMillis  maximum time to wait for all tasks in
+     *                       milliseconds, or 0 to wait without a limit
+     * @return results of the tasks in the same order
+     * @see #join(List, long)
+     */
+    public static List<Object> fanOut(List<? extends Callable<?>> tasks, long timeoutMillis) {
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+        boolean submitted = false;
+        try {
+            for (Callable<?> task : tasks) {
+                futures.add(submit(task));
+            }
+            submitted = true;
+        }
+        finally {
+            if (!submitted) cancel(futures);
+        }
+        return join(futures, timeoutMillis);
+    }
+
+    /**
+     * Waits for all futures. If a task fails, its exception is thrown. If
+     * the tasks do not finish in time, a QueryTimeoutException is thrown.
+     * In both cases the tasks which are not done are cancelled.
+     *
+     * @param futures        the futures
+     * @param timeoutMillis  maximum time to wait for all tasks in
+     *                       milliseconds, or 0 to wait without a limit
+     * @return results of the tasks in the same order
+     */
+    public static List<Object> join(List<? extends Future<?>> futures, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<Object> results = new ArrayList<Object>(futures.size());
+        boolean done = false;
+        try {
+            for (Future<?> future : futures) {
+                if (timeoutMillis > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    results.add(future.get((remaining > 0L)?remaining:0L, TimeUnit.NANOSECONDS));
+                }
+                else {
+                    results.add(future.get());
+                }
+            }
+            done = true;
+        }
+        catch (TimeoutException ex) {
+            throw new QueryTimeoutException((futures.size() - results.size()) + " of " +
+                    futures.size() + " SQL tasks did not finish within " + timeoutMillis + " ms.");
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw new BaseSQLException(cause);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BaseSQLException("Interrupted while waiting for SQL tasks.", ex);
+        }
+        finally {
+            if (!done) cancel(futures);
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor current = executor;
+        if (current != null) return current;
+        synchronized(AsyncSqlServiceClient.class) {
+            if (executor == null) executor = createExecutor();
+            return executor;
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    public Thread newThread(final Runnable r) {
+                        Thread t = new Thread(new Runnable() {
+                            public void run() {
+                                worker.set(Boolean.TRUE);
+                                r.run();
+                            }
+                        }, "scooter-sql-async-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+
+        String help = "Asynchronous SQL tasks.";
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("scooter_db_async_tasks", help, new Gauge() {
+            public double getValue() {
+                ThreadPoolExecutor current = executor;
+                return (current != null)?current.getActiveCount():0;
+            }
+        }, "state", "active");
+        registry.gauge("scooter_db_async_tasks", help, new Gauge() {
+            public double getValue() {
+                ThreadPoolExecutor current = executor;
+                return (current != null)?current.getQueue().size():0;
+            }
+        }, "state", "queued");
+        return pool;
+    }
+}
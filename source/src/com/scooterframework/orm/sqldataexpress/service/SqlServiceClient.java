@@ -11,10 +11,12 @@ import java.util.List;
 import java.util.Map;
 
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
 
 
 /**
@@ -332,6 +334,90 @@ public class SqlServiceClient {
         return rowCount;
     }
     
+    /**
+     * Returns the parsed statement of a SQL string, for executing it with 
+     * positional parameters. Statements are cached by SQL string.
+     * 
+     * @param sql       a SQL statement
+     * @return a JdbcStatement instance
+     */
+    public static JdbcStatement getJdbcStatement(String sql) {
+        return SqlExpressUtil.getJdbcStatementDirect(sql);
+    }
+    
+    /**
+     * Retrieves TableData from database with positional parameters. The 
+     * value of the <tt>i</tt>th question mark is <tt>params[i-1]</tt>.
+     * 
+     * @param connName  database connection name, or <tt>null</tt> for the 
+     *                  default connection
+     * @param st        a statement returned by {@link #getJdbcStatement(String)}
+     * @param params    values of question marks in order
+     * @return a TableData instance returned from the database.
+     */
+    public static TableData retrieveTableData(String connName, JdbcStatement st, Object[] params) {
+        try {
+            OmniDTO returnTO = getSqlService().execute(connName, st, params);
+            return (returnTO != null)?returnTO.getTableData(st.getName()):null;
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+    }
+    
+    /**
+     * Retrieves RowData list from database with positional parameters.
+     * 
+     * @param connName  database connection name, or <tt>null</tt> for the 
+     *                  default connection
+     * @param sql       a SQL statement
+     * @param params    values of question marks in order
+     * @return a list of RowData objects returned from the database.
+     */
+    public static List<RowData> retrieveRowsBySQL(String connName, String sql, Object[] params) {
+        TableData td = retrieveTableData(connName, getJdbcStatement(sql), params);
+        if (td != null) return td.getAllRows();
+        return null;
+    }
+    
+    /**
+     * Executes a non-select SQL statement with positional parameters and 
+     * returns count of updated rows.
+     * 
+     * @param connName  database connection name, or <tt>null</tt> for the 
+     *                  default connection
+     * @param sql       a SQL statement
+     * @param params    values of question marks in order
+     * @return updated row count
+     */
+    public static int executeSQL(String connName, String sql, Object[] params) {
+        try {
+            return getSqlService().execute(connName, getJdbcStatement(sql), params).getUpdatedRowCount();
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+    }
+    
+    /**
+     * Executes a non-select SQL statement once for each array of positional 
+     * parameters in one JDBC batch.
+     * 
+     * @param connName    database connection name, or <tt>null</tt> for the 
+     *                    default connection
+     * @param sql         a SQL statement
+     * @param paramsList  arrays of values of question marks in order
+     * @return update counts in order, as returned by the JDBC driver
+     */
+    public static int[] executeBatch(String connName, String sql, List<Object[]> paramsList) {
+        try {
+            return getSqlService().executeBatch(connName, getJdbcStatement(sql), paramsList);
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+    }
+    
     /**
      * Returns SqlService
      * 
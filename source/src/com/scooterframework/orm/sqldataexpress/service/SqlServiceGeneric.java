@@ -8,9 +8,11 @@
 package com.scooterframework.orm.sqldataexpress.service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 
 /**
@@ -29,6 +31,30 @@ public interface SqlServiceGeneric {
      */
     public OmniDTO execute(Collection<InputParameter> inputParameters, String processorType, String processorName) throws BaseSQLException;
     
+    /**
+     * execute a JDBC statement with positional parameters
+     * 
+     * @param connectionName  database connection name, or <tt>null</tt> for 
+     *                        the default connection
+     * @param st              a parsed statement, see 
+     *                        {@link SqlServiceClient#getJdbcStatement(String)}
+     * @param params          values of question marks in order
+     */
+    public OmniDTO execute(String connectionName, JdbcStatement st, Object[] params) throws BaseSQLException;
+    
+    /**
+     * execute a non-select JDBC statement once for each array of positional 
+     * parameters in one JDBC batch
+     * 
+     * @param connectionName  database connection name, or <tt>null</tt> for 
+     *                        the default connection
+     * @param st              a parsed statement, see 
+     *                        {@link SqlServiceClient#getJdbcStatement(String)}
+     * @param paramsList      arrays of values of question marks in order
+     * @return update counts in order, as returned by the JDBC driver
+     */
+    public int[] executeBatch(String connectionName, JdbcStatement st, List<Object[]> paramsList) throws BaseSQLException;
+    
     /**
      * execute
      */
@@ -18,13 +18,18 @@ import javax.sql.DataSource;
 
 import com.mchange.v2.c3p0.PooledDataSource;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.MetricsRegistry;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.activerecord.ActiveRecordConstants;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.config.SqlConfig;
+import com.scooterframework.orm.sqldataexpress.connection.ConnectionPool;
 import com.scooterframework.orm.sqldataexpress.connection.DatabaseConnectionContext;
+import com.scooterframework.orm.sqldataexpress.connection.ReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.connection.RequestConnections;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
+import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnectionFactory;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.exception.CreateConnectionFailureException;
 import com.scooterframework.orm.sqldataexpress.exception.TransactionException;
@@ -32,6 +37,7 @@ import com.scooterframework.orm.sqldataexpress.exception.UnexpectedDataException
 import com.scooterframework.orm.sqldataexpress.exception.UnsupportedDataProcessorNameException;
 import com.scooterframework.orm.sqldataexpress.exception.UnsupportedDataProcessorTypeException;
 import com.scooterframework.orm.sqldataexpress.exception.UnsupportedStoredProcedureAPINameException;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
@@ -39,6 +45,10 @@ import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorFactory;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
+import com.scooterframework.orm.sqldataexpress.processor.JdbcStatementProcessor;
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.DBStore;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
 import com.scooterframework.transaction.ImplicitTransactionManager;
 import com.scooterframework.transaction.Transaction;
 import com.scooterframework.transaction.TransactionManager;
@@ -50,6 +60,8 @@ import com.scooterframework.transaction.TransactionManagerUtil;
  * @author (Fei) John Chen
  */
 public class SqlServiceImpl implements SqlService {
+    private static volatile boolean readFastPath = true;
+
     public SqlServiceImpl() {}
 
 
@@ -103,6 +115,98 @@ public class SqlServiceImpl implements SqlService {
         return execute(inputs, processorType, processorName, new HashMap<String, String>());
     }
 
+    /**
+     * execute a JDBC statement with positional parameters
+     */
+    public OmniDTO execute(String connectionName, JdbcStatement st, Object[] params)
+    throws BaseSQLException {
+        if (st == null)
+            throw new IllegalArgumentException("JdbcStatement is null.");
+
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        OmniDTO returnTO = null;
+        boolean metrics = MetricsRegistry.isEnabled();
+        long start = (metrics)?System.nanoTime():0L;
+        boolean succeeded = false;
+
+        if (isReadOnlyQuery(st)) {
+            UserDatabaseConnection udc = createReadOnlyConnection(connectionName);
+            try {
+                JdbcStatementProcessor dp = DataProcessorFactory.getInstance().getJdbcStatementProcessor(udc, st);
+                returnTO = dp.execute(udc, params);
+                returnTO.setProcessorType(DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR);
+                returnTO.setProcessorName(st.getName());
+                succeeded = true;
+            }
+            finally {
+                if (metrics) recordMetrics(DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, System.nanoTime() - start, succeeded);
+                closeReadOnlyConnection(udc);
+            }
+            return returnTO;
+        }
+
+        try {
+            tm.beginTransactionImplicit();
+
+            UserDatabaseConnection udc = (connectionName != null)?getConnection(connectionName):getConnection();
+            JdbcStatementProcessor dp = DataProcessorFactory.getInstance().getJdbcStatementProcessor(udc, st);
+            returnTO = dp.execute(udc, params);
+            if (!st.isSelectStatement()) ReplicaRouter.markWrite(udc.getConnectionName());
+            returnTO.setProcessorType(DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR);
+            returnTO.setProcessorName(st.getName());
+            succeeded = true;
+
+            tm.commitTransactionImplicit();
+        }
+        catch(BaseSQLException bdex) {
+            tm.rollbackTransactionImplicit();
+            throw bdex;
+        }
+        finally {
+            if (metrics) recordMetrics(DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, System.nanoTime() - start, succeeded);
+            tm.releaseResourcesImplicit();
+        }
+
+        return returnTO;
+    }
+
+    /**
+     * execute a non-select JDBC statement in one JDBC batch
+     */
+    public int[] executeBatch(String connectionName, JdbcStatement st, List<Object[]> paramsList)
+    throws BaseSQLException {
+        if (st == null)
+            throw new IllegalArgumentException("JdbcStatement is null.");
+
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        int[] counts = null;
+        boolean metrics = MetricsRegistry.isEnabled();
+        long start = (metrics)?System.nanoTime():0L;
+        boolean succeeded = false;
+
+        try {
+            tm.beginTransactionImplicit();
+
+            UserDatabaseConnection udc = (connectionName != null)?getConnection(connectionName):getConnection();
+            JdbcStatementProcessor dp = DataProcessorFactory.getInstance().getJdbcStatementProcessor(udc, st);
+            counts = dp.executeBatch(udc, paramsList);
+            ReplicaRouter.markWrite(udc.getConnectionName());
+            succeeded = true;
+
+            tm.commitTransactionImplicit();
+        }
+        catch(BaseSQLException bdex) {
+            tm.rollbackTransactionImplicit();
+            throw bdex;
+        }
+        finally {
+            if (metrics) recordMetrics(DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, System.nanoTime() - start, succeeded);
+            tm.releaseResourcesImplicit();
+        }
+
+        return counts;
+    }
+
     /**
      * execute with output filter
      */
@@ -113,6 +217,17 @@ public class SqlServiceImpl implements SqlService {
 
         if (inputs == null) inputs = new HashMap<String, Object>();
 
+        if (readFastPath && inputs.get(DataProcessor.input_key_database_connection_context) == null &&
+            isReadOnlyQuery(lookupJdbcStatement(processorType, processorName))) {
+            UserDatabaseConnection udc = createReadOnlyConnection((String)inputs.get(DataProcessor.input_key_database_connection_name));
+            try {
+                return executeKeepConnection(udc, inputs, processorType, processorName, outputFilters);
+            }
+            finally {
+                closeReadOnlyConnection(udc);
+            }
+        }
+
         ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
         OmniDTO returnTO = null;
 
@@ -136,7 +251,7 @@ public class SqlServiceImpl implements SqlService {
         }
         finally {
             tm.releaseResourcesImplicit();
-            displayDS((String)inputs.get(DataProcessor.input_key_database_connection_name), "afterRelease");
+            if (log.isDebugEnabled()) displayDS((String)inputs.get(DataProcessor.input_key_database_connection_name), "afterRelease");
         }
 
         return returnTO;
@@ -159,6 +274,9 @@ public class SqlServiceImpl implements SqlService {
                 log.debug("displayDS for " + where + " - num_busy_connections: " + pds.getNumBusyConnectionsDefaultUser());
                 log.debug("displayDS for " + where + " - num_idle_connections: " + pds.getNumIdleConnectionsDefaultUser());
             }
+            else if (ds != null && (ds instanceof ConnectionPool)) {
+                log.debug("displayDS for " + where + " - " + ds);
+            }
         } catch(Exception ex) {
             log.debug("displayDS for " + where + " - ERROR: " + ex.getMessage());
         }
@@ -500,6 +618,87 @@ public class SqlServiceImpl implements SqlService {
         return TransactionManagerUtil.getTransactionManager();
     }
 
+    /**
+     * Checks if a statement may skip implicit transaction handling. A
+     * <tt>SELECT</tt> statement, which does not lock rows, is executed on
+     * its own auto-commit connection when there is no transaction in the
+     * current thread.
+     *
+     * @param st  a JdbcStatement instance, may be null
+     * @return true if the statement is read on the fast path
+     */
+    private boolean isReadOnlyQuery(JdbcStatement st) {
+        if (!readFastPath || st == null || !st.isSelectStatement()) return false;
+        if (st.getOriginalJdbcStatementString().toUpperCase().indexOf(" FOR UPDATE") != -1) return false;
+        return getTransactionManager().getTransaction() == null;
+    }
+
+    /**
+     * Returns the cached statement of a SQL processor. A named statement
+     * which has not been used yet is not looked up here.
+     */
+    private JdbcStatement lookupJdbcStatement(String processorType, String processorName) {
+        JdbcStatementProcessor dp = null;
+        if (DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR.equals(processorType)) {
+            dp = DBStore.getInstance().getDirectJdbcStatementProcessor(processorName);
+            if (dp == null) return SqlExpressUtil.getJdbcStatementDirect(processorName);
+        }
+        else if (DataProcessorTypes.NAMED_SQL_STATEMENT_PROCESSOR.equals(processorType)) {
+            dp = DBStore.getInstance().getJdbcStatementProcessor(processorName);
+        }
+        return (dp != null)?dp.getJdbcStatement():null;
+    }
+
+    /**
+     * Creates a connection which is not registered in a transaction. The
+     * connection is left in auto-commit mode, so that no commit is needed
+     * after a read. The read goes to a replica of the connection if it has
+     * any. If the current request pins connections, its connection is used.
+     * The caller must give the connection back by
+     * {@link #closeReadOnlyConnection(UserDatabaseConnection)}.
+     *
+     * @param connectionName  name of a connection, or null for the default
+     * @return UserDatabaseConnection object
+     */
+    private UserDatabaseConnection createReadOnlyConnection(String connectionName) {
+        connectionName = ReplicaRouter.routeRead(connectionName);
+        try {
+            UserDatabaseConnection pinned = RequestConnections.getConnection(connectionName);
+            if (pinned != null) return pinned;
+
+            UserDatabaseConnection udc = UserDatabaseConnectionFactory.getInstance().createUserDatabaseConnection(connectionName);
+            udc.getDatabaseConnectionContext().setAutoCommit(true);
+            return udc;
+        }
+        catch(RuntimeException ex) {
+            ReplicaRouter.release(connectionName);
+            throw ex;
+        }
+    }
+
+    private void closeReadOnlyConnection(UserDatabaseConnection udc) {
+        ReplicaRouter.release(udc.getConnectionName());
+        if (!RequestConnections.isActive()) DAOUtil.closeConnection(udc);
+    }
+
+    /**
+     * Checks if <tt>SELECT</tt> statements outside of transactions skip
+     * implicit transaction handling.
+     */
+    public static boolean isReadFastPath() {
+        return readFastPath;
+    }
+
+    /**
+     * Sets whether <tt>SELECT</tt> statements outside of transactions skip
+     * implicit transaction handling.
+     *
+     * @param enabled  true to read on the fast path
+     */
+    public static void setReadFastPath(boolean enabled) {
+        readFastPath = enabled;
+    }
+
     /**
      * Find or create a new connection
      *
@@ -673,14 +872,22 @@ public class SqlServiceImpl implements SqlService {
         if (inputs == null) inputs = new HashMap<String, Object>();
 
         OmniDTO returnTO = null;
+        boolean metrics = MetricsRegistry.isEnabled();
+        long start = (metrics)?System.nanoTime():0L;
+        boolean succeeded = false;
 
         try {
             DataProcessor dp = DataProcessorFactory.getInstance().getDataProcessor(udc, processorType, processorName);
             returnTO = dp.execute(udc, convertKeyCase(inputs), outputFilters);
+            if (!(dp instanceof JdbcStatementProcessor) ||
+                !((JdbcStatementProcessor)dp).getJdbcStatement().isSelectStatement()) {
+                ReplicaRouter.markWrite(udc.getConnectionName());
+            }
             if (returnTO != null) {
                 returnTO.setProcessorType(processorType);
                 returnTO.setProcessorName(processorName);
             }
+            succeeded = true;
         }
         catch(UnsupportedDataProcessorTypeException udptEx) {
             throw new BaseSQLException("Unsupported DataProcessor Type: " + processorType);
@@ -691,10 +898,25 @@ public class SqlServiceImpl implements SqlService {
         catch(UnsupportedStoredProcedureAPINameException udpnEx) {
             throw new BaseSQLException("Unsupported DataProcessor Name: " + processorName);
         }
+        finally {
+            if (metrics) recordMetrics(processorType, System.nanoTime() - start, succeeded);
+        }
 
         return returnTO;
     }
 
+    private void recordMetrics(String processorType, long durationNanos, boolean succeeded) {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.histogram("scooter_sql_duration_seconds", 
+            "Duration of SQL service executions.", 
+            "processor", processorType).recordNanos(durationNanos);
+        if (!succeeded) {
+            registry.counter("scooter_sql_errors_total", 
+                "SQL service executions which failed.", 
+                "processor", processorType).increment();
+        }
+    }
+
     private void cleanUpInputs(Map<String, Object> inputs) {
     	if (inputs == null) return;
     	//inputs.remove("__sitemesh__filterapplied");
@@ -74,6 +74,7 @@ public class DAOUtil
     {
         try {
             if (conn != null) {
+                transactionEnds.get()[0]++;
                 conn.commit();
             }
         }
@@ -86,6 +87,7 @@ public class DAOUtil
     {
         try {
             if (conn != null) {
+                transactionEnds.get()[0]++;
                 conn.rollback();
             }
         }
@@ -94,6 +96,16 @@ public class DAOUtil
         }
     }
 
+    /**
+     * Returns number of commits and rollbacks made by this class in the 
+     * current thread. A change of the number means that a transaction of 
+     * the current thread may have ended.
+     */
+    public static long getTransactionEnds()
+    {
+        return transactionEnds.get()[0];
+    }
+
     public static boolean updateFailed( int[] updateCounts ) 
     {        
         boolean bError = false;
@@ -119,5 +131,11 @@ public class DAOUtil
         return bError;
     }
 
+    private static final ThreadLocal<long[]> transactionEnds = new ThreadLocal<long[]>() {
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
     private static LogUtil log = LogUtil.getLogger(DAOUtil.class.getName());
 }
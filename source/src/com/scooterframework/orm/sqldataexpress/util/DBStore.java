@@ -7,10 +7,11 @@
  */
 package com.scooterframework.orm.sqldataexpress.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.common.util.LRUCache;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.object.Function;
 import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
@@ -21,7 +22,16 @@ import com.scooterframework.orm.sqldataexpress.processor.JdbcStatementProcessor;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
 
 /**
- * DBStore class serves as an in-memory cache for some frequently used objects.
+ * <p>DBStore class serves as an in-memory cache for some frequently used objects.</p>
+ * 
+ * <p>Named statements, stored procedures, functions, tables, primary keys and 
+ * adapters are kept permanently in concurrent maps, as their number is 
+ * bounded by the application and the database. Statements and processors 
+ * of direct SQL strings, including paginated variants, are kept in 
+ * size-bounded caches which evict the least recently used entries. Their 
+ * size is set by <tt>sql.direct.cache.size</tt> in database.properties, 
+ * and their eviction counts are reported with other 
+ * {@link com.scooterframework.common.util.LRUCache LRUCache} statistics.</p>
  * 
  * @author (Fei) John Chen
  */
@@ -140,6 +150,99 @@ public class DBStore {
         return jdbcStatementProcessors;
     }
     
+    /**
+     * Sets the maximum number of direct SQL statements and of their 
+     * processors which are cached. Cached entries are dropped.
+     * 
+     * @param size  maximum number of entries of each cache
+     */
+    public void setDirectSqlCacheSize(int size) {
+        directJdbcStatements = new LRUCache<String, JdbcStatement>("sql.direct.statements", size);
+        directJdbcStatementProcessors = new LRUCache<String, JdbcStatementProcessor>("sql.direct.processors", size);
+    }
+    
+    public LRUCache<String, JdbcStatement> getDirectJdbcStatements() {
+        return directJdbcStatements;
+    }
+    
+    /**
+     * Retrieves a stored statement of a direct SQL string.
+     * 
+     * @param sql  the SQL string
+     * @return instance of <tt>JdbcStatement</tt>
+     */
+    public JdbcStatement getDirectJdbcStatement(String sql) {
+        if (sql == null) return null;
+
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            return (JdbcStatement)CurrentThreadCache.get(getDirectJdbcStatementKey(sql));
+        }
+        
+        return directJdbcStatements.get(sql);
+    }
+    
+    /**
+     * Adds a statement of a direct SQL string. The least recently used 
+     * statement is evicted when the cache is full.
+     * 
+     * @param sql       the SQL string
+     * @param jdbcStmt  instance of <tt>JdbcStatement</tt>
+     */
+    public void addDirectJdbcStatement(String sql, JdbcStatement jdbcStmt) {
+        if (sql == null || jdbcStmt == null) 
+            throw new IllegalArgumentException("addDirectJdbcStatement: Neither sql nor jdbcStmt can be null: " + 
+                                               "sql is " + sql + "; " + 
+                                               "jdbcStmt is " + jdbcStmt + ".");
+
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            CurrentThreadCache.set(getDirectJdbcStatementKey(sql), jdbcStmt);
+            return;
+        }
+        
+        directJdbcStatements.put(sql, jdbcStmt);
+    }
+    
+    public LRUCache<String, JdbcStatementProcessor> getDirectJdbcStatementProcessors() {
+        return directJdbcStatementProcessors;
+    }
+    
+    /**
+     * Retrieves a stored processor of a direct SQL string.
+     * 
+     * @param sql  the SQL string
+     * @return instance of <tt>JdbcStatementProcessor</tt>
+     */
+    public JdbcStatementProcessor getDirectJdbcStatementProcessor(String sql) {
+        if (sql == null) return null;
+
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            return (JdbcStatementProcessor)CurrentThreadCache.get(getDirectJdbcProcessorKey(sql));
+        }
+        
+        return directJdbcStatementProcessors.get(sql);
+    }
+    
+    /**
+     * Adds a processor of a direct SQL string. The least recently used 
+     * processor is evicted when the cache is full.
+     * 
+     * @param sql            the SQL string
+     * @param jdbcProcessor  instance of <tt>JdbcStatementProcessor</tt>
+     */
+    public void addDirectJdbcStatementProcessor(String sql, JdbcStatementProcessor jdbcProcessor) {
+        if (sql == null || jdbcProcessor == null) 
+            throw new IllegalArgumentException("addDirectJdbcStatementProcessor: Neither sql nor jdbcProcessor can be null: " + 
+                                               "sql is " + sql + "; " + 
+                                               "jdbcProcessor is " + jdbcProcessor + ".");
+
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            CurrentThreadCache.set(getDirectJdbcProcessorKey(sql), jdbcProcessor);
+            return;
+        }
+        
+        directJdbcStatementProcessors.put(sql, jdbcProcessor);
+    }
+    
     public JdbcStatementProcessor getJdbcStatementProcessor(String name) {
         if (name == null) return null;
 
@@ -428,6 +531,29 @@ public class DBStore {
         adapterMap.put(dbaKey, dba);
     }
     
+    /**
+     * Shares table and primary key metadata of a connection with another
+     * connection which has the same schema, such as the shards of a model.
+     * Metadata of <tt>connName</tt> is then looked up and stored under
+     * <tt>schemaConnName</tt>.
+     * 
+     * @param connName        database connection name
+     * @param schemaConnName  database connection name whose metadata is used
+     */
+    public void shareMetadata(String connName, String schemaConnName) {
+        if (connName == null || schemaConnName == null) {
+            throw new IllegalArgumentException("shareMetadata: connection names cannot be null");
+        }
+        
+        if (connName.equals(schemaConnName)) return;
+        metadataConnections.put(connName, schemaConnName);
+    }
+    
+    private String getMetadataConnName(String connName) {
+        String schemaConnName = metadataConnections.get(connName);
+        return (schemaConnName != null)?schemaConnName:connName;
+    }
+
     private String getFullTableName(String connName, String catalog, String schema, String tableName) {
     	StringBuilder sb = new StringBuilder();
     	if (catalog != null) sb.append(catalog).append(".");
@@ -448,23 +574,41 @@ public class DBStore {
         return "jdbc:" + name;
     }
 
+    private String getDirectJdbcStatementKey(String sql) {
+        return "directjdbc.stmt:" + sql;
+    }
+
+    private String getDirectJdbcProcessorKey(String sql) {
+        return "directjdbc.proc:" + sql;
+    }
+
     private String getTableKey(String connName, String fullTableName) {
-        return "table:" + fullTableName.toUpperCase() + "@" + connName;
+        return "table:" + fullTableName.toUpperCase() + "@" + getMetadataConnName(connName);
     }
 
     private String getPKKey(String connName, String fullTableName) {
-        return "pk:" + fullTableName.toUpperCase() + "@" + connName;
+        return "pk:" + fullTableName.toUpperCase() + "@" + getMetadataConnName(connName);
     }
 
     private String getDbaKeyForCurrentThreadCache(String connName) {
         return "dba:" + connName;
     }
 
-    private Map<String, StoredProcedure> storedProcedures = new HashMap<String, StoredProcedure>();
-    private Map<String, Function> functions = new HashMap<String, Function>();
-    private Map<String, JdbcStatement> jdbcStatements = new HashMap<String, JdbcStatement>();
-    private Map<String, JdbcStatementProcessor> jdbcStatementProcessors = new HashMap<String, JdbcStatementProcessor>();
-    private Map<String, TableInfo> tables = new HashMap<String, TableInfo>();
-    private Map<String, PrimaryKey> pkMap = new HashMap<String, PrimaryKey>();
-    private Map<String, DBAdapter> adapterMap = new HashMap<String, DBAdapter>();
+    /**
+     * Default maximum number of cached direct SQL statements and processors.
+     */
+    public static final int DEFAULT_DIRECT_SQL_CACHE_SIZE = 1000;
+
+    private Map<String, StoredProcedure> storedProcedures = new ConcurrentHashMap<String, StoredProcedure>();
+    private Map<String, Function> functions = new ConcurrentHashMap<String, Function>();
+    private Map<String, JdbcStatement> jdbcStatements = new ConcurrentHashMap<String, JdbcStatement>();
+    private Map<String, JdbcStatementProcessor> jdbcStatementProcessors = new ConcurrentHashMap<String, JdbcStatementProcessor>();
+    private Map<String, TableInfo> tables = new ConcurrentHashMap<String, TableInfo>();
+    private Map<String, PrimaryKey> pkMap = new ConcurrentHashMap<String, PrimaryKey>();
+    private Map<String, DBAdapter> adapterMap = new ConcurrentHashMap<String, DBAdapter>();
+    private Map<String, String> metadataConnections = new ConcurrentHashMap<String, String>();
+    private volatile LRUCache<String, JdbcStatement> directJdbcStatements = 
+        new LRUCache<String, JdbcStatement>("sql.direct.statements", DEFAULT_DIRECT_SQL_CACHE_SIZE);
+    private volatile LRUCache<String, JdbcStatementProcessor> directJdbcStatementProcessors = 
+        new LRUCache<String, JdbcStatementProcessor>("sql.direct.processors", DEFAULT_DIRECT_SQL_CACHE_SIZE);
 }
@@ -0,0 +1,106 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * QueryPlan class holds the execution plan of a slow query captured by
+ * {@link QueryPlanAdvisor}, and the indexes which may be missing.
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryPlan {
+    private String fingerprint;
+    private String sql;
+    private String connectionName;
+    private String association;
+    private String plan;
+    private boolean fullScan;
+    private List<String> missingIndexes;
+    private long durationMillis;
+    private Date time;
+
+    QueryPlan(String fingerprint, String sql, String connectionName, String association,
+            String plan, boolean fullScan, List<String> missingIndexes, long durationMillis) {
+        this.fingerprint = fingerprint;
+        this.sql = sql;
+        this.connectionName = connectionName;
+        this.association = association;
+        this.plan = plan;
+        this.fullScan = fullScan;
+        this.missingIndexes = missingIndexes;
+        this.durationMillis = durationMillis;
+        this.time = new Date();
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the statement which was explained.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    /**
+     * Returns the association being loaded when the query was executed, or
+     * null if it is not known.
+     */
+    public String getAssociation() {
+        return association;
+    }
+
+    /**
+     * Returns the plan as text.
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * Checks if the plan scans a whole table.
+     */
+    public boolean isFullScan() {
+        return fullScan;
+    }
+
+    /**
+     * Returns columns in <tt>table.column</tt> format which are used in
+     * conditions of the query but are not the leading column of any index.
+     */
+    public List<String> getMissingIndexes() {
+        return missingIndexes;
+    }
+
+    /**
+     * Returns execution time of the query which was explained.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return fingerprint + " fullScan=" + fullScan + " missingIndexes=" + missingIndexes;
+    }
+}
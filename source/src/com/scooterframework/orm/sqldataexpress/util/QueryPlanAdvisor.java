@@ -0,0 +1,307 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
+
+/**
+ * <p>QueryPlanAdvisor class captures execution plans of slow queries and
+ * looks for missing indexes.</p>
+ *
+ * <p>The plan of a query is captured once for each fingerprint, the first
+ * time a query of the fingerprint is over the slow query threshold. See
+ * {@link SqlStatistics#setSlowQueryThresholdMillis(long)}. The plan is
+ * retrieved by {@link com.scooterframework.orm.sqldataexpress.vendor.DBAdapter#explain(Connection, String, List)}.</p>
+ *
+ * <p>When the plan scans a whole table, each column used in a
+ * <tt>where</tt> or <tt>on</tt> condition of the query is checked against
+ * the indexes of its table as returned by
+ * <tt>DatabaseMetaData.getIndexInfo</tt>. A column which is not the leading
+ * column of any index is reported. Queries of associations are covered
+ * because they select by the foreign key.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryPlanAdvisor {
+    private static final Pattern TABLE_PATTERN = Pattern.compile(
+        "\\b(?:from|join) ([a-z_][\\w$.]*)(?: (?:as )?([a-z_][\\w$]*))?");
+    private static final Pattern CONDITION_PATTERN = Pattern.compile(
+        "([a-z_][\\w$]*(?:\\.[a-z_][\\w$]*)?) ?(?:=|<>|!=|<=|>=|<|>| like | in | is | between )");
+    private static final Pattern CLAUSE_END_PATTERN = Pattern.compile(
+        "\\b(?:group by|order by|having|limit|offset|union|for update)\\b");
+    private static final Set<String> KEYWORDS = new HashSet<String>();
+    static {
+        String[] words = {"where", "on", "and", "or", "not", "join", "inner",
+            "left", "right", "outer", "cross", "full", "natural", "using",
+            "group", "order", "having", "limit", "offset", "union", "exists",
+            "select", "set", "values", "null", "case", "when", "then", "else"};
+        for (int i = 0; i < words.length; i++) KEYWORDS.add(words[i]);
+    }
+
+    private static final QueryPlanAdvisor me = new QueryPlanAdvisor();
+
+    private volatile boolean enabled = true;
+    private volatile int maxSize = 200;
+
+    private final ConcurrentMap<String, QueryPlan> plans = new ConcurrentHashMap<String, QueryPlan>();
+
+    private QueryPlanAdvisor() {
+    }
+
+    public static QueryPlanAdvisor getInstance() {
+        return me;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets maximum number of plans kept.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive.");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks if the plan of a fingerprint should be captured.
+     */
+    public boolean shouldExplain(String fingerprint) {
+        return enabled && fingerprint != null &&
+            !plans.containsKey(fingerprint) && plans.size() < maxSize;
+    }
+
+    /**
+     * Captures execution plan of a query, and looks for missing indexes if
+     * the plan scans a whole table.
+     *
+     * @param connection      the connection which executed the query
+     * @param dba             adapter of the database
+     * @param connectionName  name of the connection
+     * @param sql             the query
+     * @param parameters      parameter values of the query in order
+     * @param durationNanos   execution time of the query in nanoseconds
+     * @return the plan, or null if the plan cannot be retrieved
+     */
+    public QueryPlan explain(Connection connection, DBAdapter dba, String connectionName,
+            String sql, List<Object> parameters, long durationNanos) {
+        String fingerprint = SqlStatistics.getInstance().getFingerprint(sql);
+        if (fingerprint == null) return null;
+
+        QueryPlan queryPlan = null;
+        try {
+            String plan = dba.explain(connection, sql, parameters);
+            boolean fullScan = dba.isFullScan(plan);
+            List<String> missingIndexes = (fullScan)?
+                findMissingIndexes(connection, fingerprint):new ArrayList<String>();
+            queryPlan = new QueryPlan(fingerprint, sql, connectionName,
+                QueryTracker.currentAssociation(), plan, fullScan,
+                missingIndexes, durationNanos / 1000000L);
+        }
+        catch (Exception ex) {
+            log.warn("Failed to explain \"" + sql + "\": " + ex.getMessage());
+            return null;
+        }
+
+        if (plans.putIfAbsent(fingerprint, queryPlan) == null &&
+                queryPlan.getMissingIndexes().size() > 0) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Full scan in slow query \"").append(fingerprint).append("\"");
+            if (queryPlan.getAssociation() != null) {
+                sb.append(" of association ").append(queryPlan.getAssociation());
+            }
+            sb.append(". Consider indexes on ").append(queryPlan.getMissingIndexes()).append('.');
+            log.warn(sb.toString());
+        }
+        return queryPlan;
+    }
+
+    /**
+     * Returns all captured plans, newest first.
+     */
+    public List<QueryPlan> getPlans() {
+        List<QueryPlan> list = new ArrayList<QueryPlan>(plans.values());
+        Collections.sort(list, new Comparator<QueryPlan>() {
+            public int compare(QueryPlan p1, QueryPlan p2) {
+                return p2.getTime().compareTo(p1.getTime());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Returns plan of a fingerprint.
+     */
+    public QueryPlan getPlan(String fingerprint) {
+        return plans.get(fingerprint);
+    }
+
+    /**
+     * Removes all plans.
+     */
+    public void clear() {
+        plans.clear();
+    }
+
+    /**
+     * Returns columns in <tt>table.column</tt> format used in conditions of
+     * a query which are not the leading column of any index of their table.
+     *
+     * @param connection   the connection to use
+     * @param fingerprint  fingerprint of the query
+     * @return list of columns
+     * @throws SQLException
+     */
+    List<String> findMissingIndexes(Connection connection, String fingerprint)
+    throws SQLException {
+        List<String> missing = new ArrayList<String>();
+        Map<String, String> tables = getTables(fingerprint);
+        if (tables.size() == 0) return missing;
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, TableIndexes> indexes = new HashMap<String, TableIndexes>();
+        for (String column : getConditionColumns(fingerprint)) {
+            String columnName = column;
+            List<String> candidates = new ArrayList<String>();
+            int dot = column.lastIndexOf('.');
+            if (dot != -1) {
+                String table = tables.get(column.substring(0, dot));
+                if (table == null) continue;
+                candidates.add(table);
+                columnName = column.substring(dot + 1);
+            }
+            else {
+                candidates.addAll(new HashSet<String>(tables.values()));
+            }
+
+            for (String table : candidates) {
+                TableIndexes ti = indexes.get(table);
+                if (ti == null) {
+                    ti = loadIndexes(metaData, table);
+                    indexes.put(table, ti);
+                }
+                if (ti.columns.contains(columnName) && !ti.leadingColumns.contains(columnName)) {
+                    String item = table + "." + columnName;
+                    if (!missing.contains(item)) missing.add(item);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns tables of a query fingerprint, keyed by table name and alias.
+     */
+    static Map<String, String> getTables(String fingerprint) {
+        Map<String, String> tables = new LinkedHashMap<String, String>();
+        Matcher m = TABLE_PATTERN.matcher(fingerprint);
+        while (m.find()) {
+            String table = m.group(1);
+            String alias = m.group(2);
+            tables.put(table, table);
+            if (alias != null && !KEYWORDS.contains(alias)) tables.put(alias, table);
+        }
+        return tables;
+    }
+
+    /**
+     * Returns columns used in conditions of a query fingerprint.
+     */
+    static List<String> getConditionColumns(String fingerprint) {
+        List<String> columns = new ArrayList<String>();
+        int start = fingerprint.indexOf(" from ");
+        if (start == -1) return columns;
+
+        String s = fingerprint.substring(start);
+        Matcher end = CLAUSE_END_PATTERN.matcher(s);
+        if (end.find()) s = s.substring(0, end.start());
+
+        Matcher m = CONDITION_PATTERN.matcher(s);
+        while (m.find()) {
+            String column = m.group(1);
+            if (KEYWORDS.contains(column) || columns.contains(column)) continue;
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    private TableIndexes loadIndexes(DatabaseMetaData metaData, String table)
+    throws SQLException {
+        TableIndexes ti = new TableIndexes();
+        String schema = null;
+        String name = table;
+        int dot = table.lastIndexOf('.');
+        if (dot != -1) {
+            schema = table.substring(0, dot);
+            name = table.substring(dot + 1);
+        }
+
+        String[][] cases = {{schema, name},
+            {(schema == null)?null:schema.toUpperCase(), name.toUpperCase()},
+            {(schema == null)?null:schema.toLowerCase(), name.toLowerCase()}};
+        for (int i = 0; i < cases.length && ti.columns.size() == 0; i++) {
+            ResultSet rs = null;
+            try {
+                rs = metaData.getColumns(null, cases[i][0], cases[i][1], null);
+                while (rs.next()) {
+                    ti.columns.add(rs.getString("COLUMN_NAME").toLowerCase());
+                }
+            }
+            finally {
+                DAOUtil.closeResultSet(rs);
+            }
+
+            if (ti.columns.size() == 0) continue;
+
+            try {
+                rs = metaData.getIndexInfo(null, cases[i][0], cases[i][1], false, true);
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    if (column != null && rs.getInt("ORDINAL_POSITION") == 1) {
+                        ti.leadingColumns.add(column.toLowerCase());
+                    }
+                }
+            }
+            finally {
+                DAOUtil.closeResultSet(rs);
+            }
+        }
+        return ti;
+    }
+
+    private static class TableIndexes {
+        final Set<String> columns = new HashSet<String>();
+        final Set<String> leadingColumns = new HashSet<String>();
+    }
+
+    private static LogUtil log = LogUtil.getLogger(QueryPlanAdvisor.class.getName());
+}
@@ -0,0 +1,360 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
+
+/**
+ * <p>QueryTimeout class limits the time SQL statements may take.</p>
+ *
+ * <p>A statement has a query timeout in seconds, which is passed to the
+ * driver by <tt>Statement.setQueryTimeout</tt>. The timeout is either
+ * given for the statement, or the default timeout set by
+ * <tt>sql.query.timeout</tt> in <tt>database.properties</tt>.</p>
+ *
+ * <p>A request may also have a database time budget, which is the total
+ * time its statements may take. The budget is checked before each
+ * statement is executed. A request which has used up its budget fails
+ * with a {@link com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException}.
+ * While a statement runs, a watchdog thread cancels it by
+ * <tt>Statement.cancel()</tt> when it goes over the rest of the budget, so
+ * that a slow statement does not hold a connection and a request thread
+ * for long.</p>
+ *
+ * <pre>
+ * Usage:
+ *      QueryTimeout.Watch watch = QueryTimeout.start(stmt, timeout);
+ *      try {
+ *          rs = stmt.executeQuery();
+ *          ...
+ *      }
+ *      finally {
+ *          QueryTimeout.stop(watch);
+ *      }
+ * </pre>
+ *
+ * <p>Statements executed outside of a request, for example by
+ * AsyncSqlServiceClient, only have query timeouts, unless their task is
+ * given a {@link #branch()} of the budget of the request.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryTimeout {
+    /**
+     * Interval in milliseconds of the watchdog.
+     */
+    public static final long WATCHDOG_INTERVAL = 50L;
+
+    private static volatile int defaultTimeout = 0;
+    private static volatile int requestBudget = 0;
+
+    private static final ThreadLocal<QueryTimeout> current = new ThreadLocal<QueryTimeout>();
+    private static final Map<Watch, Boolean> running = new ConcurrentHashMap<Watch, Boolean>();
+    private static ScheduledExecutorService watchdog;
+
+    private final String request;
+    private final long budgetNanos;
+    private long usedNanos;
+
+    private QueryTimeout(String request, long budgetNanos) {
+        this.request = request;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Returns the default query timeout in seconds. Zero means no timeout.
+     */
+    public static int getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Sets the default query timeout in seconds. Zero or a negative value
+     * means no timeout.
+     */
+    public static void setDefaultTimeout(int seconds) {
+        defaultTimeout = (seconds < 0)?0:seconds;
+    }
+
+    /**
+     * Returns the database time budget of a request in milliseconds. Zero
+     * means no budget.
+     */
+    public static int getRequestBudget() {
+        return requestBudget;
+    }
+
+    /**
+     * Sets the database time budget of a request in milliseconds. Zero or
+     * a negative value means no budget.
+     */
+    public static void setRequestBudget(int millis) {
+        requestBudget = (millis < 0)?0:millis;
+    }
+
+    /**
+     * Starts the database time budget of a request in the current thread.
+     *
+     * @param request  description of the request
+     * @return the budget, or null if there is no budget
+     */
+    public static QueryTimeout begin(String request) {
+        int budget = requestBudget;
+        if (budget <= 0) return null;
+        QueryTimeout qt = new QueryTimeout(request, TimeUnit.MILLISECONDS.toNanos(budget));
+        current.set(qt);
+        return qt;
+    }
+
+    /**
+     * Ends the database time budget of the request in the current thread.
+     */
+    public static void end() {
+        current.remove();
+    }
+
+    /**
+     * Starts a budget in the current thread, which is usually a branch of
+     * the budget of a request run by another thread.
+     *
+     * @param budget  the budget, or null to remove the budget
+     * @see #branch()
+     */
+    public static void attach(QueryTimeout budget) {
+        if (budget == null) current.remove();
+        else current.set(budget);
+    }
+
+    /**
+     * Returns the budget of the current thread.
+     *
+     * @return the budget, or null if the current request has no budget
+     */
+    public static QueryTimeout current() {
+        return current.get();
+    }
+
+    /**
+     * Returns database time used by the request in milliseconds.
+     */
+    public long getUsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(usedNanos);
+    }
+
+    /**
+     * Returns database time left for the request in milliseconds.
+     */
+    public long getRemainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos - usedNanos);
+    }
+
+    /**
+     * Creates a budget of the database time left for the request, for a
+     * task which runs for the request in another thread. The task starts
+     * the budget by {@link #attach(QueryTimeout)}.
+     *
+     * @return a new budget
+     */
+    public QueryTimeout branch() {
+        return new QueryTimeout(request, budgetNanos - usedNanos);
+    }
+
+    /**
+     * Adds database time used by branches of the budget to the request.
+     * Branches run at the same time, so the time of the longest one is
+     * added.
+     *
+     * @param branches  branches returned by {@link #branch()}
+     */
+    public void merge(List<QueryTimeout> branches) {
+        long longest = 0L;
+        for (QueryTimeout branch : branches) {
+            if (branch.usedNanos > longest) longest = branch.usedNanos;
+        }
+        usedNanos += longest;
+    }
+
+    /**
+     * Prepares a statement to be executed. The query timeout of the
+     * statement is set, and the statement is watched if the current
+     * request has a budget.
+     *
+     * @param stmt     the statement
+     * @param timeout  query timeout in seconds, or 0 for no timeout
+     * @return a watch to be passed to {@link #stop(Watch)}, or null if the
+     *         statement has no limit
+     * @throws SQLException
+     * @throws QueryTimeoutException if the request has used up its budget
+     */
+    public static Watch start(Statement stmt, int timeout) throws SQLException {
+        QueryTimeout qt = current.get();
+        if (qt == null && timeout <= 0) return null;
+
+        long now = System.nanoTime();
+        long deadline = 0L;
+        if (qt != null) {
+            long remaining = qt.budgetNanos - qt.usedNanos;
+            if (remaining <= 0L) {
+                record("budget");
+                throw new QueryTimeoutException("Request " + qt.request +
+                        " has used up its database time budget of " +
+                        TimeUnit.NANOSECONDS.toMillis(qt.budgetNanos) + " ms.");
+            }
+            int seconds = (int)((remaining + 999999999L) / 1000000000L);
+            if (timeout <= 0 || seconds < timeout) timeout = seconds;
+            deadline = now + remaining;
+        }
+
+        stmt.setQueryTimeout(timeout);
+        Watch watch = new Watch(qt, stmt, timeout, now, deadline);
+        if (qt != null) {
+            running.put(watch, Boolean.TRUE);
+            startWatchdog();
+        }
+        return watch;
+    }
+
+    /**
+     * Ends the watch of a statement. Time taken by the statement is added
+     * to the database time of the request.
+     *
+     * @param watch  the watch returned by {@link #start(Statement, int)}
+     */
+    public static void stop(Watch watch) {
+        if (watch == null) return;
+        if (watch.budget != null) {
+            running.remove(watch);
+            watch.budget.usedNanos += System.nanoTime() - watch.start;
+        }
+    }
+
+    /**
+     * Checks if an exception of a statement is caused by its timeout or
+     * by the watchdog.
+     *
+     * @param ex     the exception
+     * @param watch  the watch of the statement, may be null
+     * @return true if the statement timed out
+     */
+    public static boolean isTimeout(SQLException ex, Watch watch) {
+        if (watch == null) return false;
+        if (watch.cancelled) return true;
+        if (ex instanceof SQLTimeoutException) return true;
+        String state = ex.getSQLState();
+        return "HYT00".equals(state) || "57014".equals(state);
+    }
+
+    /**
+     * Creates an exception for a statement which timed out.
+     *
+     * @param sql    the statement
+     * @param watch  the watch of the statement
+     * @param cause  the exception of the driver
+     * @return a QueryTimeoutException
+     */
+    public static QueryTimeoutException timeoutException(String sql, Watch watch, SQLException cause) {
+        String reason = (watch.cancelled)?"budget":"statement";
+        record(reason);
+        String message = (watch.cancelled)?
+            ("Statement is cancelled because request " + watch.budget.request +
+             " has used up its database time budget: " + sql):
+            ("Statement did not finish within " + watch.timeout + " seconds: " + sql);
+        return new QueryTimeoutException(message, cause);
+    }
+
+    /**
+     * Stops the watchdog thread. It is started again when needed.
+     */
+    public static synchronized void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    private static synchronized void startWatchdog() {
+        if (watchdog != null) return;
+        watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "scooter-sql-watchdog");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                cancelOverdue();
+            }
+        }, WATCHDOG_INTERVAL, WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancelOverdue() {
+        if (running.isEmpty()) return;
+        long now = System.nanoTime();
+        for (Watch watch : running.keySet()) {
+            if (now - watch.deadline < 0L) continue;
+            running.remove(watch);
+            watch.cancelled = true;
+            try {
+                watch.statement.cancel();
+            }
+            catch (Throwable ex) {
+                log.debug("Failed to cancel a statement: " + ex.getMessage());
+            }
+        }
+    }
+
+    private static void record(String reason) {
+        if (!MetricsRegistry.isEnabled()) return;
+        MetricsRegistry.getInstance().counter("scooter_db_query_timeouts_total",
+                "Statements which timed out or were refused by the database time budget of a request.",
+                "reason", reason).increment();
+    }
+
+    /**
+     * Watch holds a statement being executed.
+     */
+    public static class Watch {
+        private final QueryTimeout budget;
+        private final Statement statement;
+        private final int timeout;
+        private final long start;
+        private final long deadline;
+        private volatile boolean cancelled;
+
+        Watch(QueryTimeout budget, Statement statement, int timeout, long start, long deadline) {
+            this.budget = budget;
+            this.statement = statement;
+            this.timeout = timeout;
+            this.start = start;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Checks if the statement was cancelled by the watchdog.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(QueryTimeout.class.getName());
+}
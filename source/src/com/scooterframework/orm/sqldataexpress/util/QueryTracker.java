@@ -0,0 +1,321 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.CurrentThreadCacheClient;
+import com.scooterframework.orm.sqldataexpress.exception.QueryBudgetExceededException;
+
+/**
+ * <p>QueryTracker class counts SQL statements executed in a request.</p>
+ *
+ * <p>Statements are grouped by fingerprint and by the association being
+ * loaded when they are executed. When a group reaches the N+1 threshold,
+ * for example a lazily loaded association read for each row in a view,
+ * the request is reported as a possible N+1 query problem. The report
+ * names the association, the controller and action, and the first caller
+ * outside of the framework, which is usually the view or the action.</p>
+ *
+ * <p>A request may also have a query budget. When the number of statements
+ * goes over the budget, the request is either logged or failed with a
+ * {@link com.scooterframework.orm.sqldataexpress.exception.QueryBudgetExceededException}.</p>
+ *
+ * <p>Tracking is off when both the threshold and the budget are zero.
+ * Statements executed outside of a tracked request are not counted.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryTracker {
+    /**
+     * Maximum number of warnings kept for display.
+     */
+    public static final int MAX_WARNINGS = 100;
+
+    private static volatile int nPlusOneThreshold = 0;
+    private static volatile int queryBudget = 0;
+    private static volatile boolean failOverBudget = false;
+
+    private static final ThreadLocal<QueryTracker> current = new ThreadLocal<QueryTracker>();
+    private static final LinkedList<QueryWarning> warnings = new LinkedList<QueryWarning>();
+
+    private String request;
+    private String association;
+    private int total;
+    private boolean overBudget;
+    private final Map<String, Group> groups = new HashMap<String, Group>();
+
+    private QueryTracker(String request) {
+        this.request = request;
+    }
+
+    /**
+     * Returns the number of same-shaped statements in a request which are
+     * reported as a possible N+1 query problem. Zero means no detection.
+     */
+    public static int getNPlusOneThreshold() {
+        return nPlusOneThreshold;
+    }
+
+    /**
+     * Sets the number of same-shaped statements in a request which are
+     * reported as a possible N+1 query problem. Zero or a negative value
+     * turns off detection.
+     */
+    public static void setNPlusOneThreshold(int threshold) {
+        nPlusOneThreshold = (threshold < 0)?0:threshold;
+    }
+
+    /**
+     * Returns maximum number of statements of a request. Zero means no
+     * limit.
+     */
+    public static int getQueryBudget() {
+        return queryBudget;
+    }
+
+    /**
+     * Sets maximum number of statements of a request. Zero or a negative
+     * value means no limit.
+     */
+    public static void setQueryBudget(int budget) {
+        queryBudget = (budget < 0)?0:budget;
+    }
+
+    /**
+     * Checks if a request fails when it goes over the query budget.
+     */
+    public static boolean isFailOverBudget() {
+        return failOverBudget;
+    }
+
+    /**
+     * Sets whether a request fails when it goes over the query budget. If
+     * not, the request is only logged.
+     */
+    public static void setFailOverBudget(boolean fail) {
+        failOverBudget = fail;
+    }
+
+    /**
+     * Checks if requests are tracked.
+     */
+    public static boolean isEnabled() {
+        return nPlusOneThreshold > 0 || queryBudget > 0;
+    }
+
+    /**
+     * Starts tracking of a request in the current thread.
+     *
+     * @param request  description of the request
+     * @return the tracker, or null if tracking is off
+     */
+    public static QueryTracker begin(String request) {
+        if (!isEnabled()) return null;
+        QueryTracker tracker = new QueryTracker(request);
+        current.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * Ends tracking of the request in the current thread, and reports
+     * possible N+1 query problems.
+     */
+    public static void end() {
+        QueryTracker tracker = current.get();
+        if (tracker == null) return;
+        current.remove();
+        tracker.report();
+    }
+
+    /**
+     * Returns the tracker of the current thread.
+     *
+     * @return the tracker, or null if the current request is not tracked
+     */
+    public static QueryTracker current() {
+        return current.get();
+    }
+
+    /**
+     * Marks the start of loading an association in the current thread.
+     * Statements executed until {@link #exitAssociation(String)} are
+     * attributed to the association.
+     *
+     * @param label  the association, for example <tt>Post.comments</tt>
+     * @return the association being loaded before, to be passed to
+     *         {@link #exitAssociation(String)}
+     */
+    public static String enterAssociation(String label) {
+        QueryTracker tracker = current.get();
+        if (tracker == null) return null;
+        String previous = tracker.association;
+        tracker.association = label;
+        return previous;
+    }
+
+    /**
+     * Marks the end of loading an association in the current thread.
+     *
+     * @param previous  the value returned by {@link #enterAssociation(String)}
+     */
+    public static void exitAssociation(String previous) {
+        QueryTracker tracker = current.get();
+        if (tracker != null) tracker.association = previous;
+    }
+
+    /**
+     * Returns the association being loaded in the current thread.
+     *
+     * @return the association, or null if no association is being loaded
+     */
+    public static String currentAssociation() {
+        QueryTracker tracker = current.get();
+        return (tracker != null)?tracker.association:null;
+    }
+
+    /**
+     * Counts a statement in the current request. This method is called
+     * before a statement is executed.
+     *
+     * @param sql  the statement
+     * @throws QueryBudgetExceededException if the request goes over the
+     *         query budget and is set to fail
+     */
+    public static void record(String sql) {
+        QueryTracker tracker = current.get();
+        if (tracker != null) tracker.count(sql);
+    }
+
+    /**
+     * Returns recent warnings, newest first.
+     */
+    public static List<QueryWarning> getWarnings() {
+        synchronized(warnings) {
+            return new ArrayList<QueryWarning>(warnings);
+        }
+    }
+
+    /**
+     * Removes all warnings.
+     */
+    public static void clearWarnings() {
+        synchronized(warnings) {
+            warnings.clear();
+        }
+    }
+
+    /**
+     * Returns number of statements counted so far.
+     */
+    public int getQueryCount() {
+        return total;
+    }
+
+    private void count(String sql) {
+        total++;
+
+        int threshold = nPlusOneThreshold;
+        if (threshold > 0) {
+            String fingerprint = SqlStatistics.getInstance().getFingerprint(sql);
+            String key = (association != null)?(association + '|' + fingerprint):fingerprint;
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(fingerprint, association);
+                groups.put(key, group);
+            }
+            group.count++;
+            if (group.count == threshold) group.callSite = findCallSite();
+        }
+
+        int budget = queryBudget;
+        if (budget > 0 && total > budget && !overBudget) {
+            overBudget = true;
+            String message = "Request " + describe() + " executed more than " +
+                budget + " SQL statements.";
+            addWarning(new QueryWarning(QueryWarning.TYPE_BUDGET, request, controllerAction(),
+                null, null, findCallSite(), total));
+            if (failOverBudget) throw new QueryBudgetExceededException(message);
+            log.warn(message);
+        }
+    }
+
+    private void report() {
+        int threshold = nPlusOneThreshold;
+        if (threshold <= 0) return;
+
+        for (Group group : groups.values()) {
+            if (group.count < threshold) continue;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("Possible N+1 query in ").append(describe()).append(": ");
+            sb.append(group.count).append(" executions of \"").append(group.fingerprint).append("\"");
+            if (group.association != null) sb.append(" while loading ").append(group.association);
+            if (group.callSite != null) sb.append(" at ").append(group.callSite);
+            log.warn(sb.toString());
+
+            addWarning(new QueryWarning(QueryWarning.TYPE_N_PLUS_ONE, request, controllerAction(),
+                group.association, group.fingerprint, group.callSite, group.count));
+        }
+    }
+
+    private String describe() {
+        String ca = controllerAction();
+        if (ca == null) return request;
+        return request + " (" + ca + ")";
+    }
+
+    private static String controllerAction() {
+        String controller = CurrentThreadCacheClient.controller();
+        if (controller == null) return null;
+        return controller + "#" + CurrentThreadCacheClient.action();
+    }
+
+    private static void addWarning(QueryWarning warning) {
+        synchronized(warnings) {
+            warnings.addFirst(warning);
+            if (warnings.size() > MAX_WARNINGS) warnings.removeLast();
+        }
+    }
+
+    /**
+     * Returns the first stack frame outside of the framework and the JDK.
+     * For a view, this is a frame of the compiled JSP page.
+     */
+    private static String findCallSite() {
+        StackTraceElement[] frames = new Throwable().getStackTrace();
+        for (int i = 0; i < frames.length; i++) {
+            String className = frames[i].getClassName();
+            if (className.startsWith("com.scooterframework.") ||
+                className.startsWith("java.") ||
+                className.startsWith("javax.") ||
+                className.startsWith("sun.")) continue;
+            return frames[i].toString();
+        }
+        return null;
+    }
+
+    private static class Group {
+        final String fingerprint;
+        final String association;
+        int count;
+        String callSite;
+
+        Group(String fingerprint, String association) {
+            this.fingerprint = fingerprint;
+            this.association = association;
+        }
+    }
+
+    private static LogUtil log = LogUtil.getLogger(QueryTracker.class.getName());
+}
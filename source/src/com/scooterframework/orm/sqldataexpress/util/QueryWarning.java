@@ -0,0 +1,103 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.Date;
+
+/**
+ * QueryWarning class holds a problem found by {@link QueryTracker} in a
+ * request.
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryWarning {
+    public static final String TYPE_N_PLUS_ONE = "n+1";
+    public static final String TYPE_BUDGET = "budget";
+
+    private String type;
+    private String request;
+    private String controllerAction;
+    private String association;
+    private String fingerprint;
+    private String callSite;
+    private int count;
+    private Date time;
+
+    QueryWarning(String type, String request, String controllerAction,
+            String association, String fingerprint, String callSite, int count) {
+        this.type = type;
+        this.request = request;
+        this.controllerAction = controllerAction;
+        this.association = association;
+        this.fingerprint = fingerprint;
+        this.callSite = callSite;
+        this.count = count;
+        this.time = new Date();
+    }
+
+    /**
+     * Returns type of the warning, either {@link #TYPE_N_PLUS_ONE} or
+     * {@link #TYPE_BUDGET}.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns controller and action of the request in <tt>controller#action</tt>
+     * format, or null if the request was not handled by an action.
+     */
+    public String getControllerAction() {
+        return controllerAction;
+    }
+
+    /**
+     * Returns the association being loaded, for example <tt>Post.comments</tt>.
+     */
+    public String getAssociation() {
+        return association;
+    }
+
+    /**
+     * Returns fingerprint of the repeated statement. Null for a budget
+     * warning.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the first caller outside of the framework.
+     */
+    public String getCallSite() {
+        return callSite;
+    }
+
+    /**
+     * Returns number of statements counted.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return type + " " + request + " " + count + " " + fingerprint;
+    }
+}
@@ -684,7 +684,9 @@ public class SqlExpressUtil {
         if (jdbcStatementString == null || "".equals(jdbcStatementString.trim())) 
             throw new LookupFailureException("There is no sql statement for " + name + ".");
         
-        return new JdbcStatement(name, jdbcStatementString);
+        JdbcStatement st = new JdbcStatement(name, jdbcStatementString);
+        st.setQueryTimeout(SqlConfig.getInstance().getQueryTimeout(name));
+        return st;
     }
     
     // find the jdbc statement from cache
@@ -695,6 +697,22 @@ public class SqlExpressUtil {
         return new JdbcStatement(jdbcStatementString, jdbcStatementString);
     }
     
+    /**
+     * Returns the cached JDBC statement of a SQL string. A new statement is 
+     * created and cached if there is none.
+     * 
+     * @param jdbcStatementString  a SQL statement string
+     * @return a JdbcStatement instance
+     */
+    public static JdbcStatement getJdbcStatementDirect(String jdbcStatementString) {
+        JdbcStatement st = DBStore.getInstance().getDirectJdbcStatement(jdbcStatementString);
+        if (st == null) {
+            st = createJdbcStatementDirect(jdbcStatementString);
+            DBStore.getInstance().addDirectJdbcStatement(jdbcStatementString, st);
+        }
+        return st;
+    }
+    
     /**
      * Looks up <tt>{@link com.scooterframework.orm.sqldataexpress.object.TableInfo TableInfo}</tt>.
      * The input <tt>tableName</tt> can represent either a table name or 
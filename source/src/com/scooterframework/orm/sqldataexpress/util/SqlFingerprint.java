@@ -0,0 +1,171 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>SqlFingerprint class normalizes a SQL statement into a fingerprint, so
+ * that statements which differ only in literal values are counted
+ * together.</p>
+ *
+ * <p>A fingerprint is created by these rules:</p>
+ * <ul>
+ * <li>string and numeric literals are replaced by <tt>?</tt>,</li>
+ * <li>comments are removed,</li>
+ * <li>white spaces are collapsed and words are lower cased,</li>
+ * <li>an <tt>IN</tt> list of values is collapsed into <tt>in (...)</tt>,</li>
+ * <li>multiple rows of an insert <tt>VALUES</tt> clause are collapsed into 
+ *     the first row.</li>
+ * </ul>
+ *
+ * <p>For example, both <tt>SELECT * FROM users WHERE id IN (1, 2, 3)</tt>
+ * and <tt>select * from USERS where id in (?,?)</tt> have fingerprint
+ * <tt>select * from users where id in (...)</tt>.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class SqlFingerprint {
+    private static final Pattern IN_LIST = Pattern.compile("\\bin ?\\(\\?(, \\?)*\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(\\(\\?(?:, \\?)*\\))(?:, \\(\\?(?:, \\?)*\\))+");
+
+    /**
+     * Returns fingerprint of a SQL statement.
+     *
+     * @param sql  a SQL statement
+     * @return the fingerprint, or null if sql is null
+     */
+    public static String fingerprint(String sql) {
+        if (sql == null) return null;
+
+        int n = sql.length();
+        StringBuilder sb = new StringBuilder(n);
+        boolean space = false;
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            char next = (i + 1 < n)?sql.charAt(i + 1):'\0';
+
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+            }
+            else if (c == '-' && next == '-') {
+                while (i < n && sql.charAt(i) != '\n') i++;
+                space = true;
+            }
+            else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = (end == -1)?n:end + 2;
+                space = true;
+            }
+            else if (c == '\'') {
+                i = skipString(sql, i);
+                space = append(sb, "?", space);
+            }
+            else if (c == '"' || c == '`' || c == '[') {
+                char close = (c == '[')?']':c;
+                int end = sql.indexOf(close, i + 1);
+                end = (end == -1)?n:end + 1;
+                space = append(sb, sql.substring(i, end), space);
+                i = end;
+            }
+            else if (Character.isDigit(c) || (c == '.' && Character.isDigit(next))) {
+                i = skipNumber(sql, i);
+                space = append(sb, "?", space);
+            }
+            else if (isWordChar(c)) {
+                int start = i;
+                while (i < n && isWordChar(sql.charAt(i))) i++;
+                space = append(sb, sql.substring(start, i).toLowerCase(), space);
+            }
+            else {
+                space = append(sb, String.valueOf(c), space);
+                i++;
+            }
+        }
+
+        String s = sb.toString();
+        if (s.indexOf('?') == -1) return s;
+        s = IN_LIST.matcher(s).replaceAll("in (...)");
+        Matcher m = VALUES_ROWS.matcher(s);
+        if (m.find()) s = m.replaceAll("$1");
+        return s;
+    }
+
+    private static boolean append(StringBuilder sb, String token, boolean space) {
+        int length = sb.length();
+        if (length > 0) {
+            char last = sb.charAt(length - 1);
+            char first = token.charAt(0);
+            if (first == ',' || first == ')') {
+                //no space before
+            }
+            else if (last == ',') {
+                sb.append(' ');
+            }
+            else if (space && last != '(') {
+                sb.append(' ');
+            }
+        }
+        sb.append(token);
+        return false;
+    }
+
+    private static int skipString(String sql, int i) {
+        int n = sql.length();
+        i++;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            }
+            else if (c == '\'') {
+                if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                }
+                else {
+                    return i + 1;
+                }
+            }
+            else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private static int skipNumber(String sql, int i) {
+        int n = sql.length();
+        if (sql.charAt(i) == '0' && i + 1 < n && 
+            (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < n && Character.digit(sql.charAt(i), 16) != -1) i++;
+            return i;
+        }
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isDigit(c) || c == '.') {
+                i++;
+            }
+            else if ((c == 'e' || c == 'E') && i + 1 < n && 
+                     (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '-' || sql.charAt(i + 1) == '+')) {
+                i += 2;
+            }
+            else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '@' || c == '#';
+    }
+}
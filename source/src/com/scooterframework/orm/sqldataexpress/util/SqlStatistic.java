@@ -0,0 +1,135 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scooterframework.common.monitor.Histogram;
+
+/**
+ * SqlStatistic class holds execution statistics of SQL statements which
+ * share a fingerprint.
+ *
+ * @author (Fei) John Chen
+ */
+public class SqlStatistic {
+    private final String fingerprint;
+    private final String sampleSql;
+    private final Histogram histogram = new Histogram();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    SqlStatistic(String fingerprint, String sampleSql) {
+        this.fingerprint = fingerprint;
+        this.sampleSql = sampleSql;
+    }
+
+    void record(long durationNanos, int rowCount, boolean failed) {
+        long micros = durationNanos / 1000L;
+        histogram.recordMicros(micros);
+
+        long m = min.get();
+        while (micros < m && !min.compareAndSet(m, micros)) {
+            m = min.get();
+        }
+
+        if (rowCount > 0) rows.addAndGet(rowCount);
+        if (failed) errors.incrementAndGet();
+    }
+
+    /**
+     * Returns the fingerprint.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the first SQL statement recorded for the fingerprint.
+     */
+    public String getSampleSql() {
+        return sampleSql;
+    }
+
+    /**
+     * Returns number of executions.
+     */
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * Returns number of failed executions.
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Returns total number of rows returned or updated.
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * Returns average number of rows per execution.
+     */
+    public double getMeanRows() {
+        long count = getCount();
+        return (count == 0L)?0.0:((double)rows.get() / count);
+    }
+
+    /**
+     * Returns total execution time in milliseconds.
+     */
+    public double getTotalMillis() {
+        return histogram.getSumMicros() / 1000.0;
+    }
+
+    /**
+     * Returns shortest execution time in milliseconds.
+     */
+    public double getMinMillis() {
+        long m = min.get();
+        return (m == Long.MAX_VALUE)?0.0:(m / 1000.0);
+    }
+
+    /**
+     * Returns longest execution time in milliseconds.
+     */
+    public double getMaxMillis() {
+        return histogram.getMaxMicros() / 1000.0;
+    }
+
+    /**
+     * Returns average execution time in milliseconds.
+     */
+    public double getMeanMillis() {
+        return histogram.getMeanMicros() / 1000.0;
+    }
+
+    /**
+     * Returns execution time in milliseconds of a percentile.
+     *
+     * @param percentile  a value between 0 and 100
+     */
+    public double getPercentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Returns a string representation of the object.
+     * @return String
+     */
+    public String toString() {
+        return fingerprint + ": count=" + getCount() + ", total=" + getTotalMillis() +
+            "ms, mean=" + getMeanMillis() + "ms, max=" + getMaxMillis() + "ms, rows=" + getRows();
+    }
+}
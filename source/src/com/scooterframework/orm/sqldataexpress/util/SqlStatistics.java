@@ -0,0 +1,204 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.CurrentThreadCacheClient;
+import com.scooterframework.common.util.LRUCache;
+
+/**
+ * <p>SqlStatistics class aggregates execution statistics of SQL statements
+ * by fingerprint. See {@link SqlFingerprint} for how a fingerprint is
+ * created.</p>
+ *
+ * <p>The number of fingerprints is limited. When the limit is reached,
+ * statements of new fingerprints are counted under {@link #OTHER}.</p>
+ *
+ * <p>A statement which takes longer than the slow query threshold is logged
+ * with its parameters and the controller and action which executed it.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class SqlStatistics {
+    /**
+     * Fingerprint of statements which are not tracked individually.
+     */
+    public static final String OTHER = "(other)";
+
+    public static final String ORDER_BY_TOTAL = "total";
+    public static final String ORDER_BY_COUNT = "count";
+    public static final String ORDER_BY_MEAN = "mean";
+    public static final String ORDER_BY_MAX = "max";
+    public static final String ORDER_BY_P99 = "p99";
+    public static final String ORDER_BY_ROWS = "rows";
+
+    private static final SqlStatistics me = new SqlStatistics();
+
+    private volatile boolean enabled = true;
+    private volatile int maxSize = 500;
+    private volatile long slowQueryThresholdNanos = 0L;
+
+    private final ConcurrentMap<String, SqlStatistic> statistics = new ConcurrentHashMap<String, SqlStatistic>();
+    private final LRUCache<String, String> fingerprints = new LRUCache<String, String>("sql.fingerprints", 1000);
+
+    private SqlStatistics() {
+    }
+
+    public static SqlStatistics getInstance() {
+        return me;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets maximum number of fingerprints tracked.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive.");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the slow query threshold in milliseconds. Zero means slow
+     * queries are not logged.
+     */
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdNanos / 1000000L;
+    }
+
+    /**
+     * Sets the slow query threshold in milliseconds. Zero or a negative
+     * value turns off slow query logging.
+     */
+    public void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdNanos = (millis <= 0L)?0L:(millis * 1000000L);
+    }
+
+    /**
+     * Returns fingerprint of a SQL statement. Fingerprints of recently
+     * executed statements are cached.
+     */
+    public String getFingerprint(String sql) {
+        if (sql == null) return null;
+        String fp = fingerprints.get(sql);
+        if (fp == null) {
+            fp = SqlFingerprint.fingerprint(sql);
+            fingerprints.put(sql, fp);
+        }
+        return fp;
+    }
+
+    /**
+     * Records an execution of a SQL statement.
+     *
+     * @param sql            the executed statement
+     * @param durationNanos  execution time in nanoseconds
+     * @param rowCount       number of rows returned or updated
+     * @param failed         true if the execution failed
+     * @return the statistic which recorded the execution
+     */
+    public SqlStatistic record(String sql, long durationNanos, int rowCount, boolean failed) {
+        String fp = getFingerprint(sql);
+        if (fp == null) return null;
+
+        SqlStatistic stat = statistics.get(fp);
+        if (stat == null) {
+            if (statistics.size() >= maxSize) fp = OTHER;
+            SqlStatistic s = new SqlStatistic(fp, (OTHER.equals(fp))?"":sql);
+            stat = statistics.putIfAbsent(fp, s);
+            if (stat == null) stat = s;
+        }
+        stat.record(durationNanos, rowCount, failed);
+        return stat;
+    }
+
+    /**
+     * Checks if an execution time is over the slow query threshold.
+     */
+    public boolean isSlow(long durationNanos) {
+        long threshold = slowQueryThresholdNanos;
+        return threshold > 0L && durationNanos >= threshold;
+    }
+
+    /**
+     * Logs a slow query.
+     *
+     * @param sql            the executed statement
+     * @param parameters     bound parameter values
+     * @param durationNanos  execution time in nanoseconds
+     * @param rowCount       number of rows returned or updated
+     */
+    public void logSlowQuery(String sql, Object parameters, long durationNanos, int rowCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Slow SQL (").append(durationNanos / 1000000L).append(" ms, ");
+        sb.append(rowCount).append(" rows)");
+        String controller = CurrentThreadCacheClient.controller();
+        if (controller != null) {
+            sb.append(" from ").append(controller).append('#').append(CurrentThreadCacheClient.action());
+        }
+        sb.append(": ").append(sql);
+        if (parameters != null) sb.append(" with parameters ").append(parameters);
+        log.warn(sb.toString());
+    }
+
+    /**
+     * Returns statistics of all fingerprints, sorted.
+     *
+     * @param orderBy  one of the <tt>ORDER_BY</tt> constants
+     * @param limit    maximum number of items returned, or all if not positive
+     * @return list of statistics
+     */
+    public List<SqlStatistic> getTopStatistics(final String orderBy, int limit) {
+        List<SqlStatistic> list = new ArrayList<SqlStatistic>(statistics.values());
+        Collections.sort(list, new Comparator<SqlStatistic>() {
+            public int compare(SqlStatistic s1, SqlStatistic s2) {
+                return Double.compare(valueOf(s2, orderBy), valueOf(s1, orderBy));
+            }
+        });
+        if (limit > 0 && list.size() > limit) list = new ArrayList<SqlStatistic>(list.subList(0, limit));
+        return list;
+    }
+
+    /**
+     * Returns statistic of a fingerprint.
+     */
+    public SqlStatistic getStatistic(String fingerprint) {
+        return statistics.get(fingerprint);
+    }
+
+    /**
+     * Removes all statistics.
+     */
+    public void clear() {
+        statistics.clear();
+    }
+
+    private static double valueOf(SqlStatistic s, String orderBy) {
+        if (ORDER_BY_COUNT.equals(orderBy)) return s.getCount();
+        if (ORDER_BY_MEAN.equals(orderBy)) return s.getMeanMillis();
+        if (ORDER_BY_MAX.equals(orderBy)) return s.getMaxMillis();
+        if (ORDER_BY_P99.equals(orderBy)) return s.getPercentileMillis(99);
+        if (ORDER_BY_ROWS.equals(orderBy)) return s.getRows();
+        return s.getTotalMillis();
+    }
+
+    private static LogUtil log = LogUtil.getLogger(SqlStatistics.class.getName());
+}
@@ -14,6 +14,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.connection.DatabaseConnectionContext;
+import com.scooterframework.orm.sqldataexpress.connection.RequestConnections;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnectionFactory;
 import com.scooterframework.orm.sqldataexpress.exception.TransactionException;
@@ -50,9 +51,11 @@ abstract public class AbstractTransactionImpl implements Transaction {
         bTransactionHasEnded = true;
         
         try {
+            boolean ended = bTransactionHasCommitted || bTransactionHasRollbacked;
             Iterator<UserDatabaseConnection> it = connList.iterator();
             while(it.hasNext()) {
                 UserDatabaseConnection udc = it.next();
+                if (RequestConnections.giveBack(udc, !ended)) continue;
                 DAOUtil.closeConnection(udc.getConnection());
             }
             connList.clear();
@@ -136,9 +139,14 @@ abstract public class AbstractTransactionImpl implements Transaction {
     public UserDatabaseConnection getConnection(String connectionName) {
         UserDatabaseConnection udc = getCachedUserDatabaseConnection(connectionName);
         
-        //create a new UserDatabaseConnection
+        //create a new UserDatabaseConnection or use the one of the request
         if (udc == null) {
-            udc = UserDatabaseConnectionFactory.getInstance().createUserDatabaseConnection(connectionName);
+            if (Transaction.JDBC_TRANSACTION_TYPE.equals(transactionType)) {
+                udc = RequestConnections.borrowForTransaction(connectionName);
+            }
+            if (udc == null) {
+                udc = UserDatabaseConnectionFactory.getInstance().createUserDatabaseConnection(connectionName);
+            }
             registerResource(udc.getConnectionName(), udc);
         }
         
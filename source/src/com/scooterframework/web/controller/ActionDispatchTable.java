@@ -0,0 +1,108 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.controller;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scooterframework.admin.ActionControlFilter;
+import com.scooterframework.admin.FilterManager;
+import com.scooterframework.admin.FilterManagerFactory;
+
+/**
+ * <p>ActionDispatchTable class maps action names of a controller class to
+ * {@link ActionInvoker} instances.</p>
+ *
+ * <p>All public methods of the controller class that take no arguments are
+ * indexed when the table is created. Action names are case insensitive. The
+ * invoker of an action, together with its ordered before and after filters,
+ * is resolved the first time the action is requested and is reused
+ * afterwards.</p>
+ *
+ * <p>Tables are managed by {@link ControllerFactory}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ActionDispatchTable {
+    private final Class<?> controllerClass;
+    private final FilterManager filterManager;
+    private final int filterModificationCount;
+    private final Map<String, Method> actionMethods = new HashMap<String, Method>();
+    private final ConcurrentMap<String, ActionInvoker> invokers = new ConcurrentHashMap<String, ActionInvoker>();
+
+    ActionDispatchTable(Class<?> controllerClass) {
+        if (controllerClass == null)
+            throw new IllegalArgumentException("controllerClass cannot be null for ActionDispatchTable().");
+
+        this.controllerClass = controllerClass;
+        this.filterManager = FilterManagerFactory.getInstance().getFilterManager(controllerClass);
+        this.filterModificationCount = filterManager.getModificationCount();
+
+        //same order of lookup as BeanUtil.getMethod()
+        Method[] methods = controllerClass.getMethods();
+        for (Method m : methods) {
+            if (m.getParameterTypes().length != 0 ||
+                Object.class.equals(m.getDeclaringClass())) continue;
+
+            String key = m.getName().toLowerCase();
+            if (!actionMethods.containsKey(key)) actionMethods.put(key, m);
+        }
+    }
+
+    /**
+     * Returns the controller class.
+     */
+    public Class<?> getControllerClass() {
+        return controllerClass;
+    }
+
+    /**
+     * Returns the invoker of an action, or null if the controller class has
+     * no such action.
+     *
+     * @param action  action name
+     * @return an ActionInvoker instance
+     */
+    public ActionInvoker getActionInvoker(String action) {
+        if (action == null) return null;
+
+        String key = action.toLowerCase();
+        ActionInvoker invoker = invokers.get(key);
+        if (invoker == null) {
+            Method method = actionMethods.get(key);
+            if (method == null) return null;
+
+            invoker = createInvoker(method);
+            ActionInvoker existing = invokers.putIfAbsent(key, invoker);
+            if (existing != null) invoker = existing;
+        }
+        return invoker;
+    }
+
+    /**
+     * Checks if filters of the controller class have been changed since the
+     * table was created.
+     */
+    public boolean isStale() {
+        return filterModificationCount != filterManager.getModificationCount();
+    }
+
+    private ActionInvoker createInvoker(Method method) {
+        List<ActionControlFilter> beforeFilters = null;
+        List<ActionControlFilter> afterFilters = null;
+        if (!filterManager.noFilterDeclared()) {
+            beforeFilters = filterManager.getActionBeforeFiltersMap().get(method.getName());
+            afterFilters = filterManager.getActionAfterFiltersMap().get(method.getName());
+        }
+        return new ActionInvoker(method, beforeFilters, afterFilters);
+    }
+}
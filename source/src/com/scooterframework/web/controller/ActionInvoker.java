@@ -0,0 +1,188 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.controller;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.scooterframework.admin.ActionControlFilter;
+import com.scooterframework.admin.AutoLoadedObjectFactory;
+import com.scooterframework.common.exception.ExecutionException;
+import com.scooterframework.common.monitor.RequestTiming;
+import com.scooterframework.common.util.BeanUtil;
+
+/**
+ * <p>ActionInvoker class executes an action method of a controller together
+ * with its before and after filters.</p>
+ *
+ * <p>The action method and the filter methods are resolved when the invoker
+ * is created. Executing a request does not look up any method or filter.
+ * Instances are created by {@link ActionDispatchTable}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ActionInvoker {
+    private final Method actionMethod;
+    private final FilterInvoker[] beforeFilters;
+    private final FilterInvoker[] afterFilters;
+
+    ActionInvoker(Method actionMethod, List<ActionControlFilter> beforeFilters, List<ActionControlFilter> afterFilters) {
+        this.actionMethod = actionMethod;
+        this.beforeFilters = toInvokers(beforeFilters);
+        this.afterFilters = toInvokers(afterFilters);
+        makeAccessible(actionMethod);
+    }
+
+    /**
+     * Returns the action method.
+     */
+    public Method getActionMethod() {
+        return actionMethod;
+    }
+
+    /**
+     * Returns the name of the action method.
+     */
+    public String getActionName() {
+        return actionMethod.getName();
+    }
+
+    /**
+     * Returns number of before filters of the action.
+     */
+    public int countBeforeFilters() {
+        return beforeFilters.length;
+    }
+
+    /**
+     * Returns number of after filters of the action.
+     */
+    public int countAfterFilters() {
+        return afterFilters.length;
+    }
+
+    /**
+     * <p>Executes before filters, the action and after filters.</p>
+     *
+     * <p>The action is not executed if a before filter returns a not-null
+     * result, and the result of that filter is returned. A not-null result
+     * of an after filter replaces the result of the action.</p>
+     *
+     * @param controller the controller instance
+     * @return execution result
+     * @throws Exception if the action or a filter fails
+     */
+    public String invoke(Object controller) throws Exception {
+        String result = executeFilters(beforeFilters);
+        if (result != null) return result;
+
+        long timing = RequestTiming.start(RequestTiming.ACTION);
+        try {
+            result = (String)actionMethod.invoke(controller, (Object[])null);
+        }
+        finally {
+            RequestTiming.stop(RequestTiming.ACTION, timing);
+        }
+
+        String afResult = executeFilters(afterFilters);
+        if (afResult != null) {
+            result = afResult;
+        }
+        return result;
+    }
+
+    private static String executeFilters(FilterInvoker[] filters) {
+        int length = filters.length;
+        if (length == 0) return null;
+
+        String ret = null;
+        long timing = RequestTiming.start(RequestTiming.FILTER);
+        try {
+            for (int i = 0; i < length && ret == null; i++) {
+                ret = filters[i].execute();
+            }
+        }
+        finally {
+            RequestTiming.stop(RequestTiming.FILTER, timing);
+        }
+        return ret;
+    }
+
+    private static FilterInvoker[] toInvokers(List<ActionControlFilter> filters) {
+        if (filters == null) return new FilterInvoker[0];
+        FilterInvoker[] invokers = new FilterInvoker[filters.size()];
+        int i = 0;
+        for (ActionControlFilter acf : filters) {
+            invokers[i++] = new FilterInvoker(acf);
+        }
+        return invokers;
+    }
+
+    private static void makeAccessible(Method method) {
+        try {
+            //skips access check for each invocation
+            method.setAccessible(true);
+        }
+        catch(SecurityException ex) {
+            ;
+        }
+    }
+
+    /**
+     * FilterInvoker executes a filter method on a new instance of the
+     * declaring class of the filter, as <tt>ActionControlFilter</tt> does.
+     */
+    private static class FilterInvoker {
+        private String ownerName;
+        private String filterName;
+        private Constructor<?> constructor;
+        private Method method;
+        private RuntimeException failure;
+
+        FilterInvoker(ActionControlFilter acf) {
+            ownerName = acf.getOwner().getName();
+            filterName = acf.getFilterMethod();
+            try {
+                Class<?> owner = AutoLoadedObjectFactory.getInstance().loadClass(ownerName);
+                constructor = owner.getConstructor();
+                method = BeanUtil.getMethod(owner, filterName);
+                makeAccessible(method);
+            }
+            catch(Exception ex) {
+                //report the failure when the filter is executed
+                failure = new ExecutionException(ownerName, filterName, null, ex);
+            }
+        }
+
+        String execute() {
+            if (failure != null) throw failure;
+
+            Object o = null;
+            try {
+                o = method.invoke(constructor.newInstance(), (Object[])null);
+            }
+            catch(Exception ex) {
+                throw new ExecutionException(ownerName, filterName, null, ex);
+            }
+
+            String r = null;
+            if (o != null) {
+                if (o instanceof String) {
+                    r = o.toString();
+                }
+                else {
+                    throw new IllegalArgumentException("Filter method \"" + filterName +
+                        "\" of class \"" + ownerName + "\" should only return " +
+                        "a string, but here \"" + o.getClass().getName() + "\" is returned instead.");
+                }
+            }
+            return r;
+        }
+    }
+}
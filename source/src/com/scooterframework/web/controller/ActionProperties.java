@@ -29,11 +29,35 @@ public class ActionProperties {
     public Object controllerInstance;
     public boolean methodCreated;
     public Method methodInstance;
+    public ActionInvoker actionInvoker;
     
     public String routeType;
+    public String routeName;
     
     public Map<String, String> requiredFieldValues;
 
+    /**
+     * Returns a copy of this object. Controller instance and action invoker
+     * are not copied as they are resolved again for each request.
+     *
+     * @return a new ActionProperties instance
+     */
+    public ActionProperties copy() {
+        ActionProperties aps = new ActionProperties();
+        aps.controllerPath = controllerPath;
+        aps.controller = controller;
+        aps.controllerClassName = controllerClassName;
+        aps.action = action;
+        aps.model = model;
+        aps.format = format;
+        aps.resource = resource;
+        aps.cacheable = cacheable;
+        aps.routeType = routeType;
+        aps.routeName = routeName;
+        aps.requiredFieldValues = requiredFieldValues;
+        return aps;
+    }
+
 	/**
      * Returns a string representation of the object.
      * @return String
@@ -51,6 +75,7 @@ public class ActionProperties {
         returnString.append("resource = " + resource).append(SEPARATOR);
         returnString.append("cacheable = " + cacheable).append(SEPARATOR);
         returnString.append("routeType = " + routeType).append(SEPARATOR);
+        returnString.append("routeName = " + routeName).append(SEPARATOR);
         returnString.append("controllerCreated = " + controllerCreated).append(SEPARATOR);
         returnString.append("methodCreated = " + methodCreated).append(SEPARATOR);
         returnString.append("requiredFieldValues = " + requiredFieldValues);
@@ -11,9 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -23,14 +21,17 @@ import javax.servlet.http.HttpServletResponse;
 import com.scooterframework.admin.ApplicationConfig;
 import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.EnvConfig;
-import com.scooterframework.admin.FilterManager;
-import com.scooterframework.admin.FilterManagerFactory;
 import com.scooterframework.autoloader.JavaCompiler;
 import com.scooterframework.common.exception.ExecutionException;
 import com.scooterframework.common.exception.MethodCreationException;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.common.monitor.RequestTiming;
 import com.scooterframework.common.util.CurrentThreadCache;
 import com.scooterframework.common.util.CurrentThreadCacheClient;
+import com.scooterframework.common.util.LRUCache;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.WordUtil;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
@@ -48,7 +49,13 @@ import com.scooterframework.web.route.NoRouteFoundException;
 public class BaseRequestProcessor {
     protected LogUtil log = LogUtil.getLogger(getClass().getName());
 
-    private Map<String, ActionProperties> requestPropertiesMap = new HashMap<String, ActionProperties>();
+    /**
+     * Default maximum number of cached action properties.
+     */
+    public static final int DEFAULT_ACTION_PROPERTIES_CACHE_SIZE = 1000;
+
+    private LRUCache<String, ActionProperties> actionPropertiesCache =
+        new LRUCache<String, ActionProperties>("action.properties", getActionPropertiesCacheSize());
 
     public static final String DEFAULT_CONTROLLER_CLASS = "com.scooterframework.builtin.CRUDController";
 
@@ -91,18 +98,22 @@ public class BaseRequestProcessor {
             else {
             	String result = null;
 
-            	String requstPathKey = CurrentThreadCacheClient.requestPathKey();
-            	ActionProperties aps = requestPropertiesMap.get(requstPathKey);
+            	String requestHttpMethod = CurrentThreadCacheClient.httpMethod();
+            	ActionProperties aps = null;
 
-            	if (aps == null || ApplicationConfig.getInstance().isInDevelopmentEnvironment()) {
-                    String requestHttpMethod = CurrentThreadCacheClient.httpMethod();
+            	if (ApplicationConfig.getInstance().isInDevelopmentEnvironment()) {
                     aps = prepareActionProperties(requestPath, requestHttpMethod, request);
-                    registerActionProperties(request, aps);
-                    requestPropertiesMap.put(requstPathKey, aps);
             	}
             	else {
-            		registerActionProperties(request, aps);
+            		String key = getActionPropertiesKey(requestPath, requestHttpMethod, request);
+            		ActionProperties template = actionPropertiesCache.get(key);
+            		if (template == null) {
+            			template = prepareActionProperties(requestPath, requestHttpMethod, request);
+            			actionPropertiesCache.put(key, template);
+            		}
+            		aps = copyActionProperties(template, requestPath, requestHttpMethod, request);
             	}
+            	registerActionProperties(request, aps);
                 log.debug("aps: " + aps);
 
                 result = executeRequest(aps, request, response);
@@ -162,17 +173,18 @@ public class BaseRequestProcessor {
             }
         }
 
-        Method actionInstance = null;
+        ActionInvoker actionInvoker = null;
         if (aps.methodCreated) {
-        	actionInstance = aps.methodInstance;
+        	actionInvoker = aps.actionInvoker;
         }
         else {
-        	actionInstance = getActionMethod(controllerInstance.getClass(), aps.action);
-        	aps.methodInstance = actionInstance;
+        	actionInvoker = getActionInvoker(controllerInstance.getClass(), aps.action);
+        	aps.actionInvoker = actionInvoker;
+        	aps.methodInstance = (actionInvoker != null)?actionInvoker.getActionMethod():null;
         	aps.methodCreated = true;
         }
 
-        if (actionInstance == null) {
+        if (actionInvoker == null) {
             if (EnvConfig.getInstance().allowForwardToActionNameViewWhenActionNotExist()) {
                 log.debug("Action method \"" + aps.action +
                     "\", forward to view \"" + aps.action + "\".");
@@ -183,7 +195,21 @@ public class BaseRequestProcessor {
             }
         }
 
-        return executeControllerAction(controllerInstance, actionInstance);
+        if (!MetricsRegistry.isEnabled()) {
+            return executeControllerAction(controllerInstance, actionInvoker);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return executeControllerAction(controllerInstance, actionInvoker);
+        }
+        finally {
+            MetricsRegistry.getInstance().histogram("scooter_action_duration_seconds", 
+                "Duration of controller actions.", 
+                "route", (aps.routeName != null)?aps.routeName:"", 
+                "controller", aps.controller, 
+                "action", aps.action).recordNanos(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -195,6 +221,87 @@ public class BaseRequestProcessor {
      */
 	public ActionProperties prepareActionProperties(String requestPath,
 			String requestHttpMethod, HttpServletRequest request) {
+        String[] parts = splitRequestPath(requestPath);
+        String controllerPath = parts[0];
+        String controller = parts[1];
+        String action = parts[2];
+        String format = parts[3];
+
+        if (action == null || "".equals(action)) {
+            if (EnvConfig.getInstance().allowDefaultActionMethod()) {
+                action = EnvConfig.getInstance().getDefaultActionMethod();
+            }
+            else {
+                throw new IllegalArgumentException("The value for action " +
+                "is not detected from the request path \"" + requestPath +
+                "\" and the default action method is not allowed in property file.");
+            }
+        }
+
+        ActionProperties aps = new ActionProperties();
+        aps.controllerPath = controllerPath;
+        aps.controller = controller;
+        aps.controllerClassName = getControllerClassName(controllerPath);
+        aps.action = action;
+        aps.model = (DatabaseConfig.getInstance().usePluralTableName())?WordUtil.singularize(controller):controller;
+        aps.format = format;
+
+        return aps;
+    }
+
+    /**
+     * <p>Returns the key under which the action properties of a request are
+     * cached. Requests of the same key share the same cached properties.</p>
+     *
+     * <p>This method returns the request path key. Subclass may override this
+     * method to use a key with fewer distinct values, for example the
+     * matched route.</p>
+     *
+     * @param requestPath       request path
+     * @param requestHttpMethod http method of the request
+     * @param request           The servlet request we are processing
+     * @return cache key
+     */
+    protected String getActionPropertiesKey(String requestPath,
+            String requestHttpMethod, HttpServletRequest request) {
+        return CurrentThreadCacheClient.requestPathKey();
+    }
+
+    /**
+     * <p>Returns action properties of a request based on cached properties.</p>
+     *
+     * <p>The cached properties are shared by concurrent requests and are
+     * never changed. This method returns a copy of them. Subclass must
+     * override this method to set up request specific values if the cache key
+     * returned by {@link #getActionPropertiesKey(String, String, HttpServletRequest)}
+     * is not unique for each request path.</p>
+     *
+     * @param template          cached action properties
+     * @param requestPath       request path
+     * @param requestHttpMethod http method of the request
+     * @param request           The servlet request we are processing
+     * @return an ActionProperties instance
+     */
+    protected ActionProperties copyActionProperties(ActionProperties template,
+            String requestPath, String requestHttpMethod, HttpServletRequest request) {
+        return template.copy();
+    }
+
+    /**
+     * Returns the controller path part of a request path.
+     *
+     * @param requestPath request path
+     * @return controller path
+     */
+    protected String getControllerPath(String requestPath) {
+        return splitRequestPath(requestPath)[0];
+    }
+
+    /**
+     * Splits a request path into controller path, controller, action and
+     * format. Any part may be null.
+     */
+    private String[] splitRequestPath(String requestPath) {
         String path = requestPath;
         String controllerPath = null;
         String controller = null;
@@ -230,26 +337,16 @@ public class BaseRequestProcessor {
             controller = path.substring(1);
         }
 
-        if (action == null || "".equals(action)) {
-            if (EnvConfig.getInstance().allowDefaultActionMethod()) {
-                action = EnvConfig.getInstance().getDefaultActionMethod();
-            }
-            else {
-                throw new IllegalArgumentException("The value for action " +
-                "is not detected from the request path \"" + requestPath +
-                "\" and the default action method is not allowed in property file.");
-            }
-        }
-
-        ActionProperties aps = new ActionProperties();
-        aps.controllerPath = controllerPath;
-        aps.controller = controller;
-        aps.controllerClassName = getControllerClassName(controllerPath);
-        aps.action = action;
-        aps.model = (DatabaseConfig.getInstance().usePluralTableName())?WordUtil.singularize(controller):controller;
-        aps.format = format;
+        return new String[]{controllerPath, controller, action, format};
+    }
 
-        return aps;
+    /**
+     * Returns maximum number of cached action properties. The value is
+     * specified by the <tt>action.properties.cache.size</tt> property in
+     * environment.properties file.
+     */
+    protected int getActionPropertiesCacheSize() {
+        return EnvConfig.getInstance().getActionPropertiesCacheSize();
     }
 
     /**
@@ -355,16 +452,29 @@ public class BaseRequestProcessor {
      * @return the method instance
      */
     protected Method getActionMethod(Class<?> controllerClass, String actionName) {
+        ActionInvoker invoker = getActionInvoker(controllerClass, actionName);
+        return (invoker != null)?invoker.getActionMethod():null;
+    }
+
+    /**
+     * Returns an invoker of an action of a controller. The invoker holds the
+     * action method and its filters.
+     *
+     * @param controllerClass a controller class type
+     * @param actionName name of the action method
+     * @return the invoker instance, or null if there is no such action
+     */
+    protected ActionInvoker getActionInvoker(Class<?> controllerClass, String actionName) {
         if (controllerClass == null || actionName == null) return null;
 
-        Method method = null;
+        ActionInvoker invoker = null;
         try {
-            method = ControllerFactory.getMethod(controllerClass, actionName);
+            invoker = ControllerFactory.getDispatchTable(controllerClass).getActionInvoker(actionName);
         }
         catch(Exception ex) {
-            log.debug("Failed to create action method instance: " + ex.getMessage());
+            log.debug("Failed to create action invoker instance: " + ex.getMessage());
         }
-        return method;
+        return invoker;
     }
 
     /**
@@ -377,29 +487,30 @@ public class BaseRequestProcessor {
     protected String executeControllerAction(Object controller, Method method) {
         if (controller == null || method == null) return null;
 
-        String result = null;
-        try {
-            boolean beforeIsSuccess = true;
-            FilterManager filterManager = FilterManagerFactory.getInstance().getFilterManager(controller.getClass());
-            if (filterManager != null && !filterManager.noFilterDeclared()) {
-            	result = filterManager.executeBeforeFiltersOn(method.getName());
-                if (result != null) beforeIsSuccess = false;
-            }
+        ActionInvoker invoker = getActionInvoker(controller.getClass(), method.getName());
+        if (invoker == null) {
+            throw new MethodCreationException(controller.getClass().getName(), method.getName());
+        }
+        return executeControllerAction(controller, invoker);
+    }
 
-            if (beforeIsSuccess) {
-                result = (String)method.invoke(controller, (Object[])null);
-            }
+    /**
+     * Invokes an action of a controller together with its filters.
+     *
+     * @param controller The controller instance to be invoked
+     * @param invoker The action invoker
+     * @return execution result
+     */
+    protected String executeControllerAction(Object controller, ActionInvoker invoker) {
+        if (controller == null || invoker == null) return null;
 
-            if (beforeIsSuccess && filterManager != null && !filterManager.noFilterDeclared()) {
-                String afResult = filterManager.executeAfterFiltersOn(method.getName());
-                if (afResult != null) {
-                    result = afResult;
-                }
-            }
+        String result = null;
+        try {
+            result = invoker.invoke(controller);
         } catch (Exception ex) {
-			log.error("Error in executeControllerAction controller/action: " + controller + "/" + method, ex);
+			log.error("Error in executeControllerAction controller/action: " + controller + "/" + invoker.getActionMethod(), ex);
             ExecutionException eex =
-                new ExecutionException(controller.getClass().getName(), method.getName(), null, ex);
+                new ExecutionException(controller.getClass().getName(), invoker.getActionName(), null, ex);
             throw eex;
         }
 
@@ -475,7 +586,15 @@ public class BaseRequestProcessor {
 	{
         ContentHandler handler = ContentHandlerFactory.getContentHandler(format);
         if (handler != null) {
-        	handler.handle(request, response, content, format);
+        	long timing = RequestTiming.start(RequestTiming.VIEW);
+        	FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_RENDER, format);
+        	try {
+        		handler.handle(request, response, content, format);
+        	}
+        	finally {
+        		RequestTiming.stop(RequestTiming.VIEW, timing);
+        		EventRecorder.commit(event);
+        	}
         }
         else {
 			throw new IllegalArgumentException(
@@ -731,7 +850,15 @@ public class BaseRequestProcessor {
         HttpServletRequest request,
         HttpServletResponse response)
         throws IOException, ServletException {
-        ActionControl.doForward(uri, request, response);
+        long timing = RequestTiming.start(RequestTiming.VIEW);
+        FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_RENDER, uri);
+        try {
+            ActionControl.doForward(uri, request, response);
+        }
+        finally {
+            RequestTiming.stop(RequestTiming.VIEW, timing);
+            EventRecorder.commit(event);
+        }
     }
 
     /**
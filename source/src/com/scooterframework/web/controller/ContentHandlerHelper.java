@@ -14,11 +14,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.sql.SQLException;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import com.scooterframework.common.monitor.RequestTiming;
+import com.scooterframework.orm.sqldataexpress.object.LazyLob;
+
 /**
  * ContentHandlerHelper provides helper methods for content handlers. 
  * 
@@ -32,8 +37,8 @@ public class ContentHandlerHelper {
 	/**
 	 * Sends content to the requestor. This method delegates to other methods 
 	 * when the content is an instance of <tt>String</tt>, <tt>byte[]</tt>, 
-	 * <tt>InputStream</tt> respectively. In all other cases, the content is 
-	 * sent as a string.
+	 * <tt>InputStream</tt>, <tt>LazyLob</tt> respectively. In all other 
+	 * cases, the content is sent as a string.
 	 * 
 	 * @param response  The HTTP response object.
 	 * @param content  The content to be sent.
@@ -55,6 +60,9 @@ public class ContentHandlerHelper {
 		else if (content instanceof InputStream) {
 			publish(response, (InputStream)content, mimeType);
 		}
+		else if (content instanceof LazyLob) {
+			publish(response, (LazyLob)content, mimeType);
+		}
 		else {
 			publish(response, content.toString(), mimeType);
 		}
@@ -71,6 +79,17 @@ public class ContentHandlerHelper {
 	 * @throws ServletException
 	 */
 	public static void publish(HttpServletResponse response, String content, String mimeType) 
+    throws IOException, ServletException {
+		long timing = RequestTiming.start(RequestTiming.PUBLISH);
+		try {
+			doPublish(response, content, mimeType);
+		}
+		finally {
+			RequestTiming.stop(RequestTiming.PUBLISH, timing);
+		}
+	}
+	
+	private static void doPublish(HttpServletResponse response, String content, String mimeType) 
     throws IOException, ServletException {
         String encoding = response.getCharacterEncoding();
     	if (encoding == null) encoding = "utf-8";
@@ -103,6 +122,17 @@ public class ContentHandlerHelper {
 	 * @throws ServletException
 	 */
 	public static void publish(HttpServletResponse response, byte[] content, String mimeType) 
+    throws IOException, ServletException {
+		long timing = RequestTiming.start(RequestTiming.PUBLISH);
+		try {
+			doPublish(response, content, mimeType);
+		}
+		finally {
+			RequestTiming.stop(RequestTiming.PUBLISH, timing);
+		}
+	}
+	
+	private static void doPublish(HttpServletResponse response, byte[] content, String mimeType) 
     throws IOException, ServletException {
         String encoding = response.getCharacterEncoding();
     	if (encoding == null) encoding = "utf-8";
@@ -135,6 +165,17 @@ public class ContentHandlerHelper {
 	 * @throws ServletException
 	 */
 	public static void publish(HttpServletResponse response, InputStream is, String mimeType) 
+    throws IOException, ServletException {
+		long timing = RequestTiming.start(RequestTiming.PUBLISH);
+		try {
+			doPublish(response, is, mimeType);
+		}
+		finally {
+			RequestTiming.stop(RequestTiming.PUBLISH, timing);
+		}
+	}
+	
+	private static void doPublish(HttpServletResponse response, InputStream is, String mimeType) 
     throws IOException, ServletException {
         String encoding = response.getCharacterEncoding();
     	if (encoding == null) encoding = "utf-8";
@@ -151,7 +192,91 @@ public class ContentHandlerHelper {
 		is.close();
 		in.close();
         
-		publish(response, buf, mimeType);
+		doPublish(response, buf, mimeType);
+    }
+	
+	/**
+	 * Streams a BLOB or CLOB value from the database to the requestor 
+	 * without loading it into memory. 
+	 * Default <tt>mimeType</tt> is <tt>application/octet-stream</tt> for a 
+	 * BLOB and <tt>text/plain</tt> for a CLOB.
+	 * 
+	 * @param response  The HTTP response object.
+	 * @param lob  The LOB value to be sent.
+	 * @param mimeType  The content MIME type.
+	 * @throws IOException
+	 * @throws ServletException
+	 */
+	public static void publish(HttpServletResponse response, LazyLob lob, String mimeType) 
+    throws IOException, ServletException {
+		long timing = RequestTiming.start(RequestTiming.PUBLISH);
+		try {
+			doPublish(response, lob, mimeType);
+		}
+		catch(SQLException ex) {
+			throw new ServletException("Failed to read " + lob + ".", ex);
+		}
+		finally {
+			RequestTiming.stop(RequestTiming.PUBLISH, timing);
+		}
+	}
+	
+	private static void doPublish(HttpServletResponse response, LazyLob lob, String mimeType) 
+    throws IOException, SQLException {
+        String encoding = response.getCharacterEncoding();
+    	if (encoding == null) encoding = "utf-8";
+    	
+    	if (mimeType == null || "".equals(mimeType)) {
+    		mimeType = (lob.isBinary())?"application/octet-stream":"text/plain";
+    	}
+    	
+    	mimeType = mimeType.toLowerCase();
+    	if (mimeType.indexOf("charset") == -1) {
+    		response.setContentType(mimeType + "; charset=" + encoding);
+    	}
+    	else {
+    		response.setContentType(mimeType);
+    	}
+        response.setStatus(HttpServletResponse.SC_OK);
+        
+        if (lob.isBinary()) {
+        	InputStream is = lob.getInputStream();
+        	if (is == null) {
+        		response.setContentLength(0);
+        		return;
+        	}
+        	try {
+        		long length = lob.length();
+        		if (length <= Integer.MAX_VALUE) response.setContentLength((int)length);
+        		
+        		ServletOutputStream out = response.getOutputStream();
+        		byte[] bufSpace = new byte[8192];
+        		int k;
+        		while ((k = is.read(bufSpace)) != -1) {
+        			out.write(bufSpace, 0, k);
+        		}
+        		out.close();
+        	}
+        	finally {
+        		is.close();
+        	}
+        }
+        else {
+        	Reader reader = lob.getReader();
+        	if (reader == null) return;
+        	try {
+        		PrintWriter out = response.getWriter();
+        		char[] bufSpace = new char[8192];
+        		int k;
+        		while ((k = reader.read(bufSpace)) != -1) {
+        			out.write(bufSpace, 0, k);
+        		}
+        		out.flush();
+        	}
+        	finally {
+        		reader.close();
+        	}
+        }
     }
 	
 	/**
@@ -8,8 +8,6 @@
 package com.scooterframework.web.controller;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.scooterframework.admin.ApplicationConfig;
 import com.scooterframework.admin.AutoLoadedObjectFactory;
@@ -17,10 +15,17 @@ import com.scooterframework.admin.EnvConfig;
 import com.scooterframework.common.exception.MethodCreationException;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.BeanUtil;
+import com.scooterframework.common.util.LRUCache;
 import com.scooterframework.web.route.RouteConfig;
 
 /**
- * ControllerFactory manages instances of controller classes.
+ * <p>ControllerFactory manages instances of controller classes.</p>
+ * 
+ * <p>Controller instances, action methods and dispatch tables are kept in 
+ * size-bounded caches which evict the least recently used entries. Sizes 
+ * are specified by the <tt>controller.cache.size</tt> property in 
+ * environment.properties file. Eviction statistics of the caches are shown 
+ * on the site information page of the admin tool.</p>
  * 
  * @author (Fei) John Chen
  */
@@ -56,7 +61,9 @@ public class ControllerFactory {
                     return null;
                 }
             }
-            controllerMap.put(controllerClassName, controller);
+            if (controllerClassName != null && controller != null) {
+                controllerMap.put(controllerClassName, controller);
+            }
         }
         
         return controller;
@@ -95,8 +102,35 @@ public class ControllerFactory {
         return method;
     }
     
-    private static Map<String, Object> controllerMap = new HashMap<String, Object>();
-	private static Map<String, Method> allMethodsMap = new HashMap<String, Method>();
+    /**
+     * Returns the dispatch table of a controller class. The table is created 
+     * when the class is first used, and is recreated when the class is 
+     * reloaded or when its filters are changed. 
+     * 
+     * @param controllerClass the controller class type
+     * @return the dispatch table
+     */
+    public static ActionDispatchTable getDispatchTable(Class<?> controllerClass) {
+        if (controllerClass == null) {
+            throw new IllegalArgumentException("No controller class specified.");
+        }
+        
+        String key = controllerClass.getName();
+        ActionDispatchTable table = dispatchTableMap.get(key);
+        
+        if (table == null || table.getControllerClass() != controllerClass || 
+            table.isStale() || ApplicationConfig.getInstance().isInDevelopmentEnvironment()) {
+            table = new ActionDispatchTable(controllerClass);
+            dispatchTableMap.put(key, table);
+        }
+        
+        return table;
+    }
+    
+    private static final int cacheSize = EnvConfig.getInstance().getControllerCacheSize();
+    private static LRUCache<String, Object> controllerMap = new LRUCache<String, Object>("controllers", cacheSize);
+	private static LRUCache<String, Method> allMethodsMap = new LRUCache<String, Method>("controller.methods", cacheSize * 10);
+	private static LRUCache<String, ActionDispatchTable> dispatchTableMap = new LRUCache<String, ActionDispatchTable>("dispatch.tables", cacheSize);
 
     private static LogUtil log = LogUtil.getLogger(ControllerFactory.class.getName());
 }
@@ -39,6 +39,8 @@ public class RestfulRequestProcessor extends BaseRequestProcessor {
     
     private static final String CACHE_KEY_ROUTE_TYPE = "cache.key.route_type";
     
+    private static final String CACHE_KEY_ROUTE_INFO = "cache.key.route_info";
+    
     /**
      * Constructor
      */
@@ -74,11 +76,7 @@ public class RestfulRequestProcessor extends BaseRequestProcessor {
 			String requestHttpMethod, HttpServletRequest request) {
     	ActionProperties aps = super.prepareActionProperties(requestPath, requestHttpMethod, request);
     	
-        RequestInfo requestInfo = new RequestInfo(requestPath, requestHttpMethod);
-        log.debug("  requestInfo: " + requestInfo);
-        
-        RouteInfo routeInfo = MatchMaker.getInstance().match(requestInfo);
-        log.debug("matched route: " + routeInfo);
+        RouteInfo routeInfo = getRouteInfo(requestPath, requestHttpMethod);
         
         //setup field values
         Map<String, String> requiredFieldValues = routeInfo.getRequiredFieldValues();
@@ -97,12 +95,68 @@ public class RestfulRequestProcessor extends BaseRequestProcessor {
         aps.format = routeInfo.getFormat();
         aps.resource = routeInfo.getResourceName();
         aps.routeType = routeInfo.getRouteType();
+        aps.routeName = routeInfo.getRouteName();
         aps.requiredFieldValues = requiredFieldValues;
         aps.cacheable = routeInfo.getCacheable();
         
         return aps;
     }
     
+    /**
+     * Returns a cache key of the matched route. Requests which differ only 
+     * in field values of the route, such as record ids, share the same 
+     * cached properties. 
+     */
+    protected String getActionPropertiesKey(String requestPath,
+            String requestHttpMethod, HttpServletRequest request) {
+        RouteInfo routeInfo = getRouteInfo(requestPath, requestHttpMethod);
+        StringBuilder sb = new StringBuilder();
+        sb.append(routeInfo.getRouteName()).append('|');
+        sb.append(requestHttpMethod).append('|');
+        sb.append(routeInfo.getControllerClassName()).append('|');
+        sb.append(routeInfo.getController()).append('|');
+        sb.append(routeInfo.getAction()).append('|');
+        sb.append(routeInfo.getFormat());
+        return sb.toString();
+    }
+    
+    /**
+     * Returns a copy of cached properties with controller path and field 
+     * values of the current request. 
+     */
+    protected ActionProperties copyActionProperties(ActionProperties template,
+            String requestPath, String requestHttpMethod, HttpServletRequest request) {
+        RouteInfo routeInfo = getRouteInfo(requestPath, requestHttpMethod);
+        CurrentThreadCache.clear(CACHE_KEY_ROUTE_INFO);
+        
+        ActionProperties aps = template.copy();
+        aps.controllerPath = getControllerPath(requestPath);
+        aps.requiredFieldValues = routeInfo.getRequiredFieldValues();
+        return aps;
+    }
+    
+    /**
+     * Returns the route matched by the request. The result is kept for the 
+     * current request thread. 
+     */
+    private RouteInfo getRouteInfo(String requestPath, String requestHttpMethod) {
+        String requestKey = RequestInfo.generateRequestKey(requestPath, requestHttpMethod);
+        RouteInfo routeInfo = (RouteInfo)CurrentThreadCache.get(CACHE_KEY_ROUTE_INFO);
+        if (routeInfo != null && 
+            requestKey.equals(routeInfo.getRequestInfo().getRequestKey())) {
+            return routeInfo;
+        }
+        
+        RequestInfo requestInfo = new RequestInfo(requestPath, requestHttpMethod);
+        log.debug("  requestInfo: " + requestInfo);
+        
+        routeInfo = MatchMaker.getInstance().match(requestInfo);
+        log.debug("matched route: " + routeInfo);
+        
+        CurrentThreadCache.set(CACHE_KEY_ROUTE_INFO, routeInfo);
+        return routeInfo;
+    }
+    
     /**
      * Puts some action properties in <tt>request</tt> object.
      */
@@ -110,6 +164,7 @@ public class RestfulRequestProcessor extends BaseRequestProcessor {
         super.registerActionProperties(request, aps);
         CurrentThreadCacheClient.cacheResource(aps.resource);
         request.setAttribute(Constants.RESOURCE, aps.resource);
+        CurrentThreadCacheClient.cacheRouteName(aps.routeName);
         CurrentThreadCacheClient.cacheCacheable(aps.cacheable);
         request.setAttribute(Constants.REQUEST_CACHEABLE, aps.cacheable);
         Map<String, String> requiredFieldValues = aps.requiredFieldValues;
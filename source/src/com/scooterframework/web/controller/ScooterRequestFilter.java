@@ -32,8 +32,17 @@ import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.EnvConfig;
 import com.scooterframework.common.exception.FileUploadException;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.MetricsRegistry;
+import com.scooterframework.common.monitor.RequestTiming;
+import com.scooterframework.common.monitor.SlowRequestLog;
 import com.scooterframework.common.util.CurrentThreadCache;
 import com.scooterframework.common.util.CurrentThreadCacheClient;
+import com.scooterframework.orm.sqldataexpress.connection.ReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.connection.RequestConnections;
+import com.scooterframework.orm.sqldataexpress.util.QueryTimeout;
+import com.scooterframework.orm.sqldataexpress.util.QueryTracker;
 import com.scooterframework.web.route.RequestInfo;
 
 /**
@@ -45,6 +54,11 @@ import com.scooterframework.web.route.RequestInfo;
  *     parameter.</li>
  * <li>Initializes WebActionContext.</li>
  * <li>Records a bench mark in the response header if specified in environment.properties file.</li>
+ * <li>Records a timing breakdown of the request and adds it as a 
+ *     <tt>Server-Timing</tt> response header if specified in 
+ *     environment.properties file.</li>
+ * <li>Records request count and duration in the metrics registry.</li>
+ * <li>Records a request event if event recording is turned on.</li>
  * <li>Cleans up content cached in the request thread.</li>
  * </ul>
  * 
@@ -120,6 +134,21 @@ public class ScooterRequestFilter implements Filter {
         
         long before = System.currentTimeMillis();
         
+        RequestTiming timing = (!skip)?RequestTiming.begin(null):null;
+        ServerTimingResponseWrapper timingResponse = null;
+        if (timing != null && EnvConfig.getInstance().allowRequestTimingInHeader()) {
+            timingResponse = new ServerTimingResponseWrapper((HttpServletResponse)response, timing);
+            response = timingResponse;
+        }
+        
+        FrameworkEvent event = (!skip)?EventRecorder.begin(FrameworkEvent.TYPE_REQUEST, 
+                ((HttpServletRequest)request).getRequestURI()):null;
+        StatusResponseWrapper statusResponse = null;
+        if (event != null) {
+            statusResponse = new StatusResponseWrapper((HttpServletResponse)response);
+            response = statusResponse;
+        }
+        
         if (!skip) {
             initializeActionContext((HttpServletRequest)request, (HttpServletResponse)response);
         }
@@ -133,15 +162,48 @@ public class ScooterRequestFilter implements Filter {
 
         String requestPathKeyWithQueryString = requestInfo(skip, (HttpServletRequest)request);
         log.debug("============>>\"" + requestPathKeyWithQueryString + "\"");
+        if (timing != null) timing.setRequest(requestPathKeyWithQueryString);
+        if (!skip) QueryTracker.begin(requestPathKeyWithQueryString);
+        if (!skip) QueryTimeout.begin(requestPathKeyWithQueryString);
+        if (!skip) RequestConnections.begin();
+        if (!skip) ReplicaRouter.clearWrites();
         
+        long startNanos = System.nanoTime();
+        boolean failed = false;
         try {
         	chain.doFilter(request, response);
         } catch (Throwable ex) {
+        	failed = true;
         	log.error("Error from chain.doFilter: " + ex.getMessage(), ex);
         }
         
         long after = System.currentTimeMillis();
         
+        if (!skip) QueryTracker.end();
+        if (!skip) QueryTimeout.end();
+        if (!skip) RequestConnections.end();
+        if (!skip) ReplicaRouter.clearWrites();
+        
+        if (!skip && MetricsRegistry.isEnabled()) {
+            recordMetrics((HttpServletRequest)request, System.nanoTime() - startNanos, failed);
+        }
+        
+        if (event != null) {
+            event.set("method", CurrentThreadCacheClient.httpMethod())
+                 .set("route", CurrentThreadCacheClient.routeName())
+                 .set("controller", CurrentThreadCacheClient.controller())
+                 .set("action", CurrentThreadCacheClient.action())
+                 .set("status", (failed)?HttpServletResponse.SC_INTERNAL_SERVER_ERROR:statusResponse.getStatus());
+            EventRecorder.commit(event);
+        }
+        
+        if (timing != null) {
+            if (timingResponse != null) timingResponse.addTimingHeader();
+            RequestTiming.end();
+            SlowRequestLog.getInstance().record(timing);
+            log.debug(timing);
+        }
+        
         if (EnvConfig.getInstance().allowRecordBenchmark()) {
             log.info("\"" + requestPathKeyWithQueryString + "\" takes: " + (after - before) + " ms");
             if (EnvConfig.getInstance().allowRecordBenchmarkInHeader()) {
@@ -153,6 +215,23 @@ public class ScooterRequestFilter implements Filter {
         clearCachedRequestData();
     }
     
+    /**
+     * Records request count and duration in the metrics registry.
+     */
+    protected void recordMetrics(HttpServletRequest request, long durationNanos, boolean failed) {
+        String method = CurrentThreadCacheClient.httpMethod();
+        if (method == null) method = request.getMethod();
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.counter("scooter_http_requests_total", 
+            "Number of HTTP requests.", "method", method).increment();
+        registry.histogram("scooter_http_request_duration_seconds", 
+            "Duration of HTTP requests.").recordNanos(durationNanos);
+        if (failed) {
+            registry.counter("scooter_http_request_errors_total", 
+                "Number of HTTP requests which failed with an exception.").increment();
+        }
+    }
+    
     protected boolean isStaticContentRequest(HttpServletRequest request) {
         String contextPath = request.getContextPath();
         String requestURI = request.getRequestURI();
@@ -0,0 +1,82 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.scooterframework.common.monitor.RequestTiming;
+
+/**
+ * <p>ServerTimingResponseWrapper class adds a <tt>Server-Timing</tt> header
+ * to a response.</p>
+ *
+ * <p>Headers cannot be changed once the response body is started. Therefore
+ * the header is added right before the body is started, and contains the
+ * time spent so far. The complete timing of the request is available in the
+ * slow request log.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+    public static final String HEADER_SERVER_TIMING = "Server-Timing";
+
+    private RequestTiming timing;
+    private boolean headerAdded = false;
+
+    public ServerTimingResponseWrapper(HttpServletResponse response, RequestTiming timing) {
+        super(response);
+        this.timing = timing;
+    }
+
+    /**
+     * Adds the header if it has not been added and the response is not
+     * committed.
+     */
+    public void addTimingHeader() {
+        if (headerAdded) return;
+        headerAdded = true;
+        if (!isCommitted()) {
+            addHeader(HEADER_SERVER_TIMING, timing.toServerTimingHeader());
+        }
+    }
+
+    public ServletOutputStream getOutputStream() throws IOException {
+        addTimingHeader();
+        return super.getOutputStream();
+    }
+
+    public PrintWriter getWriter() throws IOException {
+        addTimingHeader();
+        return super.getWriter();
+    }
+
+    public void flushBuffer() throws IOException {
+        addTimingHeader();
+        super.flushBuffer();
+    }
+
+    public void sendRedirect(String location) throws IOException {
+        addTimingHeader();
+        super.sendRedirect(location);
+    }
+
+    public void sendError(int sc) throws IOException {
+        addTimingHeader();
+        super.sendError(sc);
+    }
+
+    public void sendError(int sc, String msg) throws IOException {
+        addTimingHeader();
+        super.sendError(sc, msg);
+    }
+}
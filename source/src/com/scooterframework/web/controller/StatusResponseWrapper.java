@@ -0,0 +1,60 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.controller;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * <p>StatusResponseWrapper class remembers the status code of a response,
+ * which cannot be read from a Servlet 2.5 response.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class StatusResponseWrapper extends HttpServletResponseWrapper {
+    private int status = SC_OK;
+
+    public StatusResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Returns the status code set on the response.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    public void sendError(int sc) throws IOException {
+        status = sc;
+        super.sendError(sc);
+    }
+
+    public void sendError(int sc, String msg) throws IOException {
+        status = sc;
+        super.sendError(sc, msg);
+    }
+
+    public void sendRedirect(String location) throws IOException {
+        status = SC_FOUND;
+        super.sendRedirect(location);
+    }
+}
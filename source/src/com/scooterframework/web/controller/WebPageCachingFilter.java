@@ -22,12 +22,17 @@ import javax.servlet.http.HttpServletResponse;
 
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.constructs.web.AlreadyGzippedException;
 import net.sf.ehcache.constructs.web.PageInfo;
 import net.sf.ehcache.constructs.web.filter.CachingFilter;
 
 import com.scooterframework.admin.ApplicationConfig;
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.monitor.EventRecorder;
+import com.scooterframework.common.monitor.FrameworkEvent;
+import com.scooterframework.common.monitor.MetricsRegistry;
 import com.scooterframework.common.util.Converters;
+import com.scooterframework.common.util.CurrentThreadCache;
 import com.scooterframework.common.util.CurrentThreadCacheClient;
 
 /**
@@ -49,6 +54,8 @@ import com.scooterframework.common.util.CurrentThreadCacheClient;
 public class WebPageCachingFilter extends CachingFilter {
     private static LogUtil log = LogUtil.getLogger(WebPageCachingFilter.class.getName());
     
+    private static final String KEY_PAGE_BUILT = "scooter.page.cache.built";
+    
     protected Set<String> uncacheablePaths;
     protected Set<String> cacheablePaths;
     protected CacheManager cacheManager;
@@ -94,11 +101,48 @@ public class WebPageCachingFilter extends CachingFilter {
     protected PageInfo buildPageInfo(final HttpServletRequest request,
             final HttpServletResponse response, final FilterChain chain)
             throws Exception {
-    	PageInfo pageInfo = super.buildPageInfo(request, response, chain);
+    	FrameworkEvent event = EventRecorder.begin(FrameworkEvent.TYPE_CACHE, "page");
+    	PageInfo pageInfo = null;
+    	try {
+    		pageInfo = super.buildPageInfo(request, response, chain);
+    	}
+    	finally {
+    		recordLookup(request, event);
+    	}
     	verifyCaching(request);
         return pageInfo;
     }
     
+    /**
+     * buildPage overrides the same method in super class. It is only called 
+     * when a page is not found in cache.
+     */
+    @Override
+    protected PageInfo buildPage(final HttpServletRequest request,
+            final HttpServletResponse response, final FilterChain chain)
+            throws AlreadyGzippedException, Exception {
+    	CurrentThreadCache.set(KEY_PAGE_BUILT, Boolean.TRUE);
+    	return super.buildPage(request, response, chain);
+    }
+    
+    /**
+     * Counts a page cache hit or miss in the metrics registry, and commits 
+     * the cache event if there is one.
+     */
+    private void recordLookup(HttpServletRequest request, FrameworkEvent event) {
+    	boolean built = CurrentThreadCache.get(KEY_PAGE_BUILT) != null;
+    	CurrentThreadCache.clear(KEY_PAGE_BUILT);
+    	String result = (built)?"miss":"hit";
+    	if (MetricsRegistry.isEnabled()) {
+    		MetricsRegistry.getInstance().counter("scooter_page_cache_requests_total", 
+    				"Lookups of the web page cache.", "result", result).increment();
+    	}
+    	if (event != null) {
+    		event.set("key", calculateKey(request)).set("hit", Boolean.valueOf(!built));
+    		EventRecorder.commit(event);
+    	}
+    }
+    
     /**
      * Checks whether it is fine to cache a request.
      * 
@@ -7,14 +7,22 @@
  */
 package com.scooterframework.web.route;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.scooterframework.common.monitor.RequestTiming;
+import com.scooterframework.common.util.LRUCache;
 
 /**
- * MatchMaker class
+ * <p>MatchMaker class finds a route for a request.</p>
+ * 
+ * <p>Routes are compiled into a {@link RouteTrie} the first time they are 
+ * matched after a change. Matched results are kept in a bounded LRU cache 
+ * keyed by request key. The size of the cache is defined by 
+ * <tt>route.cache.size</tt> property in <tt>routes.properties</tt> file.</p>
  * 
  * @author (Fei) John Chen
  *
@@ -23,16 +31,24 @@ public class MatchMaker {
 	
 	private static final MatchMaker me = new MatchMaker();
 
+	/**
+	 * Default size of the matched request cache.
+	 */
+	public static final int DEFAULT_ROUTE_CACHE_SIZE = 1000;
+
 	private RootRoute rootRoute;
-	private List<DefaultRoute> defaultRoutes = new ArrayList<DefaultRoute>();
-	private List<NamedRoute> namedRoutes = new ArrayList<NamedRoute>();
-	private List<RegularRoute> regularRoutes = new ArrayList<RegularRoute>();
-	private List<RestRoute> restRoutes = new ArrayList<RestRoute>();
+	private List<DefaultRoute> defaultRoutes = new CopyOnWriteArrayList<DefaultRoute>();
+	private List<NamedRoute> namedRoutes = new CopyOnWriteArrayList<NamedRoute>();
+	private List<RegularRoute> regularRoutes = new CopyOnWriteArrayList<RegularRoute>();
+	private List<RestRoute> restRoutes = new CopyOnWriteArrayList<RestRoute>();
 	
-	private Map<String, RouteInfo> requestRouteMap = new HashMap<String, RouteInfo>();
-    private Map<String, Resource> resourceMap = new HashMap<String, Resource>();
+	private volatile LRUCache<String, RouteInfo> requestRouteMap = 
+		new LRUCache<String, RouteInfo>("routes", DEFAULT_ROUTE_CACHE_SIZE);
+    private Map<String, Resource> resourceMap = new ConcurrentHashMap<String, Resource>();
     
-    private static List<Route> allRoutes = new ArrayList<Route>();
+    private static List<Route> allRoutes = new CopyOnWriteArrayList<Route>();
+    
+    private volatile RouteTrie compiledRoutes;
 	
 	private MatchMaker() {
 	}
@@ -67,65 +83,74 @@ public class MatchMaker {
         return r;
     }
 	
-	public void setRootRoute(RootRoute route) {
+	public synchronized void setRootRoute(RootRoute route) {
 		rootRoute = route;
         allRoutes.add(route);
+        routesChanged();
 	}
     
     public DefaultRoute getDefaultRoute(String routeName) {
         return (DefaultRoute)getRouteFromList(routeName, defaultRoutes);
     }
 	
-	public void addDefaultRoute(DefaultRoute route) {
+	public synchronized void addDefaultRoute(DefaultRoute route) {
 		defaultRoutes.add(route);
         allRoutes.add(route);
+        routesChanged();
 	}
 	
-	public void addDefaultRoutes(List<DefaultRoute> routes) {
+	public synchronized void addDefaultRoutes(List<DefaultRoute> routes) {
 		defaultRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routesChanged();
 	}
     
     public NamedRoute getNamedRoute(String routeName) {
         return  (NamedRoute)getRouteFromList(routeName, namedRoutes);
     }
 	
-	public void addNamedRoute(NamedRoute route) {
+	public synchronized void addNamedRoute(NamedRoute route) {
 		namedRoutes.add(route);
         allRoutes.add(route);
+        routesChanged();
 	}
 	
-	public void addNamedRoutes(List<NamedRoute> routes) {
+	public synchronized void addNamedRoutes(List<NamedRoute> routes) {
 		namedRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routesChanged();
 	}
     
     public RegularRoute getRegularRoute(String routeName) {
         return (RegularRoute)getRouteFromList(routeName, regularRoutes);
     }
 	
-	public void addRegularRoute(RegularRoute route) {
+	public synchronized void addRegularRoute(RegularRoute route) {
 		regularRoutes.add(route);
         allRoutes.add(route);
+        routesChanged();
 	}
 	
-	public void addRegularRoutes(List<RegularRoute> routes) {
+	public synchronized void addRegularRoutes(List<RegularRoute> routes) {
 		regularRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routesChanged();
 	}
     
     public RestRoute getRestRoute(String routeName) {
         return (RestRoute)getRouteFromList(routeName, restRoutes);
     }
 	
-	public void addRestRoute(RestRoute route) {
+	public synchronized void addRestRoute(RestRoute route) {
 		restRoutes.add(route);
         allRoutes.add(route);
+        routesChanged();
 	}
 	
-	public void addRestRoutes(List<RestRoute> routes) {
+	public synchronized void addRestRoutes(List<RestRoute> routes) {
 		restRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routesChanged();
 	}
     
     public Map<String, Resource> getResourceMap() {
@@ -173,7 +198,7 @@ public class MatchMaker {
         resourceMap.put(resourceName, resource);
     }
 	
-	public void clear() {
+	public synchronized void clear() {
 		rootRoute = null;
 		
 		defaultRoutes.clear();
@@ -182,11 +207,41 @@ public class MatchMaker {
 		restRoutes.clear();
         allRoutes.clear();
 		
-		requestRouteMap.clear();
         resourceMap.clear();
+        routesChanged();
+	}
+	
+	/**
+	 * Sets the maximum number of matched requests to be cached. Existing 
+	 * cached entries are discarded.
+	 * 
+	 * @param size  maximum number of cached requests
+	 */
+	public synchronized void setRouteCacheSize(int size) {
+		if (size <= 0) size = DEFAULT_ROUTE_CACHE_SIZE;
+		requestRouteMap = new LRUCache<String, RouteInfo>("routes", size);
+	}
+	
+	/**
+	 * Returns the cache of matched requests.
+	 * 
+	 * @return the route cache
+	 */
+	public LRUCache<String, RouteInfo> getRouteCache() {
+		return requestRouteMap;
 	}
 	
 	public RouteInfo match(RequestInfo requestInfo) {
+        long timing = RequestTiming.start(RequestTiming.ROUTE);
+        try {
+            return doMatch(requestInfo);
+        }
+        finally {
+            RequestTiming.stop(RequestTiming.ROUTE, timing);
+        }
+	}
+	
+	private RouteInfo doMatch(RequestInfo requestInfo) {
         if ("/".equals(requestInfo.getRequestPath())) return null;
         
 		String requestKey = requestInfo.getRequestKey();
@@ -195,48 +250,69 @@ public class MatchMaker {
 			return routeInfo;
 		}
 		
-		Route route = null;
-        int index = -1;
-        int size = allRoutes.size();
-        for (int i = 0; i < size; i++) {
-            index = i;
-            Route r = allRoutes.get(i);
-			if (r.isRouteFor(requestInfo)) {
-				route = r;
-				break;
-			}
-        }
-        
-        boolean autoRestified = RouteConfig.getInstance().allowAutoREST();
-        if (route == null) {
-            if (autoRestified) {
-                String name = requestInfo.getAutoResourceName();
-                
-                if (!isAddedResource(name)) {
-                    Resource resource = new Resource(name, Resource.PLURAL, new Properties(), false, true);
-                    
-                    //make sure the default routes are the last
-                    allRoutes.removeAll(defaultRoutes);
-                    addRestRoutes(resource.getRoutes());
-                    allRoutes.addAll(defaultRoutes);
-                    addResource(name, resource);
-                    return match(requestInfo);
-                }
+		RouteTrie trie = getCompiledRoutes();
+		int index = trie.find(requestInfo);
+		
+        if (index == -1) {
+            if (RouteConfig.getInstance().allowAutoREST() && 
+                addAutoResource(requestInfo.getAutoResourceName())) {
+                return doMatch(requestInfo);
             }
-        }
-        
-        if (route == null) {
-        	throw new NoRouteFoundException(requestKey);
+            throw new NoRouteFoundException(requestKey);
         }
 		
+		Route route = trie.getRoute(index);
 		routeInfo = route.getRouteInfo(requestInfo);
         routeInfo.setIndex(index);
 		
 		requestRouteMap.put(requestKey, routeInfo);
 		
+		//discard the result if routes have been changed in the meantime
+		if (compiledRoutes != trie) requestRouteMap.remove(requestKey);
+		
 		return routeInfo;
 	}
     
+    /**
+     * Adds a resource with default settings for auto-REST.
+     * 
+     * @param name  resource name
+     * @return true if the resource is added by this call
+     */
+    private synchronized boolean addAutoResource(String name) {
+        if (isAddedResource(name)) return false;
+        
+        Resource resource = new Resource(name, Resource.PLURAL, new Properties(), false, true);
+        
+        //make sure the default routes are the last
+        allRoutes.removeAll(defaultRoutes);
+        restRoutes.addAll(resource.getRoutes());
+        allRoutes.addAll(resource.getRoutes());
+        allRoutes.addAll(defaultRoutes);
+        addResource(name, resource);
+        routesChanged();
+        return true;
+    }
+    
+    private RouteTrie getCompiledRoutes() {
+        RouteTrie trie = compiledRoutes;
+        if (trie == null) {
+            synchronized(this) {
+                trie = compiledRoutes;
+                if (trie == null) {
+                    trie = new RouteTrie(allRoutes);
+                    compiledRoutes = trie;
+                }
+            }
+        }
+        return trie;
+    }
+    
+    private void routesChanged() {
+        compiledRoutes = null;
+        requestRouteMap.clear();
+    }
+    
     private Route getRouteFromList(String routeName, List<? extends Route> routes) {
         if (routeName == null || routes == null || routes.size() == 0) return null;
         
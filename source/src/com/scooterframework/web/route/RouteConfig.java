@@ -19,6 +19,7 @@ import com.scooterframework.admin.PropertyReader;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.PropertyFileUtil;
+import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 
 
@@ -34,6 +35,8 @@ public class RouteConfig implements Observer {
     
     public static final String DEFAULT_VALUE_autoRest = "false";
     
+    public static final String DEFAULT_VALUE_routeCacheSize = "" + MatchMaker.DEFAULT_ROUTE_CACHE_SIZE;
+    
     private static RouteConfig me;
     private Properties appProperties = null;
     private boolean usePluralTableName = DatabaseConfig.getInstance().usePluralTableName();
@@ -77,6 +80,7 @@ public class RouteConfig implements Observer {
     
     private void loadRoutes() {
         MatchMaker.getInstance().clear();
+        MatchMaker.getInstance().setRouteCacheSize(getRouteCacheSize());
         String nameValueSpliter = RouteConstants.PROPERTY_SYMBOL_NAMEVALUESPLITER;
         String propertyDelimiter = RouteConstants.PROPERTY_SYMBOL_PROPERTYDELIMITER;
         
@@ -231,4 +235,13 @@ public class RouteConfig implements Observer {
         String autoRest = getProperty("auto.rest", DEFAULT_VALUE_autoRest);
         return ("true".equalsIgnoreCase(autoRest))?true:false;
     }
+    
+    /**
+     * Returns the maximum number of matched requests cached by 
+     * {@link MatchMaker}. The value is defined by <tt>route.cache.size</tt> 
+     * property.
+     */
+    public int getRouteCacheSize() {
+        return Util.getSafeIntValue(getProperty("route.cache.size", DEFAULT_VALUE_routeCacheSize));
+    }
 }
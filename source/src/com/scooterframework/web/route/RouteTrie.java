@@ -0,0 +1,188 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>RouteTrie class is a compiled, read-only view of a list of routes.</p>
+ *
+ * <p>Regular, default and rest routes are indexed in a segment trie: static
+ * segments first, then the <tt>$field</tt> placeholder branch. Named routes
+ * are indexed by their lower-cased path. Any other route type is kept in a
+ * list which is always checked.</p>
+ *
+ * <p>The trie only narrows down candidates. Each candidate is still verified
+ * with {@link Route#isRouteFor(RequestInfo)} which checks format, http
+ * method and requirement patterns. Candidates are verified in the order in
+ * which the routes were declared, therefore the precedence rules are the
+ * same as a linear scan of the route list.</p>
+ *
+ * @author (Fei) John Chen
+ */
+class RouteTrie {
+    private final Route[] routes;
+    private final Node root = new Node();
+    private final Map<String, int[]> namedRoutes = new HashMap<String, int[]>();
+    private final int[] alwaysChecked;
+
+    RouteTrie(List<Route> allRoutes) {
+        routes = allRoutes.toArray(new Route[allRoutes.size()]);
+
+        Map<String, List<Integer>> named = new HashMap<String, List<Integer>>();
+        List<Integer> others = new ArrayList<Integer>();
+        for (int i = 0; i < routes.length; i++) {
+            Route r = routes[i];
+            Class<?> type = r.getClass();
+            if (type == NamedRoute.class) {
+                String path = r.getScreenURLPattern();
+                if (!path.startsWith("/")) path = "/" + path;
+                String key = lowerCase(path);
+                List<Integer> list = named.get(key);
+                if (list == null) {
+                    list = new ArrayList<Integer>();
+                    named.put(key, list);
+                }
+                list.add(Integer.valueOf(i));
+            }
+            else if (type == RegularRoute.class || type == DefaultRoute.class || type == RestRoute.class) {
+                insert(r, i);
+            }
+            else {
+                others.add(Integer.valueOf(i));
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : named.entrySet()) {
+            namedRoutes.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        alwaysChecked = toArray(others);
+        root.seal();
+    }
+
+    /**
+     * Returns index of the first route, in declaration order, which matches
+     * the request.
+     *
+     * @param requestInfo   the request
+     * @return a route index into the compiled list, or -1 if not found
+     */
+    int find(RequestInfo requestInfo) {
+        List<int[]> buckets = new ArrayList<int[]>(4);
+
+        int count = requestInfo.segmentCount();
+        String[] segments = requestInfo.getPathSegments();
+        String[] lowered = new String[count];
+        for (int i = 0; i < count; i++) {
+            lowered[i] = lowerCase(segments[i]);
+        }
+        collect(root, lowered, 0, buckets);
+
+        int[] named = namedRoutes.get(lowerCase(requestInfo.getRequestPath()));
+        if (named != null) buckets.add(named);
+
+        if (alwaysChecked.length > 0) buckets.add(alwaysChecked);
+
+        int[] candidates = merge(buckets);
+        for (int i = 0; i < candidates.length; i++) {
+            int index = candidates[i];
+            if (routes[index].isRouteFor(requestInfo)) return index;
+        }
+        return -1;
+    }
+
+    Route getRoute(int index) {
+        return routes[index];
+    }
+
+    int size() {
+        return routes.length;
+    }
+
+    private void insert(Route route, int index) {
+        Node node = root;
+        int count = route.segmentCount();
+        String[] segments = route.getPathSegments();
+        for (int i = 0; i < count; i++) {
+            String segment = segments[i];
+            if (segment.startsWith("$")) {
+                if (node.wildcard == null) node.wildcard = new Node();
+                node = node.wildcard;
+            }
+            else {
+                String key = lowerCase(segment);
+                Node child = node.children.get(key);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(key, child);
+                }
+                node = child;
+            }
+        }
+        node.pending.add(Integer.valueOf(index));
+    }
+
+    private void collect(Node node, String[] segments, int position, List<int[]> buckets) {
+        if (position == segments.length) {
+            if (node.routeIndexes.length > 0) buckets.add(node.routeIndexes);
+            return;
+        }
+
+        Node child = node.children.get(segments[position]);
+        if (child != null) collect(child, segments, position + 1, buckets);
+        if (node.wildcard != null) collect(node.wildcard, segments, position + 1, buckets);
+    }
+
+    private static String lowerCase(String s) {
+        return s.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static int[] merge(List<int[]> buckets) {
+        int size = buckets.size();
+        if (size == 0) return new int[0];
+        if (size == 1) return buckets.get(0);
+
+        int total = 0;
+        for (int[] bucket : buckets) total += bucket.length;
+        int[] all = new int[total];
+        int pos = 0;
+        for (int[] bucket : buckets) {
+            System.arraycopy(bucket, 0, all, pos, bucket.length);
+            pos += bucket.length;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i).intValue();
+        }
+        return result;
+    }
+
+    private static class Node {
+        Map<String, Node> children = new HashMap<String, Node>();
+        Node wildcard;
+        List<Integer> pending = new ArrayList<Integer>();
+        int[] routeIndexes;
+
+        void seal() {
+            routeIndexes = toArray(pending);
+            pending = null;
+            for (Node child : children.values()) child.seal();
+            if (wildcard != null) wildcard.seal();
+        }
+    }
+}
@@ -6,6 +6,7 @@
         java.util.Map,
         com.scooterframework.admin.Constants,
         com.scooterframework.admin.WebSessionListener,
+        com.scooterframework.common.util.LRUCache,
         com.scooterframework.web.controller.ActionContext,
         com.scooterframework.web.util.D,
         com.scooterframework.web.util.W"
@@ -43,4 +44,40 @@
                                             <%=D.message((Date)(((Map)ActionContext.getFromGlobalData(Constants.APP_KEY_SCOOTER_PROPERTIES)).get(Constants.APP_KEY_APPLICATION_START_TIME)))%></td>
         </tr>
     </table>
-</div>
\ No newline at end of file
+</div>
+
+<%
+Map caches = (Map)request.getAttribute("caches");
+if (caches != null && caches.size() > 0) {
+%>
+<div id="dispatchcaches">
+<h4>Dispatch caches</h4>
+    <table class="sTable">
+        <tr>
+            <th>Name</th>
+            <th>Maximum Size</th>
+            <th>Size</th>
+            <th>Hits</th>
+            <th>Misses</th>
+            <th>Evictions</th>
+        </tr>
+<%
+for (Object o : caches.values()) {
+    LRUCache cache = (LRUCache)o;
+%>
+        <tr>
+            <td><%=cache.getName()%></td>
+            <td><%=cache.getMaxSize()%></td>
+            <td><%=cache.size()%></td>
+            <td><%=cache.getHitCount()%></td>
+            <td><%=cache.getMissCount()%></td>
+            <td><%=cache.getEvictionCount()%></td>
+        </tr>
+<%
+}
+%>
+    </table>
+</div>
+<%
+}
+%>
@@ -0,0 +1,56 @@
+﻿<%@ page language="java" pageEncoding="UTF-8"%>
+<%@ page contentType="text/html; charset=UTF-8"%>
+
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.common.monitor.FrameworkEvent,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%
+List events = (List)request.getAttribute("events");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > Events</p>
+</div>
+
+<h3>event recording: <%=W.get("events.status")%></h3>
+
+<p>
+    <%=W.labelLink("All", "/admin/events")%> | 
+    <%=W.labelLink("Request", "/admin/events?type=request")%> | 
+    <%=W.labelLink("SQL", "/admin/events?type=sql")%> | 
+    <%=W.labelLink("Cache", "/admin/events?type=cache")%> | 
+    <%=W.labelLink("Render", "/admin/events?type=render")%>
+</p>
+
+<h3><%=T.pluralize(O.count(events), "recent event")%></h3>
+
+<table class="sTable">
+    <tr>
+        <th>Type</th>
+        <th>Name</th>
+        <th>Thread</th>
+        <th>Start Time</th>
+        <th>Duration (ms)</th>
+        <th>Details</th>
+    </tr>
+
+<%
+for (Iterator it = O.iteratorOf(events); it.hasNext();) {
+    FrameworkEvent event = (FrameworkEvent)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td><%=event.getType()%></td>
+        <td><%=W.h(event.getName())%></td>
+        <td><%=W.h(event.getThreadName())%></td>
+        <td nowrap="nowrap"><%=event.getStartTime()%></td>
+        <td align="right"><%=Math.round(event.getDurationMillis() * 100) / 100.0%></td>
+        <td><%=W.h(event.getAttributes().toString())%></td>
+    </tr>
+<%}%>
+</table>
@@ -0,0 +1,52 @@
+﻿<%@ page language="java" pageEncoding="UTF-8"%>
+<%@ page contentType="text/html; charset=UTF-8"%>
+
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.common.monitor.RequestTiming,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%
+List timings = (List)request.getAttribute("timings");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > Timing</p>
+</div>
+
+<h3>request timing: <%=W.get("timing.status")%></h3>
+
+<h3><%=T.pluralize(O.count(timings), "slowest request")%> recorded</h3>
+
+<table class="sTable">
+    <tr>
+        <th>Request</th>
+        <th>Start Time</th>
+        <th>Total (ms)</th>
+<%
+for (int i = 0; i < RequestTiming.getPhaseCount(); i++) {
+%>
+        <th><%=RequestTiming.getPhaseName(i)%> (ms)</th>
+<%}%>
+    </tr>
+
+<%
+for (Iterator it = O.iteratorOf(timings); it.hasNext();) {
+    RequestTiming timing = (RequestTiming)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td><%=W.h(timing.getRequest())%></td>
+        <td nowrap="nowrap"><%=timing.getStartTime()%></td>
+        <td align="right"><%=Math.round(timing.getTotalMillis() * 100) / 100.0%></td>
+<%
+    for (int i = 0; i < RequestTiming.getPhaseCount(); i++) {
+%>
+        <td align="right"><%=(timing.getCount(i) > 0)?(Math.round(timing.getMillis(i) * 100) / 100.0 + " (" + timing.getCount(i) + ")"):""%></td>
+<%  }%>
+    </tr>
+<%}%>
+</table>
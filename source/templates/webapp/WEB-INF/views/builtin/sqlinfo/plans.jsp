@@ -0,0 +1,53 @@
+﻿<%@ page language="java" pageEncoding="UTF-8"%>
+<%@ page contentType="text/html; charset=UTF-8"%>
+
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.orm.sqldataexpress.util.QueryPlan,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%
+List plans = (List)request.getAttribute("plans");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > SQL Plans</p>
+</div>
+
+<h3>explain slow queries: <%=W.get("explain.status")%>, slow query threshold: <%=W.get("slow.query.threshold")%> ms</h3>
+
+<h3><%=T.pluralize(O.count(plans), "plan")%> 
+    (<%=W.labelLink("clear", "/admin/sqlinfo/clear")%>)</h3>
+
+<table class="sTable">
+    <tr>
+        <th>Time</th>
+        <th>Fingerprint</th>
+        <th>Connection</th>
+        <th>Association</th>
+        <th>Duration (ms)</th>
+        <th>Full Scan</th>
+        <th>Missing Indexes</th>
+        <th>Plan</th>
+    </tr>
+
+<%
+for (Iterator it = O.iteratorOf(plans); it.hasNext();) {
+    QueryPlan plan = (QueryPlan)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td><%=plan.getTime()%></td>
+        <td title="<%=W.h(plan.getSql())%>"><%=W.h(plan.getFingerprint())%></td>
+        <td><%=W.h(plan.getConnectionName())%></td>
+        <td><%=W.h(plan.getAssociation())%></td>
+        <td align="right"><%=plan.getDurationMillis()%></td>
+        <td><%=plan.isFullScan()%></td>
+        <td><%=(plan.getMissingIndexes().isEmpty())?"":W.h(plan.getMissingIndexes().toString())%></td>
+        <td><pre><%=W.h(plan.getPlan())%></pre></td>
+    </tr>
+<%}%>
+</table>
@@ -0,0 +1,60 @@
+﻿<%@ page language="java" pageEncoding="UTF-8"%>
+<%@ page contentType="text/html; charset=UTF-8"%>
+
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.orm.sqldataexpress.util.SqlStatistic,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%
+List statistics = (List)request.getAttribute("statistics");
+String limit = "&limit=" + W.get("limit");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > SQL Statistics</p>
+</div>
+
+<h3>sql statistics: <%=W.get("statistics.status")%>, slow query threshold: <%=W.get("slow.query.threshold")%> ms</h3>
+
+<h3><%=T.pluralize(O.count(statistics), "fingerprint")%> ordered by <%=W.get("order")%> 
+    (<%=W.labelLink("clear", "/admin/sqlinfo/clear")%>)</h3>
+
+<table class="sTable">
+    <tr>
+        <th>Fingerprint</th>
+        <th><%=W.labelLink("Count", "/admin/sqlinfo/statistics?order=count" + limit)%></th>
+        <th><%=W.labelLink("Total (ms)", "/admin/sqlinfo/statistics?order=total" + limit)%></th>
+        <th>Min (ms)</th>
+        <th><%=W.labelLink("Mean (ms)", "/admin/sqlinfo/statistics?order=mean" + limit)%></th>
+        <th>p50 (ms)</th>
+        <th>p95 (ms)</th>
+        <th><%=W.labelLink("p99 (ms)", "/admin/sqlinfo/statistics?order=p99" + limit)%></th>
+        <th><%=W.labelLink("Max (ms)", "/admin/sqlinfo/statistics?order=max" + limit)%></th>
+        <th><%=W.labelLink("Rows", "/admin/sqlinfo/statistics?order=rows" + limit)%></th>
+        <th>Errors</th>
+    </tr>
+
+<%
+for (Iterator it = O.iteratorOf(statistics); it.hasNext();) {
+    SqlStatistic stat = (SqlStatistic)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td title="<%=W.h(stat.getSampleSql())%>"><%=W.h(stat.getFingerprint())%></td>
+        <td align="right"><%=stat.getCount()%></td>
+        <td align="right"><%=Math.round(stat.getTotalMillis() * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getMinMillis() * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getMeanMillis() * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getPercentileMillis(50) * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getPercentileMillis(95) * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getPercentileMillis(99) * 100) / 100.0%></td>
+        <td align="right"><%=Math.round(stat.getMaxMillis() * 100) / 100.0%></td>
+        <td align="right"><%=stat.getRows()%></td>
+        <td align="right"><%=stat.getErrorCount()%></td>
+    </tr>
+<%}%>
+</table>
@@ -0,0 +1,53 @@
+﻿<%@ page language="java" pageEncoding="UTF-8"%>
+<%@ page contentType="text/html; charset=UTF-8"%>
+
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.orm.sqldataexpress.util.QueryWarning,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%
+List warnings = (List)request.getAttribute("warnings");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > Query Warnings</p>
+</div>
+
+<h3>n+1 threshold: <%=W.get("nplusone.threshold")%>, query budget: <%=W.get("query.budget")%> (<%=W.get("budget.action")%>)</h3>
+
+<h3><%=T.pluralize(O.count(warnings), "warning")%> 
+    (<%=W.labelLink("clear", "/admin/sqlinfo/dismiss")%>)</h3>
+
+<table class="sTable">
+    <tr>
+        <th>Time</th>
+        <th>Type</th>
+        <th>Request</th>
+        <th>Action</th>
+        <th>Association</th>
+        <th>Count</th>
+        <th>Fingerprint</th>
+        <th>Call Site</th>
+    </tr>
+
+<%
+for (Iterator it = O.iteratorOf(warnings); it.hasNext();) {
+    QueryWarning warning = (QueryWarning)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td><%=warning.getTime()%></td>
+        <td><%=warning.getType()%></td>
+        <td><%=W.h(warning.getRequest())%></td>
+        <td><%=W.h(warning.getControllerAction())%></td>
+        <td><%=W.h(warning.getAssociation())%></td>
+        <td align="right"><%=warning.getCount()%></td>
+        <td><%=W.h(warning.getFingerprint())%></td>
+        <td><%=W.h(warning.getCallSite())%></td>
+    </tr>
+<%}%>
+</table>
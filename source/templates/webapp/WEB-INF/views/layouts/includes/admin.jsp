@@ -14,7 +14,13 @@ String username = LoginHelper.loginUserId();
     <div class="left">
         <%=W.labelLink("Site", "/admin/site")%> | 
         <%=W.labelLink("Routes", "/admin/routes")%> | 
+        <%=W.labelLink("Timing", "/admin/timing")%> | 
+        <%=W.labelLink("Events", "/admin/events")%> | 
+        <%=W.labelLink("Metrics", "/admin/metrics")%> | 
         <%=W.labelLink("Databases", "/admin/databases")%> | 
+        <%=W.labelLink("SQL Statistics", "/admin/sqlinfo/statistics")%> | 
+        <%=W.labelLink("SQL Plans", "/admin/sqlinfo/plans")%> | 
+        <%=W.labelLink("Query Warnings", "/admin/sqlinfo/warnings")%> | 
         <%=W.labelLink("SQL Window", "/admin/sqlwindow")%>
     </div>
     <div class="right">
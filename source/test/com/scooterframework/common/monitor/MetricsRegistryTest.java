@@ -0,0 +1,63 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * MetricsRegistryTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class MetricsRegistryTest {
+
+    @Test public void test_histogram() {
+    	Histogram h = new Histogram();
+    	for (int i = 1; i <= 1000; i++) {
+    		h.recordMicros(i * 1000L);
+    	}
+    	assertEquals("count", 1000, h.getCount());
+    	assertEquals("max", 1000000L, h.getMaxMicros());
+
+    	long p50 = h.getValueAtPercentile(50);
+    	assertTrue("p50 within 7% of 500ms: " + p50, Math.abs(p50 - 500000L) < 35000L);
+    	long p99 = h.getValueAtPercentile(99);
+    	assertTrue("p99 within 7% of 990ms: " + p99, Math.abs(p99 - 990000L) < 70000L);
+
+    	for (int i = 0; i < 600; i++) {
+    		assertTrue("bucket " + i, Histogram.lowerBoundOf(i) <= Histogram.upperBoundOf(i));
+    		assertEquals("index of lower bound " + i, i, Histogram.indexOf(Histogram.lowerBoundOf(i)));
+    		assertEquals("index of upper bound " + i, i, Histogram.indexOf(Histogram.upperBoundOf(i)));
+    	}
+    }
+
+    @Test public void test_prometheus_text() {
+    	MetricsRegistry registry = MetricsRegistry.getInstance();
+    	Counter c = registry.counter("test_requests_total", "Test requests.", "method", "GET");
+    	c.increment();
+    	c.add(2);
+    	assertSame("same counter", c, registry.counter("test_requests_total", "Test requests.", "method", "GET"));
+
+    	registry.histogram("test_duration_seconds", "Test durations.").recordMicros(2000L);
+
+    	String text = registry.toPrometheusText();
+    	assertTrue(text, text.indexOf("# TYPE test_requests_total counter\n") != -1);
+    	assertTrue(text, text.indexOf("test_requests_total{method=\"GET\"} 3\n") != -1);
+    	assertTrue(text, text.indexOf("test_duration_seconds_bucket{le=\"0.001\"} 0\n") != -1);
+    	assertTrue(text, text.indexOf("test_duration_seconds_bucket{le=\"0.0025\"} 1\n") != -1);
+    	assertTrue(text, text.indexOf("test_duration_seconds_count 1\n") != -1);
+
+    	registry.remove("test_requests_total");
+    	registry.remove("test_duration_seconds");
+    }
+}
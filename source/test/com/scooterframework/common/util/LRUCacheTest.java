@@ -0,0 +1,48 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * LRUCacheTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class LRUCacheTest {
+
+    @Test public void test_eviction() {
+    	LRUCache<String, String> cache = new LRUCache<String, String>("test.eviction", 2, 1);
+    	cache.put("a", "1");
+    	cache.put("b", "2");
+    	assertEquals("get a", "1", cache.get("a"));
+
+    	cache.put("c", "3");
+    	assertEquals("size after eviction", 2, cache.size());
+    	assertNull("b is least recently used", cache.get("b"));
+    	assertEquals("a is kept", "1", cache.get("a"));
+    	assertEquals("c is kept", "3", cache.get("c"));
+
+    	assertEquals("evictions", 1, cache.getEvictionCount());
+    	assertEquals("hits", 3, cache.getHitCount());
+    	assertEquals("misses", 1, cache.getMissCount());
+    }
+
+    @Test public void test_registry() {
+    	LRUCache<String, String> first = new LRUCache<String, String>("test.registry", 10);
+    	assertSame("registered", first, LRUCache.getCaches().get("test.registry"));
+
+    	LRUCache<String, String> second = new LRUCache<String, String>("test.registry", 10);
+    	assertSame("replaced", second, LRUCache.getCaches().get("test.registry"));
+    }
+}
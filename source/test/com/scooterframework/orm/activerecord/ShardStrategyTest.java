@@ -0,0 +1,161 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.orm.sqldataexpress.connection.ReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterTestHelper;
+
+/**
+ * ShardStrategyTest class runs a model hashed over two embedded H2
+ * databases by its customer_id column.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class ShardStrategyTest extends ScooterTestHelper {
+	private static final String SHARD0 = "scooter_test_db_h2_shard0";
+	private static final String SHARD1 = "scooter_test_db_h2_shard1";
+	private static final String SHARD2 = "scooter_test_db_h2_shard2";
+	private static final String SHARD3 = "scooter_test_db_h2_shard3";
+
+	public static class ShardedOrder extends ActiveRecord {
+		private static final ShardStrategy SHARDS =
+			ShardStrategy.hash("customer_id", SHARD0, SHARD1);
+
+		public String getTableName() {
+			return "sharded_orders";
+		}
+
+		public ShardStrategy getShardStrategy() {
+			return SHARDS;
+		}
+	}
+
+	public static class ReplicatedOrder extends ActiveRecord {
+		private static final ShardStrategy SHARDS =
+			ShardStrategy.hash("customer_id", SHARD2, SHARD3);
+
+		public String getTableName() {
+			return "replicated_orders";
+		}
+
+		public ShardStrategy getShardStrategy() {
+			return SHARDS;
+		}
+	}
+
+    @Before public void setUp() {
+    	for (String name : new String[]{SHARD0, SHARD1}) {
+    		SqlServiceClient.executeSQL(name, "DROP TABLE IF EXISTS sharded_orders", null);
+    		SqlServiceClient.executeSQL(name, "CREATE TABLE sharded_orders " +
+    			"(id INT PRIMARY KEY, customer_id INT, amount INT)", null);
+    	}
+
+    	TableGateway gateway = ActiveRecordUtil.getGateway(ShardedOrder.class);
+    	for (int i = 1; i <= 10; i++) {
+    		ShardedOrder order = new ShardedOrder();
+    		order.setData("id", Integer.valueOf(i));
+    		order.setData("customer_id", Integer.valueOf(i % 4));
+    		order.setData("amount", Integer.valueOf(i * 10));
+    		order.create();
+    	}
+    	assertEquals(10, gateway.findAll().size());
+
+    	for (String name : new String[]{SHARD2, SHARD2 + "_replica", SHARD3, SHARD3 + "_replica"}) {
+    		SqlServiceClient.executeSQL(name, "DROP TABLE IF EXISTS replicated_orders", null);
+    		SqlServiceClient.executeSQL(name, "CREATE TABLE replicated_orders " +
+    			"(id INT PRIMARY KEY, customer_id INT, amount INT)", null);
+    	}
+    	ReplicaRouter.clearWrites();
+    }
+
+    @After public void tearDown() {
+    	ReplicaRouter.clearWrites();
+    }
+
+    private int count(String shard) {
+    	return SqlServiceClient.retrieveRowsBySQL(shard, "SELECT id FROM sharded_orders", null).size();
+    }
+
+    @Test public void test_records_are_spread_by_key() {
+    	assertEquals(SHARD0, ShardedOrder.SHARDS.getShard(Integer.valueOf(2)));
+    	assertEquals(SHARD1, ShardedOrder.SHARDS.getShard("3"));
+    	assertEquals(5, count(SHARD0));
+    	assertEquals(5, count(SHARD1));
+    }
+
+    @Test public void test_finders() {
+    	TableGateway gateway = ActiveRecordUtil.getGateway(ShardedOrder.class);
+
+    	Map<String, Object> conditions = new HashMap<String, Object>();
+    	conditions.put("customer_id", Integer.valueOf(3));
+    	List<ActiveRecord> orders = gateway.findAll(conditions);
+    	assertEquals(2, orders.size());
+
+    	orders = gateway.orderBy("amount DESC").limit(3).offset(2).getRecords();
+    	assertEquals(3, orders.size());
+    	assertEquals("80", orders.get(0).getField("amount").toString());
+    	assertEquals("60", orders.get(2).getField("amount").toString());
+
+    	assertEquals("70", gateway.findById(Integer.valueOf(7)).getField("amount").toString());
+    	assertNull(gateway.findById(Integer.valueOf(70)));
+    }
+
+    @Test public void test_update_and_delete() {
+    	TableGateway gateway = ActiveRecordUtil.getGateway(ShardedOrder.class);
+    	Map<String, Object> fieldData = new HashMap<String, Object>();
+    	fieldData.put("amount", Integer.valueOf(0));
+    	assertEquals(10, gateway.updateAll(fieldData));
+
+    	Map<String, Object> conditions = new HashMap<String, Object>();
+    	conditions.put("customer_id", Integer.valueOf(1));
+    	assertEquals(3, gateway.deleteAll(conditions));
+    	assertEquals(7, gateway.findAll().size());
+    }
+
+    @Test public void test_scatter_reads_own_writes() {
+    	TableGateway gateway = ActiveRecordUtil.getGateway(ReplicatedOrder.class);
+    	assertEquals(0, gateway.findAll().size());
+
+    	ReplicatedOrder order = new ReplicatedOrder();
+    	order.setData("id", Integer.valueOf(1));
+    	order.setData("customer_id", Integer.valueOf(2));
+    	order.setData("amount", Integer.valueOf(10));
+    	order.create();
+    	assertTrue(ReplicaRouter.hasWritten(SHARD2));
+    	assertEquals(1, gateway.findAll().size());
+
+    	CurrentThreadCache.clear();
+    	assertEquals(0, gateway.findAll().size());
+
+    	Map<String, Object> fieldData = new HashMap<String, Object>();
+    	fieldData.put("amount", Integer.valueOf(0));
+    	assertEquals(1, gateway.updateAll(fieldData));
+    	assertTrue(ReplicaRouter.hasWritten(SHARD3));
+    }
+
+    @Test public void test_range() {
+    	ShardStrategy range = ShardStrategy.range("id").addRange(Integer.valueOf(100), SHARD0).addRange(null, SHARD1);
+    	assertEquals(SHARD0, range.getShard(Long.valueOf(99)));
+    	assertEquals(SHARD1, range.getShard("100"));
+    }
+}
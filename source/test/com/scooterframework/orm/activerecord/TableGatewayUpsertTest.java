@@ -0,0 +1,132 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterTestHelper;
+
+/**
+ * TableGatewayUpsertTest class runs upserts against an embedded H2
+ * database.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class TableGatewayUpsertTest extends ScooterTestHelper {
+	private static final String CONN = "scooter_test_db_h2_mem";
+
+	public static class StockItem extends ActiveRecord {
+		public String getConnectionName() {
+			return CONN;
+		}
+
+		public String getTableName() {
+			return "stock_items";
+		}
+	}
+
+	public static class CatalogItem extends ActiveRecord {
+		public String getConnectionName() {
+			return CONN;
+		}
+
+		public String getTableName() {
+			return "catalog_items";
+		}
+	}
+
+    @Before public void setUp() {
+    	SqlServiceClient.executeSQL(CONN, "DROP TABLE IF EXISTS stock_items", null);
+    	SqlServiceClient.executeSQL(CONN, "CREATE TABLE stock_items " +
+    		"(id INT PRIMARY KEY, name VARCHAR(30), qty INT)", null);
+    	SqlServiceClient.executeSQL(CONN, "INSERT INTO stock_items (id, name, qty) VALUES (?, ?, ?)",
+    		new Object[]{Integer.valueOf(1), "bolt", Integer.valueOf(5)});
+    	SqlServiceClient.executeSQL(CONN, "DROP TABLE IF EXISTS catalog_items", null);
+    	SqlServiceClient.executeSQL(CONN, "CREATE TABLE catalog_items " +
+    		"(id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(30) UNIQUE, qty INT)", null);
+    }
+
+    private StockItem item(int id, String name, int qty) {
+    	StockItem item = new StockItem();
+    	item.setData("id", Integer.valueOf(id));
+    	item.setData("name", name);
+    	item.setData("qty", Integer.valueOf(qty));
+    	return item;
+    }
+
+    private RowData row(int id) {
+    	List<RowData> rows = SqlServiceClient.retrieveRowsBySQL(CONN,
+    		"SELECT name, qty FROM stock_items WHERE id = ?", new Object[]{Integer.valueOf(id)});
+    	return (rows.size() > 0)?rows.get(0):null;
+    }
+
+    @Test public void test_batch_upsert() {
+    	List<StockItem> items = new ArrayList<StockItem>();
+    	items.add(item(1, "screw", 7));
+    	items.add(item(2, "nut", 9));
+    	items.add(item(3, "washer", 11));
+
+    	int[] counts = ActiveRecordUtil.getGateway(StockItem.class).upsert(items, "id", null);
+    	assertEquals(3, counts.length);
+    	assertEquals(1, counts[0]);
+    	assertEquals("screw", row(1).getField("name"));
+    	assertEquals("7", row(1).getField("qty").toString());
+    	assertEquals("11", row(3).getField("qty").toString());
+    }
+
+    @Test public void test_upsert_some_columns() {
+    	TableGateway gateway = ActiveRecordUtil.getGateway(StockItem.class);
+    	assertEquals(1, gateway.upsert(item(1, "screw", 8), "id", "qty"));
+    	assertEquals(1, gateway.upsert(item(4, "rivet", 2), "id", "qty"));
+
+    	assertEquals("bolt", row(1).getField("name"));
+    	assertEquals("8", row(1).getField("qty").toString());
+    	assertEquals("rivet", row(4).getField("name"));
+    }
+
+    @Test public void test_upsert_without_id() {
+    	TableGateway gateway = ActiveRecordUtil.getGateway(CatalogItem.class);
+    	CatalogItem item = new CatalogItem();
+    	item.setData("id", null);
+    	item.setData("name", "gear");
+    	item.setData("qty", Integer.valueOf(3));
+    	assertEquals(1, gateway.upsert(item, "name", null));
+
+    	item.setData("qty", Integer.valueOf(6));
+    	gateway.upsert(item, "name", null);
+
+    	List<RowData> rows = SqlServiceClient.retrieveRowsBySQL(CONN,
+    		"SELECT id, qty FROM catalog_items WHERE name = ?", new Object[]{"gear"});
+    	assertEquals(1, rows.size());
+    	assertNotNull(rows.get(0).getField("id"));
+    	assertEquals("6", rows.get(0).getField("qty").toString());
+    }
+
+    @Test public void test_upsert_without_id_on_id() {
+    	CatalogItem item = new CatalogItem();
+    	item.setData("id", null);
+    	item.setData("name", "gear");
+    	try {
+    		ActiveRecordUtil.getGateway(CatalogItem.class).upsert(item, "id", null);
+    		fail("A record without id cannot be upserted on id.");
+    	}
+    	catch(IllegalArgumentException ex) {
+    	}
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ConnectionPoolTest class runs against an embedded H2 database.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class ConnectionPoolTest {
+	private ConnectionPool pool;
+
+    @Before public void setUp() throws Exception {
+    	pool = new ConnectionPool("pool_test", "org.h2.Driver", "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1", "sa", "");
+    	pool.setMinPoolSize(1);
+    	pool.setMaxPoolSize(2);
+    	pool.setInitialPoolSize(1);
+    	pool.setAcquireIncrement(1);
+    	pool.setMaxWait(1);
+    	pool.setStatementCacheSize(2);
+    	pool.init();
+    }
+
+    @After public void tearDown() throws Exception {
+    	Connection connection = pool.getConnection();
+    	Statement stmt = connection.createStatement();
+    	stmt.execute("DROP ALL OBJECTS");
+    	stmt.close();
+    	connection.close();
+    	pool.close();
+    }
+
+    @Test public void test_borrow_return() throws Exception {
+    	assertEquals(1, pool.getTotalConnections());
+
+    	Connection c1 = pool.getConnection();
+    	Connection raw = c1.unwrap(Connection.class);
+    	assertEquals(1, pool.getBusyConnections());
+    	c1.close();
+    	c1.close();
+    	assertTrue(c1.isClosed());
+    	assertEquals(1, pool.getIdleConnections());
+
+    	Connection c2 = pool.getConnection();
+    	assertNotSame(c1, c2);
+    	assertSame(raw, c2.unwrap(Connection.class));
+    	try {
+    		c1.createStatement();
+    		fail("A closed connection must not be used.");
+    	} catch (SQLException ex) {
+    	}
+    	c2.close();
+    }
+
+    @Test public void test_timeout() throws Exception {
+    	Connection c1 = pool.getConnection();
+    	Connection c2 = pool.getConnection();
+    	assertEquals(2, pool.getTotalConnections());
+    	try {
+    		pool.getConnection();
+    		fail("The pool is full.");
+    	} catch (SQLException ex) {
+    		assertEquals(1L, pool.getTimeouts());
+    	}
+    	c1.close();
+    	c2.close();
+    }
+
+    @Test public void test_handoff_and_sizing() throws Exception {
+    	final Connection c1 = pool.getConnection();
+    	Connection raw = c1.unwrap(Connection.class);
+    	Connection c2 = pool.getConnection();
+
+    	Thread t = new Thread() {
+    		public void run() {
+    			try {
+    				Thread.sleep(100);
+    				c1.close();
+    			} catch (Exception ex) {
+    			}
+    		}
+    	};
+    	t.start();
+    	Connection c3 = pool.getConnection();
+    	t.join();
+    	assertSame(raw, c3.unwrap(Connection.class));
+    	c2.close();
+    	c3.close();
+
+    	pool.housekeep();
+    	assertEquals(2, pool.getTargetSize());
+    	pool.housekeep();
+    	assertEquals(1, pool.getTargetSize());
+    }
+
+    @Test public void test_reset_on_return() throws Exception {
+    	Connection c1 = pool.getConnection();
+    	Statement stmt = c1.createStatement();
+    	stmt.execute("CREATE TABLE pool_items (id INT PRIMARY KEY)");
+    	stmt.close();
+    	c1.setAutoCommit(false);
+    	stmt = c1.createStatement();
+    	stmt.executeUpdate("INSERT INTO pool_items VALUES (1)");
+    	stmt.close();
+    	c1.close();
+
+    	Connection c2 = pool.getConnection();
+    	assertTrue(c2.getAutoCommit());
+    	stmt = c2.createStatement();
+    	ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM pool_items");
+    	assertTrue(rs.next());
+    	assertEquals(0, rs.getInt(1));
+    	assertFalse(rs.next());
+    	rs.close();
+    	stmt.close();
+    	c2.close();
+    }
+
+    @Test public void test_statement_cache() throws Exception {
+    	Connection c1 = pool.getConnection();
+    	PreparedStatement ps1 = c1.prepareStatement("SELECT 1");
+    	PreparedStatement raw = ps1.unwrap(PreparedStatement.class);
+    	PreparedStatement ps2 = c1.prepareStatement("SELECT 1");
+    	assertNotSame(raw, ps2);
+    	ps2.close();
+    	ps1.close();
+    	assertTrue(ps1.isClosed());
+    	c1.close();
+
+    	Connection c2 = pool.getConnection();
+    	PreparedStatement ps3 = c2.prepareStatement("SELECT 1");
+    	assertSame(raw, ps3.unwrap(PreparedStatement.class));
+    	assertSame(c2, ps3.getConnection());
+    	ResultSet rs = ps3.executeQuery();
+    	assertTrue(rs.next());
+    	rs.close();
+    	ps3.close();
+    	assertEquals(1L, pool.getStatementCacheHits());
+    	assertEquals(2L, pool.getStatementCacheMisses());
+
+    	c2.prepareStatement("SELECT 2").close();
+    	c2.prepareStatement("SELECT 3").close();
+    	ps3 = c2.prepareStatement("SELECT 1");
+    	assertNotSame(raw, ps3.unwrap(PreparedStatement.class));
+    	assertTrue(raw.isClosed());
+    	ps3.close();
+    	c2.close();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterTestHelper;
+
+/**
+ * ReplicaRouterTest class runs against three embedded H2 databases, a
+ * primary and two replicas, each of which knows its own name.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class ReplicaRouterTest extends ScooterTestHelper {
+	private static final String PRIMARY = "scooter_test_db_h2_primary";
+	private static final String REPLICA1 = "scooter_test_db_h2_replica1";
+	private static final String REPLICA2 = "scooter_test_db_h2_replica2";
+
+    @Before public void setUp() {
+    	for (String name : new String[]{PRIMARY, REPLICA1, REPLICA2}) {
+    		SqlServiceClient.executeSQL(name, "DROP TABLE IF EXISTS replica_names", null);
+    		SqlServiceClient.executeSQL(name, "CREATE TABLE replica_names (name VARCHAR(60))", null);
+    		SqlServiceClient.executeSQL(name, "INSERT INTO replica_names (name) VALUES (?)", new Object[]{name});
+    	}
+    	ReplicaRouter.clearWrites();
+    }
+
+    @After public void tearDown() {
+    	ReplicaRouter.configure(ReplicaRouter.BALANCE_ROUND_ROBIN);
+    	ReplicaRouter.clearWrites();
+    }
+
+    private String readName() {
+    	List<RowData> rows = SqlServiceClient.retrieveRowsBySQL(PRIMARY, "SELECT name FROM replica_names", null);
+    	return (String)rows.get(0).getField("name");
+    }
+
+    @Test public void test_reads_go_to_replicas() {
+    	assertEquals(2, ReplicaRouter.getReplicas(PRIMARY).length);
+    	assertFalse(ReplicaRouter.hasReplicas(REPLICA1));
+
+    	Set<String> names = new HashSet<String>();
+    	for (int i = 0; i < 4; i++) {
+    		names.add(readName());
+    	}
+    	assertEquals(2, names.size());
+    	assertTrue(names.contains(REPLICA1));
+    	assertTrue(names.contains(REPLICA2));
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA1));
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA2));
+    }
+
+    @Test public void test_read_your_writes() {
+    	SqlServiceClient.executeSQL(PRIMARY, "UPDATE replica_names SET name = ?", new Object[]{"updated"});
+    	assertTrue(ReplicaRouter.hasWritten(PRIMARY));
+    	assertEquals("updated", readName());
+    	assertEquals("updated", readName());
+
+    	ReplicaRouter.clearWrites();
+    	assertFalse("updated".equals(readName()));
+    }
+
+    @Test public void test_least_busy() {
+    	ReplicaRouter.configure(ReplicaRouter.BALANCE_LEAST_BUSY);
+    	String first = ReplicaRouter.routeRead(PRIMARY);
+    	String second = ReplicaRouter.routeRead(PRIMARY);
+    	String third = ReplicaRouter.routeRead(PRIMARY);
+    	assertFalse(first.equals(second));
+    	ReplicaRouter.release(first);
+    	ReplicaRouter.release(second);
+    	ReplicaRouter.release(third);
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA1));
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA2));
+    }
+
+    @Test public void test_release_of_unrouted_reads() {
+    	ReplicaRouter.release(ReplicaRouter.routeRead(PRIMARY));
+    	ReplicaRouter.release(ReplicaRouter.routeRead(PRIMARY));
+
+    	List<RowData> rows = SqlServiceClient.retrieveRowsBySQL(REPLICA1, "SELECT name FROM replica_names", null);
+    	assertEquals(REPLICA1, rows.get(0).getField("name"));
+    	SqlServiceClient.executeSQL(PRIMARY, "UPDATE replica_names SET name = ?", new Object[]{"updated"});
+    	assertEquals("updated", readName());
+
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA1));
+    	assertEquals(0, ReplicaRouter.getBusyCount(REPLICA2));
+    }
+}
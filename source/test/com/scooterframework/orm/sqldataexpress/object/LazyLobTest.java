@@ -0,0 +1,107 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.object;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
+import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
+import com.scooterframework.test.ScooterTestHelper;
+
+/**
+ * LazyLobTest class reads lazy LOB values of an embedded H2 database
+ * within and after the transaction which read them.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class LazyLobTest extends ScooterTestHelper {
+	private static final String CONN = "scooter_test_db_h2_mem";
+
+	private Connection conn;
+
+    @Before public void setUp() {
+    	SqlServiceClient.executeSQL(CONN, "DROP TABLE IF EXISTS lob_documents", null);
+    	SqlServiceClient.executeSQL(CONN, "CREATE TABLE lob_documents (id INT PRIMARY KEY, body CLOB)", null);
+    	SqlServiceClient.executeSQL(CONN, "INSERT INTO lob_documents (id, body) VALUES (1, 'first')", null);
+    }
+
+    @After public void tearDown() {
+    	if (conn == null) return;
+    	DAOUtil.rollback(conn);
+    	DAOUtil.closeConnection(conn);
+    }
+
+    private LazyLob read(boolean bound) throws SQLException {
+    	conn = SqlExpressUtil.getConnection(CONN);
+    	conn.setAutoCommit(false);
+    	PreparedStatement pstmt = conn.prepareStatement("SELECT body FROM lob_documents WHERE id = 1");
+    	try {
+    		ResultSet rs = pstmt.executeQuery();
+    		rs.next();
+    		LazyLob lob = new LazyLob(rs.getClob(1), conn);
+    		if (bound) {
+    			Map<String, Object> key = new HashMap<String, Object>();
+    			key.put("id", Integer.valueOf(1));
+    			lob.bind(CONN, "lob_documents", "body", key);
+    		}
+    		return lob;
+    	}
+    	finally {
+    		DAOUtil.closeStatement(pstmt);
+    	}
+    }
+
+    @Test public void test_read_within_transaction() throws SQLException {
+    	LazyLob lob = read(false);
+    	assertEquals("first", lob.getString());
+    	assertEquals(5L, lob.length());
+    }
+
+    @Test public void test_read_after_commit_on_open_connection() throws SQLException {
+    	LazyLob lob = read(true);
+    	DAOUtil.commit(conn);
+    	SqlServiceClient.executeSQL(CONN, "UPDATE lob_documents SET body = 'second' WHERE id = 1", null);
+
+    	assertEquals("second", lob.getString());
+    }
+
+    @Test public void test_null_value_after_commit() throws SQLException {
+    	LazyLob lob = read(true);
+    	DAOUtil.commit(conn);
+    	SqlServiceClient.executeSQL(CONN, "UPDATE lob_documents SET body = NULL WHERE id = 1", null);
+
+    	assertNull(lob.getReader());
+    	assertNull(lob.getString());
+    }
+
+    @Test public void test_unbound_value_after_commit() throws SQLException {
+    	LazyLob lob = read(false);
+    	DAOUtil.commit(conn);
+    	try {
+    		lob.getString();
+    		fail("An unbound value can not be read after its transaction ends.");
+    	}
+    	catch(SQLException ex) {
+    	}
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
+
+/**
+ * AsyncSqlServiceClientTest class tests fan-out of tasks without a
+ * database.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class AsyncSqlServiceClientTest {
+
+    @AfterClass public static void tearDown() {
+    	AsyncSqlServiceClient.shutdown();
+    }
+
+    @Test public void test_fanOut_in_parallel() {
+    	final CountDownLatch latch = new CountDownLatch(3);
+    	List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    	for (int i = 0; i < 3; i++) {
+    		final int n = i;
+    		tasks.add(new Callable<Integer>() {
+    			public Integer call() throws Exception {
+    				latch.countDown();
+    				latch.await(5, TimeUnit.SECONDS);
+    				return Integer.valueOf(n);
+    			}
+    		});
+    	}
+
+    	List<Object> results = AsyncSqlServiceClient.fanOut(tasks, 5000);
+    	assertEquals(0L, latch.getCount());
+    	assertEquals(3, results.size());
+    	assertEquals(Integer.valueOf(0), results.get(0));
+    	assertEquals(Integer.valueOf(2), results.get(2));
+    }
+
+    @Test public void test_fanOut_deadline() {
+    	final CountDownLatch interrupted = new CountDownLatch(1);
+    	List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    	tasks.add(new Callable<Object>() {
+    		public Object call() throws Exception {
+    			try {
+    				Thread.sleep(10000);
+    			} catch (InterruptedException ex) {
+    				interrupted.countDown();
+    			}
+    			return null;
+    		}
+    	});
+
+    	try {
+    		AsyncSqlServiceClient.fanOut(tasks, 100);
+    		fail("The task does not finish in time.");
+    	} catch (QueryTimeoutException ex) {
+    		assertTrue(ex.getMessage().startsWith("1 of 1"));
+    	}
+    	try {
+    		assertTrue("The task is cancelled.", interrupted.await(5, TimeUnit.SECONDS));
+    	} catch (InterruptedException ex) {
+    		fail(ex.getMessage());
+    	}
+    }
+
+    @Test(expected=BaseSQLException.class) public void test_fanOut_failure() {
+    	List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    	tasks.add(new Callable<Object>() {
+    		public Object call() throws Exception {
+    			throw new BaseSQLException("failed");
+    		}
+    	});
+    	AsyncSqlServiceClient.fanOut(tasks, 0);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.admin.ApplicationConfig;
+import com.scooterframework.admin.Constants;
+import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterTestHelper;
+
+/**
+ * DBStoreTest class runs direct SQL statements in development environment,
+ * where statements and their processors are stored in the current thread.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class DBStoreTest extends ScooterTestHelper {
+	private static final String CONN = "scooter_test_db_h2_mem";
+
+	private String runningEnvironment;
+
+    @Before public void setUp() {
+    	runningEnvironment = ApplicationConfig.getInstance().getRunningEnvironment();
+    	ApplicationConfig.getInstance().setRunningEnvironment(Constants.RUNNING_ENVIRONMENT_DEVELOPMENT);
+    	CurrentThreadCache.clear();
+    }
+
+    @After public void tearDown() {
+    	CurrentThreadCache.clear();
+    	ApplicationConfig.getInstance().setRunningEnvironment(runningEnvironment);
+    }
+
+    @Test public void test_direct_sql_with_inputs() {
+    	Map<String, Object> inputs = new HashMap<String, Object>();
+    	inputs.put(DataProcessor.input_key_database_connection_name, CONN);
+    	for (int i = 0; i < 2; i++) {
+    		List<RowData> rows = SqlServiceClient.retrieveRowsBySQL("SELECT 2 FROM DUAL", inputs);
+    		assertEquals(1, rows.size());
+    		assertEquals(2, ((Number)rows.get(0).getField(0)).intValue());
+    	}
+    }
+
+    @Test public void test_direct_sql_with_params() {
+    	for (int i = 0; i < 2; i++) {
+    		List<RowData> rows = SqlServiceClient.retrieveRowsBySQL(CONN, "SELECT 3 FROM DUAL", new Object[]{});
+    		assertEquals(1, rows.size());
+    		assertEquals(3, ((Number)rows.get(0).getField(0)).intValue());
+    	}
+    }
+
+    @Test public void test_statement_and_processor_of_same_sql() {
+    	String sql = "SELECT 4 FROM DUAL";
+    	DBStore store = DBStore.getInstance();
+    	SqlServiceClient.retrieveRowsBySQL(CONN, sql, new Object[]{});
+    	assertNotNull(store.getDirectJdbcStatement(sql));
+    	assertNotNull(store.getDirectJdbcStatementProcessor(sql));
+    }
+}
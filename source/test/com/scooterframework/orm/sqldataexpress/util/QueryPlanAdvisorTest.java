@@ -0,0 +1,82 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.vendor.H2DBAdapter;
+
+/**
+ * QueryPlanAdvisorTest class runs against an embedded H2 database.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class QueryPlanAdvisorTest {
+	private Connection connection;
+
+    @Before public void setUp() throws Exception {
+    	Class.forName("org.h2.Driver");
+    	connection = DriverManager.getConnection("jdbc:h2:mem:plans", "sa", "");
+    	Statement stmt = connection.createStatement();
+    	stmt.execute("CREATE TABLE posts (id INT PRIMARY KEY, title VARCHAR(100))");
+    	stmt.execute("CREATE TABLE comments (id INT PRIMARY KEY, post_id INT, body VARCHAR(100))");
+    	stmt.close();
+    }
+
+    @After public void tearDown() throws Exception {
+    	QueryPlanAdvisor.getInstance().clear();
+    	Statement stmt = connection.createStatement();
+    	stmt.execute("DROP ALL OBJECTS");
+    	stmt.close();
+    	connection.close();
+    }
+
+    @Test public void test_parse() {
+    	String fp = SqlFingerprint.fingerprint(
+    		"SELECT c.* FROM comments c INNER JOIN posts AS p ON c.post_id = p.id WHERE p.title LIKE ? ORDER BY c.id");
+    	Map<String, String> tables = QueryPlanAdvisor.getTables(fp);
+    	assertEquals("comments", tables.get("c"));
+    	assertEquals("posts", tables.get("p"));
+    	assertEquals("[c.post_id, p.title]", QueryPlanAdvisor.getConditionColumns(fp).toString());
+    }
+
+    @Test public void test_missing_index() throws Exception {
+    	String sql = "SELECT * FROM comments WHERE post_id = ?";
+    	List<Object> parameters = new ArrayList<Object>();
+    	parameters.add(Integer.valueOf(1));
+
+    	QueryPlanAdvisor advisor = QueryPlanAdvisor.getInstance();
+    	QueryPlan plan = advisor.explain(connection, new H2DBAdapter(), "h2", sql, parameters, 0L);
+    	assertTrue(plan.isFullScan());
+    	assertEquals("[comments.post_id]", plan.getMissingIndexes().toString());
+    	assertFalse(advisor.shouldExplain(plan.getFingerprint()));
+
+    	Statement stmt = connection.createStatement();
+    	stmt.execute("CREATE INDEX comments_post_id ON comments (post_id)");
+    	stmt.close();
+
+    	advisor.clear();
+    	plan = advisor.explain(connection, new H2DBAdapter(), "h2", sql, parameters, 0L);
+    	assertFalse(plan.isFullScan());
+    	assertEquals(0, plan.getMissingIndexes().size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.exception.QueryTimeoutException;
+
+/**
+ * QueryTimeoutTest class runs against an embedded H2 database.
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class QueryTimeoutTest {
+	private static final String SLOW_SQL = "SELECT SUM(X) FROM SYSTEM_RANGE(1, 2000000000) WHERE MOD(X, 7) = 3";
+	private Connection connection;
+
+    @Before public void setUp() throws Exception {
+    	Class.forName("org.h2.Driver");
+    	connection = DriverManager.getConnection("jdbc:h2:mem:timeout", "sa", "");
+    }
+
+    @After public void tearDown() throws Exception {
+    	QueryTimeout.end();
+    	QueryTimeout.setRequestBudget(0);
+    	QueryTimeout.shutdown();
+    	connection.close();
+    }
+
+    @Test public void test_no_limit() throws Exception {
+    	assertNull(QueryTimeout.begin("test"));
+    	PreparedStatement pstmt = connection.prepareStatement("SELECT 1");
+    	assertNull(QueryTimeout.start(pstmt, 0));
+    	pstmt.close();
+    }
+
+    @Test public void test_budget_cancels_statement() throws Exception {
+    	QueryTimeout.setRequestBudget(200);
+    	QueryTimeout qt = QueryTimeout.begin("test");
+    	assertNotNull(qt);
+
+    	PreparedStatement pstmt = connection.prepareStatement(SLOW_SQL);
+    	QueryTimeout.Watch watch = QueryTimeout.start(pstmt, 30);
+    	assertEquals(1, pstmt.getQueryTimeout());
+    	long start = System.currentTimeMillis();
+    	try {
+    		pstmt.executeQuery();
+    		fail("The statement must be cancelled.");
+    	} catch (SQLException ex) {
+    		assertTrue(watch.isCancelled());
+    		assertTrue(QueryTimeout.isTimeout(ex, watch));
+    	} finally {
+    		QueryTimeout.stop(watch);
+    		pstmt.close();
+    	}
+    	assertTrue(System.currentTimeMillis() - start < 900);
+    	assertTrue(qt.getRemainingMillis() <= 0);
+
+    	pstmt = connection.prepareStatement("SELECT 1");
+    	try {
+    		QueryTimeout.start(pstmt, 0);
+    		fail("The budget is used up.");
+    	} catch (QueryTimeoutException ex) {
+    	} finally {
+    		pstmt.close();
+    	}
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.scooterframework.orm.sqldataexpress.exception.QueryBudgetExceededException;
+
+/**
+ * QueryTrackerTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class QueryTrackerTest {
+
+    @After public void tearDown() {
+    	QueryTracker.end();
+    	QueryTracker.setNPlusOneThreshold(0);
+    	QueryTracker.setQueryBudget(0);
+    	QueryTracker.setFailOverBudget(false);
+    	QueryTracker.clearWarnings();
+    }
+
+    @Test public void test_disabled() {
+    	assertNull(QueryTracker.begin("GET /posts"));
+    	QueryTracker.record("select * from comments where post_id = 1");
+    	assertNull(QueryTracker.current());
+    }
+
+    @Test public void test_n_plus_one() {
+    	QueryTracker.setNPlusOneThreshold(3);
+    	QueryTracker.begin("GET /posts");
+    	QueryTracker.record("select * from posts");
+    	for (int i = 1; i <= 4; i++) {
+    		String previous = QueryTracker.enterAssociation("post.comments");
+    		QueryTracker.record("select * from comments where post_id = " + i);
+    		QueryTracker.exitAssociation(previous);
+    	}
+    	QueryTracker.record("select * from comments where post_id = 5");
+    	assertEquals(6, QueryTracker.current().getQueryCount());
+    	QueryTracker.end();
+
+    	List<QueryWarning> warnings = QueryTracker.getWarnings();
+    	assertEquals(1, warnings.size());
+    	QueryWarning warning = warnings.get(0);
+    	assertEquals(QueryWarning.TYPE_N_PLUS_ONE, warning.getType());
+    	assertEquals("post.comments", warning.getAssociation());
+    	assertEquals("select * from comments where post_id = ?", warning.getFingerprint());
+    	assertEquals(4, warning.getCount());
+    }
+
+    @Test public void test_budget() {
+    	QueryTracker.setQueryBudget(2);
+    	QueryTracker.setFailOverBudget(true);
+    	QueryTracker.begin("GET /posts");
+    	QueryTracker.record("select * from posts");
+    	QueryTracker.record("select * from users");
+    	try {
+    		QueryTracker.record("select * from tags");
+    		fail("The query budget should be exceeded.");
+    	}
+    	catch(QueryBudgetExceededException ex) {
+    	}
+    	QueryTracker.end();
+    	assertEquals(QueryWarning.TYPE_BUDGET, QueryTracker.getWarnings().get(0).getType());
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *   This software is distributed under the terms of the FSF
+ *   Gnu Lesser General Public License (see lgpl.txt).
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * SqlFingerprintTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class SqlFingerprintTest {
+
+    @Test public void test_literals() {
+    	assertEquals("select * from users where id = ? and name = ?",
+    			SqlFingerprint.fingerprint("SELECT *  FROM users\n WHERE id = 12 AND name = 'O''Brien'"));
+    	assertEquals("select * from users where id = ? and name = ?",
+    			SqlFingerprint.fingerprint("select * from USERS where ID = ? and NAME = ?"));
+    	assertEquals("select t1.price from t1 where t1.price > ? limit ?",
+    			SqlFingerprint.fingerprint("select t1.price from t1 /* hint */ where t1.price > 1.5e3 limit 10 -- page"));
+    }
+
+    @Test public void test_lists() {
+    	assertEquals("select * from posts where id in (...)",
+    			SqlFingerprint.fingerprint("select * from posts where id in (1, 2, 3)"));
+    	assertEquals("select * from posts where id in (...)",
+    			SqlFingerprint.fingerprint("select * from posts where id IN(?,?)"));
+    	assertEquals("insert into tags (name, count) values (?, ?)",
+    			SqlFingerprint.fingerprint("insert into tags (name, count) values ('a', 1), ('b', 2), ('c', 3)"));
+    }
+}
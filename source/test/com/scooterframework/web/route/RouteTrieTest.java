@@ -0,0 +1,90 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.route;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * RouteTrieTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class RouteTrieTest {
+	
+	private static Properties props(String url, String controller, String action, String methods) {
+		Properties p = new Properties();
+		p.setProperty(RouteConstants.ROUTE_KEY_URL, url);
+		if (controller != null) p.setProperty(RouteConstants.ROUTE_KEY_CONTROLLER, controller);
+		if (action != null) p.setProperty(RouteConstants.ROUTE_KEY_ACTION, action);
+		if (methods != null) p.setProperty(RouteConstants.ROUTE_KEY_ALLOWED_METHODS, methods);
+		return p;
+	}
+	
+	private static List<Route> routes() {
+		List<Route> routes = new ArrayList<Route>();
+		routes.add(new NamedRoute("signon", props("/signon", "signon", "login", null)));
+		routes.add(new RegularRoute("posts_new", props("posts/new", "posts", "add", "GET")));
+		routes.add(new RegularRoute("posts_show", props("posts/$id", "posts", "show", "GET")));
+		routes.add(new RegularRoute("posts_update", props("posts/$id", "posts", "update", "PUT")));
+		
+		Properties p = props("posts/$id", "posts", "special", null);
+		p.setProperty(RouteConstants.ROUTE_KEY_REQUIREMENTS, "{id => /\\d+/}");
+		routes.add(new RegularRoute("posts_special", p));
+		
+		routes.add(new DefaultRoute("default", props("$controller/$action/$id", null, null, null)));
+		routes.add(new DefaultRoute("default2", props("$controller/$action", null, null, null)));
+		return routes;
+	}
+	
+	private static String find(RouteTrie trie, String path, String method) {
+		int index = trie.find(new RequestInfo(path, method));
+		return (index == -1)?null:trie.getRoute(index).getName();
+	}
+	
+    @Test public void test_find_keeps_declaration_order() {
+    	RouteTrie trie = new RouteTrie(routes());
+    	
+    	assertEquals("named route", "signon", find(trie, "/signon", "GET"));
+    	assertEquals("named route ignores case", "signon", find(trie, "/SignOn", "POST"));
+    	assertEquals("static before placeholder", "posts_new", find(trie, "/posts/new", "GET"));
+    	assertEquals("placeholder route", "posts_show", find(trie, "/posts/12", "GET"));
+    	assertEquals("http method", "posts_update", find(trie, "/posts/12", "PUT"));
+    	assertEquals("requirements", "posts_special", find(trie, "/posts/12", "DELETE"));
+    	assertEquals("requirements not met", "default2", find(trie, "/posts/abc", "DELETE"));
+    	assertEquals("default route", "default", find(trie, "/users/edit/3", "GET"));
+    	assertEquals("default route with two segments", "default2", find(trie, "/users/list", "GET"));
+    	assertEquals("no route", null, find(trie, "/a/b/c/d", "GET"));
+    }
+    
+    @Test public void test_find_same_as_linear_scan() {
+    	List<Route> routes = routes();
+    	RouteTrie trie = new RouteTrie(routes);
+    	String[] paths = {"/signon", "/posts/new", "/posts/1", "/posts/x", "/Posts/NEW", "/users/list", "/users/edit/3", "/x"};
+    	String[] methods = {"GET", "POST", "PUT", "DELETE"};
+    	for (String path : paths) {
+    		for (String method : methods) {
+    			RequestInfo ri = new RequestInfo(path, method);
+    			int expected = -1;
+    			for (int i = 0; i < routes.size(); i++) {
+    				if (routes.get(i).isRouteFor(ri)) {
+    					expected = i;
+    					break;
+    				}
+    			}
+    			assertEquals(method + " " + path, expected, trie.find(ri));
+    		}
+    	}
+    }
+}